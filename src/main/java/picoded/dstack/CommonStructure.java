@@ -2,6 +2,7 @@ package picoded.dstack;
 
 // Java imports
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 // Library imports
 import picoded.core.struct.GenericConvertMap;
@@ -11,6 +12,9 @@ import picoded.core.common.SystemSetupInterface;
 // Third party imports
 import org.apache.commons.lang3.RandomUtils;
 
+// Picoded imports
+import picoded.dstack.core.Core_AsyncExecutor;
+
 /**
  * Minimal interface for all of picoded.dstack implmentation structures.
  * That handles consistent setup / teardown process.
@@ -90,4 +94,14 @@ public interface CommonStructure extends SystemSetupInterface {
 		return new GenericConvertHashMap<String, Object>();
 	}
 	
+	/**
+	 * Executor used by the async API (getAsync, putValueAsync, etc), for operations
+	 * without native async support in the backend.
+	 *
+	 * @return  The bounded executor to use, defaults to the shared executor
+	 **/
+	default Executor asyncExecutor() {
+		return Core_AsyncExecutor.sharedExecutor();
+	}
+	
 }
@@ -8,6 +8,8 @@ import picoded.dstack.stack.*;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
 public class DStack extends CoreStack {
 	
@@ -17,6 +19,13 @@ public class DStack extends CoreStack {
 	// Namespace listing
 	protected final GenericConvertList<Object> namespace;
 	
+	// Namespace config, and its precompiled regex pattern, in the same order as the listing
+	protected final List<GenericConvertMap<String, Object>> namespaceConfigList = new ArrayList<>();
+	protected final List<Pattern> namespacePatternList = new ArrayList<>();
+	
+	// Cache of previously resolved name to namespace config
+	protected final ConcurrentHashMap<String, GenericConvertMap<String, Object>> namespaceResolveCache = new ConcurrentHashMap<>();
+	
 	/**
 	 * Constructor with configuration map
 	 */
@@ -30,6 +39,16 @@ public class DStack extends CoreStack {
 		
 		providerConfig = new ProviderConfig(providerConfigList);
 		namespace = inConfig.fetchGenericConvertList("namespace");
+		
+		// Precompile the namespace regex patterns
+		if (namespace != null) {
+			for (Object object : namespace) {
+				GenericConvertMap<String, Object> namespaceConfig = GenericConvert
+					.toGenericConvertStringMap(object);
+				namespaceConfigList.add(namespaceConfig);
+				namespacePatternList.add(Pattern.compile(namespaceConfig.getString("regex", "")));
+			}
+		}
 	}
 	
 	/**
@@ -194,22 +213,44 @@ public class DStack extends CoreStack {
 	/**
 	 * This function will find the first namespaceConfig that matches the requested name
 	 *
+	 * Matching results are cached by name, as the namespace configuration is fixed
+	 * after construction.
+	 *
 	 * @param name of the object to be searched
 	 *
 	 * @return the configuration or null
 	 */
 	protected GenericConvertMap<String, Object> resolveNamespaceConfig(String name) {
-		for (Object object : namespace) {
-			GenericConvertMap<String, Object> namespaceConfig = GenericConvert
-				.toGenericConvertStringMap(object);
-			String pattern = namespaceConfig.getString("regex", "");
-			if (regexNameMatcher(name, pattern)) {
-				return namespaceConfig;
+		// Get from cache if found
+		GenericConvertMap<String, Object> cache = namespaceResolveCache.get(name);
+		if (cache != null) {
+			return cache;
+		}
+		
+		// Find the first matching pattern
+		int size = namespacePatternList.size();
+		for (int i = 0; i < size; ++i) {
+			if (regexNameMatcher(name, namespacePatternList.get(i))) {
+				cache = namespaceConfigList.get(i);
+				namespaceResolveCache.put(name, cache);
+				return cache;
 			}
 		}
 		return null;
 	}
 	
+	/**
+	 * Attempts to match the name with the precompiled regex pattern
+	 *
+	 * @param nameToMatch is the string to check if it matches with the pattern
+	 * @param pattern     is the compiled `regex` that is set in the namespace
+	 *
+	 * @return true if match is valid
+	 */
+	protected boolean regexNameMatcher(String nameToMatch, Pattern pattern) {
+		return pattern.matcher(nameToMatch).matches();
+	}
+	
 	/**
 	 * Attempts to match the name with the regex pattern given in the param
 	 *
@@ -2,7 +2,9 @@ package picoded.dstack;
 
 // Java imports
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import picoded.core.struct.*;
+import picoded.dstack.core.Core_AsyncExecutor;
 
 /**
  * Represents a single object node in the DataObjectMap collection.
@@ -87,4 +89,15 @@ public interface DataObject extends GenericConvertMap<String, Object> {
 	 **/
 	void saveAll();
 	
+	/**
+	 * Async varient of saveDelta, performed using the shared async executor by default.
+	 *
+	 * Note that the object should not be modified, until the save is completed.
+	 *
+	 * @return  future which completes when the save is completed
+	 **/
+	default CompletableFuture<Void> saveDeltaAsync() {
+		return CompletableFuture.runAsync(this::saveDelta, Core_AsyncExecutor.sharedExecutor());
+	}
+	
 }
@@ -2,10 +2,13 @@ package picoded.dstack;
 
 // Java imports
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.Collections;
 
@@ -15,6 +18,7 @@ import org.apache.commons.lang3.RandomUtils;
 // Picoded imports
 import picoded.core.struct.template.UnsupportedDefaultMap;
 import picoded.core.struct.query.Query;
+import picoded.core.struct.query.OrderBy;
 import picoded.core.struct.query.utils.CollectionQueryForIDInterface;
 import picoded.dstack.core.Core_DataObject;
 import picoded.core.struct.GenericConvertMap;
@@ -144,6 +148,19 @@ public interface DataObjectMap extends UnsupportedDefaultMap<String, DataObject>
 	 **/
 	DataObject get(String oid, boolean isUnchecked);
 	
+	/**
+	 * Get a DataObject, with only the requested fields loaded (if supported by the backend),
+	 * the remaining fields are loaded only when needed.
+	 *
+	 * @param  object GUID to fetch
+	 * @param  fields to fetch, fetches the full object if empty
+	 *
+	 * @return the DataObject, null if not exists
+	 **/
+	default DataObject get(String oid, String... fields) {
+		return get((Object) oid);
+	}
+	
 	/**
 	 * Get a DataObject, and returns it. Skips existance checks if required
 	 * Wrapped in an ProxyGenericConvertMap compatible class
@@ -202,6 +219,25 @@ public interface DataObjectMap extends UnsupportedDefaultMap<String, DataObject>
 		return getArrayFromID(query_id(whereClause, whereValues, orderByStr, offset, limit), true);
 	}
 	
+	/**
+	 * Performs a search query, and returns the respective DataObjects,
+	 * with only the requested fields loaded (if supported by the backend),
+	 * the remaining fields are loaded only when needed.
+	 *
+	 * @param   where query statement
+	 * @param   where clause values array
+	 * @param   query string to sort the order by, use null to ignore
+	 * @param   offset of the result to display, use -1 to ignore
+	 * @param   number of objects to return max, use -1 to ignore
+	 * @param   fields to fetch, fetches the full objects if empty
+	 *
+	 * @return  The DataObject[] array
+	 **/
+	default DataObject[] query(String whereClause, Object[] whereValues, String orderByStr,
+		int offset, int limit, String[] fields) {
+		return query(whereClause, whereValues, orderByStr, offset, limit);
+	}
+	
 	/**
 	 * Performs a search query, and returns the respective DataObject keys.
 	 *
@@ -218,6 +254,68 @@ public interface DataObjectMap extends UnsupportedDefaultMap<String, DataObject>
 	String[] query_id(String whereClause, Object[] whereValues, String orderByStr, int offset,
 		int limit);
 	
+	/**
+	 * Performs a keyset paginated search query, and returns the respective DataObject keys.
+	 *
+	 * Unlike offset based pagination, this "seeks" directly past the last object of the previous
+	 * page (by its sort key, and _oid), so deep pages does not cost more then the first page.
+	 *
+	 * Note that this default implementation filters and sorts the full query result,
+	 * implementations should push the seek position into their backend query instead.
+	 *
+	 * @param   where query statement
+	 * @param   where clause values array
+	 * @param   query string to sort the order by, use null to ignore
+	 * @param   after the last DataObject (or map of its sort keys and _oid) of the previous page,
+	 *          use null to get the first page
+	 * @param   number of objects to return max
+	 *
+	 * @return  The String[] array
+	 **/
+	default String[] query_id_seek(String whereClause, Object[] whereValues, String orderByStr,
+		Map<String, Object> after, int limit) {
+		// Order by the sort key, with _oid as the tie breaker
+		String sortStr = "_oid";
+		if (orderByStr != null && (orderByStr = orderByStr.trim()).length() > 0) {
+			sortStr = orderByStr + " , _oid";
+		}
+		OrderBy<Map<String, Object>> sorter = new OrderBy<Map<String, Object>>(sortStr);
+		
+		// Filter the objects after the seek position, and sort them
+		List<DataObject> retList = new ArrayList<DataObject>();
+		for (DataObject obj : query(whereClause, whereValues, null, -1, -1)) {
+			if (obj != null && (after == null || sorter.compare(obj, after) > 0)) {
+				retList.add(obj);
+			}
+		}
+		Collections.sort(retList, sorter);
+		
+		// Return the page
+		int end = (limit >= 1) ? Math.min(limit, retList.size()) : retList.size();
+		String[] ret = new String[end];
+		for (int i = 0; i < end; ++i) {
+			ret[i] = retList.get(i)._oid();
+		}
+		return ret;
+	}
+	
+	/**
+	 * Performs a keyset paginated search query, and returns the respective DataObjects
+	 *
+	 * @param   where query statement
+	 * @param   where clause values array
+	 * @param   query string to sort the order by, use null to ignore
+	 * @param   after the last DataObject of the previous page, use null to get the first page
+	 * @param   number of objects to return max
+	 *
+	 * @return  The DataObject[] array
+	 **/
+	default DataObject[] query_seek(String whereClause, Object[] whereValues, String orderByStr,
+		Map<String, Object> after, int limit) {
+		return getArrayFromID(query_id_seek(whereClause, whereValues, orderByStr, after, limit),
+			true);
+	}
+	
 	/**
 	 * Performs a search query, and returns the respective DataObjects
 	 *
@@ -532,4 +630,78 @@ public interface DataObjectMap extends UnsupportedDefaultMap<String, DataObject>
 		return (retID != null) ? get(retID) : null;
 	}
 	
+	//--------------------------------------------------------------------------
+	//
+	// Async operations
+	//
+	// By default these are performed using the asyncExecutor,
+	// and should be optimized with native async support in the implementation (if any)
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Async varient of get, with existance checks
+	 *
+	 * @param  object GUID to fetch
+	 *
+	 * @return future of the DataObject, null if not exists
+	 **/
+	default CompletableFuture<DataObject> getAsync(String oid) {
+		return CompletableFuture.supplyAsync(() -> get((Object) oid), asyncExecutor());
+	}
+	
+	/**
+	 * Get multiple DataObjects, with each get performed concurrently via getAsync
+	 *
+	 * @param  object GUIDs to fetch
+	 *
+	 * @return future of the DataObject map, excluding objects which do not exists
+	 **/
+	default CompletableFuture<Map<String, DataObject>> getAllAsync(Collection<String> oids) {
+		List<CompletableFuture<DataObject>> futureList = new ArrayList<>();
+		for (String oid : oids) {
+			futureList.add(getAsync(oid));
+		}
+		return CompletableFuture.allOf(futureList.toArray(new CompletableFuture[0])).thenApply(
+			(v) -> {
+				Map<String, DataObject> ret = new HashMap<String, DataObject>();
+				for (CompletableFuture<DataObject> future : futureList) {
+					DataObject obj = future.join();
+					if (obj != null) {
+						ret.put(obj._oid(), obj);
+					}
+				}
+				return ret;
+			});
+	}
+	
+	/**
+	 * Async varient of query
+	 *
+	 * @param   where query statement
+	 * @param   where clause values array
+	 * @param   query string to sort the order by, use null to ignore
+	 * @param   offset of the result to display, use -1 to ignore
+	 * @param   number of objects to return max, use -1 to ignore
+	 *
+	 * @return  future of the DataObject[] array
+	 **/
+	default CompletableFuture<DataObject[]> queryAsync(String whereClause, Object[] whereValues,
+		String orderByStr, int offset, int limit) {
+		return CompletableFuture.supplyAsync(
+			() -> query(whereClause, whereValues, orderByStr, offset, limit), asyncExecutor());
+	}
+	
+	/**
+	 * Async varient of query, without ordering or limits
+	 *
+	 * @param   where query statement
+	 * @param   where clause values array
+	 *
+	 * @return  future of the DataObject[] array
+	 **/
+	default CompletableFuture<DataObject[]> queryAsync(String whereClause, Object[] whereValues) {
+		return queryAsync(whereClause, whereValues, null, -1, -1);
+	}
+	
 }
@@ -9,6 +9,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 
@@ -111,6 +112,37 @@ public interface FileWorkspace {
 		writeByteArray(filepath, jointData);
 	}
 	
+	/**
+	 * Reads a byte range of a file, into a byte array.
+	 *
+	 * The returned array may be shorter then the requested length, if the end of the
+	 * file is reached. An empty array is returned if the offset is beyond the file size.
+	 *
+	 * @param  filepath in the workspace to extract
+	 * @param  offset   in bytes, to start reading from
+	 * @param  length   maximum number of bytes to read
+	 *
+	 * @return the file contents within the range, null if file does not exists
+	 */
+	default byte[] readByteRange(final String filepath, final long offset, final int length) {
+		if (offset < 0 || length < 0) {
+			throw new IllegalArgumentException("Invalid negative offset / length for byte range");
+		}
+		
+		// Get existing data
+		byte[] read = readByteArray(filepath);
+		if (read == null) {
+			return null;
+		}
+		
+		// Return the requested segment
+		if (offset >= read.length) {
+			return new byte[0];
+		}
+		int end = (int) Math.min((long) read.length, offset + length);
+		return Arrays.copyOfRange(read, (int) offset, end);
+	}
+	
 	//
 	// String support for FileWorkspace
 	//--------------------------------------------------------------------------
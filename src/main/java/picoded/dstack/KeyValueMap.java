@@ -1,6 +1,9 @@
 package picoded.dstack;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import picoded.core.security.NxtCrypt;
 import picoded.core.struct.GenericConvertMap;
@@ -359,4 +362,66 @@ public interface KeyValueMap extends GenericConvertMap<String, KeyValue>, Common
 		((GenericConvertMap<String, KeyValue>) this).clear();
 	}
 	
+	//--------------------------------------------------------------------------
+	//
+	// Bulk operations
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Returns the values of multiple keys, in as few backend calls as possible
+	 *
+	 * @param keys to lookup values
+	 *
+	 * @return  map of key values, missing (or expired) keys are not included
+	 **/
+	Map<String, String> getValues(Collection<String> keys);
+	
+	/**
+	 * Stores (and overwrites if needed) multiple key values, in as few backend calls as possible
+	 *
+	 * @param values map of key values to store, null values are removed
+	 * @param lifespan time to expire in milliseconds, 0 (or less) means no expiry
+	 **/
+	void putValues(Map<String, String> values, long lifespan);
+	
+	/**
+	 * Removes the values of multiple keys, in as few backend calls as possible
+	 *
+	 * @param keys where the values are stored
+	 **/
+	void removeValues(Collection<String> keys);
+	
+	//--------------------------------------------------------------------------
+	//
+	// Async operations
+	//
+	// By default these are performed using the asyncExecutor,
+	// and should be optimized with native async support in the implementation (if any)
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Async varient of getValue
+	 *
+	 * @param key param find the thae meta key
+	 *
+	 * @return  future of the value, null if not found (or expired)
+	 **/
+	default CompletableFuture<String> getValueAsync(Object key) {
+		return CompletableFuture.supplyAsync(() -> getValue(key), asyncExecutor());
+	}
+	
+	/**
+	 * Async varient of putValue
+	 *
+	 * @param key as String
+	 * @param value as String, null means removal
+	 *
+	 * @return  future which completes when the value is stored (with a null value)
+	 **/
+	default CompletableFuture<String> putValueAsync(String key, String value) {
+		return CompletableFuture.supplyAsync(() -> putValue(key, value), asyncExecutor());
+	}
+	
 }
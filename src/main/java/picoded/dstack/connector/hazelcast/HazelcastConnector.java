@@ -259,8 +259,52 @@ public class HazelcastConnector {
 				"Missing `memberTcpList` config for hazelcast client : " + clusterName);
 		}
 		
+		// Near cache config, for each map name (or wildcard pattern)
+		GenericConvertMap<String, Object> nearCacheMap = configMap.fetchGenericConvertStringMap(
+			"nearCache", "{}");
+		for (String mapName : nearCacheMap.keySet()) {
+			cfg.addNearCacheConfig(nearCacheConfigFromMap(mapName,
+				nearCacheMap.fetchGenericConvertStringMap(mapName, "{}")));
+		}
+		
 		// Intialize the server instance and return 
 		return HazelcastClient.newHazelcastClient(cfg);
 	}
 	
+	/**
+	 * Build the client near cache config, for the given map name (or wildcard pattern)
+	 * 
+	 * @param mapName name (or wildcard pattern) of the maps to near cache
+	 * @param nearCacheConfig near cache settings to apply
+	 * 
+	 * @return near cache config
+	 */
+	protected static NearCacheConfig nearCacheConfigFromMap(String mapName,
+		GenericConvertMap<String, Object> nearCacheConfig) {
+		
+		// Initialize the config
+		NearCacheConfig ret = new NearCacheConfig(mapName);
+		
+		// Storage format of the near cached values, OBJECT avoids deserializing on every hit
+		ret.setInMemoryFormat(InMemoryFormat.valueOf(nearCacheConfig.getString("inMemoryFormat",
+			"BINARY").toUpperCase(Locale.ENGLISH)));
+		
+		// Invalidate near cached values, when they are changed on the cluster
+		ret.setInvalidateOnChange(nearCacheConfig.getBoolean("invalidateOnChange", true));
+		
+		// Expiry settings, 0 disables them
+		ret.setTimeToLiveSeconds(nearCacheConfig.getInt("timeToLiveSeconds", 0));
+		ret.setMaxIdleSeconds(nearCacheConfig.getInt("maxIdleSeconds", 0));
+		
+		// Eviction settings, based on the number of near cached entries
+		EvictionConfig eConfig = new EvictionConfig();
+		eConfig.setEvictionPolicy(EvictionPolicy.valueOf(nearCacheConfig.getString(
+			"evictionPolicy", "LRU").toUpperCase(Locale.ENGLISH)));
+		eConfig.setMaxSizePolicy(MaxSizePolicy.ENTRY_COUNT);
+		eConfig.setSize(nearCacheConfig.getInt("maxSize", 10000));
+		ret.setEvictionConfig(eConfig);
+		
+		return ret;
+	}
+	
 }
\ No newline at end of file
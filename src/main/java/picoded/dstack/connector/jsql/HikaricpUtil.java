@@ -69,6 +69,9 @@ class HikaricpUtil {
 		// minimumIdle
 		ret.setMinimumIdle(config.getInt("minimumIdle", 2));
 		
+		// readOnly, used for read replica pools
+		ret.setReadOnly(config.getBoolean("readOnly", ret.isReadOnly()));
+		
 		// Return config object
 		return ret;
 	}
@@ -117,41 +120,118 @@ class HikaricpUtil {
 	/**
 	 * Loads a HikariDataSource for SQLite given the config
 	 *
+	 * When "walMode" is enabled (for file based SQLite), this returns the read-only reader pool,
+	 * and the single writer connection should be loaded via `sqliteWriter`
+	 *
 	 * @param  config map used
 	 *
 	 * @return HikariDataSource with the appropriate config loaded and initialized
 	 */
 	public static HikariDataSource sqlite(GenericConvertMap config) {
+		// Get the absolute file path to use for sqlite
+		String absolutePath = sqliteAbsolutePath(config);
+		
+		// Load the common config
+		HikariConfig hconfig = commonConfigLoading(config);
+		
+		// Setup the driver and path
+		sqliteDriverSetup(hconfig, absolutePath);
+		
+		// Embedded optimized WAL mode, setup as a read-only reader pool
+		if (sqliteWalMode(config)) {
+			hconfig.setMaximumPoolSize(config.getInt("readerPoolSize", hconfig.getMaximumPoolSize()));
+			hconfig.setMinimumIdle(Math.min(hconfig.getMinimumIdle(), hconfig.getMaximumPoolSize()));
+			sqliteWalConfig(hconfig, config, true);
+		}
+		
+		// Initialize the data source
+		return new HikariDataSource(hconfig);
+	}
+	
+	/**
+	 * Loads the single connection HikariDataSource, used as the SQLite writer in "walMode".
+	 * 
+	 * This also initializes the WAL journal mode (which is persisted in the SQLite file),
+	 * and should be loaded before the reader pool.
+	 *
+	 * @param  config map used
+	 *
+	 * @return HikariDataSource with the appropriate config loaded and initialized
+	 */
+	public static HikariDataSource sqliteWriter(GenericConvertMap config) {
+		// Get the absolute file path to use for sqlite
+		String absolutePath = sqliteAbsolutePath(config);
+		
+		// Load the common config, with a single connection
+		HikariConfig hconfig = commonConfigLoading(config);
+		hconfig.setAutoCommit(true);
+		hconfig.setMaximumPoolSize(1);
+		hconfig.setMinimumIdle(1);
+		
+		// Setup the driver, path and pragmas
+		sqliteDriverSetup(hconfig, absolutePath);
+		sqliteWalConfig(hconfig, config, false);
+		
+		// Initialize the data source
+		return new HikariDataSource(hconfig);
+	}
+	
+	/**
+	 * Indicates if the embedded optimized WAL mode is enabled via "walMode",
+	 * this is only supported for file based SQLite.
+	 *
+	 * @param  config map used
+	 *
+	 * @return true if WAL mode should be used
+	 */
+	public static boolean sqliteWalMode(GenericConvertMap config) {
+		if (config == null || !config.getBoolean("walMode", false)) {
+			return false;
+		}
+		return !sqliteAbsolutePath(config).equals(":memory:");
+	}
+	
+	/**
+	 * Get and validate the SQLite file path, from the "path" config
+	 *
+	 * @param  config map used
+	 *
+	 * @return absolute path of the SQLite file, or ":memory:"
+	 */
+	private static String sqliteAbsolutePath(GenericConvertMap config) {
 		// Lets get the sqlite path
 		String path = config.getString("path", ":memory:");
 		if (path == null || path.length() == 0) {
 			throw new RuntimeException("Missing path configuration for SQLite connection");
 		}
 		
-		// Get the absolute file path to use for sqlite
-		String absolutePath = null;
-		
 		// In memory mode uses :memory: respectively
 		if (path.equalsIgnoreCase(":memory:")) {
-			absolutePath = ":memory:";
-		} else {
-			// Get the sqlite file
-			File sqliteFileObj = new File(path);
-			absolutePath = sqliteFileObj.getAbsolutePath();
-			
-			// And check if the path is a directory
-			// if so it throws an error as the file is not the following:
-			// - a non existing file (which sqlite will initialize)
-			// - a file (which sqlite will read from)
-			if (sqliteFileObj.isDirectory()) {
-				throw new RuntimeException(
-					"Invalid file path found for sqlite - found a directory instead : " + absolutePath);
-			}
+			return ":memory:";
 		}
 		
-		// Load the common config
-		HikariConfig hconfig = commonConfigLoading(config);
+		// Get the sqlite file
+		File sqliteFileObj = new File(path);
+		String absolutePath = sqliteFileObj.getAbsolutePath();
 		
+		// And check if the path is a directory
+		// if so it throws an error as the file is not the following:
+		// - a non existing file (which sqlite will initialize)
+		// - a file (which sqlite will read from)
+		if (sqliteFileObj.isDirectory()) {
+			throw new RuntimeException(
+				"Invalid file path found for sqlite - found a directory instead : " + absolutePath);
+		}
+		return absolutePath;
+	}
+	
+	/**
+	 * Setup the SQLite driver, and JDBC url
+	 *
+	 * @param  hconfig to setup
+	 * @param  absolutePath of the SQLite file
+	 */
+	private static void sqliteDriverSetup(HikariConfig hconfig, String absolutePath) {
 		// Load the DB library
 		// This is only imported on demand, avoid preloading until needed
 		try {
@@ -164,9 +244,39 @@ class HikaricpUtil {
 		// Setup the configured
 		hconfig.setDriverClassName("org.sqlite.JDBC");
 		hconfig.setJdbcUrl("jdbc:sqlite:" + absolutePath);
+	}
+	
+	/**
+	 * Setup the embedded optimized SQLite pragmas, passed as driver properties
+	 * 
+	 * - journal_mode : WAL (writer only, as it is persisted in the file)
+	 * - synchronous  : "synchronous" config, defaults to NORMAL (safe in WAL mode)
+	 * - cache_size   : "cacheSize" config, defaults to -16000 (16MB)
+	 * - busy_timeout : "busyTimeout" config, defaults to 5000 (ms)
+	 * - mmap_size    : "mmapSize" config, defaults to 256MB (applied via connection init)
+	 *
+	 * @param  hconfig to setup
+	 * @param  config map used
+	 * @param  readOnly connection setup
+	 */
+	private static void sqliteWalConfig(HikariConfig hconfig, GenericConvertMap config,
+		boolean readOnly) {
+		org.sqlite.SQLiteConfig sqliteConfig = new org.sqlite.SQLiteConfig();
+		if (readOnly) {
+			sqliteConfig.setReadOnly(true);
+		} else {
+			sqliteConfig.setPragma(org.sqlite.SQLiteConfig.Pragma.JOURNAL_MODE, "WAL");
+		}
+		sqliteConfig.setPragma(org.sqlite.SQLiteConfig.Pragma.SYNCHRONOUS,
+			config.getString("synchronous", "NORMAL"));
+		sqliteConfig.setCacheSize(config.getInt("cacheSize", -16000));
+		sqliteConfig.setBusyTimeout(config.getInt("busyTimeout", 5000));
 		
-		// Initialize the data source
-		return new HikariDataSource(hconfig);
+		// Pass it as driver properties
+		hconfig.setDataSourceProperties(sqliteConfig.toProperties());
+		
+		// mmap_size is applied on each new connection
+		hconfig.setConnectionInitSql("PRAGMA mmap_size = " + config.getLong("mmapSize", 268435456L));
 	}
 	
 	//----------------------------------------------------------------------------------
@@ -1,6 +1,7 @@
 package picoded.dstack.connector.jsql;
 
 import java.util.Map;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -114,6 +115,15 @@ public abstract class JSql implements StatementBuilderTableAndIndex, StatementBu
 		throw new IllegalArgumentException("Unsupported DB type in DB config object : " + type);
 	}
 	
+	/**
+	 * Default connection pool size, used when "maximumPoolSize" is not configured
+	 *
+	 * @return default max pool size to use
+	 */
+	public static int defaultMaxPoolSize() {
+		return HikaricpUtil.defaultMaxPoolSize();
+	}
+	
 	//-------------------------------------------------------------------------------------
 	//
 	// PreparedStatement builder
@@ -147,6 +157,43 @@ public abstract class JSql implements StatementBuilderTableAndIndex, StatementBu
 	 **/
 	public abstract JSqlType sqlType();
 	
+	//-------------------------------------------------------------------------
+	//
+	// Read replica routing
+	//
+	//-------------------------------------------------------------------------
+	
+	/**
+	 * Executes the given call, with its read queries routed to the read replicas (if any).
+	 * This should be used for read paths which can tolerate replication lag.
+	 *
+	 * @param  call to execute
+	 *
+	 * @return the call result
+	 **/
+	public <T> T readReplica(Supplier<T> call) {
+		return call.get();
+	}
+	
+	/**
+	 * Executes the given call, with all its queries on the primary connection.
+	 * This should be used for read-your-writes critical calls.
+	 *
+	 * @param  call to execute
+	 *
+	 * @return the call result
+	 **/
+	public <T> T primaryOnly(Supplier<T> call) {
+		return call.get();
+	}
+	
+	/**
+	 * @return the number of configured read replicas
+	 **/
+	public int replicaCount() {
+		return 0;
+	}
+	
 	//-------------------------------------------------------------------------
 	//
 	// Connection closure / disposal
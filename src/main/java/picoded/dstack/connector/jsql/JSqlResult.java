@@ -8,10 +8,14 @@ import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.io.IOException;
@@ -21,6 +25,7 @@ import java.io.BufferedReader;
 import oracle.sql.CLOB;
 
 // Lib depends
+import picoded.core.conv.GenericConvert;
 import picoded.core.struct.CaseInsensitiveHashMap;
 import picoded.core.struct.GenericConvertList;
 import picoded.core.struct.GenericConvertArrayList;
@@ -29,6 +34,10 @@ import picoded.core.struct.GenericConvertArrayList;
  * JSql result set, where data is fetched from an SQL result set, into a map<list> data structure.
  * Constructor with ResultSet immediately fetches the result data via `fetchAllRows`
  *
+ * Internally the data is stored in a columnar format, with numeric columns in primitive arrays.
+ * The index based accessors (`columnIndex`, `getLong`, `getString`, etc.) reads directly from it,
+ * while the map<list> view is built lazily (column by column) for compatibility.
+ *
  * *******************************************************************************
  *
  * [LOW PRIROTY TODO LIST]
@@ -108,6 +117,60 @@ public class JSqlResult extends CaseInsensitiveHashMap<String, GenericConvertLis
 	 **/
 	private int rowCount = -1;
 	
+	//-------------------------------------------------------------------------
+	//
+	// Columnar storage
+	//
+	//-------------------------------------------------------------------------
+	
+	/// Column storage kind, for generic objects
+	protected static final byte COL_OBJECT = 0;
+	
+	/// Column storage kind, for integer numerics stored in a long[]
+	protected static final byte COL_LONG = 1;
+	
+	/// Column storage kind, for floating numerics stored in a double[]
+	protected static final byte COL_DOUBLE = 2;
+	
+	/// Cell boxing type for primitive columns, used to reproduce the driver's boxed value
+	protected static final byte BOX_NULL = 0;
+	protected static final byte BOX_INTEGER = 1;
+	protected static final byte BOX_LONG = 2;
+	protected static final byte BOX_DOUBLE = 3;
+	protected static final byte BOX_FLOAT = 4;
+	protected static final byte BOX_SHORT = 5;
+	protected static final byte BOX_BYTE = 6;
+	
+	/// Initial row capacity of the columnar arrays
+	protected static final int INITIAL_CAPACITY = 16;
+	
+	/// Column names, in result set order (null if there is no columnar data)
+	protected String[] columnNames = null;
+	
+	/// Lower case column name, to column index lookup
+	protected Map<String, Integer> columnIndexMap = null;
+	
+	/// Storage kind of each column
+	protected byte[] columnKinds = null;
+	
+	/// Primitive storage for COL_LONG columns
+	protected long[][] longData = null;
+	
+	/// Primitive storage for COL_DOUBLE columns
+	protected double[][] doubleData = null;
+	
+	/// Boxing type of each cell, for COL_LONG / COL_DOUBLE columns
+	protected byte[][] boxData = null;
+	
+	/// Object storage for COL_OBJECT columns
+	protected Object[][] objectData = null;
+	
+	/// Lazily built list view of each column, used by the map view
+	protected GenericConvertList<Object>[] columnLists = null;
+	
+	/// Indicates if the full map view was populated
+	protected boolean mapViewBuilt = true;
+	
 	//-------------------------------------------------------------------------
 	//
 	// Row fetching
@@ -115,10 +178,13 @@ public class JSqlResult extends CaseInsensitiveHashMap<String, GenericConvertLis
 	//-------------------------------------------------------------------------
 	
 	/**
-	 * Fetches all the row data from the result set, 
-	 * store it into the local data structure,
+	 * Fetches all the row data from the result set,
+	 * store it into the local columnar data structure,
 	 * and close the ResultSet connection (within a try, catch, finally)
 	 *
+	 * Column indexes and storage kinds are resolved once from the result set meta data.
+	 * Numeric columns are stored in primitive arrays, and the map view is only built on demand.
+	 *
 	 * @return rowCount on success, -1 indicate there was no SQLResult to process
 	 **/
 	protected int fetchAllRows(ResultSet sqlRes) throws JSqlException {
@@ -133,30 +199,33 @@ public class JSqlResult extends CaseInsensitiveHashMap<String, GenericConvertLis
 			String[] colNames = JSqlResultUtil.extractColumnNames(sqlRes);
 			int colCount = colNames.length;
 			
-			//
-			// Lets initialize the collumn array lists
+			// Setup the columnar structure
+			setupColumns(colNames, JSqlResultUtil.extractColumnKinds(sqlRes));
+			
 			//
 			// Minor note:
 			// Due to the limitation of some SQL implmentation (like sqlite)
 			// being only to process data in a strict forward fashion. And not be able to
 			// get the row count at the start.
 			//
-			// if this is fixed, we can one day initialize a fixed sized arrayList
+			// Hence the columnar arrays are grown as needed
 			//
-			for (int i = 0; i < colCount; ++i) {
-				this.put(colNames[i], new GenericConvertArrayList<>());
-			}
+			int capacity = INITIAL_CAPACITY;
+			allocateColumns(capacity);
 			
 			// Time to iterate the actual SQL result, and count the rows
 			// While transfering the result set over
 			rowCount = 0;
 			while (sqlRes.next()) {
+				// Grow the column arrays if needed
+				if (rowCount >= capacity) {
+					capacity = capacity * 2;
+					growColumns(capacity);
+				}
 				// Iterate the result in a row, column by column
 				for (int i = 0; i < colCount; i++) {
-					// Gets the row data (1-indexed) and filters it
-					Object dataVal = JSqlResultUtil.normalizeDataObject(sqlRes.getObject(i + 1));
-					// Get array list to populate, then add in value
-					this.get(colNames[i]).add(dataVal);
+					// Gets the row data (1-indexed) and store it
+					storeCell(rowCount, i, sqlRes.getObject(i + 1));
 				}
 				++rowCount;
 			}
@@ -176,6 +245,145 @@ public class JSqlResult extends CaseInsensitiveHashMap<String, GenericConvertLis
 		}
 	}
 	
+	/**
+	 * Setup the column names and kinds, with a lazily built map view
+	 *
+	 * @param  colNames of the result
+	 * @param  colKinds of the result
+	 **/
+	@SuppressWarnings("unchecked")
+	protected void setupColumns(String[] colNames, byte[] colKinds) {
+		int colCount = colNames.length;
+		columnNames = colNames;
+		columnKinds = colKinds;
+		columnIndexMap = new HashMap<String, Integer>();
+		for (int i = 0; i < colCount; ++i) {
+			if (colNames[i] != null) {
+				columnIndexMap.put(colNames[i].toLowerCase(Locale.ROOT), i);
+			}
+		}
+		longData = new long[colCount][];
+		doubleData = new double[colCount][];
+		boxData = new byte[colCount][];
+		objectData = new Object[colCount][];
+		columnLists = new GenericConvertList[colCount];
+		mapViewBuilt = false;
+	}
+	
+	/**
+	 * Allocate the column arrays, to the given row capacity
+	 *
+	 * @param  capacity of rows
+	 **/
+	protected void allocateColumns(int capacity) {
+		for (int i = 0; i < columnNames.length; ++i) {
+			if (columnKinds[i] == COL_LONG) {
+				longData[i] = new long[capacity];
+				boxData[i] = new byte[capacity];
+			} else if (columnKinds[i] == COL_DOUBLE) {
+				doubleData[i] = new double[capacity];
+				boxData[i] = new byte[capacity];
+			} else {
+				objectData[i] = new Object[capacity];
+			}
+		}
+	}
+	
+	/**
+	 * Grow the column arrays, to the given row capacity
+	 *
+	 * @param  capacity of rows
+	 **/
+	protected void growColumns(int capacity) {
+		for (int i = 0; i < columnNames.length; ++i) {
+			if (longData[i] != null) {
+				longData[i] = Arrays.copyOf(longData[i], capacity);
+			}
+			if (doubleData[i] != null) {
+				doubleData[i] = Arrays.copyOf(doubleData[i], capacity);
+			}
+			if (boxData[i] != null) {
+				boxData[i] = Arrays.copyOf(boxData[i], capacity);
+			}
+			if (objectData[i] != null) {
+				objectData[i] = Arrays.copyOf(objectData[i], capacity);
+			}
+		}
+	}
+	
+	/**
+	 * Store a single cell value into its column
+	 *
+	 * @param  row to store into
+	 * @param  col to store into
+	 * @param  rawVal from the result set
+	 **/
+	protected void storeCell(int row, int col, Object rawVal) {
+		byte kind = columnKinds[col];
+		
+		// Primitive columns, with the value type expected
+		if (kind == COL_LONG) {
+			if (rawVal == null) {
+				boxData[col][row] = BOX_NULL;
+				return;
+			} else if (rawVal instanceof Integer) {
+				longData[col][row] = ((Integer) rawVal).longValue();
+				boxData[col][row] = BOX_INTEGER;
+				return;
+			} else if (rawVal instanceof Short) {
+				longData[col][row] = ((Short) rawVal).longValue();
+				boxData[col][row] = BOX_SHORT;
+				return;
+			} else if (rawVal instanceof Byte) {
+				longData[col][row] = ((Byte) rawVal).longValue();
+				boxData[col][row] = BOX_BYTE;
+				return;
+			} else if (rawVal instanceof Long) {
+				longData[col][row] = ((Long) rawVal).longValue();
+				boxData[col][row] = BOX_LONG;
+				return;
+			}
+		} else if (kind == COL_DOUBLE) {
+			if (rawVal == null) {
+				boxData[col][row] = BOX_NULL;
+				return;
+			} else if (rawVal instanceof Double || rawVal instanceof BigDecimal) {
+				doubleData[col][row] = ((Number) rawVal).doubleValue();
+				boxData[col][row] = BOX_DOUBLE;
+				return;
+			} else if (rawVal instanceof Float) {
+				doubleData[col][row] = ((Float) rawVal).doubleValue();
+				boxData[col][row] = BOX_FLOAT;
+				return;
+			}
+		}
+		
+		// Unexpected value type for a primitive column (ie. sqlite dynamic typing)
+		// demote the column to object storage, and store as per normal
+		if (kind != COL_OBJECT) {
+			demoteColumn(col);
+		}
+		objectData[col][row] = JSqlResultUtil.normalizeDataObject(rawVal);
+	}
+	
+	/**
+	 * Convert a primitive column into object storage
+	 *
+	 * @param  col to convert
+	 **/
+	protected void demoteColumn(int col) {
+		int capacity = boxData[col].length;
+		Object[] objArr = new Object[capacity];
+		for (int row = 0; row < rowCount; ++row) {
+			objArr[row] = getObject(row, col);
+		}
+		objectData[col] = objArr;
+		longData[col] = null;
+		doubleData[col] = null;
+		boxData[col] = null;
+		columnKinds[col] = COL_OBJECT;
+	}
+	
 	/**
 	 * Return the row count, that is returned by the database
 	 **/
@@ -190,6 +398,149 @@ public class JSqlResult extends CaseInsensitiveHashMap<String, GenericConvertLis
 		return affectedRows;
 	}
 	
+	//-------------------------------------------------------------------------
+	//
+	// Index based accessors
+	//
+	//-------------------------------------------------------------------------
+	
+	/**
+	 * @return number of columns in the result, 0 if there is no columnar data
+	 **/
+	public int columnCount() {
+		return (columnNames != null) ? columnNames.length : 0;
+	}
+	
+	/**
+	 * @param  col index of the column
+	 *
+	 * @return column name, as returned by the database
+	 **/
+	public String columnName(int col) {
+		return columnNames[col];
+	}
+	
+	/**
+	 * Resolve the column index of a given column name (case insensitive).
+	 * This should be resolved once, and reused across rows.
+	 *
+	 * @param  name of the column
+	 *
+	 * @return column index, -1 if not found
+	 **/
+	public int columnIndex(String name) {
+		if (columnIndexMap == null || name == null) {
+			return -1;
+		}
+		Integer ret = columnIndexMap.get(name.toLowerCase(Locale.ROOT));
+		return (ret != null) ? ret.intValue() : -1;
+	}
+	
+	/**
+	 * @param  row position
+	 * @param  col index of the column
+	 *
+	 * @return true if the cell is null
+	 **/
+	public boolean isNull(int row, int col) {
+		if (boxData[col] != null) {
+			return boxData[col][row] == BOX_NULL;
+		}
+		return objectData[col][row] == null;
+	}
+	
+	/**
+	 * @param  row position
+	 * @param  col index of the column
+	 *
+	 * @return the cell value, boxed as per the map view
+	 **/
+	public Object getObject(int row, int col) {
+		byte kind = columnKinds[col];
+		if (kind == COL_LONG) {
+			byte box = boxData[col][row];
+			if (box == BOX_INTEGER) {
+				return Integer.valueOf((int) longData[col][row]);
+			} else if (box == BOX_LONG) {
+				return Long.valueOf(longData[col][row]);
+			} else if (box == BOX_SHORT) {
+				return Short.valueOf((short) longData[col][row]);
+			} else if (box == BOX_BYTE) {
+				return Byte.valueOf((byte) longData[col][row]);
+			}
+			return null;
+		} else if (kind == COL_DOUBLE) {
+			byte box = boxData[col][row];
+			if (box == BOX_DOUBLE) {
+				return Double.valueOf(doubleData[col][row]);
+			} else if (box == BOX_FLOAT) {
+				return Float.valueOf((float) doubleData[col][row]);
+			}
+			return null;
+		}
+		return objectData[col][row];
+	}
+	
+	/**
+	 * @param  row position
+	 * @param  col index of the column
+	 *
+	 * @return the cell value as a long, 0 if null or not numeric
+	 **/
+	public long getLong(int row, int col) {
+		byte kind = columnKinds[col];
+		if (kind == COL_LONG) {
+			return longData[col][row];
+		} else if (kind == COL_DOUBLE) {
+			return (long) doubleData[col][row];
+		}
+		return GenericConvert.toLong(objectData[col][row], 0L);
+	}
+	
+	/**
+	 * @param  row position
+	 * @param  col index of the column
+	 *
+	 * @return the cell value as an int, 0 if null or not numeric
+	 **/
+	public int getInt(int row, int col) {
+		return (int) getLong(row, col);
+	}
+	
+	/**
+	 * @param  row position
+	 * @param  col index of the column
+	 *
+	 * @return the cell value as a double, 0 if null or not numeric
+	 **/
+	public double getDouble(int row, int col) {
+		byte kind = columnKinds[col];
+		if (kind == COL_DOUBLE) {
+			return doubleData[col][row];
+		} else if (kind == COL_LONG) {
+			return (double) longData[col][row];
+		}
+		return GenericConvert.toDouble(objectData[col][row], 0.0);
+	}
+	
+	/**
+	 * @param  row position
+	 * @param  col index of the column
+	 *
+	 * @return the cell value as a string, null if null
+	 **/
+	public String getString(int row, int col) {
+		if (columnKinds[col] == COL_OBJECT) {
+			Object val = objectData[col][row];
+			if (val == null || val instanceof String) {
+				return (String) val;
+			}
+			return GenericConvert.toString(val, null);
+		}
+		Object val = getObject(row, col);
+		return (val != null) ? val.toString() : null;
+	}
+	
 	/**
 	 * Read a fetched row in a single hashmap
 	 *
@@ -206,6 +557,14 @@ public class JSqlResult extends CaseInsensitiveHashMap<String, GenericConvertLis
 		// Return result, to populate
 		CaseInsensitiveHashMap<String, Object> ret = new CaseInsensitiveHashMap<String, Object>();
 		
+		// Read directly from the columnar data, if map view is not built
+		if (!mapViewBuilt) {
+			for (int i = 0; i < columnNames.length; ++i) {
+				ret.put(columnNames[i], getObject(pt, i));
+			}
+			return ret;
+		}
+		
 		// Iterating the local data set, process the result, and return
 		for (Map.Entry<String, GenericConvertList<Object>> entry : this.entrySet()) {
 			ret.put(entry.getKey(), entry.getValue().get(pt));
@@ -213,6 +572,128 @@ public class JSqlResult extends CaseInsensitiveHashMap<String, GenericConvertLis
 		return ret;
 	}
 	
+	//-------------------------------------------------------------------------
+	//
+	// Lazy map view support
+	//
+	//-------------------------------------------------------------------------
+	
+	/**
+	 * Get (and build if needed) the list view of a single column
+	 *
+	 * @param  col index of the column
+	 *
+	 * @return list of column values
+	 **/
+	protected GenericConvertList<Object> columnList(int col) {
+		GenericConvertList<Object> ret = columnLists[col];
+		if (ret == null) {
+			ret = new GenericConvertArrayList<Object>(Math.max(rowCount, 0));
+			for (int row = 0; row < rowCount; ++row) {
+				ret.add(getObject(row, col));
+			}
+			columnLists[col] = ret;
+		}
+		return ret;
+	}
+	
+	/**
+	 * Populate the full map view, from the columnar data
+	 **/
+	protected void ensureMapView() {
+		if (mapViewBuilt) {
+			return;
+		}
+		mapViewBuilt = true;
+		for (int i = 0; i < columnNames.length; ++i) {
+			super.put(columnNames[i], columnList(i));
+		}
+	}
+	
+	@Override
+	public GenericConvertList<Object> get(Object key) {
+		// Fetch a single column, without building the full map view
+		if (!mapViewBuilt) {
+			int col = (key instanceof String) ? columnIndex((String) key) : -1;
+			return (col >= 0) ? columnList(col) : null;
+		}
+		return super.get(key);
+	}
+	
+	@Override
+	public GenericConvertList<Object> getOrDefault(Object key, GenericConvertList<Object> defaultValue) {
+		GenericConvertList<Object> ret = get(key);
+		return (ret != null) ? ret : defaultValue;
+	}
+	
+	@Override
+	public boolean containsKey(Object key) {
+		if (!mapViewBuilt) {
+			return (key instanceof String) && columnIndex((String) key) >= 0;
+		}
+		return super.containsKey(key);
+	}
+	
+	@Override
+	public int size() {
+		ensureMapView();
+		return super.size();
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		ensureMapView();
+		return super.isEmpty();
+	}
+	
+	@Override
+	public boolean containsValue(Object value) {
+		ensureMapView();
+		return super.containsValue(value);
+	}
+	
+	@Override
+	public Set<String> keySet() {
+		ensureMapView();
+		return super.keySet();
+	}
+	
+	@Override
+	public Collection<GenericConvertList<Object>> values() {
+		ensureMapView();
+		return super.values();
+	}
+	
+	@Override
+	public Set<Map.Entry<String, GenericConvertList<Object>>> entrySet() {
+		ensureMapView();
+		return super.entrySet();
+	}
+	
+	@Override
+	public GenericConvertList<Object> put(String key, GenericConvertList<Object> value) {
+		ensureMapView();
+		return super.put(key, value);
+	}
+	
+	@Override
+	public GenericConvertList<Object> remove(Object key) {
+		ensureMapView();
+		return super.remove(key);
+	}
+	
+	@Override
+	public void forEach(BiConsumer<? super String, ? super GenericConvertList<Object>> action) {
+		ensureMapView();
+		super.forEach(action);
+	}
+	
+	@Override
+	public String toString() {
+		ensureMapView();
+		return super.toString();
+	}
+	
 	//-------------------------------------------------------------------------
 	//
 	// Fine tuning equality checks
@@ -7,6 +7,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Types;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -109,6 +110,42 @@ class JSqlResultUtil {
 		return res;
 	}
 	
+	/**
+	 * Resolve the columnar storage kind of each column, from the SQL result set meta data
+	 *
+	 * @param  sqlResultSet to inspect
+	 *
+	 * @return  byte array of JSqlResult.COL_* storage kinds
+	 **/
+	static protected byte[] extractColumnKinds(ResultSet sqlResultSet) throws SQLException {
+		ResultSetMetaData rsmd = sqlResultSet.getMetaData();
+		int colCount = rsmd.getColumnCount();
+		byte[] res = new byte[colCount];
+		
+		for (int i = 0; i < colCount; ++i) {
+			// the rsmd, column type function is 1 index-ed
+			switch (rsmd.getColumnType(i + 1)) {
+				case Types.TINYINT:
+				case Types.SMALLINT:
+				case Types.INTEGER:
+				case Types.BIGINT:
+					res[i] = JSqlResult.COL_LONG;
+					break;
+				case Types.REAL:
+				case Types.FLOAT:
+				case Types.DOUBLE:
+				case Types.DECIMAL:
+				case Types.NUMERIC:
+					res[i] = JSqlResult.COL_DOUBLE;
+					break;
+				default:
+					res[i] = JSqlResult.COL_OBJECT;
+			}
+		}
+		
+		return res;
+	}
+	
 	/**
 	 * Filters the result object, normalizing to their respective java format.
 	 *
@@ -2,12 +2,21 @@ package picoded.dstack.connector.jsql;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientConnectionException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.logging.Level;
+import java.util.regex.Pattern;
 import java.io.Closeable;
 import javax.sql.DataSource;
 
 import picoded.core.struct.GenericConvertMap;
+import picoded.core.struct.GenericConvertHashMap;
 import picoded.core.struct.GenericConvertList;
 import picoded.core.struct.CaseInsensitiveHashMap;
 import picoded.core.struct.MutablePair;
@@ -51,6 +60,239 @@ public abstract class JSql_Base extends JSql {
 	 */
 	protected DataSource datasource = null;
 	
+	//-------------------------------------------------------------------------
+	//
+	// Read replica routing
+	//
+	//-------------------------------------------------------------------------
+	
+	/**
+	 * Read replica data sources, null if none is configured
+	 * 
+	 * Replicas are configured via the "replicas" config list, where each replica config
+	 * is merged over the primary config (allowing only the host / port to be overwritten)
+	 * 
+	 * ```
+	 * {
+	 *    "host" : "primary.db",
+	 *    ...
+	 *    "replicas" : [ { "host" : "replica1.db" }, { "host" : "replica2.db" } ],
+	 *    "replicaSelection" : "ROUND_ROBIN", // or LEAST_LOADED
+	 *    "replicaRouting" : "QUERY"          // or ALL
+	 * }
+	 * ```
+	 * 
+	 * With "QUERY" routing (default), only reads within a `readReplica` call (such as the 
+	 * DataObjectMap query paths) are routed to replicas. With "ALL" routing, all query / select
+	 * calls are routed to replicas, except those within a `primaryOnly` call.
+	 * 
+	 * Writes are always executed on the primary. Replica pools are setup with the "readOnly"
+	 * connection flag, so a misrouted write fails on the replica (and is retried on the primary),
+	 * instead of diverging it. Note that the native oracle datasource does not support this flag.
+	 */
+	protected DataSource[] replicaSources = null;
+	
+	/**
+	 * Number of inflight queries for each replica, used for least loaded selection
+	 */
+	protected AtomicInteger[] replicaInflight = null;
+	
+	/**
+	 * Timestamp till which the replica is considered down, after a connection failure
+	 */
+	protected AtomicLongArray replicaDownUntil = null;
+	
+	/**
+	 * Round robin counter
+	 */
+	protected final AtomicInteger replicaRoundRobin = new AtomicInteger();
+	
+	/**
+	 * Replica selection, and routing mode
+	 */
+	protected boolean replicaLeastLoaded = false;
+	protected boolean replicaRouteAll = false;
+	
+	/**
+	 * Time (in ms) which a failed replica is skipped, before being retried
+	 */
+	protected long replicaRetryInterval = 30000;
+	
+	/**
+	 * Current thread routing scope, of [readReplica depth, primaryOnly depth]
+	 */
+	protected final ThreadLocal<int[]> routingScope = ThreadLocal.withInitial(() -> new int[2]);
+	
+	/**
+	 * Setup the read replicas, from the "replicas" config (if any)
+	 * 
+	 * @param  config of the primary connection
+	 * @param  factory used to setup the datasource, for each replica config
+	 */
+	@SuppressWarnings("unchecked")
+	protected void replicaSetup(GenericConvertMap<String, Object> config,
+		Function<GenericConvertMap<String, Object>, DataSource> factory) {
+		Object replicaList = config.get("replicas");
+		if (!(replicaList instanceof List) || ((List<Object>) replicaList).isEmpty()) {
+			return;
+		}
+		
+		// Setup each replica datasource, with the merged config
+		List<DataSource> sources = new ArrayList<DataSource>();
+		for (Object replicaConfig : (List<Object>) replicaList) {
+			GenericConvertMap<String, Object> merged = new GenericConvertHashMap<String, Object>();
+			merged.putAll(config);
+			merged.remove("replicas");
+			if (replicaConfig instanceof Map) {
+				merged.putAll((Map<String, Object>) replicaConfig);
+			}
+			merged.put("readOnly", true);
+			sources.add(factory.apply(merged));
+		}
+		
+		replicaSources = sources.toArray(new DataSource[0]);
+		replicaInflight = new AtomicInteger[replicaSources.length];
+		for (int i = 0; i < replicaInflight.length; ++i) {
+			replicaInflight[i] = new AtomicInteger();
+		}
+		replicaDownUntil = new AtomicLongArray(replicaSources.length);
+		replicaLeastLoaded = config.getString("replicaSelection", "ROUND_ROBIN").equalsIgnoreCase(
+			"LEAST_LOADED");
+		replicaRouteAll = config.getString("replicaRouting", "QUERY").equalsIgnoreCase("ALL");
+		replicaRetryInterval = config.getLong("replicaRetryInterval", replicaRetryInterval);
+	}
+	
+	/**
+	 * @return the number of configured read replicas
+	 **/
+	@Override
+	public int replicaCount() {
+		return (replicaSources != null) ? replicaSources.length : 0;
+	}
+	
+	/**
+	 * Executes the given call, with its read queries routed to the read replicas (if any).
+	 *
+	 * @param  call to execute
+	 *
+	 * @return the call result
+	 **/
+	@Override
+	public <T> T readReplica(Supplier<T> call) {
+		int[] scope = routingScope.get();
+		++scope[0];
+		try {
+			return call.get();
+		} finally {
+			--scope[0];
+		}
+	}
+	
+	/**
+	 * Executes the given call, with all its queries on the primary connection.
+	 *
+	 * @param  call to execute
+	 *
+	 * @return the call result
+	 **/
+	@Override
+	public <T> T primaryOnly(Supplier<T> call) {
+		int[] scope = routingScope.get();
+		++scope[1];
+		try {
+			return call.get();
+		} finally {
+			--scope[1];
+		}
+	}
+	
+	/**
+	 * @return true, if the current read query should be routed to a replica
+	 */
+	protected boolean useReplica() {
+		if (replicaSources == null) {
+			return false;
+		}
+		int[] scope = routingScope.get();
+		if (scope[1] > 0) {
+			return false;
+		}
+		return replicaRouteAll || scope[0] > 0;
+	}
+	
+	/**
+	 * Select the replica to use, skipping replicas which recently failed
+	 * 
+	 * @return replica index, -1 if no replica is available
+	 */
+	protected int selectReplica() {
+		long now = System.currentTimeMillis();
+		int len = replicaSources.length;
+		int start = Math.abs(replicaRoundRobin.getAndIncrement() % len);
+		int selected = -1;
+		for (int i = 0; i < len; ++i) {
+			int idx = (start + i) % len;
+			if (replicaDownUntil.get(idx) > now) {
+				continue;
+			}
+			if (!replicaLeastLoaded) {
+				return idx;
+			}
+			if (selected < 0 || replicaInflight[idx].get() < replicaInflight[selected].get()) {
+				selected = idx;
+			}
+		}
+		return selected;
+	}
+	
+	/**
+	 * Write keywords, which may appear within a SELECT / WITH statement.
+	 * Such as a data modifying CTE, or a locking `SELECT ... FOR UPDATE`
+	 **/
+	protected static final Pattern WRITE_KEYWORD_PATTERN = Pattern.compile(
+		"\\b(INSERT|UPDATE|DELETE|MERGE)\\b", Pattern.CASE_INSENSITIVE);
+	
+	/**
+	 * @param  qString to check
+	 *
+	 * @return true, if the statement can be safely executed on a read-only connection
+	 **/
+	protected static boolean isReadOnlyStatement(String qString) {
+		String prefix = qString.trim();
+		prefix = prefix.substring(0, Math.min(8, prefix.length())).toUpperCase(Locale.ENGLISH);
+		if (!(prefix.startsWith("SELECT") || prefix.startsWith("WITH") || prefix.startsWith(
+			"EXPLAIN"))) {
+			return false;
+		}
+		return !WRITE_KEYWORD_PATTERN.matcher(qString).find();
+	}
+	
+	/**
+	 * Checks if the exception is due to a connection failure
+	 * 
+	 * @param  e exception to check
+	 * 
+	 * @return true if its a connection failure
+	 */
+	protected static boolean isConnectionFailure(Throwable e) {
+		for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+			if (cause instanceof SQLTransientConnectionException
+				|| cause instanceof SQLNonTransientConnectionException) {
+				return true;
+			}
+			if (cause instanceof SQLException) {
+				String state = ((SQLException) cause).getSQLState();
+				if (state != null && state.startsWith("08")) {
+					return true;
+				}
+			}
+			if (cause.getCause() == cause) {
+				break;
+			}
+		}
+		return false;
+	}
+	
 	//-------------------------------------------------------------------------
 	//
 	// Connection closure / disposal
@@ -79,6 +321,20 @@ public abstract class JSql_Base extends JSql {
 			}
 			datasource = null;
 		}
+		
+		// Dispose the replica connections
+		if (replicaSources != null) {
+			for (DataSource replica : replicaSources) {
+				try {
+					if (replica instanceof Closeable) {
+						((Closeable) replica).close();
+					}
+				} catch (Exception e) {
+					JSql.LOGGER.log(Level.WARNING, e.getMessage(), e);
+				}
+			}
+			replicaSources = null;
+		}
 	}
 	
 	//-------------------------------------------------------------------------
@@ -191,6 +447,38 @@ public abstract class JSql_Base extends JSql {
 	 * @return  JSQL result set
 	 **/
 	public JSqlResult query_raw(String qString, Object... values) {
+		// Read replica routing, with fallback to the primary on failure
+		if (useReplica() && isReadOnlyStatement(qString)) {
+			int idx = selectReplica();
+			if (idx >= 0) {
+				replicaInflight[idx].incrementAndGet();
+				try {
+					return query_raw_onSource(replicaSources[idx], qString, values);
+				} catch (JSqlException e) {
+					if (isConnectionFailure(e)) {
+						replicaDownUntil.set(idx, System.currentTimeMillis() + replicaRetryInterval);
+					}
+					JSql.LOGGER.log(Level.WARNING, "Read replica query failed, retrying on primary : "
+						+ e.getMessage());
+				} finally {
+					replicaInflight[idx].decrementAndGet();
+				}
+			}
+		}
+		return query_raw_onSource(datasource, qString, values);
+	}
+	
+	/**
+	 * Executes the argumented SQL query on the given data source, and immediately fetches
+	 * the result from the database into the result set.
+	 *
+	 * @param  Data source to query
+	 * @param  Query strings including substituable variable "?"
+	 * @param  Array of arguments to do the variable subtitution
+	 *
+	 * @return  JSQL result set
+	 **/
+	protected JSqlResult query_raw_onSource(DataSource source, String qString, Object... values) {
 		// Connection variable (to setup inside try,catch,finally)
 		Connection conn = null;
 		PreparedStatement sqlpstmt = null;
@@ -199,7 +487,7 @@ public abstract class JSql_Base extends JSql {
 		// within a try-catch block
 		try {
 			// Getting the connection
-			conn = datasource.getConnection();
+			conn = source.getConnection();
 			
 			// Prepare the statement
 			sqlpstmt = prepareSqlStatment(conn, qString, values);
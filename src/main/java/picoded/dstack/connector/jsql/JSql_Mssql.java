@@ -92,6 +92,7 @@ public class JSql_Mssql extends JSql_Base {
 		
 		// HikariCP implementation is having huge connection overheads
 		datasource = HikaricpUtil.mssql(config);
+		replicaSetup(config, HikaricpUtil::mssql);
 	}
 	
 	//-------------------------------------------------------------------------
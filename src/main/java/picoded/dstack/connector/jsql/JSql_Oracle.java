@@ -76,6 +76,7 @@ public class JSql_Oracle extends JSql_Base {
 		// this is initialized WITHOUT the connection pool as of now
 		//
 		datasource = HikaricpUtil.nativeOracle(config);
+		replicaSetup(config, HikaricpUtil::nativeOracle);
 	}
 	
 	// public JSql_Oracle(java.sql.Connection inSqlConn) {
@@ -77,6 +77,7 @@ public class JSql_Postgres extends JSql_Base {
 	public void constructor_setup(GenericConvertMap<String, Object> config) {
 		sqlType = JSqlType.POSTGRESQL;
 		datasource = HikaricpUtil.postgres(config);
+		replicaSetup(config, HikaricpUtil::postgres);
 	}
 	
 	//-------------------------------------------------------------------------
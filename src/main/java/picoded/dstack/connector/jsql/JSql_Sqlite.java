@@ -19,6 +19,25 @@ import picoded.dstack.connector.jsql.JSqlType;
 
 /**
  * SQLite implementation of JSql
+ * 
+ * For file based SQLite, an embedded optimized mode can be enabled via the "walMode" config.
+ * Which uses the WAL journal, with tuned pragmas, a read-only reader pool, and a single writer
+ * connection fed by a batching write queue (see `JSql_SqliteWriter`).
+ * 
+ * ```
+ * {
+ *    "path" : "./data.sqlite",
+ *    "walMode" : true,
+ *    
+ *    // Optional tuning, with their default values
+ *    "synchronous" : "NORMAL",
+ *    "cacheSize" : -16000,
+ *    "mmapSize" : 268435456,
+ *    "busyTimeout" : 5000,
+ *    "readerPoolSize" : (max pool size),
+ *    "writeBatchSize" : 256
+ * }
+ * ```
  **/
 public class JSql_Sqlite extends JSql_Base {
 	
@@ -28,6 +47,11 @@ public class JSql_Sqlite extends JSql_Base {
 	//
 	//-------------------------------------------------------------------------
 	
+	/**
+	 * Single writer, used in "walMode" (null otherwise)
+	 **/
+	protected JSql_SqliteWriter writer = null;
+	
 	/**
 	 * SQLite in memory mode
 	 **/
@@ -69,9 +93,67 @@ public class JSql_Sqlite extends JSql_Base {
 	 */
 	public void constructor_setup(GenericConvertMap<String, Object> config) {
 		sqlType = JSqlType.SQLITE;
+		
+		// Embedded optimized WAL mode, the writer is setup first
+		// as it initializes the WAL journal, needed by the read-only pool
+		if (HikaricpUtil.sqliteWalMode(config)) {
+			writer = new JSql_SqliteWriter(this, HikaricpUtil.sqliteWriter(config), config.getInt(
+				"writeBatchSize", JSql_SqliteWriter.DEFAULT_BATCH_SIZE));
+		}
 		datasource = HikaricpUtil.sqlite(config);
 	}
 	
+	//-------------------------------------------------------------------------
+	//
+	// WAL mode, reader / writer routing
+	//
+	//-------------------------------------------------------------------------
+	
+	/**
+	 * Dispose of the respective SQL driver / connection
+	 **/
+	@Override
+	public void close() {
+		if (writer != null) {
+			writer.close();
+			writer = null;
+		}
+		super.close();
+	}
+	
+	/**
+	 * Executes the argumented SQL query, via the read-only pool in WAL mode.
+	 * Queries which are not read only statements are routed to the writer.
+	 *
+	 * @param  Query strings including substituable variable "?"
+	 * @param  Array of arguments to do the variable subtitution
+	 *
+	 * @return  JSQL result set
+	 **/
+	@Override
+	public JSqlResult query_raw(String qString, Object... values) {
+		if (writer != null && !isReadOnlyStatement(qString)) {
+			return writer.query(qString, values);
+		}
+		return super.query_raw(qString, values);
+	}
+	
+	/**
+	 * Executes the argumented SQL update, via the batching writer in WAL mode.
+	 *
+	 * @param  Query strings including substituable variable "?"
+	 * @param  Array of arguments to do the variable subtitution
+	 *
+	 * @return  -1 if failed, 0 and above for affected rows
+	 **/
+	@Override
+	public int update_raw(String qString, Object... values) {
+		if (writer != null) {
+			return writer.update(qString, values);
+		}
+		return super.update_raw(qString, values);
+	}
+	
 	//-------------------------------------------------------------------------
 	//
 	// Table type info fetching
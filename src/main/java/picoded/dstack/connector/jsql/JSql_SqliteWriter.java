@@ -0,0 +1,301 @@
+package picoded.dstack.connector.jsql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Single writer connection for SQLite (in WAL mode), fed by a batching write queue.
+ *
+ * SQLite only supports a single writer at any point in time, with concurrent writers
+ * failing with SQLITE_BUSY. As such all writes are queued, and executed by a single writer
+ * thread. Where multiple pending writes are grouped together into a single transaction,
+ * avoiding the cost of a commit (and fsync) per write.
+ *
+ * If any statement within the transaction fails, the transaction is rolled back, and each
+ * statement is retried individually. So that a failing statement does not fail the others.
+ *
+ * Callers are blocked until their respective write is committed.
+ **/
+class JSql_SqliteWriter {
+	
+	//-------------------------------------------------------------------------
+	//
+	// Constructor vars
+	//
+	//-------------------------------------------------------------------------
+	
+	/**
+	 * Default maximum number of writes grouped into a single transaction
+	 **/
+	static final int DEFAULT_BATCH_SIZE = 256;
+	
+	/**
+	 * JSql instance, used for its statement preperation
+	 **/
+	protected final JSql_Base jsql;
+	
+	/**
+	 * Single connection writer data source
+	 **/
+	protected final HikariDataSource writerSource;
+	
+	/**
+	 * Maximum number of writes grouped into a single transaction
+	 **/
+	protected final int batchSize;
+	
+	/**
+	 * Pending write queue
+	 **/
+	protected final BlockingQueue<WriteTask> queue = new LinkedBlockingQueue<WriteTask>();
+	
+	/**
+	 * Writer thread, processing the queue
+	 **/
+	protected final Thread writerThread;
+	
+	/**
+	 * Indicates if the writer was closed
+	 **/
+	protected volatile boolean closed = false;
+	
+	/**
+	 * Setup the writer, and start its writer thread
+	 *
+	 * @param  inJSql instance, used for its statement preperation
+	 * @param  inWriterSource single connection writer data source
+	 * @param  inBatchSize maximum number of writes grouped into a single transaction
+	 **/
+	JSql_SqliteWriter(JSql_Base inJSql, HikariDataSource inWriterSource, int inBatchSize) {
+		jsql = inJSql;
+		writerSource = inWriterSource;
+		batchSize = Math.max(1, inBatchSize);
+		
+		writerThread = new Thread(this::writerLoop, "JSql_SqliteWriter");
+		writerThread.setDaemon(true);
+		writerThread.start();
+	}
+	
+	//-------------------------------------------------------------------------
+	//
+	// Write task handling
+	//
+	//-------------------------------------------------------------------------
+	
+	/**
+	 * A single queued write
+	 **/
+	protected static class WriteTask {
+		/** SQL statement to execute */
+		final String qString;
+		
+		/** Statement arguments */
+		final Object[] values;
+		
+		/** Indicates if a result set is expected (instead of an update count) */
+		final boolean isQuery;
+		
+		/** Result of the write, either a JSqlResult or an Integer update count */
+		final CompletableFuture<Object> result = new CompletableFuture<Object>();
+		
+		WriteTask(String inQString, Object[] inValues, boolean inIsQuery) {
+			qString = inQString;
+			values = inValues;
+			isQuery = inIsQuery;
+		}
+	}
+	
+	/**
+	 * Queue the SQL update, and wait for it to be committed
+	 *
+	 * @param  Query strings including substituable variable "?"
+	 * @param  Array of arguments to do the variable subtitution
+	 *
+	 * @return  -1 if failed, 0 and above for affected rows
+	 **/
+	public int update(String qString, Object... values) {
+		return (Integer) execute(new WriteTask(qString, values, false));
+	}
+	
+	/**
+	 * Queue the SQL query (which is expected to modify data), and wait for it to be committed
+	 *
+	 * @param  Query strings including substituable variable "?"
+	 * @param  Array of arguments to do the variable subtitution
+	 *
+	 * @return  JSQL result set
+	 **/
+	public JSqlResult query(String qString, Object... values) {
+		return (JSqlResult) execute(new WriteTask(qString, values, true));
+	}
+	
+	/**
+	 * Queue the write task, and wait for its result
+	 *
+	 * @param  task to queue
+	 *
+	 * @return the task result
+	 **/
+	protected Object execute(WriteTask task) {
+		if (closed) {
+			throw new JSqlException("SQLite writer is already closed");
+		}
+		queue.add(task);
+		try {
+			return task.result.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof JSqlException) {
+				throw (JSqlException) cause;
+			}
+			throw new JSqlException(cause);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new JSqlException(e);
+		}
+	}
+	
+	//-------------------------------------------------------------------------
+	//
+	// Writer thread
+	//
+	//-------------------------------------------------------------------------
+	
+	/**
+	 * Writer thread loop, which process the queue in batches, until closed
+	 **/
+	protected void writerLoop() {
+		List<WriteTask> batch = new ArrayList<WriteTask>();
+		while (!closed || !queue.isEmpty()) {
+			try {
+				WriteTask first = queue.poll(100, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+				batch.add(first);
+				queue.drainTo(batch, batchSize - 1);
+				executeBatch(batch);
+			} catch (InterruptedException e) {
+				// Continue draining the queue, closing is handled via the closed flag
+			} catch (Exception e) {
+				JSql.LOGGER.log(Level.WARNING, e.getMessage(), e);
+			} finally {
+				// Ensure no caller is left waiting
+				for (WriteTask task : batch) {
+					if (!task.result.isDone()) {
+						task.result.completeExceptionally(new JSqlException(
+							"SQLite writer failed to process the write"));
+					}
+				}
+				batch.clear();
+			}
+		}
+	}
+	
+	/**
+	 * Execute the batch of writes, as a single transaction if possible
+	 *
+	 * @param  batch of writes to execute
+	 **/
+	protected void executeBatch(List<WriteTask> batch) {
+		// Group multiple writes into a single transaction
+		if (batch.size() > 1 && executeTransaction(batch)) {
+			return;
+		}
+		
+		// Single write, or the transaction failed, execute it one by one
+		for (WriteTask task : batch) {
+			try (Connection conn = writerSource.getConnection()) {
+				task.result.complete(executeTask(conn, task));
+			} catch (Exception e) {
+				task.result.completeExceptionally(e);
+			}
+		}
+	}
+	
+	/**
+	 * Execute the batch of writes within a single transaction
+	 *
+	 * @param  batch of writes to execute
+	 *
+	 * @return true if the transaction was committed
+	 **/
+	protected boolean executeTransaction(List<WriteTask> batch) {
+		Object[] results = new Object[batch.size()];
+		try (Connection conn = writerSource.getConnection()) {
+			conn.setAutoCommit(false);
+			try {
+				for (int i = 0; i < results.length; ++i) {
+					results[i] = executeTask(conn, batch.get(i));
+				}
+				conn.commit();
+			} catch (Exception e) {
+				conn.rollback();
+				return false;
+			} finally {
+				conn.setAutoCommit(true);
+			}
+		} catch (Exception e) {
+			JSql.LOGGER.log(Level.WARNING, e.getMessage(), e);
+			return false;
+		}
+		
+		// Transaction committed, complete the respective writes
+		for (int i = 0; i < results.length; ++i) {
+			batch.get(i).result.complete(results[i]);
+		}
+		return true;
+	}
+	
+	/**
+	 * Execute a single write on the given connection
+	 *
+	 * @param  conn to use
+	 * @param  task to execute
+	 *
+	 * @return the task result
+	 **/
+	protected Object executeTask(Connection conn, WriteTask task) throws Exception {
+		try (PreparedStatement ps = jsql.prepareSqlStatment(conn, task.qString, task.values)) {
+			if (task.isQuery) {
+				return new JSqlResult(ps.executeQuery());
+			}
+			return ps.executeUpdate();
+		}
+	}
+	
+	//-------------------------------------------------------------------------
+	//
+	// Closing
+	//
+	//-------------------------------------------------------------------------
+	
+	/**
+	 * Close the writer, after processing any pending writes
+	 **/
+	public void close() {
+		closed = true;
+		try {
+			writerThread.join(30000);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		
+		// Fail any write, which was queued after the writer thread ended
+		WriteTask task = null;
+		while ((task = queue.poll()) != null) {
+			task.result.completeExceptionally(new JSqlException("SQLite writer is already closed"));
+		}
+		writerSource.close();
+	}
+}
@@ -1,10 +1,16 @@
 package picoded.dstack.core;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import picoded.core.common.SystemSetupInterface;
 import picoded.core.struct.GenericConvertMap;
@@ -46,8 +52,11 @@ public abstract class CoreStack implements CommonStack {
 	
 	/**
 	 * Cache of all initialized data structure, for use by maintainance calls
+	 *
+	 * This is a concurrent map, as structures are commonly resolved across multiple
+	 * threads on startup, and each name must only ever have a single cached instance.
 	 */
-	public Map<String, Core_DataStructure> structureCache = new HashMap<>();
+	public ConcurrentHashMap<String, Core_DataStructure> structureCache = new ConcurrentHashMap<>();
 	
 	/**
 	 * @return keyValueMap of the given name, null if stack provider does not support the given object
@@ -93,29 +102,49 @@ public abstract class CoreStack implements CommonStack {
 		// Structure backend name is case insensitive
 		name = name.toUpperCase(Locale.ENGLISH);
 		
-		// Get and validate cache if found
+		// Get from cache, without locking, if its already initialized
 		Core_DataStructure cache = structureCache.get(name);
-		if (cache != null) {
-			// Class object to validate for (if validation class is provided)
-			if (cObj == null || cObj.isInstance(cache)) {
-				return cache;
+		if (cache == null) {
+			// Initialize the datastructure outside of the cache map, as initDataStructure
+			// may resolve other structures of this stack (which computeIfAbsent does not allow).
+			//
+			// Concurrent callers for the same name will share the first cached instance,
+			// and if the structure is not supported (null), nothing is cached
+			Core_DataStructure ret = initDataStructure(name, type);
+			if (ret != null) {
+				if (ret.asyncExecutor == null) {
+					ret.asyncExecutor = asyncExecutor();
+				}
+				cache = structureCache.putIfAbsent(name, ret);
+				if (cache == null) {
+					cache = ret;
+				}
 			}
-			// Validation failed, thros an exception
-			throw new RuntimeException("Invalid data structure type found in cache for: " + name
-				+ " / " + cObj.getSimpleName());
 		}
 		
-		// Initialize the datastructure
-		cache = initDataStructure(name, type);
+		// Return null, if not supported
+		if (cache == null) {
+			return null;
+		}
 		
-		// Cache the structure if initialized
-		if (cache != null) {
-			structureCache.put(name, cache);
+		// Class object to validate for (if validation class is provided)
+		if (cObj == null || cObj.isInstance(cache)) {
 			return cache;
 		}
 		
-		// Return null
-		return null;
+		// Validation failed, thros an exception
+		throw new RuntimeException("Invalid data structure type found in cache for: " + name + " / "
+			+ cObj.getSimpleName());
+	}
+	
+	/**
+	 * Executor used by the async API of this stack data structures,
+	 * for operations without native async support in the backend.
+	 *
+	 * @return  The bounded executor to use, defaults to the shared executor
+	 */
+	public Executor asyncExecutor() {
+		return Core_AsyncExecutor.sharedExecutor();
 	}
 	
 	//-------------------------------------------------------------
@@ -146,4 +175,167 @@ public abstract class CoreStack implements CommonStack {
 		return (Collection<SystemSetupInterface>) (Object) (structureCache.values());
 	}
 	
+	/**
+	 * Perform systemSetup on all the currently initialized data structures in parallel,
+	 * using a thread count equivalent to the number of available processors.
+	 *
+	 * This is meant to be used at startup, after the required data structures are
+	 * initialized, so that table / index creation is not done one after another.
+	 **/
+	public void parallelSystemSetup() {
+		parallelSystemSetup(Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * Perform systemSetup on all the currently initialized data structures in parallel.
+	 *
+	 * The call blocks until all structures has completed their setup, and rethrows
+	 * the first encountered exception (if any), after all other setup is completed.
+	 *
+	 * @param  threads  maximum number of structures to setup concurrently
+	 **/
+	public void parallelSystemSetup(int threads) {
+		// Get the list of structures to setup
+		List<Core_DataStructure> structureList = new ArrayList<>(structureCache.values());
+		if (structureList.isEmpty()) {
+			return;
+		}
+		
+		// Skip the thread pool, if its not needed
+		threads = Math.max(1, Math.min(threads, structureList.size()));
+		if (threads == 1) {
+			for (Core_DataStructure structure : structureList) {
+				structure.systemSetup();
+			}
+			return;
+		}
+		
+		// Submit each setup to the executor
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> futureList = new ArrayList<>();
+			for (Core_DataStructure structure : structureList) {
+				futureList.add(executor.submit(() -> structure.systemSetup()));
+			}
+			
+			// Wait for all the setup to complete, and track the first error
+			RuntimeException error = null;
+			for (Future<?> future : futureList) {
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					if (error == null) {
+						Throwable cause = e.getCause();
+						error = (cause instanceof RuntimeException) ? (RuntimeException) cause
+							: new RuntimeException(cause);
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException(e);
+				}
+			}
+			
+			// Rethrow the error (if any)
+			if (error != null) {
+				throw error;
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+	
+	//-------------------------------------------------------------
+	//
+	//  Scheduled maintenance
+	//
+	//-------------------------------------------------------------
+	
+	/**
+	 * Background maintenance scheduler, initialized on startScheduledMaintenance
+	 */
+	protected volatile Core_MaintenanceScheduler maintenanceScheduler = null;
+	
+	/**
+	 * @return the background maintenance scheduler, null if it was not started
+	 */
+	public Core_MaintenanceScheduler maintenanceScheduler() {
+		return maintenanceScheduler;
+	}
+	
+	/**
+	 * Register all the currently initialized data structures, with the background maintenance
+	 * scheduler. Its lease map is a KeyLongMap from this stack, so that nodes sharing the same
+	 * stack backend perform each structure maintenance only once per interval.
+	 *
+	 * This uses the following stack config (with its defaults)
+	 *
+	 * ```
+	 * maintenance : {
+	 *    leaseMap : "DSTACK_MAINTENANCE_LEASE",
+	 *    threads : 1,
+	 *    intervalSeconds : 3600,
+	 *    budgetSeconds : 300,
+	 *    structures : {
+	 *       // Per structure override of enabled, intervalSeconds, budgetSeconds
+	 *       "STRUCTURE_NAME" : { enabled : false }
+	 *    }
+	 * }
+	 * ```
+	 *
+	 * Structures initialized subsequently are only registered on the next call.
+	 **/
+	public synchronized Core_MaintenanceScheduler startScheduledMaintenance() {
+		GenericConvertMap<String, Object> maintenanceConfig = config.fetchGenericConvertStringMap(
+			"maintenance", "{}");
+		
+		// Setup the scheduler, and its lease map
+		String leaseName = maintenanceConfig.getString("leaseMap", "DSTACK_MAINTENANCE_LEASE")
+			.toUpperCase(Locale.ENGLISH);
+		if (maintenanceScheduler == null) {
+			KeyLongMap leaseMap = keyLongMap(leaseName);
+			if (leaseMap == null) {
+				throw new RuntimeException("Scheduled maintenance requires KeyLongMap support");
+			}
+			leaseMap.systemSetup();
+			maintenanceScheduler = new Core_MaintenanceScheduler(leaseMap, maintenanceConfig.getInt(
+				"threads", 1));
+		}
+		
+		// Register each structure, with its interval and time budget
+		long interval = maintenanceConfig.getLong("intervalSeconds", 3600);
+		long budget = maintenanceConfig.getLong("budgetSeconds", 300);
+		GenericConvertMap<String, Object> structuresConfig = maintenanceConfig
+			.fetchGenericConvertStringMap("structures", "{}");
+		for (Map.Entry<String, Core_DataStructure> entry : structureCache.entrySet()) {
+			String name = entry.getKey();
+			if (name.equals(leaseName)) {
+				continue;
+			}
+			GenericConvertMap<String, Object> structConfig = structuresConfig
+				.fetchGenericConvertStringMap(name, "{}");
+			if (!structConfig.getBoolean("enabled", true)) {
+				continue;
+			}
+			maintenanceScheduler.register(name, entry.getValue(),
+				structConfig.getLong("intervalSeconds", interval) * 1000L,
+				structConfig.getLong("budgetSeconds", budget) * 1000L);
+		}
+		return maintenanceScheduler;
+	}
+	
+	/**
+	 * Stop the background maintenance scheduler (if started), and re-enable the
+	 * incremental maintenance of its registered structures
+	 **/
+	public synchronized void stopScheduledMaintenance() {
+		if (maintenanceScheduler == null) {
+			return;
+		}
+		for (String name : maintenanceScheduler.stats().keySet()) {
+			maintenanceScheduler.unregister(name);
+		}
+		maintenanceScheduler.shutdown();
+		maintenanceScheduler = null;
+	}
+	
 }
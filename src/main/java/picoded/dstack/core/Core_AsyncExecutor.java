@@ -0,0 +1,65 @@
+package picoded.dstack.core;
+
+// Java imports
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded executors used by the async API (getAsync, putValueAsync, etc),
+ * for backends without native async support (eg: JDBC, or the MongoDB sync driver).
+ *
+ * These executors have a bounded number of threads, and a bounded queue. When the queue is full,
+ * the task is ran on the calling thread instead, applying backpressure to the caller.
+ * Its threads are daemon threads, which times out when idle.
+ **/
+public class Core_AsyncExecutor {
+	
+	/// Queue size, per executor thread
+	public static final int QUEUE_SIZE_PER_THREAD = 64;
+	
+	/// Thread count for the executor threads naming
+	private static final AtomicInteger threadCount = new AtomicInteger();
+	
+	/// Shared executor, lazily initialized
+	private static volatile Executor sharedExecutor = null;
+	
+	/**
+	 * Shared executor, used by default for all data structures,
+	 * with 4 threads per available processors (as most of its tasks are blocking on IO)
+	 *
+	 * @return the shared bounded executor
+	 **/
+	public static Executor sharedExecutor() {
+		if (sharedExecutor == null) {
+			synchronized (Core_AsyncExecutor.class) {
+				if (sharedExecutor == null) {
+					sharedExecutor = boundedExecutor(Math.max(4, Runtime.getRuntime()
+						.availableProcessors() * 4));
+				}
+			}
+		}
+		return sharedExecutor;
+	}
+	
+	/**
+	 * Setup a new bounded executor
+	 *
+	 * @param  threads maximum number of threads (and concurrent tasks)
+	 *
+	 * @return the bounded executor
+	 **/
+	public static Executor boundedExecutor(int threads) {
+		threads = Math.max(1, threads);
+		ThreadPoolExecutor ret = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+			new ArrayBlockingQueue<Runnable>(threads * QUEUE_SIZE_PER_THREAD), (r) -> {
+				Thread t = new Thread(r, "dstack-async-" + threadCount.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}, new ThreadPoolExecutor.CallerRunsPolicy());
+		ret.allowCoreThreadTimeOut(true);
+		return ret;
+	}
+}
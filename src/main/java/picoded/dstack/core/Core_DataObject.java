@@ -1,10 +1,14 @@
 package picoded.dstack.core;
 
 // Java imports
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 // Picoded imports
 import picoded.dstack.DataObject;
@@ -59,6 +63,13 @@ public class Core_DataObject implements DataObject {
 	 **/
 	protected Map<String, Object> remoteDataMap = null;
 	
+	/**
+	 * Nested Map / List values, copied by a copy-on-write view, since the last save.
+	 * These are part of the deltaDataMap, and can be modified in place (see Core_DataObjectView)
+	 **/
+	protected Set<Object> ownedValues = Collections
+		.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+	
 	// Constructor
 	//----------------------------------------------
 
@@ -218,39 +229,145 @@ public class Core_DataObject implements DataObject {
 			return value;
 		}
 		
-		Object ret = null;
-		String strValue = value.toString();
+		// Already in its converted form
+		if (value instanceof Integer || value instanceof Double) {
+			return value;
+		}
+		
+		// Map / List string representations are never numeric, skip them
+		if (value instanceof Map || value instanceof List) {
+			return value;
+		}
+		
+		// Convert only if no accuracy or content is lost in the conversion process
+		Object ret = numericValueOf(value.toString());
+		if (ret != null) {
+			return ret;
+		}
+		return value;
+	}
+	
+	/**
+	 * Single pass, exception free, numeric string classifier.
+	 *
+	 * Returns the Integer, Long, or Double value of the string, only if the value converts
+	 * back to the exact same string (that is, without any loss in accuracy or content).
+	 * Strings which are not in the canonical form of Integer, Long or Double toString are
+	 * rejected without any parsing.
+	 *
+	 * @param  str to classify
+	 *
+	 * @return The Integer, Long, or Double value, else null
+	 **/
+	protected static Object numericValueOf(String str) {
+		int len = str.length();
+		if (len == 0) {
+			return null;
+		}
+		
+		// Sign handling
+		int pos = 0;
+		boolean negative = (str.charAt(0) == '-');
+		if (negative) {
+			if (len == 1) {
+				return null;
+			}
+			pos = 1;
+		}
 		
-		// Tries to convert to INT if possible
-		try {
-			ret = Integer.valueOf(strValue);
-		} catch (Exception e) {
-			// Silent ignore
+		// Special double values
+		char c = str.charAt(pos);
+		if (c == 'N' || c == 'I') {
+			if (str.equals("NaN")) {
+				return Double.NaN;
+			}
+			if (str.equals("Infinity")) {
+				return Double.POSITIVE_INFINITY;
+			}
+			if (str.equals("-Infinity")) {
+				return Double.NEGATIVE_INFINITY;
+			}
+			return null;
 		}
 		
-		// Tries to convert to LONG if possible
-		try {
-			if (ret == null) {
-				ret = Long.parseLong(strValue);
+		// Integer digits, accumulated as a negative value (to support Long.MIN_VALUE)
+		int digitStart = pos;
+		long acc = 0;
+		boolean overflow = false;
+		while (pos < len && (c = str.charAt(pos)) >= '0' && c <= '9') {
+			int digit = c - '0';
+			if (acc < Long.MIN_VALUE / 10 || acc * 10 < Long.MIN_VALUE + digit) {
+				overflow = true;
+			} else {
+				acc = acc * 10 - digit;
 			}
-		} catch (Exception e) {
-			// Silent ignore
+			++pos;
+		}
+		int digitCount = pos - digitStart;
+		if (digitCount == 0) {
+			return null;
 		}
 		
-		// Tries to convert to double if possible
-		try {
-			if (ret == null) {
-				ret = Double.parseDouble(strValue);
+		// Integer / Long, only in its canonical form (no leading zero, or "-0")
+		if (pos == len) {
+			if (overflow || (str.charAt(digitStart) == '0' && (digitCount > 1 || negative))) {
+				return null;
+			}
+			if (!negative) {
+				if (acc == Long.MIN_VALUE) {
+					return null;
+				}
+				acc = -acc;
+			}
+			if (acc >= Integer.MIN_VALUE && acc <= Integer.MAX_VALUE) {
+				return Integer.valueOf((int) acc);
+			}
+			return Long.valueOf(acc);
+		}
+		
+		// Double, in the form of "D.D" or "D.DE-D" (as generated by Double.toString)
+		if (str.charAt(pos) != '.' || !isDigit(str, ++pos)) {
+			return null;
+		}
+		while (isDigit(str, pos)) {
+			++pos;
+		}
+		if (pos < len) {
+			if (str.charAt(pos) != 'E') {
+				return null;
+			}
+			++pos;
+			if (pos < len && str.charAt(pos) == '-') {
+				++pos;
+			}
+			if (!isDigit(str, pos)) {
+				return null;
+			}
+			while (isDigit(str, pos)) {
+				++pos;
+			}
+			if (pos < len) {
+				return null;
 			}
-		} catch (Exception e) {
-			// Silent ignore
 		}
 		
-		// Drop if accuracy or content is lost in the conversion process
-		if (ret != null && ret.toString().equals(strValue)) {
+		// Parse (which cannot fail for this form), and ensure its lossless
+		Double ret = Double.valueOf(str);
+		if (ret.toString().equals(str)) {
 			return ret;
 		}
-		return value;
+		return null;
+	}
+	
+	/**
+	 * @return true, if the character at the given position is an ASCII digit
+	 **/
+	private static boolean isDigit(String str, int pos) {
+		if (pos >= str.length()) {
+			return false;
+		}
+		char c = str.charAt(pos);
+		return c >= '0' && c <= '9';
 	}
 	
 	// DataObject save operations
@@ -274,6 +391,7 @@ public class Core_DataObject implements DataObject {
 			}
 		}
 		deltaDataMap = new HashMap<String, Object>();
+		ownedValues.clear();
 	}
 	
 	/**
@@ -300,6 +418,22 @@ public class Core_DataObject implements DataObject {
 		}
 	}
 	
+	/**
+	 * Async varient of saveDelta, performed using the DataObjectMap async executor.
+	 * Completes immediately if there is no delta changes.
+	 *
+	 * Note that the object should not be modified, until the save is completed.
+	 *
+	 * @return  future which completes when the save is completed
+	 **/
+	@Override
+	public CompletableFuture<Void> saveDeltaAsync() {
+		if (deltaDataMap.isEmpty()) {
+			return CompletableFuture.completedFuture(null);
+		}
+		return CompletableFuture.runAsync(this::saveDelta, mainTable.asyncExecutor());
+	}
+	
 	/**
 	 * Save all the configured data, ignore delta handling. This helps ensure all data
 	 * is written in a single session for consistency.
@@ -328,6 +462,9 @@ public class Core_DataObject implements DataObject {
 	/**
 	 * Gets and return the requested current value
 	 *
+	 * Nested Map / List values are returned as copy-on-write views, where changes made
+	 * via the view are recorded as delta changes, without modifying the stored value.
+	 *
 	 * @param   key to use
 	 *
 	 * @return  Value if present, NULL if fail
@@ -340,6 +477,26 @@ public class Core_DataObject implements DataObject {
 			return _oid;
 		}
 		
+		// Get the stored value
+		Object ret = getStoredValue(key);
+		if (ret == null) {
+			return null;
+		}
+		
+		// Returns valid value
+		// copy-on-write view is used to ensure changes are detected, without copying on read
+		return Core_DataObjectView.wrap(this, key.toString(), ret);
+	}
+	
+	/**
+	 * Gets and return the requested stored value, as it is (without any copy / view)
+	 *
+	 * @param   key to use
+	 *
+	 * @return  Value if present, NULL if fail
+	 **/
+	protected Object getStoredValue(Object key) {
+		
 		// Get from delta changes, if exists
 		Object ret = deltaDataMap.get(key);
 		
@@ -359,10 +516,7 @@ public class Core_DataObject implements DataObject {
 		if (ret == null || ret.equals(ObjectToken.NULL)) {
 			return null;
 		}
-		
-		// Returns valid value
-		// deep copy is done to ensure changes are detected on PUT
-		return Core_DataObjectMap.deepCopy(ret);
+		return ret;
 	}
 	
 	/**
@@ -393,6 +547,9 @@ public class Core_DataObject implements DataObject {
 		// Get the previous value
 		Object ret = get(key);
 		
+		// Store views as plain values
+		value = Core_DataObjectView.unwrap(value);
+		
 		// Aggressive numeric conversion
 		value = agressiveNumericConversion(value);
 		
@@ -463,8 +620,8 @@ public class Core_DataObject implements DataObject {
 				continue;
 			}
 			
-			// List final set ONLY, if it has value
-			if (get(key) != null) {
+			// List final set ONLY, if it has value (without materializing it)
+			if (getStoredValue(key) != null) {
 				retSet.add(key);
 			}
 		}
@@ -1,13 +1,19 @@
 package picoded.dstack.core;
 
 // Java imports
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 // Picoded imports
 import picoded.core.conv.GenericConvert;
@@ -69,6 +75,108 @@ abstract public class Core_DataObjectMap extends Core_DataStructure<String, Data
 	abstract public void DataObjectRemoteDataMap_update(String oid, Map<String, Object> fullMap,
 		Set<String> keys);
 	
+	/**
+	 * [Internal use, to be extended in future implementation]
+	 *
+	 * Replaces the complete remote data map, of multiple DataObject.
+	 * Stored keys which are not in the given map are removed.
+	 * This should be overwritten by backends which can update multiple objects in a single call.
+	 *
+	 * @param  Map of object ID to its full map of data
+	 **/
+	public void DataObjectRemoteDataMap_replaceAll(Map<String, Map<String, Object>> dataMaps) {
+		for (Map.Entry<String, Map<String, Object>> entry : dataMaps.entrySet()) {
+			String oid = entry.getKey();
+			Map<String, Object> fullMap = new HashMap<String, Object>(entry.getValue());
+			Set<String> keys = new HashSet<String>(fullMap.keySet());
+			
+			// Removes the stored keys, not found in the given map
+			Map<String, Object> storedMap = DataObjectRemoteDataMap_get(oid);
+			if (storedMap != null) {
+				for (String key : storedMap.keySet()) {
+					if (keys.add(key)) {
+						fullMap.put(key, null);
+					}
+				}
+			}
+			DataObjectRemoteDataMap_update(oid, fullMap, keys);
+		}
+	}
+	
+	/**
+	 * [Internal use, to be extended in future implementation]
+	 *
+	 * Removes the complete remote data map, of multiple DataObject.
+	 * This should be overwritten by backends which can remove multiple objects in a single call.
+	 *
+	 * @param  Object IDs to remove
+	 **/
+	public void DataObjectRemoteDataMap_removeAll(Collection<String> oids) {
+		for (String oid : oids) {
+			DataObjectRemoteDataMap_remove(oid);
+		}
+	}
+	
+	/**
+	 * [Internal use, to be extended in future implementation]
+	 *
+	 * Gets the partial remote data map, for DataObject, of only the requested fields.
+	 * This should be overwritten by backends which can fetch only the requested fields.
+	 *
+	 * @param  Object ID to get
+	 * @param  Fields to get
+	 *
+	 * @return  The raw (partial) Map object to build the DataObject, null if does not exists
+	 **/
+	public Map<String, Object> DataObjectRemoteDataMap_getFields(String oid, Set<String> fields) {
+		return filterFields(DataObjectRemoteDataMap_get(oid), fields);
+	}
+	
+	/**
+	 * [Internal use, to be extended in future implementation]
+	 *
+	 * Gets the partial remote data map, of multiple DataObject, of only the requested fields.
+	 * This should be overwritten by backends which can fetch multiple objects in a single call.
+	 *
+	 * @param  Object IDs to get
+	 * @param  Fields to get
+	 *
+	 * @return  Map of object ID to its (partial) Map, missing objects are not included
+	 **/
+	public Map<String, Map<String, Object>> DataObjectRemoteDataMap_getFields(
+		Collection<String> oids, Set<String> fields) {
+		Map<String, Map<String, Object>> ret = new HashMap<String, Map<String, Object>>();
+		for (String oid : oids) {
+			Map<String, Object> data = DataObjectRemoteDataMap_getFields(oid, fields);
+			if (data != null) {
+				ret.put(oid, data);
+			}
+		}
+		return ret;
+	}
+	
+	/**
+	 * Utility function, returns a copy of the data map with only the requested fields
+	 *
+	 * @param  data map to filter, can be null
+	 * @param  fields to keep
+	 *
+	 * @return  The filtered map, null if data map is null
+	 **/
+	protected static Map<String, Object> filterFields(Map<String, Object> data, Set<String> fields) {
+		if (data == null) {
+			return null;
+		}
+		Map<String, Object> ret = new HashMap<String, Object>();
+		for (String field : fields) {
+			Object val = data.get(field);
+			if (val != null) {
+				ret.put(field, val);
+			}
+		}
+		return ret;
+	}
+	
 	//--------------------------------------------------------------------------
 	//
 	// Query functions
@@ -120,10 +228,25 @@ abstract public class Core_DataObjectMap extends Core_DataStructure<String, Data
 		// The return list of DataObjects
 		List<DataObject> retList = null;
 		
+		// Has a valid orderBy string
+		boolean hasOrderBy = (orderByStr != null && orderByStr.trim().length() > 0);
+		
 		// Setup the query, if needed
 		if (queryClause == null) {
-			// Null gets all
-			retList = new ArrayList<DataObject>(this.values());
+			// Null gets all, without order, the page can be taken from the keySet directly
+			if (!hasOrderBy) {
+				return offsetKeyList(new ArrayList<String>(keySet()), offset, limit);
+			}
+			
+			// Null gets all, with a small page, select it without materializing all objects
+			// (computed as long, and clamped, to avoid overflow with large offset / limit values)
+			int k = (int) Math.min((long) Math.max(offset, 0) + limit, Integer.MAX_VALUE);
+			if (limit >= 1) {
+				retList = topKList(lazyValues(),
+					new OrderBy<DataObject>(orderByStr.trim() + " , _oid"), k);
+			} else {
+				retList = new ArrayList<DataObject>(this.values());
+			}
 		} else {
 			// Performs a search query
 			retList = queryClause.search(this);
@@ -143,6 +266,168 @@ abstract public class Core_DataObjectMap extends Core_DataStructure<String, Data
 		return ret;
 	}
 	
+	/**
+	 * Utility function, used to offset and limit a list of object ID
+	 *
+	 * @param   list of object ID
+	 * @param   offset of the result to display, use -1 to ignore
+	 * @param   number of objects to return max, use -1 to ignore
+	 *
+	 * @return  The String[] array
+	 **/
+	protected static String[] offsetKeyList(List<String> keyList, int offset, int limit) {
+		int size = keyList.size();
+		int start = Math.max(offset, 0);
+		if (start >= size) {
+			return new String[0];
+		}
+		int end = (limit > -1) ? (int) Math.min(size, (long) start + limit) : size;
+		return keyList.subList(start, end).toArray(new String[0]);
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Keyset pagination
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Performs a keyset paginated search query, and returns the respective DataObject keys.
+	 *
+	 * The seek position is added to the query as a lexicographic predicate over the sort keys,
+	 * and _oid as the tie breaker, ie: `(sortKey > ? OR (sortKey = ? AND _oid > ?))`, with the
+	 * limit applied by the backend query. So each page is a bounded query on the backend.
+	 *
+	 * As null sort key values cannot be compared consistently across backends, if the `after`
+	 * object has a null sort key value, this falls back to seeking within the ordered ID list.
+	 *
+	 * @param   where query statement
+	 * @param   where clause values array
+	 * @param   query string to sort the order by, use null to ignore
+	 * @param   after the last DataObject (or map of its sort keys and _oid) of the previous page,
+	 *          use null to get the first page
+	 * @param   number of objects to return max
+	 *
+	 * @return  The String[] array
+	 **/
+	@Override
+	public String[] query_id_seek(String whereClause, Object[] whereValues, String orderByStr,
+		Map<String, Object> after, int limit) {
+		
+		// Order by the sort keys, with _oid as the tie breaker
+		String sortStr = "_oid";
+		if (orderByStr != null && (orderByStr = orderByStr.trim()).length() > 0) {
+			sortStr = orderByStr + " , _oid";
+		}
+		
+		// First page
+		if (after == null) {
+			return query_id(whereClause, whereValues, sortStr, -1, limit);
+		}
+		
+		// Build the seek predicate
+		List<Object> seekValues = new ArrayList<Object>();
+		String seekClause = seekWhereClause(sortStr, after, seekValues);
+		if (seekClause == null) {
+			return seekKeyList(query_id(whereClause, whereValues, sortStr, -1, -1), sortStr, after,
+				limit);
+		}
+		
+		// Combine it with the where clause (if any)
+		if (whereClause != null && whereClause.trim().length() > 0) {
+			seekClause = "(" + whereClause + ") AND (" + seekClause + ")";
+			if (whereValues != null) {
+				seekValues.addAll(0, Arrays.asList(whereValues));
+			}
+		}
+		return query_id(seekClause, seekValues.toArray(), sortStr, -1, limit);
+	}
+	
+	/**
+	 * Build the seek predicate, for the objects ordered after the given `after` object.
+	 *
+	 * For example, with "name ASC , _oid" this returns
+	 * `(name > ?) OR (name = ? AND _oid > ?)`
+	 *
+	 * @param   sortStr query string to sort the order by, ending with _oid
+	 * @param   after map containing the sort key values and _oid of the last object
+	 * @param   seekValues list to append the predicate argument values into
+	 *
+	 * @return  The where clause, null if any of the sort key values is null
+	 **/
+	protected static String seekWhereClause(String sortStr, Map<String, Object> after,
+		List<Object> seekValues) {
+		StringBuilder clause = new StringBuilder();
+		StringBuilder equalPrefix = new StringBuilder();
+		List<Object> equalValues = new ArrayList<Object>();
+		
+		for (String sortKey : sortStr.split(",")) {
+			// Get the sort key, and its direction
+			String[] parts = sortKey.trim().split("\\s+");
+			String key = parts[0];
+			boolean desc = (parts.length > 1 && parts[1].equalsIgnoreCase("DESC"));
+			Object value = after.get(key);
+			if (value == null) {
+				return null;
+			}
+			
+			// (equal prefix AND key >/< ?)
+			if (clause.length() > 0) {
+				clause.append(" OR ");
+			}
+			clause.append("(").append(equalPrefix).append(key).append(desc ? " < ?" : " > ?")
+				.append(")");
+			seekValues.addAll(equalValues);
+			seekValues.add(value);
+			
+			// Extend the equal prefix, for the next sort key
+			equalPrefix.append(key).append(" = ? AND ");
+			equalValues.add(value);
+		}
+		return clause.toString();
+	}
+	
+	/**
+	 * Seek within an ordered ID list, for the page after the given object.
+	 * Used only when the seek predicate cannot be used (null sort key values).
+	 *
+	 * @param   ordered list of object ID
+	 * @param   query string to sort the order by, ending with _oid
+	 * @param   after the last DataObject (or map of its sort keys and _oid) of the previous page
+	 * @param   number of objects to return max
+	 *
+	 * @return  The String[] array
+	 **/
+	protected String[] seekKeyList(String[] idList, String sortStr, Map<String, Object> after,
+		int limit) {
+		String afterID = GenericConvert.toString(after.get("_oid"), null);
+		int start = -1;
+		
+		// Seek by the object ID position
+		if (afterID != null) {
+			for (int i = 0; i < idList.length; ++i) {
+				if (afterID.equals(idList[i])) {
+					start = i + 1;
+					break;
+				}
+			}
+		}
+		
+		// Object was removed, fallback to sort key comparison
+		if (start < 0) {
+			OrderBy<Map<String, Object>> sorter = new OrderBy<Map<String, Object>>(sortStr);
+			start = idList.length;
+			for (int i = 0; i < idList.length; ++i) {
+				DataObject obj = get(idList[i]);
+				if (obj != null && sorter.compare(obj, after) > 0) {
+					start = i;
+					break;
+				}
+			}
+		}
+		return offsetKeyList(Arrays.asList(idList), start, limit);
+	}
+	
 	/**
 	 * Performs a custom search by configured keyname
 	 *
@@ -199,9 +484,18 @@ abstract public class Core_DataObjectMap extends Core_DataStructure<String, Data
 	//
 	//--------------------------------------------------------------------------
 	
+	/// Top-K selection is used, when offset + limit is below this ratio of the list size
+	protected static final int TOPK_SIZE_RATIO = 4;
+	
+	/// Maximum initial heap capacity for top-K selection, when the number of objects is unknown
+	protected static final int TOPK_INITIAL_CAPACITY = 1024;
+	
 	/**
 	 * Utility funciton, used to sort and limit the result of a query
 	 *
+	 * When offset + limit is small in relation to the list size, a bounded heap top-K selection
+	 * is used instead of sorting the whole list.
+	 *
 	 * @param   list of DataObject to sort and return
 	 * @param   query string to sort the order by, use null to ignore
 	 * @param   offset of the result to display, use -1 to ignore
@@ -217,8 +511,15 @@ abstract public class Core_DataObjectMap extends Core_DataStructure<String, Data
 			// Creates the order by sorting, with _oid
 			OrderBy<DataObject> sorter = new OrderBy<DataObject>(orderByStr + " , _oid");
 			
-			// Sort it
-			Collections.sort(retList, sorter);
+			// Top-K selection, for small pages of large lists
+			// (computed as long, to avoid overflow with large offset / limit values)
+			long k = (limit >= 1) ? (long) Math.max(offset, 0) + limit : 0;
+			if (k > 0 && k <= retList.size() / TOPK_SIZE_RATIO) {
+				retList = topKList(retList, sorter, (int) k);
+			} else {
+				// Sort it
+				Collections.sort(retList, sorter);
+			}
 		}
 		
 		// Get sublist if needed
@@ -233,10 +534,7 @@ abstract public class Core_DataObjectMap extends Core_DataStructure<String, Data
 			// Ensures the upper end does not go out of bound
 			int end = size;
 			if (limit > -1) {
-				end = offset + limit;
-			}
-			if (end > size) {
-				end = size;
+				end = (int) Math.min((long) Math.max(offset, 0) + limit, size);
 			}
 			
 			// // Out of range
@@ -245,13 +543,77 @@ abstract public class Core_DataObjectMap extends Core_DataStructure<String, Data
 			// }
 			
 			// Get sublist
-			retList = retList.subList(offset, end);
+			retList = retList.subList(Math.max(offset, 0), end);
 		}
 		
 		// Returns the list, you can easily convert to an array via "toArray(new DataObject[0])"
 		return retList;
 	}
 	
+	/**
+	 * Utility function, which selects the K smallest objects (by the given sorter)
+	 * using a bounded heap. This is O(N log K), instead of O(N log N) for a full sort.
+	 *
+	 * @param   objects to select from, null values are ignored
+	 * @param   sorter to order the objects with
+	 * @param   number of objects to select
+	 *
+	 * @return  The sorted list of at most K objects
+	 **/
+	public static List<DataObject> topKList(Iterable<DataObject> objects,
+		Comparator<? super DataObject> sorter, int k) {
+		// Bounded max-heap, where the head is the "largest" object kept
+		// with its initial capacity capped by the number of objects (when known),
+		// as the heap grows as needed
+		int capacity = Math.min(Math.max(k, 1), TOPK_INITIAL_CAPACITY);
+		if (objects instanceof Collection) {
+			capacity = Math.max(Math.min(k, ((Collection<?>) objects).size()), 1);
+		}
+		PriorityQueue<DataObject> heap = new PriorityQueue<DataObject>(capacity, Collections
+			.reverseOrder(sorter));
+		if (k >= 1) {
+			for (DataObject obj : objects) {
+				if (obj == null) {
+					continue;
+				}
+				if (heap.size() < k) {
+					heap.add(obj);
+				} else if (sorter.compare(obj, heap.peek()) < 0) {
+					heap.poll();
+					heap.add(obj);
+				}
+			}
+		}
+		
+		// Sort the selected objects
+		List<DataObject> ret = new ArrayList<DataObject>(heap);
+		Collections.sort(ret, sorter);
+		return ret;
+	}
+	
+	/**
+	 * Utility function, which lazily iterates all DataObject in the map via its keySet,
+	 * without materializing the full list of objects
+	 *
+	 * @return  Iterable of DataObject
+	 **/
+	protected Iterable<DataObject> lazyValues() {
+		final Set<String> keys = keySet();
+		return () -> {
+			final Iterator<String> keyIterator = keys.iterator();
+			return new Iterator<DataObject>() {
+				public boolean hasNext() {
+					return keyIterator.hasNext();
+				}
+				
+				public DataObject next() {
+					// Missing (removed) objects returns null, which are ignored by the utilities
+					return get(keyIterator.next());
+				}
+			};
+		};
+	}
+	
 	//--------------------------------------------------------------------------
 	//
 	// DataObject removal
@@ -361,6 +723,138 @@ abstract public class Core_DataObjectMap extends Core_DataStructure<String, Data
 		return new Core_DataObject(this, soid, fullRemote, true);
 	}
 	
+	//--------------------------------------------------------------------------
+	//
+	// Async get
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * [Internal use, to be extended in future implementation]
+	 *
+	 * Async varient of DataObjectRemoteDataMap_get, to be overwritten by
+	 * backends with native async support. Performed using the asyncExecutor by default.
+	 *
+	 * @param  oid of the object to get
+	 *
+	 * @return future of the object data map, null if not exists
+	 **/
+	public CompletableFuture<Map<String, Object>> DataObjectRemoteDataMap_getAsync(String oid) {
+		return CompletableFuture.supplyAsync(() -> DataObjectRemoteDataMap_get(oid),
+			asyncExecutor());
+	}
+	
+	/**
+	 * Async varient of get, with existance checks
+	 *
+	 * @param  object GUID to fetch
+	 *
+	 * @return future of the DataObject, null if not exists
+	 **/
+	@Override
+	public CompletableFuture<DataObject> getAsync(String oid) {
+		if (oid == null || oid.isEmpty()) {
+			return CompletableFuture.completedFuture(null);
+		}
+		return DataObjectRemoteDataMap_getAsync(oid).thenApply(
+			(fullRemote) -> (fullRemote == null) ? null : new Core_DataObject(this, oid, fullRemote,
+				true));
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Field projected get / query
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Get a DataObject, with only the requested fields loaded.
+	 *
+	 * The returned DataObject lazily loads the remaining fields, when they are needed
+	 *
+	 * @param  object GUID to fetch
+	 * @param  fields to fetch, fetches the full object if empty
+	 *
+	 * @return the DataObject, null if not exists
+	 **/
+	@Override
+	public DataObject get(String oid, String... fields) {
+		if (fields == null || fields.length == 0) {
+			return get(oid);
+		}
+		if (oid == null || oid.isEmpty()) {
+			return null;
+		}
+		Set<String> fieldSet = new HashSet<String>(Arrays.asList(fields));
+		return partialDataObject(oid, DataObjectRemoteDataMap_getFields(oid, fieldSet), fieldSet);
+	}
+	
+	/**
+	 * Performs a search query, and returns the respective DataObjects,
+	 * with only the requested fields loaded.
+	 *
+	 * The returned DataObjects lazily loads the remaining fields, when they are needed
+	 *
+	 * @param   where query statement
+	 * @param   where clause values array
+	 * @param   query string to sort the order by, use null to ignore
+	 * @param   offset of the result to display, use -1 to ignore
+	 * @param   number of objects to return max, use -1 to ignore
+	 * @param   fields to fetch, fetches the full objects if empty
+	 *
+	 * @return  The DataObject[] array
+	 **/
+	@Override
+	public DataObject[] query(String whereClause, Object[] whereValues, String orderByStr,
+		int offset, int limit, String[] fields) {
+		if (fields == null || fields.length == 0) {
+			return query(whereClause, whereValues, orderByStr, offset, limit);
+		}
+		
+		// Get the object IDs, and their partial data
+		String[] idArray = query_id(whereClause, whereValues, orderByStr, offset, limit);
+		Set<String> fieldSet = new HashSet<String>(Arrays.asList(fields));
+		Map<String, Map<String, Object>> dataMap = DataObjectRemoteDataMap_getFields(
+			Arrays.asList(idArray), fieldSet);
+		
+		// Build the partial DataObjects
+		DataObject[] ret = new DataObject[idArray.length];
+		for (int i = 0; i < idArray.length; ++i) {
+			Map<String, Object> data = dataMap.get(idArray[i]);
+			if (data == null) {
+				// Removed after the query, fallback to an unchecked object
+				ret[i] = new Core_DataObject(this, idArray[i], null, false);
+			} else {
+				ret[i] = partialDataObject(idArray[i], data, fieldSet);
+			}
+		}
+		return ret;
+	}
+	
+	/**
+	 * Build a partial DataObject, from the fetched fields.
+	 *
+	 * Requested fields which do not exist, are marked as removed (ObjectToken.NULL), so that
+	 * reading them does not trigger the loading of the full object.
+	 *
+	 * @param  object GUID
+	 * @param  partial data of the requested fields, null if the object does not exist
+	 * @param  fields which was requested
+	 *
+	 * @return the DataObject, null if the data is null
+	 **/
+	protected DataObject partialDataObject(String oid, Map<String, Object> data, Set<String> fields) {
+		if (data == null) {
+			return null;
+		}
+		for (String field : fields) {
+			if (data.get(field) == null) {
+				data.put(field, ObjectToken.NULL);
+			}
+		}
+		return new Core_DataObject(this, oid, data, false);
+	}
+	
 	//--------------------------------------------------------------------------
 	//
 	// Constructor and maintenance
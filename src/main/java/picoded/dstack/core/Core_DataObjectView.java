@@ -0,0 +1,387 @@
+package picoded.dstack.core;
+
+// Java imports
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Copy-on-write views, of the nested Map / List values within a Core_DataObject.
+ *
+ * Reads are served directly from the stored value, without copying. On the first write, the
+ * value (and each of its parent containers, up to the DataObject key) is shallow copied,
+ * with the copy of the top level value recorded into the DataObject deltaDataMap.
+ *
+ * Copies made this way are "owned" by the DataObject (till the next save), and are written
+ * in place by subsequent writes. All other values, such as the remote data, or values given
+ * via put, are never modified.
+ **/
+class Core_DataObjectView {
+	
+	/**
+	 * Static utility class
+	 **/
+	private Core_DataObjectView() {
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Wrapping / unwrapping
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Wrap the top level value of a DataObject key, as a copy-on-write view (if needed)
+	 *
+	 * @param  owner DataObject of the value
+	 * @param  key of the value
+	 * @param  value to wrap
+	 *
+	 * @return the view, or the value itself, if its not a Map / List
+	 **/
+	static Object wrap(Core_DataObject owner, String key, Object value) {
+		return wrap(owner, null, key, value);
+	}
+	
+	/**
+	 * Wrap the value as a copy-on-write view (if needed)
+	 **/
+	@SuppressWarnings("unchecked")
+	private static Object wrap(Core_DataObject owner, Node parent, Object key, Object value) {
+		if (value instanceof Map) {
+			return new MapView(new Node(owner, parent, key, value));
+		}
+		if (value instanceof List) {
+			return new ListView(new Node(owner, parent, key, value));
+		}
+		if (value instanceof byte[]) {
+			return ((byte[]) value).clone();
+		}
+		return value;
+	}
+	
+	/**
+	 * Unwrap the value, if it is a view, to be stored as a plain value.
+	 *
+	 * Values owned by the view DataObject are deep copied, as they may be modified in place
+	 *
+	 * @param  value to unwrap
+	 *
+	 * @return the plain value
+	 **/
+	static Object unwrap(Object value) {
+		Node node = null;
+		if (value instanceof MapView) {
+			node = ((MapView) value).node;
+		} else if (value instanceof ListView) {
+			node = ((ListView) value).node;
+		} else {
+			return value;
+		}
+		if (node.owner.ownedValues.contains(node.backing)) {
+			return Core_DataObjectMap.deepCopy(node.backing);
+		}
+		return node.backing;
+	}
+	
+	/**
+	 * Shallow copy of a Map / List container
+	 **/
+	@SuppressWarnings("unchecked")
+	private static Object copyContainer(Object value) {
+		if (value instanceof Map) {
+			return new HashMap<Object, Object>((Map<Object, Object>) value);
+		}
+		return new ArrayList<Object>((List<Object>) value);
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Copy-on-write node
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * The position of a view within the DataObject, and its current backing value
+	 **/
+	static class Node {
+		/// DataObject which the value belongs to
+		final Core_DataObject owner;
+		
+		/// Parent container node, null for top level values
+		final Node parent;
+		
+		/// Key of the value in its parent, the DataObject key, Map key, or List index
+		Object key;
+		
+		/// Current backing value, replaced with its copy on the first write
+		Object backing;
+		
+		Node(Core_DataObject inOwner, Node inParent, Object inKey, Object inBacking) {
+			owner = inOwner;
+			parent = inParent;
+			key = inKey;
+			backing = inBacking;
+		}
+		
+		/**
+		 * Ensure the backing value is owned by the DataObject, and part of its delta changes.
+		 * Copying it (and its parents) if needed.
+		 *
+		 * @return the writable backing value
+		 **/
+		@SuppressWarnings("unchecked")
+		Object writable() {
+			// Top level value, rebased onto the current value of the DataObject key
+			// (as it may have been replaced, or copied by another view, since this view was taken)
+			if (parent == null) {
+				if (rebase(owner.getStoredValue(key))) {
+					return backing;
+				}
+				owner.ownedValues.add(backing);
+				owner.deltaDataMap.put((String) key, backing);
+				return backing;
+			}
+			
+			// Nested value, ensure the parent is writable first,
+			// and rebase onto its current value in the parent map
+			Object container = parent.writable();
+			if (container instanceof Map) {
+				Map<Object, Object> map = (Map<Object, Object>) container;
+				if (rebase(map.get(key))) {
+					return backing;
+				}
+				owner.ownedValues.add(backing);
+				map.put(key, backing);
+				return backing;
+			}
+			
+			// Nested list value, locate its current index (it may have shifted)
+			List<Object> list = (List<Object>) container;
+			int idx = (Integer) key;
+			if (idx >= list.size() || list.get(idx) != backing) {
+				idx = -1;
+				for (int i = 0; i < list.size(); ++i) {
+					if (list.get(i) == backing) {
+						idx = i;
+						break;
+					}
+				}
+				if (idx < 0) {
+					throw new ConcurrentModificationException(
+						"DataObject list value was removed, before it was modified");
+				}
+				key = idx;
+			}
+			if (owner.ownedValues.contains(backing)) {
+				return backing;
+			}
+			backing = copyContainer(backing);
+			owner.ownedValues.add(backing);
+			list.set(idx, backing);
+			return backing;
+		}
+		
+		/**
+		 * Rebase the backing value onto the current value, reusing it if its already owned,
+		 * else replacing the backing value with a copy of the current value (not yet owned)
+		 *
+		 * @param  current value, at the position of this view
+		 *
+		 * @return true if the current value is already owned (and hence writable)
+		 **/
+		boolean rebase(Object current) {
+			// The value was removed, or replaced with a different type
+			if (current == null || (current instanceof Map) != (backing instanceof Map)
+				|| (current instanceof List) != (backing instanceof List)) {
+				throw new ConcurrentModificationException(
+					"DataObject value was removed or replaced, before it was modified");
+			}
+			
+			// Reuse the owned value
+			if (owner.ownedValues.contains(current)) {
+				backing = current;
+				return true;
+			}
+			
+			// Copy the current value
+			backing = copyContainer(current);
+			return false;
+		}
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Map view
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Copy-on-write Map view
+	 **/
+	static class MapView extends AbstractMap<Object, Object> {
+		final Node node;
+		
+		MapView(Node inNode) {
+			node = inNode;
+		}
+		
+		@SuppressWarnings("unchecked")
+		Map<Object, Object> read() {
+			return (Map<Object, Object>) node.backing;
+		}
+		
+		@SuppressWarnings("unchecked")
+		Map<Object, Object> write() {
+			return (Map<Object, Object>) node.writable();
+		}
+		
+		@Override
+		public int size() {
+			return read().size();
+		}
+		
+		@Override
+		public boolean containsKey(Object key) {
+			return read().containsKey(key);
+		}
+		
+		@Override
+		public Object get(Object key) {
+			return wrap(node.owner, node, key, read().get(key));
+		}
+		
+		@Override
+		public Object put(Object key, Object value) {
+			Object ret = get(key);
+			write().put(key, unwrap(value));
+			return ret;
+		}
+		
+		@Override
+		public Object remove(Object key) {
+			if (!read().containsKey(key)) {
+				return null;
+			}
+			Object ret = get(key);
+			write().remove(key);
+			return ret;
+		}
+		
+		@Override
+		public void clear() {
+			if (read().size() > 0) {
+				write().clear();
+			}
+		}
+		
+		@Override
+		public Set<Map.Entry<Object, Object>> entrySet() {
+			return new AbstractSet<Map.Entry<Object, Object>>() {
+				@Override
+				public int size() {
+					return read().size();
+				}
+				
+				@Override
+				public Iterator<Map.Entry<Object, Object>> iterator() {
+					// Iterate a snapshot of the keys, as writes may replace the backing map
+					Iterator<Object> keys = new ArrayList<Object>(read().keySet()).iterator();
+					return new Iterator<Map.Entry<Object, Object>>() {
+						Object lastKey = null;
+						
+						@Override
+						public boolean hasNext() {
+							return keys.hasNext();
+						}
+						
+						@Override
+						public Map.Entry<Object, Object> next() {
+							lastKey = keys.next();
+							Object entryKey = lastKey;
+							return new AbstractMap.SimpleEntry<Object, Object>(entryKey, get(entryKey)) {
+								private static final long serialVersionUID = 1L;
+								
+								@Override
+								public Object setValue(Object value) {
+									super.setValue(value);
+									return MapView.this.put(entryKey, value);
+								}
+							};
+						}
+						
+						@Override
+						public void remove() {
+							MapView.this.remove(lastKey);
+						}
+					};
+				}
+			};
+		}
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// List view
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Copy-on-write List view
+	 **/
+	static class ListView extends AbstractList<Object> {
+		final Node node;
+		
+		ListView(Node inNode) {
+			node = inNode;
+		}
+		
+		@SuppressWarnings("unchecked")
+		List<Object> read() {
+			return (List<Object>) node.backing;
+		}
+		
+		@SuppressWarnings("unchecked")
+		List<Object> write() {
+			return (List<Object>) node.writable();
+		}
+		
+		@Override
+		public int size() {
+			return read().size();
+		}
+		
+		@Override
+		public Object get(int index) {
+			return wrap(node.owner, node, index, read().get(index));
+		}
+		
+		@Override
+		public Object set(int index, Object value) {
+			Object ret = get(index);
+			write().set(index, unwrap(value));
+			return ret;
+		}
+		
+		@Override
+		public void add(int index, Object value) {
+			write().add(index, unwrap(value));
+			++modCount;
+		}
+		
+		@Override
+		public Object remove(int index) {
+			Object ret = get(index);
+			write().remove(index);
+			++modCount;
+			return ret;
+		}
+	}
+}
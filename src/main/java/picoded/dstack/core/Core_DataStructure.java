@@ -1,5 +1,7 @@
 package picoded.dstack.core;
 
+import java.util.concurrent.Executor;
+
 import picoded.dstack.CommonStructure;
 import picoded.core.struct.GenericConvertMap;
 import picoded.core.struct.GenericConvertHashMap;
@@ -36,4 +38,48 @@ public abstract class Core_DataStructure<K, V> implements CommonStructure {
 		return configMap;
 	}
 	
+	//--------------------------------------------------------------------------
+	//
+	// Async executor
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Async executor to use, configured by its stack (if any)
+	 **/
+	protected Executor asyncExecutor = null;
+	
+	/**
+	 * @return  The async executor configured by its stack, else the shared executor
+	 **/
+	@Override
+	public Executor asyncExecutor() {
+		if (asyncExecutor != null) {
+			return asyncExecutor;
+		}
+		return CommonStructure.super.asyncExecutor();
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Maintenance
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Set when the maintenance is performed by a Core_MaintenanceScheduler,
+	 * which disables the (request thread) incremental maintenance
+	 **/
+	protected volatile boolean scheduledMaintenance = false;
+	
+	/**
+	 * Perform increment maintenance, skipped if the maintenance is scheduled
+	 **/
+	@Override
+	public void incrementalMaintenance() {
+		if (!scheduledMaintenance) {
+			CommonStructure.super.incrementalMaintenance();
+		}
+	}
+	
 }
\ No newline at end of file
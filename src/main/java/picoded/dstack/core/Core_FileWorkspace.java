@@ -210,6 +210,25 @@ public class Core_FileWorkspace implements FileWorkspace {
 		return main.backend_fileRead(_oid, normalizeFilePathString(filepath));
 	}
 	
+	/**
+	 * Reads a byte range of a file, into a byte array.
+	 *
+	 * @param  filepath in the workspace to extract
+	 * @param  offset   in bytes, to start reading from
+	 * @param  length   maximum number of bytes to read
+	 *
+	 * @return the file contents within the range, null if file does not exists
+	 */
+	public byte[] readByteRange(final String filepath, final long offset, final int length) {
+		if (offset < 0 || length < 0) {
+			throw new IllegalArgumentException("Invalid negative offset / length for byte range");
+		}
+		if (_isUninitialized) {
+			return null;
+		}
+		return main.backend_fileReadByteRange(_oid, normalizeFilePathString(filepath), offset, length);
+	}
+	
 	/**
 	 * Writes a byte array to a file creating the file if it does not exist.
 	 *
@@ -244,6 +244,51 @@ abstract public class Core_FileWorkspaceMap extends Core_DataStructure<String, F
 		return new ByteArrayInputStream(rawBytes);
 	}
 	
+	/**
+	 * [Internal use, to be extended in future implementation]
+	 *
+	 * Get and return a byte range of the stored data as a byte[]
+	 * 
+	 * This overwrite is useful for backends which supports partial reads.
+	 * Else it would simply skip through the stream version.
+	 *
+	 * @param  ObjectID of workspace
+	 * @param  filepath to use for the workspace
+	 * @param  offset   in bytes, to start reading from
+	 * @param  length   maximum number of bytes to read
+	 *
+	 * @return  the stored byte array within the range, null if file does not exist
+	 **/
+	public byte[] backend_fileReadByteRange(final String oid, final String filepath,
+		final long offset, final int length) {
+		// Get the byte stream
+		InputStream in = backend_fileReadInputStream(oid, filepath);
+		if (in == null) {
+			return null;
+		}
+		
+		// Skip to the offset, and read the requested length
+		try {
+			long skipped = IOUtils.skip(in, offset);
+			if (skipped < offset) {
+				return new byte[0];
+			}
+			// Buffer sized by the bytes actually read, as the range may exceed the file size
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.min(Math.max(length, 0),
+				8192));
+			IOUtils.copyLarge(in, buffer, 0, Math.max(length, 0));
+			return buffer.toByteArray();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			try {
+				in.close();
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+	
 	/**
 	 * [Internal use, to be extended in future implementation]
 	 *
@@ -1,5 +1,11 @@
 package picoded.dstack.core;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import picoded.core.conv.GenericConvert;
 import picoded.dstack.KeyLong;
 import picoded.dstack.KeyLongMap;
@@ -300,4 +306,117 @@ public abstract class Core_KeyLongMap extends Core_DataStructure<String, KeyLong
 		return setValueRaw(key, value, expireTime);
 	}
 	
+	//--------------------------------------------------------------------------
+	//
+	// Bulk operations
+	//
+	// Built using getValuesExpiryRaw, setValuesRaw and removeValues,
+	// which should be optimized with native bulk support in the implementation
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * [Internal use, to be extended in future implementation]
+	 *
+	 * Returns the values and expiry of multiple keys, with validation against the current timestamp
+	 *
+	 * @param keys to lookup values
+	 * @param now timestamp, 0 = no timestamp so skip timestamp checks
+	 *
+	 * @return map of key to its value and expiry pair, excluding missing (or expired) keys
+	 **/
+	public Map<String, MutablePair<Long, Long>> getValuesExpiryRaw(Collection<String> keys,
+		long now) {
+		Map<String, MutablePair<Long, Long>> ret = new HashMap<>();
+		for (String key : keys) {
+			MutablePair<Long, Long> pair = getValueExpiryRaw(key, now);
+			if (pair != null) {
+				ret.put(key, pair);
+			}
+		}
+		return ret;
+	}
+	
+	/**
+	 * [Internal use, to be extended in future implementation]
+	 *
+	 * Sets multiple values, with the same expiry
+	 *
+	 * @param values map of key values to store, without null values
+	 * @param expire TIMESTAMP, 0 (or less) means no expiry
+	 **/
+	public void setValuesRaw(Map<String, Long> values, long expire) {
+		for (Map.Entry<String, Long> entry : values.entrySet()) {
+			setValueRaw(entry.getKey(), entry.getValue(), expire);
+		}
+	}
+	
+	/**
+	 * Returns the values of multiple keys
+	 *
+	 * @param keys to lookup values
+	 *
+	 * @return  map of key values, missing (or expired) keys are not included
+	 **/
+	@Override
+	public Map<String, Long> getValues(Collection<String> keys) {
+		Map<String, Long> ret = new HashMap<String, Long>();
+		if (keys == null || keys.isEmpty()) {
+			return ret;
+		}
+		Map<String, MutablePair<Long, Long>> pairs = getValuesExpiryRaw(keys, System
+			.currentTimeMillis());
+		for (Map.Entry<String, MutablePair<Long, Long>> entry : pairs.entrySet()) {
+			ret.put(entry.getKey(), entry.getValue().getLeft());
+		}
+		return ret;
+	}
+	
+	/**
+	 * Stores (and overwrites if needed) multiple key values
+	 *
+	 * @param values map of key values to store, null values are removed
+	 * @param lifespan time to expire in milliseconds, 0 (or less) means no expiry
+	 **/
+	@Override
+	public void putValues(Map<String, Long> values, long lifespan) {
+		if (values == null || values.isEmpty()) {
+			return;
+		}
+		
+		// Split the removals, from the values to store
+		Map<String, Long> setMap = new HashMap<String, Long>();
+		List<String> removeList = new ArrayList<String>();
+		for (Map.Entry<String, Long> entry : values.entrySet()) {
+			if (entry.getValue() == null) {
+				removeList.add(entry.getKey());
+			} else {
+				setMap.put(entry.getKey(), entry.getValue());
+			}
+		}
+		
+		// Apply them
+		if (!removeList.isEmpty()) {
+			removeValues(removeList);
+		}
+		if (!setMap.isEmpty()) {
+			setValuesRaw(setMap, (lifespan <= 0) ? 0 : System.currentTimeMillis() + lifespan);
+		}
+	}
+	
+	/**
+	 * Removes the values of multiple keys
+	 *
+	 * @param keys where the values are stored
+	 **/
+	@Override
+	public void removeValues(Collection<String> keys) {
+		if (keys == null) {
+			return;
+		}
+		for (String key : keys) {
+			removeValue(key);
+		}
+	}
+	
 }
@@ -1,6 +1,11 @@
 package picoded.dstack.core;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import picoded.dstack.KeyValue;
@@ -286,4 +291,117 @@ public abstract class Core_KeyValueMap extends Core_DataStructure<String, KeyVal
 		return setValueRaw(key, value, expireTime);
 	}
 	
+	//--------------------------------------------------------------------------
+	//
+	// Bulk operations
+	//
+	// Built using getValuesExpiryRaw, setValuesRaw and removeValues,
+	// which should be optimized with native bulk support in the implementation
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * [Internal use, to be extended in future implementation]
+	 *
+	 * Returns the values and expiry of multiple keys, with validation against the current timestamp
+	 *
+	 * @param keys to lookup values
+	 * @param now timestamp, 0 = no timestamp so skip timestamp checks
+	 *
+	 * @return map of key to its value and expiry pair, excluding missing (or expired) keys
+	 **/
+	public Map<String, MutablePair<String, Long>> getValuesExpiryRaw(Collection<String> keys,
+		long now) {
+		Map<String, MutablePair<String, Long>> ret = new HashMap<>();
+		for (String key : keys) {
+			MutablePair<String, Long> pair = getValueExpiryRaw(key, now);
+			if (pair != null) {
+				ret.put(key, pair);
+			}
+		}
+		return ret;
+	}
+	
+	/**
+	 * [Internal use, to be extended in future implementation]
+	 *
+	 * Sets multiple values, with the same expiry
+	 *
+	 * @param values map of key values to store, without null values
+	 * @param expire TIMESTAMP, 0 (or less) means no expiry
+	 **/
+	public void setValuesRaw(Map<String, String> values, long expire) {
+		for (Map.Entry<String, String> entry : values.entrySet()) {
+			setValueRaw(entry.getKey(), entry.getValue(), expire);
+		}
+	}
+	
+	/**
+	 * Returns the values of multiple keys
+	 *
+	 * @param keys to lookup values
+	 *
+	 * @return  map of key values, missing (or expired) keys are not included
+	 **/
+	@Override
+	public Map<String, String> getValues(Collection<String> keys) {
+		Map<String, String> ret = new HashMap<String, String>();
+		if (keys == null || keys.isEmpty()) {
+			return ret;
+		}
+		Map<String, MutablePair<String, Long>> pairs = getValuesExpiryRaw(keys, System
+			.currentTimeMillis());
+		for (Map.Entry<String, MutablePair<String, Long>> entry : pairs.entrySet()) {
+			ret.put(entry.getKey(), entry.getValue().getLeft());
+		}
+		return ret;
+	}
+	
+	/**
+	 * Stores (and overwrites if needed) multiple key values
+	 *
+	 * @param values map of key values to store, null values are removed
+	 * @param lifespan time to expire in milliseconds, 0 (or less) means no expiry
+	 **/
+	@Override
+	public void putValues(Map<String, String> values, long lifespan) {
+		if (values == null || values.isEmpty()) {
+			return;
+		}
+		
+		// Split the removals, from the values to store
+		Map<String, String> setMap = new HashMap<String, String>();
+		List<String> removeList = new ArrayList<String>();
+		for (Map.Entry<String, String> entry : values.entrySet()) {
+			if (entry.getValue() == null) {
+				removeList.add(entry.getKey());
+			} else {
+				setMap.put(entry.getKey(), entry.getValue());
+			}
+		}
+		
+		// Apply them
+		if (!removeList.isEmpty()) {
+			removeValues(removeList);
+		}
+		if (!setMap.isEmpty()) {
+			setValuesRaw(setMap, (lifespan <= 0) ? 0 : System.currentTimeMillis() + lifespan);
+		}
+	}
+	
+	/**
+	 * Removes the values of multiple keys
+	 *
+	 * @param keys where the values are stored
+	 **/
+	@Override
+	public void removeValues(Collection<String> keys) {
+		if (keys == null) {
+			return;
+		}
+		for (String key : keys) {
+			removeValue(key);
+		}
+	}
+	
 }
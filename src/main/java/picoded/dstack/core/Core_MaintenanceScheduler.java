@@ -0,0 +1,270 @@
+package picoded.dstack.core;
+
+// Java imports
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Picoded imports
+import picoded.dstack.CommonStructure;
+import picoded.dstack.KeyLongMap;
+
+/**
+ * Runs the `maintenance()` of registered structures on a background executor,
+ * instead of the request threads (via `incrementalMaintenance`).
+ *
+ * Each structure is registered with an interval, and a time budget. To ensure only one node
+ * (sharing the same lease map) performs the maintenance of a structure, a lease is stored
+ * in the lease KeyLongMap, as the timestamp of when its maintenance is next due.
+ *
+ * A node runs the maintenance only if it succesfully updates the lease (via weakCompareAndSet)
+ * from a due timestamp, to a future timestamp covering the time budget. On completion, the
+ * lease is updated to the completion time, plus the interval.
+ *
+ * Note that as maintenance calls cannot be safely interrupted, runs exceeding their
+ * time budget are only logged (and counted in the stats).
+ **/
+public class Core_MaintenanceScheduler {
+	
+	//--------------------------------------------------------------------------
+	//
+	// Constructor vars
+	//
+	//--------------------------------------------------------------------------
+	
+	// Logger to use, for maintenance errors
+	private static final Logger LOGGER = Logger.getLogger(Core_MaintenanceScheduler.class.getName());
+	
+	/// Key prefix used for the leases
+	public static final String LEASE_PREFIX = "maintenance:";
+	
+	/// Lease map, shared across the nodes
+	protected final KeyLongMap leaseMap;
+	
+	/// Background executor
+	protected final ScheduledExecutorService executor;
+	
+	/// Registered tasks, by their name
+	protected final ConcurrentHashMap<String, Task> taskMap = new ConcurrentHashMap<>();
+	
+	/**
+	 * Setup the scheduler with a single background thread
+	 *
+	 * @param  inLeaseMap used to coordinate the maintenance across nodes
+	 **/
+	public Core_MaintenanceScheduler(KeyLongMap inLeaseMap) {
+		this(inLeaseMap, 1);
+	}
+	
+	/**
+	 * Setup the scheduler
+	 *
+	 * @param  inLeaseMap used to coordinate the maintenance across nodes
+	 * @param  threads number of background threads
+	 **/
+	public Core_MaintenanceScheduler(KeyLongMap inLeaseMap, int threads) {
+		leaseMap = inLeaseMap;
+		executor = Executors.newScheduledThreadPool(Math.max(1, threads), (r) -> {
+			Thread t = new Thread(r, "dstack-maintenance");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Registered task
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * A registered structure, with its settings and stats
+	 **/
+	protected static class Task {
+		/// Structure to maintain
+		final CommonStructure structure;
+		
+		/// Interval, and time budget in milliseconds
+		final long interval;
+		final long budget;
+		
+		/// Scheduled lease check
+		ScheduledFuture<?> future = null;
+		
+		/// Stats
+		final AtomicLong runCount = new AtomicLong();
+		final AtomicLong skipCount = new AtomicLong();
+		final AtomicLong overrunCount = new AtomicLong();
+		final AtomicLong errorCount = new AtomicLong();
+		volatile long lastRunTime = 0;
+		volatile long lastDuration = 0;
+		
+		Task(CommonStructure inStructure, long inInterval, long inBudget) {
+			structure = inStructure;
+			interval = inInterval;
+			budget = inBudget;
+		}
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Registration
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Register (or re-register) the structure maintenance
+	 *
+	 * @param  name of the structure, used as the lease key (should be the same across nodes)
+	 * @param  structure to maintain
+	 * @param  interval between each maintenance in milliseconds
+	 * @param  budget time budget of each maintenance in milliseconds
+	 **/
+	public void register(String name, CommonStructure structure, long interval, long budget) {
+		if (interval <= 0) {
+			throw new IllegalArgumentException("Invalid maintenance interval for " + name + " : "
+				+ interval);
+		}
+		
+		// Disable the request thread (incremental) maintenance
+		if (structure instanceof Core_DataStructure) {
+			((Core_DataStructure<?, ?>) structure).scheduledMaintenance = true;
+		}
+		
+		// Setup the task, replacing the previous registration (if any)
+		Task task = new Task(structure, interval, budget);
+		Task old = taskMap.put(name, task);
+		if (old != null && old.future != null) {
+			old.future.cancel(false);
+		}
+		
+		// Check the lease periodically, with a random initial delay to spread out the nodes
+		// (and to avoid adding maintenance load on startup)
+		long checkPeriod = Math.max(1000, interval / 4);
+		long initialDelay = checkPeriod / 2 + ThreadLocalRandom.current().nextLong(checkPeriod / 2);
+		task.future = executor.scheduleWithFixedDelay(() -> runMaintenance(name), initialDelay,
+			checkPeriod, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * Unregister the structure maintenance
+	 *
+	 * @param  name of the structure
+	 **/
+	public void unregister(String name) {
+		Task task = taskMap.remove(name);
+		if (task == null) {
+			return;
+		}
+		if (task.future != null) {
+			task.future.cancel(false);
+		}
+		if (task.structure instanceof Core_DataStructure) {
+			((Core_DataStructure<?, ?>) task.structure).scheduledMaintenance = false;
+		}
+	}
+	
+	/**
+	 * Stop the background executor, running maintenance are allowed to complete
+	 **/
+	public void shutdown() {
+		executor.shutdown();
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Maintenance with lease
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Run the maintenance of the registered structure, if its due, and the lease is acquired.
+	 *
+	 * @param  name of the structure
+	 *
+	 * @return true, if the maintenance was performed
+	 **/
+	public boolean runMaintenance(String name) {
+		Task task = taskMap.get(name);
+		if (task == null) {
+			return false;
+		}
+		
+		try {
+			// Check if its due
+			String leaseKey = LEASE_PREFIX + name;
+			long now = System.currentTimeMillis();
+			Long due = leaseMap.getValue(leaseKey);
+			if (due != null && due.longValue() > now) {
+				task.skipCount.incrementAndGet();
+				return false;
+			}
+			
+			// Acquire the lease, covering the time budget
+			long lease = now + Math.max(task.interval, task.budget);
+			if (!leaseMap.weakCompareAndSet(leaseKey, (due == null) ? 0L : due, lease)) {
+				task.skipCount.incrementAndGet();
+				return false;
+			}
+			
+			// Perform the maintenance
+			try {
+				task.structure.maintenance();
+			} finally {
+				long end = System.currentTimeMillis();
+				task.runCount.incrementAndGet();
+				task.lastRunTime = now;
+				task.lastDuration = end - now;
+				if (task.budget > 0 && task.lastDuration > task.budget) {
+					task.overrunCount.incrementAndGet();
+					LOGGER.warning("Maintenance of " + name + " took " + task.lastDuration
+						+ "ms, exceeding its time budget of " + task.budget + "ms");
+				}
+				
+				// Next maintenance is due after the interval, from its completion
+				leaseMap.weakCompareAndSet(leaseKey, lease, end + task.interval);
+			}
+			return true;
+		} catch (Exception e) {
+			// Log the error, as the executor would silently cancel the task otherwise
+			task.errorCount.incrementAndGet();
+			LOGGER.log(Level.SEVERE, "Maintenance of " + name + " failed", e);
+			return false;
+		}
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Stats
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * @return map of the registered structure name, to its maintenance stats
+	 **/
+	public Map<String, Map<String, Object>> stats() {
+		Map<String, Map<String, Object>> ret = new HashMap<String, Map<String, Object>>();
+		for (Map.Entry<String, Task> entry : taskMap.entrySet()) {
+			Task task = entry.getValue();
+			Map<String, Object> stats = new HashMap<String, Object>();
+			stats.put("interval", task.interval);
+			stats.put("budget", task.budget);
+			stats.put("runs", task.runCount.get());
+			stats.put("skips", task.skipCount.get());
+			stats.put("overruns", task.overrunCount.get());
+			stats.put("errors", task.errorCount.get());
+			stats.put("lastRunTime", task.lastRunTime);
+			stats.put("lastDuration", task.lastDuration);
+			ret.put(entry.getKey(), stats);
+		}
+		return ret;
+	}
+}
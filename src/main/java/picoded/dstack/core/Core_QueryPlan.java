@@ -0,0 +1,124 @@
+package picoded.dstack.core;
+
+// Java imports
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * A generated query (ie. SQL) text, with the mapping of its arguments to the original
+ * where clause arguments. Allowing a cached plan to be reused, with only argument binding.
+ *
+ * Plans are built from a query generated with the probe arguments of
+ * `Core_QueryPlanCache.probeValues`, where each generated argument is either
+ *
+ * - a probe value (optionally transformed by the builder), which is rebound on each call
+ * - a constant value, which is used as it is
+ **/
+public class Core_QueryPlan {
+	
+	//--------------------------------------------------------------------------
+	//
+	// Plan vars
+	//
+	//--------------------------------------------------------------------------
+	
+	/// The generated query text
+	protected final String queryText;
+	
+	/// Generated arguments, used as it is for constant values
+	protected final Object[] templateArgs;
+	
+	/// Where clause argument index for each generated argument, -1 for constant values
+	protected final int[] argIndex;
+	
+	/// Transformation applied to each rebound argument, null if its used as it is
+	protected final UnaryOperator<Object>[] argTransform;
+	
+	/**
+	 * Build the plan, from a query generated using the probe arguments
+	 *
+	 * @param  inQueryText generated with the probe arguments
+	 * @param  inQueryArgs generated with the probe arguments
+	 * @param  probes used to generate the query
+	 * @param  transforms which the builder may apply to arguments
+	 **/
+	@SuppressWarnings("unchecked")
+	@SafeVarargs
+	public Core_QueryPlan(String inQueryText, List<Object> inQueryArgs, Object[] probes,
+		UnaryOperator<Object>... transforms) {
+		queryText = inQueryText;
+		templateArgs = inQueryArgs.toArray();
+		argIndex = new int[templateArgs.length];
+		argTransform = new UnaryOperator[templateArgs.length];
+		
+		// Map each generated argument, back to its probe
+		for (int a = 0; a < templateArgs.length; ++a) {
+			argIndex[a] = -1;
+			Object arg = templateArgs[a];
+			if (arg == null) {
+				continue;
+			}
+			for (int p = 0; p < probes.length && argIndex[a] < 0; ++p) {
+				if (probes[p] == null) {
+					continue;
+				}
+				if (arg.equals(probes[p])) {
+					argIndex[a] = p;
+					break;
+				}
+				for (UnaryOperator<Object> transform : transforms) {
+					if (arg.equals(transform.apply(probes[p]))) {
+						argIndex[a] = p;
+						argTransform[a] = transform;
+						break;
+					}
+				}
+			}
+		}
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Plan usage
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * @return the generated query text
+	 **/
+	public String queryText() {
+		return queryText;
+	}
+	
+	/**
+	 * Indicates if the plan can be reused, this is false if the builder inlined any of the
+	 * probe arguments into the generated query text (instead of using query arguments)
+	 *
+	 * @return true if the plan can be cached
+	 **/
+	public boolean isBindable() {
+		return queryText.indexOf(Core_QueryPlanCache.PROBE_MARKER) < 0;
+	}
+	
+	/**
+	 * Bind the where clause arguments, into the generated query arguments
+	 *
+	 * @param  whereValues arguments, of the same plan key
+	 *
+	 * @return the query arguments
+	 **/
+	public Object[] bindArgs(Object[] whereValues) {
+		Object[] ret = new Object[templateArgs.length];
+		for (int a = 0; a < ret.length; ++a) {
+			int idx = argIndex[a];
+			if (idx < 0) {
+				ret[a] = templateArgs[a];
+			} else if (argTransform[a] != null) {
+				ret[a] = argTransform[a].apply(whereValues[idx]);
+			} else {
+				ret[a] = whereValues[idx];
+			}
+		}
+		return ret;
+	}
+}
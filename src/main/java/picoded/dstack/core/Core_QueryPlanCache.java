@@ -0,0 +1,229 @@
+package picoded.dstack.core;
+
+// Java imports
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded (least recently used) cache of query plans, used by the various DataObjectMap
+ * query builders, to skip the parsing and rewriting of repeated query shapes.
+ *
+ * Plans are keyed by the query "shape", that is the where clause template, the type of its
+ * arguments, the order by clause, and the presence of offset / limit. As such, for plans
+ * built via `Core_QueryPlan`, only the binding of the where clause arguments happens per call.
+ *
+ * @see Core_QueryPlan
+ **/
+public class Core_QueryPlanCache<P> {
+	
+	//--------------------------------------------------------------------------
+	//
+	// Constructor vars
+	//
+	//--------------------------------------------------------------------------
+	
+	/// Default number of plans to cache
+	public static final int DEFAULT_SIZE = 256;
+	
+	/// Marker character used in string probes, which should never be found in generated queries
+	public static final char PROBE_MARKER = '\u0001';
+	
+	/// Base value of numeric probes, chosen to be unlikely to collide with builder constants
+	protected static final long PROBE_NUMBER_BASE = -7_345_678_901_234_567L;
+	
+	/// Maximum number of plans to cache
+	protected final int maxSize;
+	
+	/// Access ordered plan map, used for LRU eviction
+	protected final LinkedHashMap<String, P> planMap;
+	
+	/// Cache hit / miss stats
+	protected final AtomicLong hitCount = new AtomicLong();
+	protected final AtomicLong missCount = new AtomicLong();
+	
+	/**
+	 * Setup the cache with the default size
+	 **/
+	public Core_QueryPlanCache() {
+		this(DEFAULT_SIZE);
+	}
+	
+	/**
+	 * Setup the cache with the given size
+	 *
+	 * @param  inMaxSize maximum number of plans to cache, 0 or less disables caching
+	 **/
+	public Core_QueryPlanCache(int inMaxSize) {
+		maxSize = inMaxSize;
+		planMap = new LinkedHashMap<String, P>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, P> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Cache handling
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Get the cached plan
+	 *
+	 * @param  key of the plan, null keys are never cached
+	 *
+	 * @return the plan, null if its not cached
+	 **/
+	public P get(String key) {
+		if (key == null || maxSize <= 0) {
+			return null;
+		}
+		P ret;
+		synchronized (planMap) {
+			ret = planMap.get(key);
+		}
+		if (ret == null) {
+			missCount.incrementAndGet();
+		} else {
+			hitCount.incrementAndGet();
+		}
+		return ret;
+	}
+	
+	/**
+	 * Store the plan into the cache
+	 *
+	 * @param  key of the plan, null keys are never cached
+	 * @param  plan to store
+	 **/
+	public void put(String key, P plan) {
+		if (key == null || plan == null || maxSize <= 0) {
+			return;
+		}
+		synchronized (planMap) {
+			planMap.put(key, plan);
+		}
+	}
+	
+	/**
+	 * Remove all cached plans
+	 **/
+	public void clear() {
+		synchronized (planMap) {
+			planMap.clear();
+		}
+	}
+	
+	/**
+	 * @return number of cached plans
+	 **/
+	public int size() {
+		synchronized (planMap) {
+			return planMap.size();
+		}
+	}
+	
+	/**
+	 * @return number of cache hits
+	 **/
+	public long hitCount() {
+		return hitCount.get();
+	}
+	
+	/**
+	 * @return number of cache misses
+	 **/
+	public long missCount() {
+		return missCount.get();
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Plan key and argument probe handling
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Get the plan key for the given query shape.
+	 *
+	 * Arguments are reduced to their type (null, number, string, boolean), as query builders
+	 * generate different clauses for each type. Queries with other argument types, or
+	 * with multiple boolean arguments (which cannot be told apart when probing) are not cached.
+	 *
+	 * @param  prefix of the key, used for builder specific settings (ie. selected columns)
+	 * @param  whereClause template
+	 * @param  whereValues arguments
+	 * @param  orderByStr order by clause
+	 * @param  offset of the query, only its presence is part of the key
+	 * @param  limit of the query, only its presence is part of the key
+	 *
+	 * @return the plan key, null if the query should not be cached
+	 **/
+	public static String planKey(String prefix, String whereClause, Object[] whereValues,
+		String orderByStr, int offset, int limit) {
+		StringBuilder ret = new StringBuilder();
+		ret.append(prefix).append('\n').append(whereClause).append('\n');
+		
+		// Argument type signature
+		int boolCount = 0;
+		int len = (whereValues != null) ? whereValues.length : 0;
+		for (int i = 0; i < len; ++i) {
+			Object val = whereValues[i];
+			if (val == null) {
+				ret.append('z');
+			} else if (val instanceof Number) {
+				ret.append('n');
+			} else if (val instanceof String) {
+				ret.append('s');
+			} else if (val instanceof Boolean) {
+				if (++boolCount > 1) {
+					return null;
+				}
+				ret.append('b');
+			} else {
+				return null;
+			}
+		}
+		
+		// Order by, offset and limit presence
+		ret.append('\n').append(orderByStr).append('\n');
+		ret.append(limit > 0 ? 'L' : '-').append(offset > 0 ? 'O' : '-');
+		return ret.toString();
+	}
+	
+	/**
+	 * Generate the probe arguments, used to build a plan. Each probe has the same type as
+	 * its respective argument, but is uniquely identifiable within the built query arguments.
+	 *
+	 * String probes are longer than 64 characters, and contain upper case characters, so that
+	 * any truncation or case normalization done by the builder can be detected.
+	 *
+	 * @param  whereValues arguments, which was validated via `planKey`
+	 *
+	 * @return the probe arguments
+	 **/
+	public static Object[] probeValues(Object[] whereValues) {
+		int len = (whereValues != null) ? whereValues.length : 0;
+		Object[] ret = new Object[len];
+		for (int i = 0; i < len; ++i) {
+			Object val = whereValues[i];
+			if (val instanceof Number) {
+				ret[i] = Long.valueOf(PROBE_NUMBER_BASE + i);
+			} else if (val instanceof String) {
+				StringBuilder probe = new StringBuilder().append(PROBE_MARKER).append("QP").append(i)
+					.append(PROBE_MARKER);
+				while (probe.length() < 80) {
+					probe.append('X');
+				}
+				ret[i] = probe.toString();
+			} else {
+				// null, and the single boolean value, are used as it is
+				ret[i] = val;
+			}
+		}
+		return ret;
+	}
+}
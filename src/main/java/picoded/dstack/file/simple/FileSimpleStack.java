@@ -1,5 +1,7 @@
 package picoded.dstack.file.simple;
 
+import java.io.File;
+
 import picoded.core.struct.GenericConvertMap;
 import picoded.dstack.FileWorkspaceMap;
 import picoded.dstack.core.CoreStack;
@@ -69,6 +71,29 @@ public class FileSimpleStack extends CoreStack {
 			}
 			return new FileSimple_FileWorkspaceMap(fileNamespace);
 		}
+		
+		//	KeyValueMap, KeyLongMap and DataObjectMap are stored in a log structured store,
+		//	within the directory of its name. Its store settings can be configured with
+		//	"logStore" : {
+		//		"segmentSize" : 67108864,
+		//		"fsync" : "ALWAYS", <-- or INTERVAL / NONE
+		//		"compactionInterval" : 60000
+		//	}
+		//	See FileSimple_LogStore for the full list of settings
+		//
+		GenericConvertMap<String, Object> logStoreConfig = this.config.fetchGenericConvertStringMap(
+			"logStore", "{}");
+		File logStoreDir = new File(baseDir, name);
+		if (type.equalsIgnoreCase("KeyValueMap")) {
+			return new FileSimple_KeyValueMap(logStoreDir, logStoreConfig);
+		}
+		if (type.equalsIgnoreCase("KeyLongMap")) {
+			return new FileSimple_KeyLongMap(logStoreDir, logStoreConfig);
+		}
+		if (type.equalsIgnoreCase("DataObjectMap")) {
+			return new FileSimple_DataObjectMap(logStoreDir, logStoreConfig);
+		}
+		
 		// No valid type, return null
 		return null;
 	}
@@ -1,58 +1,259 @@
-//
-//  ON-HOLD
-//
-//  Due to unspecified behaviour on how certain complex data would be handled,
-//  such as byte[]. The implementation is "on-hold"
-//
-//  Possible solutions include adding GSON support
-//  https://gist.github.com/orip/3635246
-//
+package picoded.dstack.file.simple;
 
-// package picoded.dstack.file.simple;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
 
-// import picoded.dstack.core.Core_DataObjectMap;
+import picoded.core.common.ObjectToken;
+import picoded.core.struct.GenericConvertMap;
+import picoded.core.struct.MutablePair;
+import picoded.dstack.core.Core_DataObjectMap;
+import picoded.dstack.jsql_json.JsonbUtils;
 
-// import java.io.File;
-// import java.util.HashMap;
-// import java.util.Map;
-// import java.util.Set;
-// import java.util.concurrent.locks.ReentrantReadWriteLock;
-
-// /**
-//  * File system backed version of DataObjectMap
-//  * 
-//  * This allows dstack to function purely using the filesystem,
-//  * which would be convinent for development purpose.
-//  */
-// public class FileSimple_DataObjectMap extends Core_DataObjectMap {
-
-// 	//--------------------------------------------------------------------------
-// 	//
-// 	// Constructor vars
-// 	//
-// 	//--------------------------------------------------------------------------
-
-// 	/// The file directory to opreate from
-// 	protected File baseDir = null;
-
-// 	/// The file suffix to use for JSON object records
-
-// 	/**
-// 	 * Setup with file directory
-// 	 * 
-// 	 * @param  inDir folder directory to operate from
-// 	 */
-// 	public FileSimple_DataObjectMap(File inDir) { 
-// 		baseDir = inDir;
-// 	}
-
-// 	/**
-// 	 * Setup with file directory
-// 	 * 
-// 	 * @param  inDir folder directory to operate from
-// 	 */
-// 	public FileSimple_DataObjectMap(String inDir) {
-// 		baseDir = new File(inDir);
-// 	}
-
-// }
\ No newline at end of file
+/**
+ * File system backed version of DataObjectMap, stored in an embedded log structured store.
+ *
+ * This allows dstack to function purely using the filesystem, with persistence.
+ * Which is convinent for development, single node and edge deployments.
+ *
+ * Each object is stored as a JSON string, with its binary (byte[]) values serialized
+ * seperately (the same encoding used by the JSONB backend). As
+ * `[int jsonLength][UTF-8 json][binary data]`.
+ *
+ * @see FileSimple_LogStore
+ */
+public class FileSimple_DataObjectMap extends Core_DataObjectMap {
+	
+	//--------------------------------------------------------------------------
+	//
+	// Constructor vars
+	//
+	//--------------------------------------------------------------------------
+	
+	/// The log store directory
+	protected final File storeDir;
+	
+	/// The log store config
+	protected final GenericConvertMap<String, Object> storeConfig;
+	
+	/// The log store, opened on demand
+	protected volatile FileSimple_LogStore store = null;
+	
+	/// Write lock, for read-modify-write of partial updates
+	protected final ReentrantLock writeLock = new ReentrantLock();
+	
+	/**
+	 * Setup with the log store directory
+	 *
+	 * @param  inDir log store directory
+	 * @param  inConfig log store config, see FileSimple_LogStore
+	 */
+	public FileSimple_DataObjectMap(File inDir, GenericConvertMap<String, Object> inConfig) {
+		storeDir = inDir;
+		storeConfig = inConfig;
+	}
+	
+	/**
+	 * @return the log store, opened if needed
+	 **/
+	protected FileSimple_LogStore store() {
+		FileSimple_LogStore ret = store;
+		if (ret == null || ret.isClosed()) {
+			synchronized (this) {
+				if (store == null || store.isClosed()) {
+					store = new FileSimple_LogStore(storeDir, storeConfig);
+				}
+				ret = store;
+			}
+		}
+		return ret;
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Value encoding
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * @param  dataMap to encode
+	 *
+	 * @return the encoded value
+	 **/
+	protected static byte[] encode(Map<String, Object> dataMap) {
+		MutablePair<String, byte[]> dataPair = JsonbUtils.serializeDataMap(dataMap, null);
+		byte[] json = dataPair.getLeft().getBytes(StandardCharsets.UTF_8);
+		byte[] bin = dataPair.getRight();
+		ByteBuffer buf = ByteBuffer.allocate(4 + json.length + ((bin != null) ? bin.length : 0));
+		buf.putInt(json.length).put(json);
+		if (bin != null) {
+			buf.put(bin);
+		}
+		return buf.array();
+	}
+	
+	/**
+	 * @param  raw encoded value
+	 *
+	 * @return the data map
+	 **/
+	protected static Map<String, Object> decode(byte[] raw) {
+		int jsonLength = ByteBuffer.wrap(raw).getInt();
+		String json = new String(raw, 4, jsonLength, StandardCharsets.UTF_8);
+		byte[] bin = null;
+		if (raw.length > 4 + jsonLength) {
+			bin = new byte[raw.length - 4 - jsonLength];
+			System.arraycopy(raw, 4 + jsonLength, bin, 0, bin.length);
+		}
+		return JsonbUtils.deserializeDataMap(json, bin);
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Backend system setup / teardown / maintenance (DStackCommon)
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Sets up the backend storage, opening the log store
+	 **/
+	@Override
+	public void systemSetup() {
+		store();
+	}
+	
+	/**
+	 * Destroy, Teardown and delete the backend storage
+	 **/
+	@Override
+	public synchronized void systemDestroy() {
+		store().destroy();
+		store = null;
+	}
+	
+	/**
+	 * Removes all data, without tearing down setup
+	 **/
+	@Override
+	public void clear() {
+		try {
+			writeLock.lock();
+			store().clear();
+		} finally {
+			writeLock.unlock();
+		}
+	}
+	
+	/**
+	 * Maintenance call, compacting the log store
+	 **/
+	@Override
+	public void maintenance() {
+		store().compact();
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Internal functions, used by DataObject
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * [Internal use, to be extended in future implementation]
+	 *
+	 * Removes the complete remote data map, for DataObject.
+	 * This is used to nuke an entire object
+	 *
+	 * @param  ObjectID to remove
+	 *
+	 * @return  nothing
+	 **/
+	public void DataObjectRemoteDataMap_remove(String oid) {
+		try {
+			writeLock.lock();
+			store().remove(oid);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+	
+	/**
+	 * Gets the complete remote data map, for DataObject.
+	 *
+	 * @param  ObjectID to get
+	 *
+	 * @return null if not exists
+	 **/
+	public Map<String, Object> DataObjectRemoteDataMap_get(String oid) {
+		byte[] raw = store().get(oid);
+		if (raw == null) {
+			return null;
+		}
+		return decode(raw);
+	}
+	
+	/**
+	 * Updates the actual backend storage of DataObject
+	 * either partially (if supported / used), or completely
+	 *
+	 * @param  ObjectID to update
+	 * @param  fullMap of values to apply update
+	 * @param  keys of parameters to update (for partial update if supported)
+	 **/
+	public void DataObjectRemoteDataMap_update(String oid, Map<String, Object> fullMap,
+		Set<String> keys) {
+		
+		// Get keys to store, null = all
+		if (keys == null) {
+			keys = fullMap.keySet();
+		}
+		
+		try {
+			writeLock.lock();
+			
+			// Get the existing value, or makes a new map if needed
+			Map<String, Object> storedValue = DataObjectRemoteDataMap_get(oid);
+			if (storedValue == null) {
+				storedValue = new HashMap<String, Object>();
+			}
+			
+			// Get and store the required values
+			for (String key : keys) {
+				Object val = fullMap.get(key);
+				if (val == null || val == ObjectToken.NULL) {
+					storedValue.remove(key);
+				} else {
+					storedValue.put(key, val);
+				}
+			}
+			
+			// Append the updated value
+			store().put(oid, encode(storedValue));
+		} finally {
+			writeLock.unlock();
+		}
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// KeySet support
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Get and returns all the GUID's, note that due to its
+	 * potential of returning a large data set, production use
+	 * should be avoided.
+	 *
+	 * @return set of keys
+	 **/
+	@Override
+	public Set<String> keySet() {
+		return store().keySet();
+	}
+	
+}
@@ -5,14 +5,26 @@ import picoded.dstack.core.Core_FileWorkspaceMap;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 
 /**
  * Reference class for Core_FileWorkspaceMap
  * Provide Crud operation backed by actual files
+ *
+ * Stream reads, ranged reads, stream writes and file copies are done via NIO channels,
+ * without loading the full file into memory.
  */
 public class FileSimple_FileWorkspaceMap extends Core_FileWorkspaceMap {
 	
@@ -307,6 +319,212 @@ public class FileSimple_FileWorkspaceMap extends Core_FileWorkspaceMap {
 		}
 	}
 	
+	//--------------------------------------------------------------------------
+	//
+	// NIO based streaming, ranged reads, and atomic writes
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * File name suffix, used for temporary files during writes.
+	 * These are excluded from the path listing.
+	 **/
+	protected static final String TEMP_FILE_SUFFIX = ".dstack-tmp";
+	
+	/**
+	 * Get and return the file object, validating that it is a readable file
+	 *
+	 * @param oid
+	 * @param filepath to use for the workspace
+	 *
+	 * @return file object, null if it does not exist
+	 */
+	protected File readableFileObj(String oid, String filepath) {
+		// Get the file object
+		File fileObj = workspaceFileObj(oid, filepath);
+		
+		// return null if failed
+		if (fileObj == null || !fileObj.exists()) {
+			return null;
+		}
+		if (fileObj.isDirectory()) {
+			throw new RuntimeException(String.format("`%s` is a directory", filepath));
+		}
+		return fileObj;
+	}
+	
+	/**
+	 * Get and return the file content as a FileChannel backed stream,
+	 * without loading the file into memory.
+	 *
+	 * @param oid
+	 * @param filepath to use for the workspace
+	 *
+	 * @return the stored byte stream of the file, null if it does not exist
+	 */
+	@Override
+	public InputStream backend_fileReadInputStream(final String oid, final String filepath) {
+		File fileObj = readableFileObj(oid, filepath);
+		if (fileObj == null) {
+			return null;
+		}
+		try {
+			return Channels.newInputStream(FileChannel.open(fileObj.toPath(),
+				StandardOpenOption.READ));
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+	
+	/**
+	 * Get and return a byte range of the file, using a positional channel read.
+	 *
+	 * This is not done via a memory mapped buffer, as the mapping (and its file handle)
+	 * is only released on GC, blocking file deletes and renames on some platforms (ie. Windows)
+	 *
+	 * @param oid
+	 * @param filepath to use for the workspace
+	 * @param offset   in bytes, to start reading from
+	 * @param length   maximum number of bytes to read
+	 *
+	 * @return the stored byte array within the range, null if file does not exist
+	 */
+	@Override
+	public byte[] backend_fileReadByteRange(final String oid, final String filepath,
+		final long offset, final int length) {
+		File fileObj = readableFileObj(oid, filepath);
+		if (fileObj == null) {
+			return null;
+		}
+		try (FileChannel channel = FileChannel.open(fileObj.toPath(), StandardOpenOption.READ)) {
+			// Get the actual size to read
+			long fileSize = channel.size();
+			if (offset >= fileSize) {
+				return new byte[0];
+			}
+			int readSize = (int) Math.min((long) length, fileSize - offset);
+			byte[] ret = new byte[readSize];
+			
+			// Read the range, until its filled (or the file ends)
+			ByteBuffer buffer = ByteBuffer.wrap(ret);
+			long pos = offset;
+			while (buffer.hasRemaining()) {
+				int read = channel.read(buffer, pos);
+				if (read < 0) {
+					break;
+				}
+				pos += read;
+			}
+			if (buffer.hasRemaining()) {
+				return Arrays.copyOf(ret, buffer.position());
+			}
+			return ret;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+	
+	/**
+	 * Create a temporary file in the same directory as the given file,
+	 * ensuring the parent directory exists.
+	 *
+	 * @param fileObj to create the temporary file for
+	 *
+	 * @return temporary file path
+	 */
+	protected Path createTempFileFor(File fileObj) throws IOException {
+		File parentFile = fileObj.getParentFile();
+		FileUtil.forceMkdir(parentFile);
+		return Files.createTempFile(parentFile.toPath(), "." + fileObj.getName() + ".",
+			TEMP_FILE_SUFFIX);
+	}
+	
+	/**
+	 * Move the temporary file into its destination, atomically if supported by the filesystem
+	 *
+	 * @param tempPath to move from
+	 * @param destPath to move into (overwritten if it exists)
+	 */
+	protected void atomicReplace(Path tempPath, Path destPath) throws IOException {
+		try {
+			Files.move(tempPath, destPath, StandardCopyOption.ATOMIC_MOVE,
+				StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(tempPath, destPath, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+	
+	/**
+	 * Write the stream directly to disk, through a temporary file and an atomic rename.
+	 * Readers will either see the previous, or the new file content, but never a partial write.
+	 *
+	 * @param oid
+	 * @param filepath to use for the workspace
+	 * @param data     to write the file with
+	 */
+	@Override
+	public void backend_fileWriteInputStream(final String oid, final String filepath,
+		final InputStream data) {
+		// Null data, is written as an empty file
+		if (data == null) {
+			backend_fileWrite(oid, filepath, new byte[0]);
+			return;
+		}
+		
+		Path tempPath = null;
+		try {
+			// Get the file object
+			File fileObj = workspaceFileObj(oid, filepath);
+			
+			// Stream into the temp file, and move it into place
+			tempPath = createTempFileFor(fileObj);
+			Files.copy(data, tempPath, StandardCopyOption.REPLACE_EXISTING);
+			atomicReplace(tempPath, fileObj.toPath());
+			tempPath = null;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			try {
+				data.close();
+				if (tempPath != null) {
+					Files.deleteIfExists(tempPath);
+				}
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+	
+	/**
+	 * Appends the byte array directly to the end of the file, without reading it
+	 *
+	 * @param oid
+	 * @param filepath to use for the workspace
+	 * @param data     to append the file with
+	 */
+	@Override
+	public void backend_fileAppendByteArray(final String oid, final String filepath,
+		final byte[] data) {
+		// Get the file object
+		File fileObj = workspaceFileObj(oid, filepath);
+		if (fileObj.isDirectory()) {
+			throw new RuntimeException(String.format("`%s` is a directory", filepath));
+		}
+		
+		// Ensure parent folder is intialized
+		if (!fileObj.exists()) {
+			FileUtil.forceMkdir(fileObj.getParentFile());
+		}
+		
+		// Append to the file
+		try {
+			Files.write(fileObj.toPath(), (data != null) ? data : new byte[0],
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+	
 	//--------------------------------------------------------------------------
 	//
 	// Folder handling
@@ -437,8 +655,14 @@ public class FileSimple_FileWorkspaceMap extends Core_FileWorkspaceMap {
 				+ ") : " + sourceFile);
 		}
 		
-		// Apply the move
-		FileUtil.moveFile(sourceObj, workspaceFileObj(oid, destinationFile));
+		// Apply the move, as a rename within the same file system
+		try {
+			File destinationObj = workspaceFileObj(oid, destinationFile);
+			FileUtil.forceMkdir(destinationObj.getParentFile());
+			atomicReplace(sourceObj.toPath(), destinationObj.toPath());
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
 	}
 	
 	/**
@@ -508,8 +732,30 @@ public class FileSimple_FileWorkspaceMap extends Core_FileWorkspaceMap {
 				+ ") : " + sourceFile);
 		}
 		
-		// Apply the copy
-		FileUtil.copyFile(sourceObj, workspaceFileObj(oid, destinationFile));
+		// Apply the copy, via channel transfer into a temp file, then moved into place
+		File destinationObj = workspaceFileObj(oid, destinationFile);
+		Path tempPath = null;
+		try {
+			tempPath = createTempFileFor(destinationObj);
+			try (
+				FileChannel src = FileChannel.open(sourceObj.toPath(), StandardOpenOption.READ);
+				FileChannel dst = FileChannel.open(tempPath, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING)) {
+				long size = src.size();
+				long pos = 0;
+				while (pos < size) {
+					pos += src.transferTo(pos, size - pos, dst);
+				}
+			}
+			atomicReplace(tempPath, destinationObj.toPath());
+			tempPath = null;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			if (tempPath != null) {
+				tempPath.toFile().delete();
+			}
+		}
 	}
 	
 	/**
@@ -569,6 +815,11 @@ public class FileSimple_FileWorkspaceMap extends Core_FileWorkspaceMap {
 			// Get subFile name
 			String subFileName = subFile.getName();
 			
+			// Skip temporary files, from inflight writes
+			if (subFileName.endsWith(TEMP_FILE_SUFFIX)) {
+				continue;
+			}
+			
 			// If its a file - add it, and move on
 			if (subFile.isFile()) {
 				result.add(currentPath + subFileName);
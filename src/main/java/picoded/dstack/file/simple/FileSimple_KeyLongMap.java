@@ -0,0 +1,301 @@
+package picoded.dstack.file.simple;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+import picoded.core.struct.GenericConvertMap;
+import picoded.core.struct.MutablePair;
+import picoded.dstack.core.Core_KeyLongMap;
+
+/**
+ * File system backed implementation of KeyLongMap, stored in an embedded log structured store.
+ *
+ * Each value is stored with its expiry timestamp, as `[long expiry][long value]`.
+ * Atomic operations are serialized via a write lock, within the same process.
+ *
+ * @see FileSimple_LogStore
+ **/
+public class FileSimple_KeyLongMap extends Core_KeyLongMap {
+	
+	//--------------------------------------------------------------------------
+	//
+	// Constructor vars
+	//
+	//--------------------------------------------------------------------------
+	
+	/// The log store directory
+	protected final File storeDir;
+	
+	/// The log store config
+	protected final GenericConvertMap<String, Object> storeConfig;
+	
+	/// The log store, opened on demand
+	protected volatile FileSimple_LogStore store = null;
+	
+	/// Write lock, for read-modify-write operations
+	protected final ReentrantLock writeLock = new ReentrantLock();
+	
+	/**
+	 * Setup with the log store directory
+	 *
+	 * @param  inDir log store directory
+	 * @param  inConfig log store config, see FileSimple_LogStore
+	 **/
+	public FileSimple_KeyLongMap(File inDir, GenericConvertMap<String, Object> inConfig) {
+		storeDir = inDir;
+		storeConfig = inConfig;
+	}
+	
+	/**
+	 * @return the log store, opened if needed
+	 **/
+	protected FileSimple_LogStore store() {
+		FileSimple_LogStore ret = store;
+		if (ret == null || ret.isClosed()) {
+			synchronized (this) {
+				if (store == null || store.isClosed()) {
+					store = new FileSimple_LogStore(storeDir, storeConfig);
+				}
+				ret = store;
+			}
+		}
+		return ret;
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Value encoding
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * @param  value to encode
+	 * @param  expire timestamp, 0 means NO expire
+	 *
+	 * @return the encoded value
+	 **/
+	protected static byte[] encode(long value, long expire) {
+		return ByteBuffer.allocate(16).putLong(Math.max(expire, 0)).putLong(value).array();
+	}
+	
+	/**
+	 * @param  raw encoded value
+	 *
+	 * @return the value and expiry pair
+	 **/
+	protected static MutablePair<Long, Long> decode(byte[] raw) {
+		ByteBuffer buf = ByteBuffer.wrap(raw);
+		long expiry = buf.getLong();
+		return new MutablePair<Long, Long>(buf.getLong(), expiry);
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// KeySet support implementation
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Search using the value, all the relevent key mappings
+	 *
+	 * @param key, note that null matches ALL
+	 *
+	 * @return array of keys
+	 **/
+	@Override
+	public Set<String> keySet(Long value) {
+		long now = System.currentTimeMillis();
+		Set<String> ret = new HashSet<String>();
+		for (String key : store().keySet()) {
+			MutablePair<Long, Long> pair = getValueExpiryRaw(key, now);
+			if (pair != null && (value == null || pair.getLeft().equals(value))) {
+				ret.add(key);
+			}
+		}
+		return ret;
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Fundamental set/get value (core)
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * [Internal use, to be extended in future implementation]
+	 * Sets the value, with validation
+	 *
+	 * @param key
+	 * @param value, null means removal
+	 * @param expire timestamp, 0 means not timestamp
+	 *
+	 * @return null
+	 **/
+	public Long setValueRaw(String key, Long value, long expire) {
+		if (key == null || key.isEmpty()) {
+			return null;
+		}
+		try {
+			writeLock.lock();
+			store().put(key, (value != null) ? encode(value, expire) : null);
+			return null;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+	
+	/**
+	 * [Internal use, to be extended in future implementation]
+	 *
+	 * Returns the value and expiry, with validation against the current timestamp
+	 *
+	 * @param key as String
+	 * @param now timestamp, 0 = no timestamp so skip timestamp checks
+	 *
+	 * @return Long value, and expiry pair
+	 **/
+	public MutablePair<Long, Long> getValueExpiryRaw(String key, long now) {
+		byte[] raw = store().get(key);
+		if (raw == null) {
+			return null;
+		}
+		MutablePair<Long, Long> pair = decode(raw);
+		
+		// Note: 0 = no timestamp, hence valid value
+		long expiry = pair.getRight();
+		if (expiry != 0 && expiry < now) {
+			return null;
+		}
+		return pair;
+	}
+	
+	/**
+	 * Stores (and overwrites if needed) key, value pair
+	 *
+	 * Important note: It does not return the previously stored value
+	 *
+	 * @param key as String
+	 * @param expect as Long
+	 * @param update as Long
+	 *
+	 * @return true if successful
+	 **/
+	@Override
+	public boolean weakCompareAndSet(String key, Long expect, Long update) {
+		try {
+			writeLock.lock();
+			
+			// Retrieve existing value and expiry
+			MutablePair<Long, Long> pair = getValueExpiryRaw(key, System.currentTimeMillis());
+			
+			// Value does not exists (0 is considered as not exists)
+			if (pair == null) {
+				if (expect == null || expect == 0L) {
+					store().put(key, encode(update, 0));
+					return true;
+				}
+				return false;
+			}
+			
+			// Value exists and equivalent to expected value, keeping its expiry
+			if (pair.getLeft().equals(expect)) {
+				store().put(key, encode(update, pair.getRight()));
+				return true;
+			}
+			
+			// Operation fail, return failure
+			return false;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Expiration and lifespan handling (core)
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * [Internal use, to be extended in future implementation]
+	 * Sets the expire time stamp value, raw without validation
+	 *
+	 * @param key as String
+	 * @param time timestamp in milliseconds, 0 means NO expire
+	 **/
+	public void setExpiryRaw(String key, long time) {
+		try {
+			writeLock.lock();
+			byte[] raw = store().get(key);
+			if (raw == null) {
+				return;
+			}
+			store().put(key, encode(decode(raw).getLeft(), time));
+		} finally {
+			writeLock.unlock();
+		}
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Backend system setup / teardown / maintenance (DStackCommon)
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Sets up the backend storage, opening the log store
+	 **/
+	@Override
+	public void systemSetup() {
+		store();
+	}
+	
+	/**
+	 * Destroy, Teardown and delete the backend storage
+	 **/
+	@Override
+	public synchronized void systemDestroy() {
+		store().destroy();
+		store = null;
+	}
+	
+	/**
+	 * Perform maintenance, removing expired data, and compacting the log store
+	 **/
+	@Override
+	public void maintenance() {
+		long now = System.currentTimeMillis();
+		for (String key : store().keySet()) {
+			try {
+				writeLock.lock();
+				byte[] raw = store().get(key);
+				if (raw == null) {
+					continue;
+				}
+				long expiry = decode(raw).getRight();
+				if (expiry > 0 && expiry < now) {
+					store().remove(key);
+				}
+			} finally {
+				writeLock.unlock();
+			}
+		}
+		store().compact();
+	}
+	
+	/**
+	 * Removes all data, without tearing down setup
+	 **/
+	@Override
+	public void clear() {
+		try {
+			writeLock.lock();
+			store().clear();
+		} finally {
+			writeLock.unlock();
+		}
+	}
+}
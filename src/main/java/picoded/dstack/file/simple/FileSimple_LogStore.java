@@ -0,0 +1,885 @@
+package picoded.dstack.file.simple;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import picoded.core.file.FileUtil;
+import picoded.core.struct.GenericConvertMap;
+import picoded.core.struct.GenericConvertHashMap;
+
+/**
+ * Embedded log structured (Bitcask-style) key to byte[] store, used by the FileSimple
+ * KeyValueMap, KeyLongMap and DataObjectMap implementations.
+ *
+ * All writes (including removals as tombstones) are appended to the active segment file,
+ * with an in-memory hash index of each key to the location of its latest value. Where each
+ * record is stored as
+ *
+ * ```
+ * [int crc32][int keyLength][int valueLength, -1 for tombstone][key bytes][value bytes]
+ * ```
+ *
+ * Once the active segment exceeds the segment size, it is sealed (read via memory mapping),
+ * and a new active segment is started. On startup, the index is rebuilt by scanning the
+ * segments in order, where any trailing partial / corrupted record (from a crash) in the last
+ * segment is truncated.
+ *
+ * Sealed segments with a high ratio of overwritten / removed records are compacted, by
+ * appending its live records into the active segment, and deleting the old segment file.
+ *
+ * The following config options are supported
+ *
+ * + segmentSize        : maximum size of each segment file in bytes, default 64MB
+ * + fsync              : ALWAYS (default, group committed), INTERVAL, or NONE
+ * + fsyncInterval      : fsync interval in ms, for the INTERVAL mode, default 1000
+ * + compactionRatio    : minimum dead bytes ratio for a segment to be compacted, default 0.5
+ * + compactionInterval : background compaction interval in ms, default 60000, 0 to disable
+ **/
+public class FileSimple_LogStore implements Closeable {
+	
+	//--------------------------------------------------------------------------
+	//
+	// Constructor vars
+	//
+	//--------------------------------------------------------------------------
+	
+	/// Logger used for recovery and compaction warnings
+	protected static final Logger LOGGER = Logger.getLogger(FileSimple_LogStore.class.getName());
+	
+	/// Segment file suffix
+	protected static final String SEGMENT_SUFFIX = ".log";
+	
+	/// Record header size, of the crc, key length and value length
+	protected static final int HEADER_SIZE = 12;
+	
+	/// Value length used for tombstone records
+	protected static final int TOMBSTONE = -1;
+	
+	/// Default maximum segment size
+	public static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+	
+	/**
+	 * Fsync modes for writes
+	 **/
+	public enum FsyncMode {
+		/// Each write waits for its fsync, with concurrent writes grouped into a single fsync
+		ALWAYS,
+		/// Writes are fsync in the background at a fixed interval
+		INTERVAL,
+		/// Fsync is left to the operating system
+		NONE
+	}
+	
+	/// Directory of the segment files
+	protected final File dir;
+	
+	/// Store settings
+	protected final long segmentSize;
+	protected final FsyncMode fsyncMode;
+	protected final long fsyncInterval;
+	protected final double compactionRatio;
+	protected final long compactionInterval;
+	
+	/// Key to latest value location index
+	protected final ConcurrentHashMap<String, Location> index = new ConcurrentHashMap<String, Location>();
+	
+	/// All segments (including the active segment), by segment ID
+	protected final ConcurrentSkipListMap<Integer, Segment> segments = new ConcurrentSkipListMap<Integer, Segment>();
+	
+	/// Active segment, which is appended to
+	protected Segment active = null;
+	
+	/// Write lock, for appending to the active segment
+	protected final ReentrantLock writeLock = new ReentrantLock();
+	
+	/// Fsync group commit lock, and the total bytes written / synced
+	protected final Object syncLock = new Object();
+	protected long writtenBytes = 0;
+	protected long syncedBytes = 0;
+	
+	/// Background housekeeping thread (for fsync intervals and compaction), if any
+	protected Thread housekeeper = null;
+	
+	/// Indicates if the store was closed
+	protected volatile boolean closed = false;
+	
+	/**
+	 * Open the store, with the default config
+	 *
+	 * @param  inDir directory of the segment files, created if it does not exist
+	 **/
+	public FileSimple_LogStore(File inDir) {
+		this(inDir, null);
+	}
+	
+	/**
+	 * Open the store, recovering its index from the existing segments (if any)
+	 *
+	 * @param  inDir directory of the segment files, created if it does not exist
+	 * @param  config store config
+	 **/
+	public FileSimple_LogStore(File inDir, GenericConvertMap<String, Object> config) {
+		if (config == null) {
+			config = new GenericConvertHashMap<String, Object>();
+		}
+		dir = inDir;
+		segmentSize = Math.min(config.getLong("segmentSize", DEFAULT_SEGMENT_SIZE),
+			Integer.MAX_VALUE);
+		fsyncMode = FsyncMode.valueOf(config.getString("fsync", "ALWAYS").toUpperCase());
+		fsyncInterval = config.getLong("fsyncInterval", 1000);
+		compactionRatio = config.getDouble("compactionRatio", 0.5);
+		compactionInterval = config.getLong("compactionInterval", 60000);
+		
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			throw new RuntimeException("Unable to create log store directory : "
+				+ dir.getAbsolutePath());
+		}
+		try {
+			recover();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		startHousekeeper();
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Segment and location handling
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Location of a value within a segment
+	 **/
+	protected static class Location {
+		/// Segment ID
+		final int segmentID;
+		
+		/// Offset of the record, and its value within the segment
+		final long recordOffset;
+		final long valueOffset;
+		
+		/// Length of the value, and its full record
+		final int valueLength;
+		final int recordLength;
+		
+		Location(int inSegmentID, long inRecordOffset, int keyLength, int inValueLength) {
+			segmentID = inSegmentID;
+			recordOffset = inRecordOffset;
+			valueOffset = inRecordOffset + HEADER_SIZE + keyLength;
+			valueLength = inValueLength;
+			recordLength = HEADER_SIZE + keyLength + Math.max(inValueLength, 0);
+		}
+	}
+	
+	/**
+	 * A single segment file, the active segment is read via its channel,
+	 * while sealed segments are read via memory mapping.
+	 *
+	 * As NIO closes a channel for all threads, when any thread is interrupted during its IO,
+	 * the active segment channel is reopened on its next use (see `openChannel`).
+	 **/
+	protected static class Segment {
+		/// Segment ID, and its file
+		final int id;
+		final File file;
+		
+		/// Read write channel, only for the active segment
+		volatile FileChannel channel;
+		
+		/// Memory mapped content, only for sealed segments
+		volatile MappedByteBuffer mapped;
+		
+		/// Size of the segment, and the bytes which are no longer live
+		volatile long size;
+		final AtomicLong deadBytes = new AtomicLong();
+		
+		Segment(int inID, File inFile) {
+			id = inID;
+			file = inFile;
+		}
+		
+		/**
+		 * Get the channel of the active segment, reopening it if it was closed
+		 * by an interrupted thread
+		 *
+		 * @return the open channel, null if the segment was sealed (or closed)
+		 **/
+		FileChannel openChannel() throws IOException {
+			FileChannel ch = channel;
+			if (ch == null || ch.isOpen()) {
+				return ch;
+			}
+			synchronized (this) {
+				ch = channel;
+				if (ch != null && !ch.isOpen()) {
+					ch = FileChannel.open(file.toPath(), StandardOpenOption.READ,
+						StandardOpenOption.WRITE);
+					channel = ch;
+				}
+				return ch;
+			}
+		}
+		
+		/**
+		 * Read the given range of the segment
+		 *
+		 * @param  offset to read from
+		 * @param  length to read
+		 *
+		 * @return the bytes read
+		 **/
+		byte[] read(long offset, int length) throws IOException {
+			byte[] ret = new byte[length];
+			MappedByteBuffer map = mapped;
+			if (map != null) {
+				ByteBuffer dup = map.duplicate();
+				dup.position((int) offset);
+				dup.get(ret);
+				return ret;
+			}
+			FileChannel ch = openChannel();
+			if (ch == null) {
+				// Sealed concurrently, the caller should retry via the memory map
+				throw new ClosedChannelException();
+			}
+			ByteBuffer buf = ByteBuffer.wrap(ret);
+			while (buf.hasRemaining()) {
+				if (ch.read(buf, offset + buf.position()) < 0) {
+					throw new IOException("Unexpected end of segment " + file.getName());
+				}
+			}
+			return ret;
+		}
+		
+		/**
+		 * Seal the segment, memory mapping its content, and closing its channel
+		 **/
+		synchronized void seal() throws IOException {
+			FileChannel ch = channel;
+			if (ch == null || !ch.isOpen()) {
+				ch = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			}
+			try {
+				mapped = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			} finally {
+				channel = null;
+				ch.close();
+			}
+		}
+		
+		/**
+		 * Close the segment channel (if any)
+		 **/
+		synchronized void close() {
+			FileChannel ch = channel;
+			channel = null;
+			if (ch != null) {
+				try {
+					ch.close();
+				} catch (IOException e) {
+					LOGGER.log(Level.WARNING, e.getMessage(), e);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @param  id of the segment
+	 *
+	 * @return the segment file
+	 **/
+	protected File segmentFile(int id) {
+		return new File(dir, String.format("%010d", id) + SEGMENT_SUFFIX);
+	}
+	
+	/**
+	 * Mark the record at the location as dead (no longer live)
+	 *
+	 * @param  loc of the record, ignored if null
+	 **/
+	protected void markDead(Location loc) {
+		if (loc == null) {
+			return;
+		}
+		Segment seg = segments.get(loc.segmentID);
+		if (seg != null) {
+			seg.deadBytes.addAndGet(loc.recordLength);
+		}
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Recovery
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Rebuild the index from the existing segments, and setup the active segment
+	 **/
+	protected void recover() throws IOException {
+		// Get the segment files, in order
+		File[] files = dir.listFiles((d, name) -> name.endsWith(SEGMENT_SUFFIX));
+		List<Integer> idList = new ArrayList<Integer>();
+		for (File file : (files != null) ? files : new File[0]) {
+			String name = file.getName();
+			try {
+				idList.add(Integer.parseInt(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+			} catch (NumberFormatException e) {
+				LOGGER.warning("Ignoring unknown log store file : " + file.getAbsolutePath());
+			}
+		}
+		Collections.sort(idList);
+		
+		// Scan each segment, rebuilding the index
+		for (int i = 0; i < idList.size(); ++i) {
+			boolean isLast = (i == idList.size() - 1);
+			Segment seg = new Segment(idList.get(i), segmentFile(idList.get(i)));
+			seg.channel = FileChannel.open(seg.file.toPath(), StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+			seg.size = seg.channel.size();
+			segments.put(seg.id, seg);
+			
+			long validSize = scanSegment(seg);
+			if (validSize < seg.size) {
+				if (isLast) {
+					// Partial write from a crash, truncate it
+					LOGGER.warning("Truncating " + (seg.size - validSize)
+						+ " bytes of incomplete records in " + seg.file.getAbsolutePath());
+					seg.channel.truncate(validSize);
+					seg.channel.force(true);
+				} else {
+					LOGGER.warning("Ignoring " + (seg.size - validSize)
+						+ " bytes of corrupted records in " + seg.file.getAbsolutePath());
+				}
+				seg.size = validSize;
+			}
+			
+			if (isLast && seg.size < segmentSize) {
+				active = seg;
+			} else {
+				seg.seal();
+			}
+		}
+		
+		// Setup a new active segment, if needed
+		if (active == null) {
+			active = newSegment(segments.isEmpty() ? 1 : segments.lastKey() + 1);
+		}
+	}
+	
+	/**
+	 * Scan the segment records, applying them to the index
+	 *
+	 * @param  seg to scan
+	 *
+	 * @return size of the valid records, from the start of the segment
+	 **/
+	protected long scanSegment(Segment seg) throws IOException {
+		ByteBuffer buf = seg.channel.map(FileChannel.MapMode.READ_ONLY, 0, seg.size);
+		CRC32 crc = new CRC32();
+		long pos = 0;
+		while (pos + HEADER_SIZE <= seg.size) {
+			buf.position((int) pos);
+			int checksum = buf.getInt();
+			int keyLength = buf.getInt();
+			int valueLength = buf.getInt();
+			
+			// Validate the record boundary, and its checksum
+			if (keyLength < 0 || valueLength < TOMBSTONE
+				|| pos + HEADER_SIZE + (long) keyLength + Math.max(valueLength, 0) > seg.size) {
+				break;
+			}
+			byte[] body = new byte[8 + keyLength + Math.max(valueLength, 0)];
+			buf.position((int) pos + 4);
+			buf.get(body);
+			crc.reset();
+			crc.update(body, 0, body.length);
+			if ((int) crc.getValue() != checksum) {
+				break;
+			}
+			
+			// Apply the record
+			String key = new String(body, 8, keyLength, StandardCharsets.UTF_8);
+			Location loc = new Location(seg.id, pos, keyLength, valueLength);
+			if (valueLength == TOMBSTONE) {
+				markDead(index.remove(key));
+				seg.deadBytes.addAndGet(loc.recordLength);
+			} else {
+				markDead(index.put(key, loc));
+			}
+			pos += loc.recordLength;
+		}
+		return pos;
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Writes
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Setup a new active segment file
+	 *
+	 * @param  id of the segment
+	 *
+	 * @return the segment
+	 **/
+	protected Segment newSegment(int id) throws IOException {
+		Segment seg = new Segment(id, segmentFile(id));
+		seg.channel = FileChannel.open(seg.file.toPath(), StandardOpenOption.READ,
+			StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+		seg.size = seg.channel.size();
+		segments.put(id, seg);
+		return seg;
+	}
+	
+	/**
+	 * Append the record to the active segment, must be called with the write lock
+	 *
+	 * @param  key to write
+	 * @param  value to write, null for a tombstone
+	 *
+	 * @return location of the record
+	 **/
+	protected Location append(String key, byte[] value) throws IOException {
+		byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		int valueLength = (value != null) ? value.length : TOMBSTONE;
+		int recordLength = HEADER_SIZE + keyBytes.length + Math.max(valueLength, 0);
+		
+		// Roll over to a new segment, if the active segment is full
+		if (active.size > 0 && active.size + recordLength > segmentSize) {
+			active.openChannel().force(true);
+			active.seal();
+			active = newSegment(active.id + 1);
+		}
+		
+		// Build the record
+		ByteBuffer buf = ByteBuffer.allocate(recordLength);
+		buf.putInt(0).putInt(keyBytes.length).putInt(valueLength).put(keyBytes);
+		if (value != null) {
+			buf.put(value);
+		}
+		CRC32 crc = new CRC32();
+		crc.update(buf.array(), 4, recordLength - 4);
+		buf.putInt(0, (int) crc.getValue());
+		buf.flip();
+		
+		// Write it at the end of the active segment
+		// (an interrupted write is overwritten by the next append, as the size is unchanged)
+		long pos = active.size;
+		FileChannel ch = active.openChannel();
+		while (buf.hasRemaining()) {
+			try {
+				ch.write(buf, pos + buf.position());
+			} catch (ClosedByInterruptException e) {
+				throw e;
+			} catch (ClosedChannelException e) {
+				// Closed by another interrupted thread, reopen and continue
+				ch = active.openChannel();
+				if (ch == null) {
+					throw e;
+				}
+			}
+		}
+		active.size += recordLength;
+		writtenBytes += recordLength;
+		return new Location(active.id, pos, keyBytes.length, valueLength);
+	}
+	
+	/**
+	 * Stores the value for the key, waiting for it to be fsync (according to the fsync mode)
+	 *
+	 * @param  key to write
+	 * @param  value to write, null to remove
+	 **/
+	public void put(String key, byte[] value) {
+		ensureOpen();
+		long written;
+		try {
+			writeLock.lock();
+			
+			// Skip removal of keys which does not exist
+			if (value == null && !index.containsKey(key)) {
+				return;
+			}
+			
+			Location loc = append(key, value);
+			if (value == null) {
+				markDead(index.remove(key));
+				markDead(loc);
+			} else {
+				markDead(index.put(key, loc));
+			}
+			written = writtenBytes;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			writeLock.unlock();
+		}
+		
+		if (fsyncMode == FsyncMode.ALWAYS) {
+			sync(written);
+		}
+	}
+	
+	/**
+	 * Removes the key
+	 *
+	 * @param  key to remove
+	 **/
+	public void remove(String key) {
+		put(key, null);
+	}
+	
+	/**
+	 * Fsync the active segment, up till the given number of bytes written. Concurrent callers
+	 * waiting on the same fsync are grouped together (group commit).
+	 *
+	 * @param  written bytes which should be durable
+	 **/
+	protected void sync(long written) {
+		synchronized (syncLock) {
+			if (syncedBytes >= written) {
+				return;
+			}
+			long target;
+			Segment seg;
+			try {
+				writeLock.lock();
+				target = writtenBytes;
+				seg = active;
+			} finally {
+				writeLock.unlock();
+			}
+			
+			// Rolled over segments are fsync on roll over, only the active segment needs a fsync
+			try {
+				FileChannel ch = seg.openChannel();
+				while (ch != null) {
+					try {
+						ch.force(false);
+						break;
+					} catch (ClosedByInterruptException e) {
+						throw e;
+					} catch (ClosedChannelException e) {
+						// Segment was sealed (and fsync) concurrently, or closed by another
+						// interrupted thread (in which case it is reopened)
+						ch = seg.openChannel();
+					}
+				}
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+			syncedBytes = target;
+		}
+	}
+	
+	/**
+	 * Fsync all pending writes
+	 **/
+	public void sync() {
+		long written;
+		try {
+			writeLock.lock();
+			written = writtenBytes;
+		} finally {
+			writeLock.unlock();
+		}
+		sync(written);
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Reads
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Get the value of the key
+	 *
+	 * @param  key to read
+	 *
+	 * @return the value, null if it does not exist
+	 **/
+	public byte[] get(String key) {
+		ensureOpen();
+		for (int attempt = 0; attempt < 8; ++attempt) {
+			Location loc = index.get(key);
+			if (loc == null) {
+				return null;
+			}
+			Segment seg = segments.get(loc.segmentID);
+			if (seg == null) {
+				// Segment was compacted concurrently, retry with the updated index
+				continue;
+			}
+			try {
+				return seg.read(loc.valueOffset, loc.valueLength);
+			} catch (ClosedByInterruptException e) {
+				// This thread was interrupted, the channel is reopened on its next use
+				throw new RuntimeException(e);
+			} catch (ClosedChannelException e) {
+				// Segment was sealed concurrently (retry via its memory map),
+				// or closed by another interrupted thread (retry via the reopened channel)
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		throw new RuntimeException("Failed to read key from log store, due to concurrent changes : "
+			+ key);
+	}
+	
+	/**
+	 * @param  key to check
+	 *
+	 * @return true, if the key exists
+	 **/
+	public boolean containsKey(String key) {
+		return index.containsKey(key);
+	}
+	
+	/**
+	 * @return live (unmodifiable) view of the stored keys
+	 **/
+	public Set<String> keySet() {
+		return Collections.unmodifiableSet(index.keySet());
+	}
+	
+	/**
+	 * @return store stats, of the key count, segment count, total bytes and dead bytes
+	 **/
+	public Map<String, Long> stats() {
+		long total = 0;
+		long dead = 0;
+		for (Segment seg : segments.values()) {
+			total += seg.size;
+			dead += seg.deadBytes.get();
+		}
+		Map<String, Long> ret = new HashMap<String, Long>();
+		ret.put("keyCount", (long) index.size());
+		ret.put("segmentCount", (long) segments.size());
+		ret.put("totalBytes", total);
+		ret.put("deadBytes", dead);
+		return ret;
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Compaction
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Compact the sealed segments, which exceeds the dead bytes ratio
+	 *
+	 * @return number of segments compacted
+	 **/
+	public int compact() {
+		ensureOpen();
+		int compacted = 0;
+		for (Segment seg : new ArrayList<Segment>(segments.values())) {
+			if (seg == active || seg.mapped == null || seg.size <= 0) {
+				continue;
+			}
+			if (seg.deadBytes.get() < seg.size * compactionRatio) {
+				continue;
+			}
+			try {
+				compactSegment(seg);
+				++compacted;
+			} catch (IOException e) {
+				LOGGER.log(Level.WARNING, "Failed to compact " + seg.file.getAbsolutePath(), e);
+			}
+		}
+		return compacted;
+	}
+	
+	/**
+	 * Compact a single sealed segment, by appending its live records to the active segment
+	 *
+	 * @param  seg to compact
+	 **/
+	protected void compactSegment(Segment seg) throws IOException {
+		ByteBuffer buf = seg.mapped.duplicate();
+		long pos = 0;
+		while (pos + HEADER_SIZE <= seg.size) {
+			buf.position((int) pos + 4);
+			int keyLength = buf.getInt();
+			int valueLength = buf.getInt();
+			byte[] keyBytes = new byte[keyLength];
+			buf.get(keyBytes);
+			String key = new String(keyBytes, StandardCharsets.UTF_8);
+			Location loc = new Location(seg.id, pos, keyLength, valueLength);
+			pos += loc.recordLength;
+			
+			try {
+				writeLock.lock();
+				if (valueLength == TOMBSTONE) {
+					// Tombstones are only needed, while older segments may hold a value of the key
+					if (segments.firstKey() != seg.id && !index.containsKey(key)) {
+						markDead(append(key, null));
+					}
+					continue;
+				}
+				
+				// Only move the record, if its still the latest value
+				Location current = index.get(key);
+				if (current != null && current.segmentID == seg.id
+					&& current.recordOffset == loc.recordOffset) {
+					index.put(key, append(key, seg.read(loc.valueOffset, loc.valueLength)));
+				}
+			} finally {
+				writeLock.unlock();
+			}
+		}
+		
+		// Ensure the moved records are durable, before removing the segment
+		sync();
+		segments.remove(seg.id);
+		if (!seg.file.delete()) {
+			LOGGER.warning("Failed to delete compacted segment : " + seg.file.getAbsolutePath());
+		}
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Housekeeping, clear and close
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Start the background housekeeping thread, if fsync intervals or compaction is enabled
+	 **/
+	protected void startHousekeeper() {
+		boolean intervalSync = (fsyncMode == FsyncMode.INTERVAL && fsyncInterval > 0);
+		if (!intervalSync && compactionInterval <= 0) {
+			return;
+		}
+		long tick = intervalSync ? fsyncInterval : compactionInterval;
+		if (intervalSync && compactionInterval > 0) {
+			tick = Math.min(fsyncInterval, compactionInterval);
+		}
+		final long sleepTime = tick;
+		housekeeper = new Thread(() -> {
+			long lastCompaction = System.currentTimeMillis();
+			while (!closed) {
+				try {
+					Thread.sleep(sleepTime);
+					if (closed) {
+						break;
+					}
+					if (intervalSync) {
+						sync();
+					}
+					long now = System.currentTimeMillis();
+					if (compactionInterval > 0 && now - lastCompaction >= compactionInterval) {
+						lastCompaction = now;
+						compact();
+					}
+				} catch (InterruptedException e) {
+					// Closing is handled via the closed flag
+				} catch (Exception e) {
+					LOGGER.log(Level.WARNING, e.getMessage(), e);
+				}
+			}
+		}, "FileSimple_LogStore:" + dir.getName());
+		housekeeper.setDaemon(true);
+		housekeeper.start();
+	}
+	
+	/**
+	 * Removes all data, deleting all the segment files
+	 **/
+	public void clear() {
+		ensureOpen();
+		try {
+			writeLock.lock();
+			int nextID = active.id + 1;
+			for (Segment seg : segments.values()) {
+				seg.close();
+				seg.file.delete();
+			}
+			segments.clear();
+			index.clear();
+			active = newSegment(nextID);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+	
+	/**
+	 * Close the store, after fsync of any pending writes
+	 **/
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		sync();
+		closed = true;
+		if (housekeeper != null) {
+			housekeeper.interrupt();
+		}
+		try {
+			writeLock.lock();
+			for (Segment seg : segments.values()) {
+				seg.close();
+			}
+		} finally {
+			writeLock.unlock();
+		}
+	}
+	
+	/**
+	 * Close the store, and delete its directory
+	 **/
+	public void destroy() {
+		close();
+		segments.clear();
+		index.clear();
+		if (dir.isDirectory()) {
+			FileUtil.forceDelete(dir);
+		}
+	}
+	
+	/**
+	 * @return true if the store was closed
+	 **/
+	public boolean isClosed() {
+		return closed;
+	}
+	
+	/**
+	 * Throws an exception if the store was closed
+	 **/
+	protected void ensureOpen() {
+		if (closed) {
+			throw new IllegalStateException("Log store is already closed : " + dir.getAbsolutePath());
+		}
+	}
+}
@@ -2,6 +2,8 @@ package picoded.dstack.hazelcast.core;
 
 // Java imports
 import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
 
 // JavaCommons imports
 import picoded.core.struct.GenericConvertMap;
@@ -12,6 +14,8 @@ import picoded.dstack.connector.hazelcast.*;
 // Hazelcast implementation
 import com.hazelcast.core.*;
 import com.hazelcast.config.*;
+import com.hazelcast.map.*;
+import com.hazelcast.nearcache.NearCacheStats;
 
 /**
  * [Internal use only]
@@ -53,10 +57,51 @@ public abstract class HazelcastStack extends CoreStack {
 			hazelcastConfig.put("groupName", name);
 		}
 		
+		// Setup the client near cache config, from the stack config
+		if (hazelcastConfig.get("nearCache") == null) {
+			hazelcastConfig.put("nearCache", nearCacheConfig(inConfig));
+		}
+		
 		// Get the Hazelcast connection
 		conn = HazelcastConnector.getConnection(hazelcastConfig);
 	}
 	
+	/**
+	 * Build the client near cache config (used only in client mode), for the connector.
+	 * 
+	 * - `nearCache` : default near cache settings, applied to all structures if `enabled`
+	 * - `nearCacheStructures` : near cache settings for each structure name, overwriting the default
+	 * 
+	 * @param inConfig stack configuration
+	 * 
+	 * @return near cache config, for each map name (or wildcard pattern)
+	 */
+	protected static Map<String, Object> nearCacheConfig(GenericConvertMap<String, Object> inConfig) {
+		Map<String, Object> ret = new HashMap<String, Object>();
+		
+		// Default near cache settings
+		GenericConvertMap<String, Object> defaultConfig = inConfig.fetchGenericConvertStringMap(
+			"nearCache", "{}");
+		if (defaultConfig.getBoolean("enabled", false)) {
+			ret.put("*", defaultConfig);
+		}
+		
+		// Structure specific settings, structure names are case insensitive (stored in uppercase)
+		GenericConvertMap<String, Object> structuresConfig = inConfig.fetchGenericConvertStringMap(
+			"nearCacheStructures", "{}");
+		for (String name : structuresConfig.keySet()) {
+			GenericConvertMap<String, Object> structureConfig = structuresConfig
+				.fetchGenericConvertStringMap(name, "{}");
+			if (!structureConfig.getBoolean("enabled", true)) {
+				continue;
+			}
+			Map<String, Object> merged = new HashMap<String, Object>(defaultConfig);
+			merged.putAll(structureConfig);
+			ret.put(name.toUpperCase(Locale.ENGLISH), merged);
+		}
+		return ret;
+	}
+	
 	//--------------------------------------------------------------------------
 	//
 	// Internal package methods
@@ -70,6 +115,59 @@ public abstract class HazelcastStack extends CoreStack {
 		return conn;
 	}
 	
+	/**
+	 * Get the near cache statistics of the given map
+	 * 
+	 * @param map to get the statistics for
+	 * 
+	 * @return near cache statistics, null if the map is not near cached
+	 */
+	protected static NearCacheStats nearCacheStats(IMap<?, ?> map) {
+		try {
+			return map.getLocalMapStats().getNearCacheStats();
+		} catch (UnsupportedOperationException e) {
+			// Client maps without near cache, does not support local stats
+			return null;
+		}
+	}
+	
+	/**
+	 * Get the near cache statistics, of all the initialized structures which are near cached.
+	 * 
+	 * This can be used to tune the near cache settings for each structure, via its hit ratio.
+	 * 
+	 * @return near cache statistics, for each structure name
+	 */
+	public Map<String, Map<String, Object>> nearCacheStats() {
+		Map<String, Map<String, Object>> ret = new HashMap<String, Map<String, Object>>();
+		for (Map.Entry<String, Core_DataStructure> entry : structureCache.entrySet()) {
+			Core_DataStructure structure = entry.getValue();
+			NearCacheStats stats = null;
+			if (structure instanceof Hazelcast_DataObjectMap) {
+				stats = ((Hazelcast_DataObjectMap) structure).nearCacheStats();
+			} else if (structure instanceof Hazelcast_KeyValueMap) {
+				stats = ((Hazelcast_KeyValueMap) structure).nearCacheStats();
+			} else if (structure instanceof Hazelcast_KeyLongMap) {
+				stats = ((Hazelcast_KeyLongMap) structure).nearCacheStats();
+			}
+			if (stats == null) {
+				continue;
+			}
+			
+			Map<String, Object> statsMap = new HashMap<String, Object>();
+			statsMap.put("hits", stats.getHits());
+			statsMap.put("misses", stats.getMisses());
+			statsMap.put("ratio", stats.getRatio());
+			statsMap.put("ownedEntryCount", stats.getOwnedEntryCount());
+			statsMap.put("ownedEntryMemoryCost", stats.getOwnedEntryMemoryCost());
+			statsMap.put("evictions", stats.getEvictions());
+			statsMap.put("expirations", stats.getExpirations());
+			statsMap.put("invalidations", stats.getInvalidations());
+			ret.put(entry.getKey(), statsMap);
+		}
+		return ret;
+	}
+	
 	/**
 	 * Given a hazelcast map config, setup common configuration settings based on the instance / data structure config.
 	 * 
@@ -90,6 +188,20 @@ public abstract class HazelcastStack extends CoreStack {
 	abstract protected void setupHazelcastMapConfig(MapConfig mConfig,
 		GenericConvertMap<String, Object> dataStructureConfig);
 	
+	/**
+	 * Get the map store config, used to persist the given data structure (if any).
+	 * 
+	 * This is overwritten by the HazelcastStoreStack, when configured with a map store provider.
+	 * 
+	 * @param name    of the data structure
+	 * @param type    of the data structure (DataObjectMap / KeyValueMap)
+	 * 
+	 * @return map store config, null if the data structure is not persisted with a map store
+	 */
+	protected MapStoreConfig getHazelcastMapStoreConfig(String name, String type) {
+		return null;
+	}
+	
 	//--------------------------------------------------------------------------
 	//
 	// Stack commands
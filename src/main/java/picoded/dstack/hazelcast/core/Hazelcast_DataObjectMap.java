@@ -3,10 +3,12 @@ package picoded.dstack.hazelcast.core;
 // Java imports
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -24,6 +26,7 @@ import picoded.dstack.core.*;
 import com.hazelcast.core.*;
 import com.hazelcast.config.*;
 import com.hazelcast.map.*;
+import com.hazelcast.nearcache.NearCacheStats;
 import com.hazelcast.query.*;
 
 /**
@@ -141,6 +144,23 @@ public class Hazelcast_DataObjectMap extends Core_DataObjectMap_struct {
 		return (Map<String, Map<String, Object>>) backendIMap();
 	}
 	
+	/**
+	 * Async varient of DataObjectRemoteDataMap_get, using the native IMap.getAsync
+	 *
+	 * @param  oid of the object to get
+	 *
+	 * @return future of the object data map, null if not exists
+	 **/
+	@Override
+	public CompletableFuture<Map<String, Object>> DataObjectRemoteDataMap_getAsync(String oid) {
+		return backendIMap().getAsync(oid).toCompletableFuture().thenApply((storedValue) -> {
+			if (storedValue == null) {
+				return null;
+			}
+			return (Map<String, Object>) deepCopy(storedValue);
+		});
+	}
+	
 	//--------------------------------------------------------------------------
 	//
 	// Overwrite update behaviour, to do a "clean clone" of data to be stored
@@ -183,6 +203,13 @@ public class Hazelcast_DataObjectMap extends Core_DataObjectMap_struct {
 		super.DataObjectRemoteDataMap_update(oid, clonedMap, keys);
 	}
 	
+	/**
+	 * @return near cache statistics of the backend map, null if it is not near cached
+	 */
+	public NearCacheStats nearCacheStats() {
+		return HazelcastStack.nearCacheStats(backendIMap());
+	}
+	
 	//--------------------------------------------------------------------------
 	//
 	// Backend system setup / teardown / maintenance (DStackCommon)
@@ -204,6 +231,23 @@ public class Hazelcast_DataObjectMap extends Core_DataObjectMap_struct {
 		// Setup the config based on the shared stack settings
 		if (hazelcastStack != null) {
 			hazelcastStack.setupHazelcastMapConfig(mConfig, configMap());
+			
+			// Persist the map via a map store, if configured
+			MapStoreConfig msConfig = hazelcastStack.getHazelcastMapStoreConfig(name(), "DataObjectMap");
+			if (msConfig != null) {
+				mConfig.setMapStoreConfig(msConfig);
+			}
+		}
+		
+		// In memory format of the stored objects, OBJECT avoids the deserialization
+		// of each entry, for queries which cannot use an index (fallback predicates)
+		String inMemoryFormat = configMap().getString("inMemoryFormat", null);
+		if (inMemoryFormat == null && hazelcastStack != null) {
+			inMemoryFormat = hazelcastStack.config.getString("dataObjectMapInMemoryFormat", null);
+		}
+		if (inMemoryFormat != null) {
+			mConfig.setInMemoryFormat(InMemoryFormat.valueOf(inMemoryFormat
+				.toUpperCase(Locale.ENGLISH)));
 		}
 		
 		// Add in the default _oid
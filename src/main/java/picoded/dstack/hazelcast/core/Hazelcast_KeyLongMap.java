@@ -2,8 +2,13 @@ package picoded.dstack.hazelcast.core;
 
 // Java imports
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -19,6 +24,7 @@ import picoded.dstack.core.*;
 import com.hazelcast.core.*;
 import com.hazelcast.config.*;
 import com.hazelcast.map.*;
+import com.hazelcast.nearcache.NearCacheStats;
 import com.hazelcast.query.Predicates;
 
 /**
@@ -111,6 +117,13 @@ public class Hazelcast_KeyLongMap extends Core_KeyLongMap {
 		return _backendMap;
 	}
 	
+	/**
+	 * @return near cache statistics of the backend map, null if it is not near cached
+	 */
+	public NearCacheStats nearCacheStats() {
+		return HazelcastStack.nearCacheStats(backendMap());
+	}
+	
 	//--------------------------------------------------------------------------
 	//
 	// Backend system setup / teardown / maintenance (DStackCommon)
@@ -166,6 +179,133 @@ public class Hazelcast_KeyLongMap extends Core_KeyLongMap {
 		// does nothing
 	}
 	
+	//--------------------------------------------------------------------------
+	//
+	// Async operations, using the native IMap async support
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Async varient of getValue, using IMap.getAsync
+	 *
+	 * @param key param find the thae meta key
+	 *
+	 * @return  future of the value, null if not found (or expired)
+	 **/
+	@Override
+	public CompletableFuture<Long> getValueAsync(Object key) {
+		if (key == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+		return backendMap().getAsync(key.toString()).toCompletableFuture();
+	}
+	
+	/**
+	 * Async varient of putValue, using IMap.setAsync (or removeAsync for null values)
+	 *
+	 * @param key as String
+	 * @param value to store, null means removal
+	 *
+	 * @return  future which completes when the value is stored (with a null value)
+	 **/
+	@Override
+	public CompletableFuture<Long> putValueAsync(String key, Long value) {
+		if (value == null) {
+			return backendMap().removeAsync(key).toCompletableFuture().thenApply((v) -> null);
+		}
+		return backendMap().setAsync(key, value).toCompletableFuture().thenApply((v) -> null);
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Bulk operations, using the native IMap bulk support
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Get multiple values, using a single IMap.getAll call
+	 * (expired entries are evicted by hazelcast, and hence not returned)
+	 *
+	 * @param keys to lookup values
+	 *
+	 * @return map of key to its value, excluding missing (or expired) keys
+	 **/
+	@Override
+	public Map<String, Long> getValues(Collection<String> keys) {
+		if (keys == null || keys.isEmpty()) {
+			return new HashMap<>();
+		}
+		return new HashMap<>(backendMap().getAll(new HashSet<String>(keys)));
+	}
+	
+	/**
+	 * Returns the values and expiry of multiple keys, using a single IMap.getAll call
+	 * to skip the missing keys, with the expiry fetched via IMap.getEntryView
+	 * only for the keys which were found.
+	 *
+	 * @param keys to lookup values
+	 * @param now timestamp, 0 = no timestamp so skip timestamp checks
+	 *
+	 * @return map of key to its value and expiry pair, excluding missing (or expired) keys
+	 **/
+	@Override
+	public Map<String, MutablePair<Long, Long>> getValuesExpiryRaw(Collection<String> keys,
+		long now) {
+		Map<String, MutablePair<Long, Long>> ret = new HashMap<>();
+		if (keys == null || keys.isEmpty()) {
+			return ret;
+		}
+		
+		Map<String, Long> found = backendMap().getAll(new HashSet<String>(keys));
+		for (String key : found.keySet()) {
+			MutablePair<Long, Long> pair = getValueExpiryRaw(key, now);
+			if (pair != null) {
+				ret.put(key, pair);
+			}
+		}
+		return ret;
+	}
+	
+	/**
+	 * Sets multiple values, with the same expiry, using IMap.putAll when there is no expiry,
+	 * else concurrent IMap.setAsync calls with the respective TTL
+	 *
+	 * @param values map of key values to store, without null values
+	 * @param expire timestamp, 0 (or less) means no expiry
+	 **/
+	@Override
+	public void setValuesRaw(Map<String, Long> values, long expire) {
+		if (values.isEmpty()) {
+			return;
+		}
+		if (expire <= 0) {
+			backendMap().putAll(values);
+			return;
+		}
+		
+		long ttl = Math.max(expire - System.currentTimeMillis(), 1);
+		List<CompletableFuture<Void>> futures = new ArrayList<CompletableFuture<Void>>();
+		for (Map.Entry<String, Long> entry : values.entrySet()) {
+			futures.add(backendMap().setAsync(entry.getKey(), entry.getValue(), ttl,
+				TimeUnit.MILLISECONDS).toCompletableFuture());
+		}
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+	}
+	
+	/**
+	 * Removes the values of multiple keys, using concurrent IMap.removeAsync calls
+	 *
+	 * @param keys where the values are stored
+	 **/
+	@Override
+	public void removeValues(Collection<String> keys) {
+		List<CompletableFuture<Long>> futures = new ArrayList<CompletableFuture<Long>>();
+		for (String key : keys) {
+			futures.add(backendMap().removeAsync(key).toCompletableFuture());
+		}
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+	}
+	
 	//--------------------------------------------------------------------------
 	//
 	// KeySet support implementation
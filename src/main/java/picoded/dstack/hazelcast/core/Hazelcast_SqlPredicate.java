@@ -3,10 +3,13 @@ package picoded.dstack.hazelcast.core;
 // Java imports
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 // JavaCommons imports
 import picoded.core.struct.query.Query;
 import picoded.core.conv.StringEscape;
+import picoded.dstack.core.Core_QueryPlanCache;
 
 // Hazelcast implementation
 import com.hazelcast.query.*;
@@ -35,19 +38,136 @@ public class Hazelcast_SqlPredicate implements Predicate<String, Map<String, Obj
 	
 	// The underlying Query class is not serialize intentionally
 	// to help reduce overall serializable size
-	private transient Query _localQuery = null;
+	private transient volatile Query _localQuery = null;
+	
+	// The evaluation stats of the query string
+	private transient volatile FallbackStats _localStats = null;
 	
 	/**
 	 * Apply the predicate against the internal hazlecast store
 	 */
 	public boolean apply(Map.Entry<String, Map<String, Object>> mapEntry) {
-		// Initialize the local query if needed
-		if (_localQuery == null) {
-			_localQuery = Query.build(_queryString, _queryArgs);
+		// Get the compiled query, and its stats (shared across the partition threads)
+		Query query = _localQuery;
+		if (query == null) {
+			query = compiledQuery(_queryString, _queryArgs);
+			_localQuery = query;
+		}
+		FallbackStats stats = _localStats;
+		if (stats == null) {
+			stats = fallbackStats(_queryString);
+			_localStats = stats;
 		}
 		
 		// Apply the query against the value
-		return _localQuery.test(mapEntry.getValue());
+		stats.evaluated.increment();
+		boolean ret = query.test(mapEntry.getValue());
+		if (ret) {
+			stats.matched.increment();
+		}
+		return ret;
+	}
+	
+	//------------------------------------------------------------------
+	//
+	//  Compiled query cache
+	//
+	//------------------------------------------------------------------
+	
+	/**
+	 * Member wide cache of the compiled (parsed) fallback queries, keyed by the query
+	 * string and arguments. So that each query is parsed once per member, instead of
+	 * once per deserialized predicate.
+	 */
+	protected static final Core_QueryPlanCache<Query> compiledQueryCache = //
+		new Core_QueryPlanCache<Query>();
+	
+	/**
+	 * Get the compiled query, from the cache, or parse it if needed
+	 * 
+	 * @param  queryString  of the query
+	 * @param  queryArgs    of the query
+	 * 
+	 * @return the compiled query
+	 */
+	protected static Query compiledQuery(String queryString, Object[] queryArgs) {
+		// Build the cache key, with the type and length of each argument
+		StringBuilder key = new StringBuilder(queryString);
+		for (Object arg : queryArgs) {
+			String argStr = String.valueOf(arg);
+			key.append('\n').append((arg == null) ? "null" : arg.getClass().getName()).append(':')
+				.append(argStr.length()).append(':').append(argStr);
+		}
+		String keyStr = key.toString();
+		
+		// Get from the cache, or parse it
+		Query ret = compiledQueryCache.get(keyStr);
+		if (ret == null) {
+			ret = Query.build(queryString, queryArgs);
+			compiledQueryCache.put(keyStr, ret);
+		}
+		return ret;
+	}
+	
+	//------------------------------------------------------------------
+	//
+	//  Fallback stats
+	//
+	//------------------------------------------------------------------
+	
+	/**
+	 * Fallback query stats of a query string
+	 */
+	protected static class FallbackStats {
+		/// Number of times the query fell back to the predicate (on the calling node)
+		final LongAdder fallbacks = new LongAdder();
+		
+		/// Number of entries evaluated (across the partition threads of this member)
+		final LongAdder evaluated = new LongAdder();
+		
+		/// Number of entries matched (across the partition threads of this member)
+		final LongAdder matched = new LongAdder();
+	}
+	
+	/// Fallback query stats, for each query string
+	protected static final ConcurrentHashMap<String, FallbackStats> fallbackStatsMap = //
+		new ConcurrentHashMap<>();
+	
+	/**
+	 * @param  queryString to get the stats for
+	 * 
+	 * @return the fallback stats, for the query string
+	 */
+	protected static FallbackStats fallbackStats(String queryString) {
+		return fallbackStatsMap.computeIfAbsent(queryString, (k) -> new FallbackStats());
+	}
+	
+	/**
+	 * Get the stats of the queries which fell back to the (non indexed) predicate.
+	 * 
+	 * Note that the number of fallbacks are tracked on the node building the query,
+	 * while the evaluated / matched entries are tracked on the members evaluating it.
+	 * 
+	 * @return map of query string, to its fallbacks, evaluated and matched count
+	 */
+	public static Map<String, Map<String, Long>> fallbackStats() {
+		Map<String, Map<String, Long>> ret = new HashMap<String, Map<String, Long>>();
+		for (Map.Entry<String, FallbackStats> entry : fallbackStatsMap.entrySet()) {
+			FallbackStats stats = entry.getValue();
+			Map<String, Long> statsMap = new HashMap<String, Long>();
+			statsMap.put("fallbacks", stats.fallbacks.sum());
+			statsMap.put("evaluated", stats.evaluated.sum());
+			statsMap.put("matched", stats.matched.sum());
+			ret.put(entry.getKey(), statsMap);
+		}
+		return ret;
+	}
+	
+	/**
+	 * @return number of fallback queries parsed (compiled) on this member
+	 */
+	public static long compiledQueryCount() {
+		return compiledQueryCache.missCount();
 	}
 	
 	//------------------------------------------------------------------
@@ -70,7 +190,9 @@ public class Hazelcast_SqlPredicate implements Predicate<String, Map<String, Obj
 		}
 		
 		// Full fallback
-		return new Hazelcast_SqlPredicate(originalQuery);
+		Hazelcast_SqlPredicate ret = new Hazelcast_SqlPredicate(originalQuery);
+		fallbackStats(ret._queryString).fallbacks.increment();
+		return ret;
 	}
 	
 	/**
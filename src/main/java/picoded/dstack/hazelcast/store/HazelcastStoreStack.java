@@ -1,7 +1,10 @@
 package picoded.dstack.hazelcast.store;
 
 // Java imports
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 // JavaCommons imports
 import picoded.core.struct.GenericConvertMap;
@@ -9,6 +12,7 @@ import picoded.dstack.core.*;
 import picoded.dstack.*;
 import picoded.dstack.connector.hazelcast.*;
 import picoded.dstack.hazelcast.core.*;
+import picoded.dstack.stack.ProviderConfig;
 
 // Hazelcast implementation
 import com.hazelcast.core.*;
@@ -33,7 +37,140 @@ public class HazelcastStoreStack extends HazelcastStack {
 	 * Constructor with configuration map
 	 */
 	public HazelcastStoreStack(GenericConvertMap<String, Object> inConfig) {
+		this(inConfig, null);
+	}
+	
+	/**
+	 * Constructor with configuration map, and the map store provider stack.
+	 * 
+	 * If the map store stack is null, it is initialized from the `mapStore.provider` config (if any)
+	 * 
+	 * @param inConfig        stack configuration map
+	 * @param inMapStoreStack stack used to persist the DataObjectMap / KeyValueMap structures
+	 */
+	public HazelcastStoreStack(GenericConvertMap<String, Object> inConfig,
+		CoreStack inMapStoreStack) {
 		super(inConfig);
+		
+		// Map store config
+		mapStoreConfig = inConfig.fetchGenericConvertStringMap("mapStore", "{}");
+		
+		// Initialize the map store provider stack, from its config
+		if (inMapStoreStack == null) {
+			GenericConvertMap<String, Object> providerConfig = mapStoreConfig
+				.fetchGenericConvertStringMap("provider");
+			if (providerConfig != null) {
+				inMapStoreStack = new ProviderConfig(Collections.<Object> singletonList(providerConfig))
+					.getProviderStack(providerConfig.getString("name"));
+			}
+		}
+		
+		// Register the map store stack, for the MapStore initialization
+		if (inMapStoreStack != null) {
+			String name = inConfig.getString("name");
+			if (name == null || name.isEmpty()) {
+				throw new IllegalArgumentException(
+					"Missing 'name' config object for HazelcastStoreStack map store");
+			}
+			mapStoreStackMap.put(name, inMapStoreStack);
+		}
+		mapStoreStack = inMapStoreStack;
+	}
+	
+	/**
+	 * Unregisters the map store stack of this HazelcastStoreStack, if it is still the one
+	 * registered under its name. This should be called once the stack is no longer in use,
+	 * so that the map store stack can be released.
+	 * 
+	 * Note that hazelcast maps initialized after this, will fail to load their MapStore.
+	 */
+	public void close() {
+		if (mapStoreStack != null) {
+			mapStoreStackMap.remove(config.getString("name"), mapStoreStack);
+		}
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// MapStore support
+	//
+	//--------------------------------------------------------------------------
+	
+	/// Map store config
+	protected final GenericConvertMap<String, Object> mapStoreConfig;
+	
+	/// Stack used to persist the data structures, null if map store is not used
+	protected final CoreStack mapStoreStack;
+	
+	/// Map store stack of each HazelcastStoreStack name (in the current JVM), used by the MapStore
+	protected static final ConcurrentHashMap<String, CoreStack> mapStoreStackMap = //
+		new ConcurrentHashMap<>();
+	
+	/**
+	 * Get the map store stack, of the given HazelcastStoreStack name
+	 * 
+	 * @param stackName of the HazelcastStoreStack
+	 * 
+	 * @return map store stack
+	 */
+	public static CoreStack mapStoreStack(String stackName) {
+		CoreStack ret = mapStoreStackMap.get(stackName);
+		if (ret == null) {
+			throw new IllegalStateException("Missing map store stack for HazelcastStoreStack : "
+				+ stackName);
+		}
+		return ret;
+	}
+	
+	/**
+	 * Get the map store config, to persist the given DataObjectMap / KeyValueMap,
+	 * via the map store stack (if configured).
+	 * 
+	 * Writes are done in batches after `writeDelaySeconds` (write-behind), or immediately
+	 * if its configured as 0 (write-through).
+	 * 
+	 * @param name    of the data structure
+	 * @param type    of the data structure (DataObjectMap / KeyValueMap)
+	 * 
+	 * @return map store config, null if the data structure is not persisted with a map store
+	 */
+	protected MapStoreConfig getHazelcastMapStoreConfig(String name, String type) {
+		// Map store is not configured
+		if (mapStoreStack == null) {
+			return null;
+		}
+		
+		// Get the map store implementation
+		String className = null;
+		if (type.equalsIgnoreCase("DataObjectMap")) {
+			className = HazelcastStore_DataObjectMapStore.class.getName();
+		} else if (type.equalsIgnoreCase("KeyValueMap")) {
+			className = HazelcastStore_KeyValueMapStore.class.getName();
+		} else {
+			return null;
+		}
+		
+		// Initial load of all keys, on first use of the map
+		boolean initialLoad = mapStoreConfig.getBoolean("initialLoad", false);
+		
+		// Setup the map store, with the class name and properties.
+		// As the config is shared across the cluster, and needs to be serializable
+		Properties properties = new Properties();
+		properties.setProperty("stack", config.getString("name"));
+		properties.setProperty("initialLoad", Boolean.toString(initialLoad));
+		
+		MapStoreConfig ret = new MapStoreConfig();
+		ret.setEnabled(true);
+		ret.setClassName(className);
+		ret.setProperties(properties);
+		ret.setInitialLoadMode(initialLoad ? MapStoreConfig.InitialLoadMode.EAGER
+			: MapStoreConfig.InitialLoadMode.LAZY);
+		
+		// Write behind settings
+		ret.setWriteDelaySeconds(mapStoreConfig.getInt("writeDelaySeconds", 5));
+		ret.setWriteBatchSize(mapStoreConfig.getInt("writeBatchSize", 500));
+		ret.setWriteCoalescing(mapStoreConfig.getBoolean("writeCoalescing", true));
+		return ret;
 	}
 	
 	/**
@@ -0,0 +1,207 @@
+package picoded.dstack.hazelcast.store;
+
+// Java imports
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+// JavaCommons imports
+import picoded.core.conv.ConvertJSON;
+import picoded.dstack.core.*;
+import picoded.dstack.hazelcast.core.*;
+
+// Hazelcast implementation
+import com.hazelcast.core.*;
+import com.hazelcast.map.*;
+
+/**
+ * Hazelcast MapStore, which persists a Hazelcast_DataObjectMap through the
+ * Core_DataObjectMap (of the same name) of the HazelcastStoreStack map store provider.
+ *
+ * This is configured by HazelcastStoreStack, and initialized by hazelcast on each member.
+ **/
+public class HazelcastStore_DataObjectMapStore implements
+	MapStore<String, Map<String, Object>>, MapLoaderLifecycleSupport {
+	
+	//--------------------------------------------------------------------------
+	//
+	// Lifecycle support
+	//
+	//--------------------------------------------------------------------------
+	
+	/// DataObjectMap to persist into
+	protected Core_DataObjectMap dataObjectMap = null;
+	
+	/// Load all the object keys on initialization
+	protected boolean initialLoad = false;
+	
+	/**
+	 * Initialize the map store, with the DataObjectMap of the stack map store provider
+	 *
+	 * @param hazelcastInstance of the map
+	 * @param properties configured by HazelcastStoreStack
+	 * @param mapName of the hazelcast map
+	 */
+	@Override
+	public void init(HazelcastInstance hazelcastInstance, Properties properties, String mapName) {
+		dataObjectMap = (Core_DataObjectMap) HazelcastStoreStack.mapStoreStack(
+			properties.getProperty("stack")).cacheDataStructure(mapName, "DataObjectMap",
+			Core_DataObjectMap.class);
+		dataObjectMap.systemSetup();
+		initialLoad = Boolean.parseBoolean(properties.getProperty("initialLoad", "false"));
+	}
+	
+	/**
+	 * Does nothing, the DataObjectMap is managed by its stack
+	 */
+	@Override
+	public void destroy() {
+		// does nothing
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// MapLoader implementation
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * @param oid of the object to load
+	 *
+	 * @return the object storage map, null if it does not exists
+	 */
+	@Override
+	public Map<String, Object> load(String oid) {
+		Map<String, Object> data = dataObjectMap.DataObjectRemoteDataMap_get(oid);
+		if (data == null) {
+			return null;
+		}
+		
+		// Convert to a hazelcast storage map, which is comparable by _oid
+		Map<String, Object> ret = new HazelcastStorageMap();
+		for (Map.Entry<String, Object> entry : data.entrySet()) {
+			Object val = entry.getValue();
+			if (val instanceof Map || val instanceof List) {
+				// Clone it - by JSON serializing back and forth, to ensure its "clean" for hazelcast
+				val = ConvertJSON.toObject(ConvertJSON.fromObject(val));
+			}
+			ret.put(entry.getKey(), val);
+		}
+		ret.put("_oid", oid);
+		return ret;
+	}
+	
+	/**
+	 * @param oids of the objects to load
+	 *
+	 * @return map of object ID to its storage map, missing objects are not included
+	 */
+	@Override
+	public Map<String, Map<String, Object>> loadAll(Collection<String> oids) {
+		Map<String, Map<String, Object>> ret = new HashMap<String, Map<String, Object>>();
+		for (String oid : oids) {
+			Map<String, Object> data = load(oid);
+			if (data != null) {
+				ret.put(oid, data);
+			}
+		}
+		return ret;
+	}
+	
+	/**
+	 * @return all the object keys if initialLoad is enabled, else null (no initial load)
+	 */
+	@Override
+	public Iterable<String> loadAllKeys() {
+		if (!initialLoad) {
+			return null;
+		}
+		return dataObjectMap.keySet();
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// MapStore implementation
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * @param oid of the object to store
+	 * @param data of the object to store
+	 */
+	@Override
+	public void store(String oid, Map<String, Object> data) {
+		Map<String, Map<String, Object>> dataMaps = new HashMap<String, Map<String, Object>>();
+		dataMaps.put(oid, data);
+		dataObjectMap.DataObjectRemoteDataMap_replaceAll(dataMaps);
+	}
+	
+	/**
+	 * Stores the (write behind) batch of objects, as a single replaceAll call.
+	 *
+	 * If the batch fails, the objects are stored one at a time instead. Following the MapStore
+	 * partial failure contract, the stored objects are removed from the given map before the
+	 * failure is rethrown, so that hazelcast only retries the objects which were not stored.
+	 *
+	 * @param dataMaps map of object ID to its storage map
+	 */
+	@Override
+	public void storeAll(Map<String, Map<String, Object>> dataMaps) {
+		try {
+			dataObjectMap.DataObjectRemoteDataMap_replaceAll(dataMaps);
+		} catch (RuntimeException e) {
+			Iterator<Map.Entry<String, Map<String, Object>>> iter = dataMaps.entrySet().iterator();
+			while (iter.hasNext()) {
+				Map.Entry<String, Map<String, Object>> entry = iter.next();
+				try {
+					store(entry.getKey(), entry.getValue());
+					iter.remove();
+				} catch (RuntimeException entryException) {
+					// Left in the map, to be retried by hazelcast
+				}
+			}
+			if (!dataMaps.isEmpty()) {
+				throw e;
+			}
+		}
+	}
+	
+	/**
+	 * @param oid of the object to delete
+	 */
+	@Override
+	public void delete(String oid) {
+		dataObjectMap.DataObjectRemoteDataMap_remove(oid);
+	}
+	
+	/**
+	 * Deletes the (write behind) batch of objects, as a single removeAll call.
+	 *
+	 * If the batch fails, the objects are deleted one at a time instead, with the deleted
+	 * object IDs removed from the given collection before the failure is rethrown.
+	 *
+	 * @param oids of the objects to delete
+	 */
+	@Override
+	public void deleteAll(Collection<String> oids) {
+		try {
+			dataObjectMap.DataObjectRemoteDataMap_removeAll(oids);
+		} catch (RuntimeException e) {
+			Iterator<String> iter = oids.iterator();
+			while (iter.hasNext()) {
+				try {
+					delete(iter.next());
+					iter.remove();
+				} catch (RuntimeException entryException) {
+					// Left in the collection, to be retried by hazelcast
+				}
+			}
+			if (!oids.isEmpty()) {
+				throw e;
+			}
+		}
+	}
+}
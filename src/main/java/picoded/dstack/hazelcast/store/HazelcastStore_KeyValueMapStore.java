@@ -0,0 +1,188 @@
+package picoded.dstack.hazelcast.store;
+
+// Java imports
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+
+// JavaCommons imports
+import picoded.core.struct.MutablePair;
+import picoded.dstack.core.*;
+
+// Hazelcast implementation
+import com.hazelcast.core.*;
+import com.hazelcast.map.*;
+
+/**
+ * Hazelcast MapStore, which persists a Hazelcast_KeyValueMap through the
+ * Core_KeyValueMap (of the same name) of the HazelcastStoreStack map store provider.
+ *
+ * Note that as the MapStore API does not provide the entry expiry, values are persisted
+ * without expiry. The expiry is only applied on the hazelcast map.
+ *
+ * This is configured by HazelcastStoreStack, and initialized by hazelcast on each member.
+ **/
+public class HazelcastStore_KeyValueMapStore implements MapStore<String, String>,
+	MapLoaderLifecycleSupport {
+	
+	//--------------------------------------------------------------------------
+	//
+	// Lifecycle support
+	//
+	//--------------------------------------------------------------------------
+	
+	/// KeyValueMap to persist into
+	protected Core_KeyValueMap keyValueMap = null;
+	
+	/// Load all the keys on initialization
+	protected boolean initialLoad = false;
+	
+	/**
+	 * Initialize the map store, with the KeyValueMap of the stack map store provider
+	 *
+	 * @param hazelcastInstance of the map
+	 * @param properties configured by HazelcastStoreStack
+	 * @param mapName of the hazelcast map
+	 */
+	@Override
+	public void init(HazelcastInstance hazelcastInstance, Properties properties, String mapName) {
+		keyValueMap = (Core_KeyValueMap) HazelcastStoreStack.mapStoreStack(
+			properties.getProperty("stack")).cacheDataStructure(mapName, "KeyValueMap",
+			Core_KeyValueMap.class);
+		keyValueMap.systemSetup();
+		initialLoad = Boolean.parseBoolean(properties.getProperty("initialLoad", "false"));
+	}
+	
+	/**
+	 * Does nothing, the KeyValueMap is managed by its stack
+	 */
+	@Override
+	public void destroy() {
+		// does nothing
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// MapLoader implementation
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * @param key to load
+	 *
+	 * @return the value, null if it does not exists
+	 */
+	@Override
+	public String load(String key) {
+		MutablePair<String, Long> pair = keyValueMap.getValueExpiryRaw(key,
+			System.currentTimeMillis());
+		if (pair == null) {
+			return null;
+		}
+		return pair.getLeft();
+	}
+	
+	/**
+	 * Loads the batch of keys, as a single getValues call
+	 *
+	 * @param keys to load
+	 *
+	 * @return map of the key values, missing keys are not included
+	 */
+	@Override
+	public Map<String, String> loadAll(Collection<String> keys) {
+		return keyValueMap.getValues(keys);
+	}
+	
+	/**
+	 * @return all the keys if initialLoad is enabled, else null (no initial load)
+	 */
+	@Override
+	public Iterable<String> loadAllKeys() {
+		if (!initialLoad) {
+			return null;
+		}
+		return keyValueMap.keySet();
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// MapStore implementation
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * @param key to store
+	 * @param value to store
+	 */
+	@Override
+	public void store(String key, String value) {
+		keyValueMap.setValueRaw(key, value, 0);
+	}
+	
+	/**
+	 * Stores the (write behind) batch of key values, as a single setValuesRaw call.
+	 *
+	 * If the batch fails, the values are stored one at a time instead, with the stored keys
+	 * removed from the given map before the failure is rethrown (MapStore partial failure contract)
+	 *
+	 * @param values map of key values to store
+	 */
+	@Override
+	public void storeAll(Map<String, String> values) {
+		try {
+			keyValueMap.setValuesRaw(values, 0);
+		} catch (RuntimeException e) {
+			Iterator<Map.Entry<String, String>> iter = values.entrySet().iterator();
+			while (iter.hasNext()) {
+				Map.Entry<String, String> entry = iter.next();
+				try {
+					store(entry.getKey(), entry.getValue());
+					iter.remove();
+				} catch (RuntimeException entryException) {
+					// Left in the map, to be retried by hazelcast
+				}
+			}
+			if (!values.isEmpty()) {
+				throw e;
+			}
+		}
+	}
+	
+	/**
+	 * @param key to delete
+	 */
+	@Override
+	public void delete(String key) {
+		keyValueMap.setValueRaw(key, null, 0);
+	}
+	
+	/**
+	 * Deletes the (write behind) batch of keys, as a single removeValues call.
+	 *
+	 * If the batch fails, the keys are deleted one at a time instead, with the deleted keys
+	 * removed from the given collection before the failure is rethrown.
+	 *
+	 * @param keys to delete
+	 */
+	@Override
+	public void deleteAll(Collection<String> keys) {
+		try {
+			keyValueMap.removeValues(keys);
+		} catch (RuntimeException e) {
+			Iterator<String> iter = keys.iterator();
+			while (iter.hasNext()) {
+				try {
+					delete(iter.next());
+					iter.remove();
+				} catch (RuntimeException entryException) {
+					// Left in the collection, to be retried by hazelcast
+				}
+			}
+			if (!keys.isEmpty()) {
+				throw e;
+			}
+		}
+	}
+}
@@ -1,8 +1,15 @@
 package picoded.dstack.jsql;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
 import picoded.core.struct.GenericConvertMap;
+import picoded.core.struct.GenericConvertHashMap;
 import picoded.dstack.core.*;
 import picoded.dstack.*;
+import picoded.dstack.stack.Shard_DataObjectMap;
 import picoded.dstack.connector.jsql.JSql;
 
 /**
@@ -17,6 +24,21 @@ public class JSqlStack extends CoreStack {
 	 */
 	protected final JSql conn;
 	
+	/**
+	 * Additional JSql connections, used for sharded DataObjectMap (if configured)
+	 * 
+	 * Configured via the "shards" config list, where each shard config is merged over
+	 * the "db" config (allowing only the host / port / database to be overwritten)
+	 * 
+	 * ```
+	 * {
+	 *    "db" : { "host" : "shard0.db", ... },
+	 *    "shards" : [ { "host" : "shard1.db" }, { "host" : "shard2.db" } ]
+	 * }
+	 * ```
+	 */
+	protected final List<JSql> shardConns = new ArrayList<JSql>();
+	
 	/**
 	 * Constructor with configuration map
 	 */
@@ -33,6 +55,9 @@ public class JSqlStack extends CoreStack {
 		
 		// Get the JSql connection
 		conn = JSql.setupFromConfig(dbConfig);
+		
+		// Get the additional shard connections (if any)
+		shardSetup(dbConfig);
 	}
 	
 	/**
@@ -46,6 +71,91 @@ public class JSqlStack extends CoreStack {
 		conn = inConnection;
 	}
 	
+	/**
+	 * Setup the additional shard connections, from the "shards" config (if any)
+	 * 
+	 * @param  dbConfig of the primary connection
+	 */
+	@SuppressWarnings("unchecked")
+	protected void shardSetup(GenericConvertMap<String, Object> dbConfig) {
+		Object shardList = config.get("shards");
+		if (!(shardList instanceof List)) {
+			return;
+		}
+		for (Object shardConfig : (List<Object>) shardList) {
+			GenericConvertMap<String, Object> merged = new GenericConvertHashMap<String, Object>();
+			merged.putAll(dbConfig);
+			if (shardConfig instanceof Map) {
+				merged.putAll((Map<String, Object>) shardConfig);
+			}
+			shardConns.add(JSql.setupFromConfig(merged));
+		}
+	}
+	
+	/**
+	 * Async executor, lazily initialized
+	 */
+	protected volatile Executor asyncExecutor = null;
+	
+	/**
+	 * Executor used by the async API, bounded by the connection pool size
+	 * (of each shard connection), or the "asyncThreads" config (if set).
+	 * 
+	 * As JDBC calls are blocking, having more threads then connections would only
+	 * leave the additional threads waiting on the pool.
+	 * 
+	 * @return  The bounded executor to use
+	 */
+	@Override
+	public Executor asyncExecutor() {
+		if (asyncExecutor == null) {
+			synchronized (this) {
+				if (asyncExecutor == null) {
+					int poolSize = config.fetchGenericConvertStringMap("db", "{}").getInt(
+						"maximumPoolSize", JSql.defaultMaxPoolSize());
+					asyncExecutor = Core_AsyncExecutor.boundedExecutor(config.getInt("asyncThreads",
+						poolSize * (1 + shardConns.size())));
+				}
+			}
+		}
+		return asyncExecutor;
+	}
+	
+	/**
+	 * Initialize the DataObjectMap, sharded across the shard connections, and / or
+	 * the "shardTables" number of table suffixes (`name_S0`, `name_S1`, ...) on each connection.
+	 * 
+	 * Returns a plain JSql_DataObjectMap, if no sharding is configured
+	 * 
+	 * @param  name  name of the datastructure to initialize
+	 * @param  tableConfig of the datastructure
+	 * 
+	 * @return initialized data structure
+	 */
+	protected Core_DataStructure initDataObjectMap(String name,
+		GenericConvertMap<String, Object> tableConfig) {
+		int shardTables = (tableConfig != null) ? tableConfig.getInt("shardTables", 0) : 0;
+		if (shardConns.isEmpty() && shardTables <= 1) {
+			return new JSql_DataObjectMap(conn, name, tableConfig);
+		}
+		
+		// Setup a DataObjectMap for each connection, and table suffix
+		List<JSql> connList = new ArrayList<JSql>();
+		connList.add(conn);
+		connList.addAll(shardConns);
+		List<Core_DataObjectMap> shards = new ArrayList<Core_DataObjectMap>();
+		for (JSql shardConn : connList) {
+			if (shardTables <= 1) {
+				shards.add(new JSql_DataObjectMap(shardConn, name, tableConfig));
+				continue;
+			}
+			for (int i = 0; i < shardTables; ++i) {
+				shards.add(new JSql_DataObjectMap(shardConn, name + "_S" + i, tableConfig));
+			}
+		}
+		return new Shard_DataObjectMap(shards.toArray(new Core_DataObjectMap[0]));
+	}
+	
 	/**
 	 * Initilize and return the requested data structure with the given name or type if its supported
 	 * 
@@ -64,7 +174,7 @@ public class JSqlStack extends CoreStack {
 				.fetchGenericConvertStringMap(name);
 			
 			// Initialize with (or without) config
-			return new JSql_DataObjectMap(conn, name, tableConfig);
+			return initDataObjectMap(name, tableConfig);
 		}
 		if (type.equalsIgnoreCase("KeyValueMap")) {
 			return new JSql_KeyValueMap(conn, name);
@@ -1,7 +1,11 @@
 package picoded.dstack.jsql;
 
 import java.util.logging.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.Map;
 import java.util.HashMap;
@@ -419,12 +423,64 @@ public class JSql_DataObjectMap extends Core_DataObjectMap {
 		queryBuilder.jSqlObjectMapRemove(_oid);
 	}
 	
+	/**
+	 * Removes the complete remote data map, of multiple DataObject, using "oID IN (...)"
+	 **/
+	@Override
+	public void DataObjectRemoteDataMap_removeAll(Collection<String> _oids) {
+		queryBuilder.jSqlObjectMapRemoveAll(_oids);
+	}
+	
 	/**
 	 * Gets the complete remote data map, for DataObject.
 	 * @returns null if not exists, else a map with the data
 	 **/
 	public Map<String, Object> DataObjectRemoteDataMap_get(String _oid) {
-		return queryBuilder.jSqlObjectMapFetch(_oid, null);
+		// Always read from the primary, as this is used for read-modify-write of the object
+		return sqlObj.primaryOnly(() -> queryBuilder.jSqlObjectMapFetch(_oid, null));
+	}
+	
+	/**
+	 * Gets the partial remote data map, for DataObject, of only the requested fields.
+	 * Using "kID IN (...)", to avoid fetching the unneeded fields.
+	 * @returns null if not exists, else a map with the data
+	 **/
+	@Override
+	public Map<String, Object> DataObjectRemoteDataMap_getFields(String _oid, Set<String> fields) {
+		return sqlObj.primaryOnly(() -> {
+			Map<String, Object> ret = queryBuilder.jSqlObjectMapFetchFields(
+				Collections.singletonList(_oid), fields).get(_oid);
+			
+			// None of the fields exists, check if the object exists
+			if (ret == null) {
+				JSqlResult r = sqlObj.select(primaryKeyTable, "oID", "oID = ?",
+					new Object[] { _oid });
+				if (r != null && r.rowCount() > 0) {
+					ret = new HashMap<String, Object>();
+				}
+			}
+			return ret;
+		});
+	}
+	
+	/**
+	 * Gets the partial remote data map, of multiple DataObject (from a query result),
+	 * of only the requested fields, using "oID IN (...) AND kID IN (...)".
+	 *
+	 * As the object IDs are presumed to exist, objects without any of the fields are
+	 * returned with a blank map.
+	 **/
+	@Override
+	public Map<String, Map<String, Object>> DataObjectRemoteDataMap_getFields(
+		Collection<String> oids, Set<String> fields) {
+		Map<String, Map<String, Object>> ret = sqlObj.readReplica(() -> queryBuilder
+			.jSqlObjectMapFetchFields(oids, fields));
+		for (String oid : oids) {
+			if (!ret.containsKey(oid)) {
+				ret.put(oid, new HashMap<String, Object>());
+			}
+		}
+		return ret;
 	}
 	
 	/**
@@ -453,6 +509,43 @@ public class JSql_DataObjectMap extends Core_DataObjectMap {
 		queryBuilder.jSqlObjectMapUpdate(_oid, fullMap, keys);
 	}
 	
+	/**
+	 * Replaces the actual backend storage of multiple DataObject, with batched upserts
+	 **/
+	@Override
+	public void DataObjectRemoteDataMap_replaceAll(Map<String, Map<String, Object>> dataMaps) {
+		// Nothing to update
+		if (dataMaps.isEmpty()) {
+			return;
+		}
+		
+		// Curent timestamp
+		long now = JSql_DataObjectMapUtil.getCurrentTimestamp();
+		
+		// Ensure GUIDs are registered
+		List<Object[]> uniqueValuesList = new ArrayList<Object[]>();
+		List<Object[]> insertValuesList = new ArrayList<Object[]>();
+		List<Object[]> defaultValuesList = new ArrayList<Object[]>();
+		for (String _oid : dataMaps.keySet()) {
+			uniqueValuesList.add(new Object[] { _oid });
+			insertValuesList.add(new Object[] { now });
+			defaultValuesList.add(new Object[] { now, 0 });
+		}
+		sqlObj.multiUpsert( //
+			primaryKeyTable, //
+			new String[] { "oID" }, //
+			uniqueValuesList, //
+			new String[] { "uTm" }, //
+			insertValuesList, //
+			new String[] { "cTm", "eTm" }, //
+			defaultValuesList, //
+			null // The only misc col, is pKy, which is being handled by DB
+			);
+		
+		// Does the data replacement
+		queryBuilder.jSqlObjectMapReplaceAll(dataMaps);
+	}
+	
 	//--------------------------------------------------------------------------
 	//
 	// KeySet support
@@ -468,7 +561,7 @@ public class JSql_DataObjectMap extends Core_DataObjectMap {
 	 **/
 	@Override
 	public Set<String> keySet() {
-		return queryBuilder.getOidKeySet();
+		return sqlObj.readReplica(() -> queryBuilder.getOidKeySet());
 	}
 	
 	//--------------------------------------------------------------------------
@@ -477,6 +570,30 @@ public class JSql_DataObjectMap extends Core_DataObjectMap {
 	//
 	//--------------------------------------------------------------------------
 	
+	/**
+	 * Performs a search query, and returns the respective DataObject keys.
+	 *
+	 * This is the GUID key varient of query, this is critical for stack lookup.
+	 * The where clause is passed directly to the query builder (which caches its generated
+	 * query plan), avoiding the need to parse the query twice.
+	 *
+	 * @param   where query statement
+	 * @param   where clause values array
+	 * @param   orderByStr string to sort the order by, use null to ignore
+	 * @param   offset of the result to display, use -1 to ignore
+	 * @param   number of objects to return max, use -1 to ignore
+	 *
+	 * @return  The String[] array
+	 **/
+	@Override
+	public String[] query_id(String whereClause, Object[] whereValues, String orderByStr,
+		int offset, int limit) {
+		return sqlObj.readReplica(() -> queryBuilder.dataObjectMapQuery_id( //
+			whereClause, whereValues, //
+			orderByStr, offset, limit //
+			));
+	}
+	
 	/**
 	 * Performs a search query, and returns the respective DataObject keys.
 	 *
@@ -491,16 +608,10 @@ public class JSql_DataObjectMap extends Core_DataObjectMap {
 	 **/
 	public String[] query_id(Query queryClause, String orderByStr, int offset, int limit) {
 		if (queryClause == null) {
-			return queryBuilder.dataObjectMapQuery_id( //
-				null, null, //
-				orderByStr, offset, limit //
-				);
+			return query_id((String) null, null, orderByStr, offset, limit);
 		}
-		return queryBuilder.dataObjectMapQuery_id( //
-			queryClause.toSqlString(), //
-			queryClause.queryArgumentsArray(), //
-			orderByStr, offset, limit //
-			);
+		return query_id(queryClause.toSqlString(), queryClause.queryArgumentsArray(), orderByStr,
+			offset, limit);
 	}
 	
 	/**
@@ -513,7 +624,8 @@ public class JSql_DataObjectMap extends Core_DataObjectMap {
 	 */
 	@Override
 	public long queryCount(String whereClause, Object[] whereValues) {
-		return queryBuilder.dataObjectMapCount(whereClause, whereValues, null, -1, -1);
+		return sqlObj.readReplica(() -> queryBuilder.dataObjectMapCount(whereClause, whereValues,
+			null, -1, -1));
 	}
 	
 	//--------------------------------------------------------------------------
@@ -537,7 +649,7 @@ public class JSql_DataObjectMap extends Core_DataObjectMap {
 	 **/
 	@Override
 	public Set<String> getKeyNames(int seekDepth) {
-		JSqlResult r = sqlObj.select(dataStorageTable, "DISTINCT kID");
+		JSqlResult r = sqlObj.readReplica(() -> sqlObj.select(dataStorageTable, "DISTINCT kID"));
 		if (r == null || r.get("kID") == null) {
 			return new HashSet<String>();
 		}
@@ -564,7 +676,8 @@ public class JSql_DataObjectMap extends Core_DataObjectMap {
 	 **/
 	public String randomObjectID() {
 		// Get a random ID
-		JSqlResult r = sqlObj.randomSelect(primaryKeyTable, "oID", null, null, 1);
+		JSqlResult r = sqlObj.readReplica(() -> sqlObj.randomSelect(primaryKeyTable, "oID", null,
+			null, 1));
 		
 		// No result : NULL
 		if (r == null || r.get("oID") == null || r.rowCount() <= 0) {
@@ -609,15 +722,12 @@ public class JSql_DataObjectMap extends Core_DataObjectMap {
 	 * @return  Next object ID, if found
 	 **/
 	public String looselyIterateObjectID(String currentID) {
+		// By searching against oID > "", we provide a hint to use the oID index
+		String fromID = (currentID == null) ? "" : currentID;
+		
 		// Result set to fetch next ID
-		JSqlResult r = null;
-		if (currentID == null) {
-			// By searching against oID > "", we provide a hint to use the oID index
-			r = sqlObj.select(primaryKeyTable, "oID", "oID > ?", new Object[] { "" }, "oID ASC", 1, 0);
-		} else {
-			r = sqlObj.select(primaryKeyTable, "oID", "oID > ?", new Object[] { currentID },
-				"oID ASC", 1, 0);
-		}
+		JSqlResult r = sqlObj.readReplica(() -> sqlObj.select(primaryKeyTable, "oID", "oID > ?",
+			new Object[] { fromID }, "oID ASC", 1, 0));
 		
 		// No result : NULL
 		if (r == null || r.get("oID") == null || r.rowCount() <= 0) {
@@ -55,22 +55,22 @@ public class JSql_DataObjectMapUtil {
 	 * @return   row of the JSqlResult, -1 if failed to find
 	 **/
 	protected static int fetchResultPosition(JSqlResult r, String _oid, String key, int idx) {
-		GenericConvertList<Object> oID_array = r.get("oID");
-		GenericConvertList<Object> kID_array = r.get("kID");
-		GenericConvertList<Object> idx_array = r.get("idx");
+		int oIDCol = r.columnIndex("oID");
+		int kIDCol = r.columnIndex("kID");
+		int idxCol = r.columnIndex("idx");
 		
-		int lim = kID_array.size();
+		int lim = r.rowCount();
 		for (int i = 0; i < lim; ++i) {
 			
-			if (_oid != null && !_oid.equals(oID_array.get(i))) {
+			if (_oid != null && !_oid.equals(r.getObject(i, oIDCol))) {
 				continue;
 			}
 			
-			if (key != null && !key.equals(kID_array.getString(i))) {
+			if (key != null && !key.equals(r.getString(i, kIDCol))) {
 				continue;
 			}
 			
-			if (idx > -9 && idx != (idx_array.getInt(i))) {
+			if (idx > -9 && idx != (r.getInt(i, idxCol))) {
 				continue;
 			}
 			
@@ -213,6 +213,28 @@ public class JSql_DataObjectMapUtil {
 			EmptyArray.BYTE);
 	}
 	
+	/// Column index positions, within the eavColumnIndexes array
+	protected static final int COL_TYP = 0;
+	protected static final int COL_NVL = 1;
+	protected static final int COL_TVL = 2;
+	protected static final int COL_RVL = 3;
+	protected static final int COL_OID = 4;
+	protected static final int COL_KID = 5;
+	protected static final int COL_IDX = 6;
+	
+	/**
+	 * Resolve the column indexes of a DataObjectMap internal table query result once,
+	 * to be reused across rows with the index based JSqlResult accessors
+	 *
+	 * @param  The jsql result set from a select call
+	 *
+	 * @return  int[] of column indexes (-1 if not found), in COL_* order
+	 **/
+	protected static int[] eavColumnIndexes(JSqlResult r) {
+		return new int[] { r.columnIndex("typ"), r.columnIndex("nVl"), r.columnIndex("tVl"),
+			r.columnIndex("rVl"), r.columnIndex("oID"), r.columnIndex("kID"), r.columnIndex("idx") };
+	}
+	
 	/**
 	 * Takes in the JSqlResult from a DataObjectMap internal table query
 	 * And extract out the respective result value
@@ -226,10 +248,26 @@ public class JSql_DataObjectMapUtil {
 	 * @return  The object value
 	 **/
 	protected static Object extractNonArrayValueFromPos(JSqlResult r, int pos) {
+		return extractNonArrayValueFromPos(r, pos, eavColumnIndexes(r));
+	}
+	
+	/**
+	 * Takes in the JSqlResult from a DataObjectMap internal table query
+	 * And extract out the respective result value, using the pre-resolved column indexes
+	 *
+	 * @param  The jsql result set from a select call
+	 * @param  Row position to fetch values from result
+	 * @param  Column indexes, from eavColumnIndexes
+	 *
+	 * @return  The object value
+	 **/
+	protected static Object extractNonArrayValueFromPos(JSqlResult r, int pos, int[] cols) {
 		//
 		// Get the storage type setting
 		//
-		int baseType = ((Number) (r.get("typ").get(pos))).intValue();
+		int baseType = r.getInt(pos, cols[COL_TYP]);
+		int nVlCol = cols[COL_NVL];
+		int tVlCol = cols[COL_TVL];
 		
 		//
 		// Null type support
@@ -242,54 +280,54 @@ public class JSql_DataObjectMapUtil {
 		// Int, Long, Double, Float
 		//
 		if (baseType == Core_DataType.INTEGER.getValue()) {
-			return new Integer(r.get("nVl").getInt(pos));
+			return new Integer(r.getInt(pos, nVlCol));
 		} else if (baseType == Core_DataType.LONG.getValue()) {
-			return new Long(r.get("nVl").getLong(pos));
+			return new Long(r.getLong(pos, nVlCol));
 		} else if (baseType == Core_DataType.FLOAT.getValue()) {
-			return new Float(r.get("nVl").getFloat(pos));
+			return new Float((float) r.getDouble(pos, nVlCol));
 		} else if (baseType == Core_DataType.DOUBLE.getValue()) {
-			return new Double(r.get("nVl").getDouble(pos));
+			return new Double(r.getDouble(pos, nVlCol));
 		}
 		
 		//
 		// String / Text value support
 		//
 		if (baseType == Core_DataType.STRING.getValue()) { // String
-			return r.get("tVl").getString(pos);
+			return r.getString(pos, tVlCol);
 		} else if (baseType == Core_DataType.TEXT.getValue()) { // Text
-			return r.get("tVl").getString(pos);
+			return r.getString(pos, tVlCol);
 		}
-
+		
 		//
 		// Boolean value support
 		//
-		if(baseType == Core_DataType.BOOLEAN.getValue()){
-			String tVl = (r.get("tVl") != null) ? r.get("tVl").getString(pos) : null;
-			if(tVl != null && tVl.equalsIgnoreCase("true")){
+		if (baseType == Core_DataType.BOOLEAN.getValue()) {
+			String tVl = (tVlCol >= 0) ? r.getString(pos, tVlCol) : null;
+			if (tVl != null && tVl.equalsIgnoreCase("true")) {
 				return true;
 			}
-			if(tVl != null && tVl.equalsIgnoreCase("false")){
+			if (tVl != null && tVl.equalsIgnoreCase("false")) {
 				return false;
 			}
-			// get the value from nVl
-			int nVl = (r.get("nVl") != null) ? r.get("nVl").getInt(pos) : -1;
-			if(nVl == 1){
+			// get the value from nVl (a NULL nVl is read as 0)
+			int nVl = (nVlCol >= 0) ? r.getInt(pos, nVlCol) : -1;
+			if (nVl == 1) {
 				return true;
 			}
-			if(nVl == 0){
+			if (nVl == 0) {
 				return false;
 			}
 			throw new JSqlException("Invalid boolean value: tVl=" + tVl + ", nVl=" + nVl);
 		}
-
+		
 		//
 		// Binary value
 		//
 		if (baseType == Core_DataType.BINARY.getValue()) {
 			// Older base64 stroage format
 			// return (Base64.getDecoder().decode((String) (r.get("tVl").get(pos))));
-
-			Object rawValue = r.get("rVl").get(pos);
+			
+			Object rawValue = r.getObject(pos, cols[COL_RVL]);
 			if (rawValue instanceof java.sql.Blob) {
 				java.sql.Blob blobData = (java.sql.Blob) rawValue;
 				try {
@@ -313,12 +351,13 @@ public class JSql_DataObjectMapUtil {
 		// JSON value support
 		//
 		if (baseType == Core_DataType.JSON.getValue()) { // JSON
-			return ConvertJSON.toObject(r.get("tVl").getString(pos));
+			return ConvertJSON.toObject(r.getString(pos, tVlCol));
 		}
 		
-		throw new RuntimeException("Object type not yet supported: oID = " + r.get("oID").get(pos)
-			+ ", kID = " + r.get("kID").get(pos) + ", BaseType = " + baseType);
-		
+		throw new RuntimeException("Object type not yet supported: oID = "
+			+ r.getObject(pos, cols[COL_OID]) + ", kID = " + r.getObject(pos, cols[COL_KID])
+			+ ", BaseType = " + baseType);
+			
 		//throw new RuntimeException("Object type not yet supported: Pos = "+pos+", BaseType = "+ baseType);
 	}
 	
@@ -331,9 +370,17 @@ public class JSql_DataObjectMapUtil {
 	 * @return  The object[] array representing [ kID, and value ]
 	 **/
 	protected static Object[] extractKeyValueFromPos_nonArray(JSqlResult r, int pos) {
-		Object value = extractNonArrayValueFromPos(r, pos);
-		List<Object> idArr = r.get("kID");
-		return new Object[] { idArr.get(pos), value };
+		return extractKeyValueFromPos_nonArray(r, pos, eavColumnIndexes(r));
+	}
+	
+	/**
+	 * Same as extractKeyValueFromPos_nonArray, using the pre-resolved column indexes
+	 *
+	 * @return  The object[] array representing [ kID, and value ]
+	 **/
+	protected static Object[] extractKeyValueFromPos_nonArray(JSqlResult r, int pos, int[] cols) {
+		Object value = extractNonArrayValueFromPos(r, pos, cols);
+		return new Object[] { r.getObject(pos, cols[COL_KID]), value };
 	}
 	
 	/**
@@ -659,6 +706,168 @@ public class JSql_DataObjectMapUtil {
 		return true;
 	}
 	
+	/**
+	 * Replaces the stored key value pairs of multiple objects, removing any stored keys which
+	 * are not in the given object map. Used for bulk writes (such as a write-behind store).
+	 *
+	 * Unlike jSqlObjectMapUpdate, the rows of all the objects are upserted together,
+	 * in batches of jSqlObjectBatchSize rows.
+	 *
+	 * @param {JSql} sql                  - sql connection to write into the table
+	 * @param {String} tName              - table name to setup, this holds the actual meta table data
+	 * @param {Map<String,Map>} objMaps   - map of object id, to the map of values to store
+	 * @param {long} now                  - current "now" timestamp
+	 **/
+	public static void jSqlObjectMapReplaceAll( //
+		JSql sql, String tName, //
+		Map<String, Map<String, Object>> objMaps, //
+		long now //
+	) {
+		if (objMaps.isEmpty()) {
+			return;
+		}
+		
+		try {
+			//
+			// Remove the stored keys, which are no longer in the object map
+			//---------------------------------------------------------
+			
+			List<String> oidList = new ArrayList<String>(objMaps.keySet());
+			for (int start = 0; start < oidList.size(); start += jSqlFetchFieldsBatchSize) {
+				List<String> batch = oidList.subList(start,
+					Math.min(oidList.size(), start + jSqlFetchFieldsBatchSize));
+				
+				// Get the existing object keys
+				StringBuilder where = new StringBuilder("oID IN (");
+				for (int i = 0; i < batch.size(); ++i) {
+					where.append((i == 0) ? "?" : ",?");
+				}
+				where.append(")");
+				JSqlResult r = sql.select(tName, "oID, kID", where.toString(), batch.toArray());
+				if (r == null || r.rowCount() <= 0) {
+					continue;
+				}
+				
+				// Group the keys to remove, by its oID
+				Map<String, List<Object>> staleKeys = new HashMap<String, List<Object>>();
+				List<Object> oidCol = r.getObjectList("oID");
+				List<Object> kidCol = r.getObjectList("kID");
+				for (int i = 0; i < oidCol.size(); ++i) {
+					String oid = oidCol.get(i).toString();
+					String k = kidCol.get(i).toString();
+					
+					// Skip reserved key, oid key is not allowed to be removed directly
+					if (k.equalsIgnoreCase("oid") || k.equalsIgnoreCase("_oid")) {
+						continue;
+					}
+					Object v = objMaps.get(oid).get(k);
+					if (v != null && v != ObjectToken.NULL) {
+						continue;
+					}
+					List<Object> keys = staleKeys.get(oid);
+					if (keys == null) {
+						keys = new ArrayList<Object>();
+						staleKeys.put(oid, keys);
+					}
+					keys.add(k);
+				}
+				
+				// And remove them
+				for (Map.Entry<String, List<Object>> entry : staleKeys.entrySet()) {
+					List<Object> args = new ArrayList<Object>();
+					args.add(entry.getKey());
+					StringBuilder deleteWhere = new StringBuilder("oID = ? AND kID IN (");
+					for (int i = 0; i < entry.getValue().size(); ++i) {
+						deleteWhere.append((i == 0) ? "?" : ",?");
+						args.add(entry.getValue().get(i));
+					}
+					deleteWhere.append(")");
+					sql.delete(tName, deleteWhere.toString(), args.toArray());
+				}
+			}
+			
+			//
+			// Upsert all the object values, in batches
+			//---------------------------------------------------------
+			
+			List<Object[]> uniqueValuesList = new ArrayList<Object[]>();
+			List<Object[]> insertValuesList = new ArrayList<Object[]>();
+			List<Object[]> defaultValuesList = new ArrayList<Object[]>();
+			
+			for (Map.Entry<String, Map<String, Object>> objEntry : objMaps.entrySet()) {
+				String _oid = objEntry.getKey();
+				for (Map.Entry<String, Object> entry : objEntry.getValue().entrySet()) {
+					String k = entry.getKey();
+					Object v = entry.getValue();
+					
+					// Skip reserved key, and removed values
+					if (k.equalsIgnoreCase("_otm") || v == null || v == ObjectToken.NULL) {
+						continue;
+					}
+					
+					// Key length size protection
+					if (k.length() > 64) {
+						throw new RuntimeException(
+							"Attempted to insert a key value larger then 64 for (_oid = " + _oid + "): " + k);
+					}
+					
+					// Converts it into a type set, and store it
+					Object[] typSet = valueToValueTypeSet(v);
+					uniqueValuesList.add(new Object[] { _oid, k, 0 });
+					insertValuesList.add(new Object[] { typSet[0], typSet[1], typSet[2], typSet[3],
+						typSet[4], now, 0 });
+					defaultValuesList.add(new Object[] { now });
+					
+					// Batch size reached, upsert it
+					if (insertValuesList.size() >= jSqlObjectBatchSize) {
+						jSql_multiUpsertRows(sql, tName, uniqueValuesList, insertValuesList,
+							defaultValuesList);
+						uniqueValuesList.clear();
+						insertValuesList.clear();
+						defaultValuesList.clear();
+					}
+				}
+			}
+			
+			// Upsert the remaining rows
+			if (insertValuesList.size() > 0) {
+				jSql_multiUpsertRows(sql, tName, uniqueValuesList, insertValuesList, defaultValuesList);
+			}
+		} catch (Exception e) {
+			throw new JSqlException(e);
+		}
+	}
+	
+	/**
+	 * Does the multiUpsert of the given key value rows
+	 *
+	 * @param {JSql} sql                   - sql connection to write into the table
+	 * @param {String} tName               - table name to write into
+	 * @param {List<Object[]>} uniqueList  - oID, kID, idx values of each row
+	 * @param {List<Object[]>} insertList  - typ, nVl, sVl, tVl, rVl, uTm, eTm values of each row
+	 * @param {List<Object[]>} defaultList - cTm values of each row
+	 **/
+	private static void jSql_multiUpsertRows( //
+		JSql sql, String tName, //
+		List<Object[]> uniqueList, List<Object[]> insertList, List<Object[]> defaultList //
+	) {
+		boolean res = sql.multiUpsert(tName, // Table name to upsert on
+			// "pKy" is auto generated by SQL db
+			new String[] { "oID", "kID", "idx" }, // The unique column names
+			uniqueList, // The row unique identifier values
+			// Value / Text / Raw storage + Updated / Expire time stamp
+			new String[] { "typ", "nVl", "sVl", "tVl", "rVl", "uTm", "eTm" }, //
+			insertList, //
+			// Created timestamp setup
+			new String[] { "cTm" }, //
+			defaultList, //
+			null // The only misc col, is pKy, which is being handled by DB
+			);
+		if (!res) {
+			throw new RuntimeException("Failed to perform the required multi upsert operation");
+		}
+	}
+	
 	/**
 	 * Extracts and build the map stored under an _oid
 	 *
@@ -676,6 +885,80 @@ public class JSql_DataObjectMapUtil {
 		return extractObjectMapFromJSqlResult(r, _oid, ret);
 	}
 	
+	/**
+	 * Number of object IDs, used in each "oID IN (...)" query of jSqlObjectMapFetchFields
+	 **/
+	protected static int jSqlFetchFieldsBatchSize = 100;
+	
+	/**
+	 * Extracts and build the maps stored under each _oid, for only the requested keys
+	 * (using "kID IN (...)"). Objects without any of the requested keys are not included.
+	 *
+	 * @param {JSql} sql                  - sql connection to setup the table
+	 * @param {String} sqlTableName       - table name to setup, this holds the actual meta table data
+	 * @param {Collection<String>} oids   - object ids to fetch
+	 * @param {Collection<String>} keys   - keys to fetch
+	 * @param {Map<String,Map>} ret       - map of object id to its data map, to populate and return
+	 **/
+	public static Map<String, Map<String, Object>> jSqlObjectMapFetchFields( //
+		JSql sql, //
+		String sqlTableName, Collection<String> oids, Collection<String> keys, //
+		Map<String, Map<String, Object>> ret //
+	) {
+		if (ret == null) {
+			ret = new HashMap<String, Map<String, Object>>();
+		}
+		if (oids.isEmpty() || keys.isEmpty()) {
+			return ret;
+		}
+		
+		// The kID IN clause, shared across the batches
+		StringBuilder keyClause = new StringBuilder(" AND kID IN (");
+		for (int k = 0; k < keys.size(); ++k) {
+			keyClause.append((k == 0) ? "?" : ",?");
+		}
+		keyClause.append(")");
+		
+		// Fetch the object IDs in batches
+		List<String> oidList = new ArrayList<String>(oids);
+		for (int start = 0; start < oidList.size(); start += jSqlFetchFieldsBatchSize) {
+			List<String> batch = oidList.subList(start,
+				Math.min(oidList.size(), start + jSqlFetchFieldsBatchSize));
+			
+			// Build the query
+			StringBuilder where = new StringBuilder("oID IN (");
+			List<Object> args = new ArrayList<Object>(batch);
+			for (int i = 0; i < batch.size(); ++i) {
+				where.append((i == 0) ? "?" : ",?");
+			}
+			where.append(")").append(keyClause);
+			args.addAll(keys);
+			
+			// Extract the data, grouped by its oID
+			JSqlResult r = sql.select(sqlTableName, "*", where.toString(), args.toArray());
+			if (r == null || r.rowCount() <= 0) {
+				continue;
+			}
+			int[] cols = eavColumnIndexes(r);
+			int lim = r.rowCount();
+			for (int i = 0; i < lim; ++i) {
+				// Ignore non 0-indexed value (array support not added yet)
+				if (r.getInt(i, cols[COL_IDX]) != 0) {
+					continue;
+				}
+				String oid = r.getObject(i, cols[COL_OID]).toString();
+				Object[] rowData = extractKeyValueFromPos_nonArray(r, i, cols);
+				Map<String, Object> objMap = ret.get(oid);
+				if (objMap == null) {
+					objMap = new HashMap<String, Object>();
+					ret.put(oid, objMap);
+				}
+				objMap.put(rowData[0].toString(), rowData[1]);
+			}
+		}
+		return ret;
+	}
+	
 	/**
 	 * Extracts and build the map stored under an _oid, from the JSqlResult
 	 *
@@ -691,32 +974,32 @@ public class JSql_DataObjectMapUtil {
 			return ret;
 		}
 		
-		// Get thee value lists
-		GenericConvertList<Object> oID_list = r.get("oID");
-		GenericConvertList<Object> kID_list = r.get("kID");
-		GenericConvertList<Object> idx_list = r.get("idx");
+		// Resolve the column indexes once
+		int[] cols = eavColumnIndexes(r);
+		int oIDCol = cols[COL_OID];
+		int idxCol = cols[COL_IDX];
 		
 		// This is a query call, hence no data to extract
-		if (kID_list == null || kID_list.size() <= 0) {
+		if (cols[COL_KID] < 0 || r.rowCount() <= 0) {
 			return ret;
 		}
 		
 		// Iterate the keys
-		int lim = kID_list.size();
+		int lim = r.rowCount();
 		for (int i = 0; i < lim; ++i) {
 			
 			// oid provided, and does not match, terminated
-			if (_oid != null && !_oid.equals(oID_list.get(i))) {
+			if (_oid != null && !_oid.equals(r.getObject(i, oIDCol))) {
 				continue;
 			}
 			
 			// Ignore non 0-indexed value (array support not added yet)
-			if (idx_list.getInt(i) != 0) {
+			if (r.getInt(i, idxCol) != 0) {
 				continue; //Now only accepts first value (not an array)
 			}
 			
 			// Extract out key value pair
-			Object[] rowData = extractKeyValueFromPos_nonArray(r, i);
+			Object[] rowData = extractKeyValueFromPos_nonArray(r, i, cols);
 			
 			// Only check for ret, at this point,
 			// so returning null when no data occurs
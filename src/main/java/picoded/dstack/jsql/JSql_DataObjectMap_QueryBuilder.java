@@ -46,11 +46,18 @@ public class JSql_DataObjectMap_QueryBuilder {
 	 */
 	protected JSql_DataObjectMap dataMap = null;
 	
+	/**
+	 * Cache of the generated complex queries, see `runComplexQuery`
+	 */
+	protected Core_QueryPlanCache<Core_QueryPlan> planCache = null;
+	
 	/**
 	 * Constructor with the config map
 	 */
 	public JSql_DataObjectMap_QueryBuilder(JSql_DataObjectMap inMap) {
 		dataMap = inMap;
+		planCache = new Core_QueryPlanCache<>(dataMap.configMap.getInt("planCacheSize",
+			Core_QueryPlanCache.DEFAULT_SIZE));
 		
 		// Preloading memoizers in constructor,
 		// as its the only lock-free segment that is 
@@ -1141,6 +1148,97 @@ public class JSql_DataObjectMap_QueryBuilder {
 			return sql.query(primaryKeyQueryBuilder(containsRcount).toString(), EmptyArray.OBJECT);
 		}
 		
+		//----------------------------------------------------------------------
+		// Get the generated query, from the plan cache if possible
+		//----------------------------------------------------------------------
+		
+		// Final query string builder and arguments
+		StringBuilder fullQuery = null;
+		Object[] fullQueryArgs = null;
+		
+		// The plan key, is null if the query cannot be cached
+		String planKey = Core_QueryPlanCache.planKey(oidCollumns, whereClause, whereValues,
+			orderByStr, offset, limit);
+		Core_QueryPlan plan = planCache.get(planKey);
+		
+		if (plan == null && planKey != null) {
+			// Build the plan, with the probe arguments, and cache it
+			Object[] probes = Core_QueryPlanCache.probeValues(whereValues);
+			MutablePair<StringBuilder, List<Object>> probeQuery = complexQueryBuilder(oidCollumns,
+				whereClause, probes, orderByStr);
+			plan = new Core_QueryPlan(probeQuery.left.toString(), probeQuery.right, probes,
+				JSql_DataObjectMapUtil::shortenStringValue);
+			if (plan.isBindable()) {
+				planCache.put(planKey, plan);
+			} else {
+				plan = null;
+			}
+		}
+		
+		if (plan != null) {
+			// Only argument binding is needed
+			fullQuery = new StringBuilder(plan.queryText());
+			fullQueryArgs = plan.bindArgs(whereValues);
+		} else {
+			// Query cannot be cached, build it directly
+			MutablePair<StringBuilder, List<Object>> builtQuery = complexQueryBuilder(oidCollumns,
+				whereClause, whereValues, orderByStr);
+			fullQuery = builtQuery.left;
+			fullQueryArgs = builtQuery.right.toArray(EmptyArray.OBJECT);
+		}
+		
+		//----------------------------------------------------------------------
+		// Limit and offset clause handling
+		//----------------------------------------------------------------------
+		
+		// Limit and offset clause handling
+		if (limit > 0) {
+			fullQuery.append(" LIMIT " + limit);
+			if (offset > 0) {
+				fullQuery.append(" OFFSET " + offset);
+			}
+		}
+		
+		//----------------------------------------------------------------------
+		// And finally, the query
+		//----------------------------------------------------------------------
+		
+		// // Original where calause and values
+		// System.err.println(">>> " + whereClause);
+		// System.err.println(">>> " + ConvertJSON.fromArray(whereValues));
+		
+		// // In case you want to debug the query =(
+		// System.err.println(">>> " + fullQuery.toString());
+		// System.err.println(">>> " + ConvertJSON.fromArray(fullQueryArgs));
+		
+		// // Dump and debug the table
+		// System.out.println(">>> TABLE DUMP");
+		// System.out.println( ConvertJSON.fromMap( sql.select(tablename).readRow(0) ) );
+		
+		// Execute and get the result
+		JSqlResult res = sql.query(fullQuery.toString(), fullQueryArgs);
+		
+		// And return it
+		return res;
+	}
+	
+	/**
+	 * Builds the complex query (without the limit / offset clause), used by `runComplexQuery`.
+	 * 
+	 * The generated query only depends on the where clause argument types (and not its values),
+	 * which allows it to be cached as a plan, when built with probe arguments.
+	 *
+	 * @param   The selected oid columns to query
+	 * @param   where query statement
+	 * @param   where clause values array
+	 * @param   query string to sort the order by, use null to ignore
+	 *
+	 * @return  The query string and its arguments
+	 **/
+	protected MutablePair<StringBuilder, List<Object>> complexQueryBuilder( //
+		String oidCollumns, String whereClause, Object[] whereValues, String orderByStr //
+	) {
+		
 		//==========================================================================
 		//
 		// Sadly looks like things must be done the hard way, 
@@ -1385,39 +1483,8 @@ public class JSql_DataObjectMap_QueryBuilder {
 			fullQuery.append(orderByObj.toString().replaceAll("\"", "") + "\n");
 		}
 		
-		//----------------------------------------------------------------------
-		// Limit and offset clause handling
-		//----------------------------------------------------------------------
-		
-		// Limit and offset clause handling
-		if (limit > 0) {
-			fullQuery.append(" LIMIT " + limit);
-			if (offset > 0) {
-				fullQuery.append(" OFFSET " + offset);
-			}
-		}
-		
-		//----------------------------------------------------------------------
-		// And finally, the query
-		//----------------------------------------------------------------------
-		
-		// // Original where calause and values
-		// System.err.println(">>> " + whereClause);
-		// System.err.println(">>> " + ConvertJSON.fromArray(whereValues));
-		
-		// // In case you want to debug the query =(
-		// System.err.println(">>> " + fullQuery.toString());
-		// System.err.println(">>> " + ConvertJSON.fromList(fullQueryArgs));
-		
-		// // Dump and debug the table
-		// System.out.println(">>> TABLE DUMP");
-		// System.out.println( ConvertJSON.fromMap( sql.select(tablename).readRow(0) ) );
-		
-		// Execute and get the result
-		JSqlResult res = sql.query(fullQuery.toString(), fullQueryArgs.toArray(EmptyArray.OBJECT));
-		
-		// And return it
-		return res;
+		// Return the built query
+		return new MutablePair<StringBuilder, List<Object>>(fullQuery, fullQueryArgs);
 	}
 	
 	//-----------------------------------------------------------------------------------------------
@@ -1577,6 +1644,58 @@ public class JSql_DataObjectMap_QueryBuilder {
 		return ret;
 	}
 	
+	/**
+	 * Extracts and build the maps stored under each _oid, for only the requested keys.
+	 * Objects without any of the requested keys are not included.
+	 *
+	 * @param {Collection<String>} oids   - object ids to fetch
+	 * @param {Set<String>} keys          - keys to fetch
+	 *
+	 * @returns map of object id to its (partial) data map
+	 **/
+	public Map<String, Map<String, Object>> jSqlObjectMapFetchFields( //
+		Collection<String> oids, //
+		Set<String> keys //
+	) {
+		// Settings needed from main DataObjectMap
+		JSql sql = dataMap.sqlObj;
+		String dataStorageTable = dataMap.dataStorageTable;
+		
+		// Grab data from dynamic tables
+		Map<String, Map<String, Object>> ret = JSql_DataObjectMapUtil.jSqlObjectMapFetchFields(sql,
+			dataStorageTable, oids, keys, null);
+		
+		// Grab data from fixed tables, only if any of the keys are in it
+		boolean hasFixedKey = false;
+		for (String tableName : getFixedTableNameList()) {
+			if (!Collections.disjoint(getFixedTableObjectKeySet(tableName), keys)) {
+				hasFixedKey = true;
+				break;
+			}
+		}
+		if (hasFixedKey) {
+			for (String oid : oids) {
+				Map<String, Object> fixedData = fixedTableFetch(oid, null);
+				if (fixedData == null) {
+					continue;
+				}
+				Map<String, Object> objMap = ret.get(oid);
+				if (objMap == null) {
+					objMap = new HashMap<String, Object>();
+					ret.put(oid, objMap);
+				}
+				for (String key : keys) {
+					if (fixedData.get(key) != null) {
+						objMap.put(key, fixedData.get(key));
+					}
+				}
+			}
+		}
+		
+		// Return final map
+		return ret;
+	}
+	
 	//-----------------------------------------------------------------------------------------------
 	//
 	//  Update command support
@@ -1688,6 +1807,47 @@ public class JSql_DataObjectMap_QueryBuilder {
 		fixedTableUpdate(_oid, objMap, fixedKeyNames);
 	}
 	
+	/**
+	 * Replaces the stored data of multiple objects, removing any stored keys not in the object map
+	 *
+	 * @param {Map<String,Map>} objMaps   - map of object id, to the map of values to store
+	 **/
+	public void jSqlObjectMapReplaceAll( //
+		Map<String, Map<String, Object>> objMaps //
+	) {
+		// Settings needed from main DataObjectMap
+		JSql sql = dataMap.sqlObj;
+		String dataStorageTable = dataMap.dataStorageTable;
+		
+		// Get all the fixed table keys
+		Set<String> fixedKeyNames = new HashSet<String>();
+		for (String tableName : getFixedTableNameList()) {
+			fixedKeyNames.addAll(getFixedTableObjectKeySet(tableName));
+		}
+		
+		// Update data on the dynamic table, in batches
+		if (fixedKeyNames.isEmpty()) {
+			JSql_DataObjectMapUtil.jSqlObjectMapReplaceAll(sql, dataStorageTable, objMaps,
+				JSql_DataObjectMapUtil.getCurrentTimestamp());
+			return;
+		}
+		
+		// Exclude the fixed table keys from the dynamic table
+		Map<String, Map<String, Object>> dynamicObjMaps = new HashMap<String, Map<String, Object>>();
+		for (Map.Entry<String, Map<String, Object>> entry : objMaps.entrySet()) {
+			Map<String, Object> dynamicMap = new HashMap<String, Object>(entry.getValue());
+			dynamicMap.keySet().removeAll(fixedKeyNames);
+			dynamicObjMaps.put(entry.getKey(), dynamicMap);
+		}
+		JSql_DataObjectMapUtil.jSqlObjectMapReplaceAll(sql, dataStorageTable, dynamicObjMaps,
+			JSql_DataObjectMapUtil.getCurrentTimestamp());
+		
+		// Update data on the fixed table, missing keys are stored as null
+		for (Map.Entry<String, Map<String, Object>> entry : objMaps.entrySet()) {
+			fixedTableUpdate(entry.getKey(), entry.getValue(), fixedKeyNames);
+		}
+	}
+	
 	//-----------------------------------------------------------------------------------------------
 	//
 	//  Remove/Delete command support
@@ -1728,4 +1888,41 @@ public class JSql_DataObjectMap_QueryBuilder {
 		sql.delete(dataMap.primaryKeyTable, "oID = ?", new Object[] { _oid });
 	}
 	
+	/**
+	 * Delete/Remove multiple objects, in batches
+	 *
+	 * @param {Collection<String>} _oids - object ids to delete
+	 **/
+	public void jSqlObjectMapRemoveAll(Collection<String> _oids) {
+		// Settings needed from main DataObjectMap
+		JSql sql = dataMap.sqlObj;
+		
+		// Process the object ids in batches
+		int batchSize = JSql_DataObjectMapUtil.jSqlObjectBatchSize;
+		List<String> oidList = new ArrayList<String>(_oids);
+		for (int start = 0; start < oidList.size(); start += batchSize) {
+			List<String> batch = oidList.subList(start, Math.min(oidList.size(), start + batchSize));
+			Object[] args = batch.toArray();
+			
+			// The "IN (...)" clause of the batch
+			StringBuilder inClause = new StringBuilder(" IN (");
+			for (int i = 0; i < batch.size(); ++i) {
+				inClause.append((i == 0) ? "?" : ",?");
+			}
+			inClause.append(")");
+			
+			// Delete the data from dynamic table
+			sql.delete(dataMap.dataStorageTable, "oID" + inClause, args);
+			
+			// Delete the data from the fixed table
+			for (String tableName : getFixedTableNameList()) {
+				String oidCollumn = getFixedTableCollumnName(tableName, "_oid");
+				sql.delete(tableName, oidCollumn + inClause, args);
+			}
+			
+			// Delete the parent key
+			sql.delete(dataMap.primaryKeyTable, "oID" + inClause, args);
+		}
+	}
+	
 }
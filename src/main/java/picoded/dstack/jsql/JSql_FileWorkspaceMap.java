@@ -1,15 +1,41 @@
 package picoded.dstack.jsql;
 
 import picoded.dstack.core.Core_FileWorkspaceMap;
+import picoded.core.conv.ArrayConv;
 import picoded.core.conv.ListValueConv;
 import picoded.core.file.FileUtil;
 import picoded.core.struct.GenericConvertList;
 import picoded.dstack.connector.jsql.JSql;
 import picoded.dstack.connector.jsql.JSqlResult;
+import picoded.dstack.connector.jsql.JSqlType;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
+import org.apache.commons.io.IOUtils;
+
+/**
+ * JSql implementation of FileWorkspaceMap
+ *
+ * File content is stored in fixed size chunk rows, within a seperate chunk table.
+ * Where the file row in the main table, holds a NULL `data` value.
+ *
+ * This allow streaming reads, ranged reads and appends, without loading the whole file.
+ *
+ * Each full write, stores its chunks under a new chunk version (`cVer`). Only after all
+ * the chunks are written, is the file switched to the new version via its version pointer row
+ * (`cVer` = 0, `cIdx` = -1, with the active version in `cOff`), and the file row written.
+ * As such a failed write, leaves the previous file content intact.
+ *
+ * Files written in the older single row layout (where `data` is not NULL), are still read
+ * as it is, and converted to the chunked layout on their next write / append.
+ **/
 public class JSql_FileWorkspaceMap extends Core_FileWorkspaceMap {
 	
 	//--------------------------------------------------------------------------
@@ -33,10 +59,16 @@ public class JSql_FileWorkspaceMap extends Core_FileWorkspaceMap {
 	 **/
 	protected String primaryKeyTable = null;
 	
+	/**
+	 * The tablename for the file content chunks
+	 **/
+	protected String chunkTableName = null;
+	
 	public JSql_FileWorkspaceMap(JSql inJSql, String tablename) {
 		super();
 		sqlObj = inJSql;
 		fileWorkspaceTableName = tablename;
+		chunkTableName = "FC_" + tablename;
 	}
 	
 	//--------------------------------------------------------------------------
@@ -75,10 +107,48 @@ public class JSql_FileWorkspaceMap extends Core_FileWorkspaceMap {
 	 **/
 	protected String rawDataColumnType = "BLOB";
 	
+	/**
+	 * Chunk index, offset and length field type
+	 **/
+	protected String chunkNumColumnType = "BIGINT";
+	
+	/**
+	 * Chunk datastorage type, MySQL BLOB is limited to 64KB, which is smaller then the chunk size
+	 *
+	 * @return chunk data column type for the current SQL dialect
+	 **/
+	protected String chunkDataColumnType() {
+		if (sqlObj.sqlType() == JSqlType.MYSQL) {
+			return "LONGBLOB";
+		}
+		return rawDataColumnType;
+	}
+	
 	// fTyp flags
 	private static int fTyp_file = 1;
 	private static int fTyp_folder = 2;
 	
+	/**
+	 * Default chunk size used for new file writes (in bytes)
+	 **/
+	public static final int DEFAULT_CHUNK_SIZE = 256 * 1024;
+	
+	/**
+	 * The chunk size to use for file writes, this can be configured via the "chunkSize" config.
+	 *
+	 * Note that changing this value does not affect existing file chunks,
+	 * as their offset and length is stored with the chunk.
+	 *
+	 * @return chunk size in bytes
+	 **/
+	protected int chunkSize() {
+		int size = configMap().getInt("chunkSize", DEFAULT_CHUNK_SIZE);
+		if (size <= 0) {
+			return DEFAULT_CHUNK_SIZE;
+		}
+		return size;
+	}
+	
 	//--------------------------------------------------------------------------
 	//
 	// Constructor and maintenance
@@ -119,6 +189,40 @@ public class JSql_FileWorkspaceMap extends Core_FileWorkspaceMap {
 			sqlObj.createIndex( //
 				fileWorkspaceTableName, "oID, path", "UNIQUE", "unq" //
 			);
+			
+			// File content chunk table
+			//------------------------------------------------
+			sqlObj.createTable(chunkTableName, new String[] { //
+				"pKy", // Primary key
+					// Object keys
+					"oID", //_oid
+					"path", // relative file path
+					// Chunk position
+					"cVer", // chunk version, 0 is used for the version pointer row
+					"cIdx", // chunk index, starting from 0
+					"cOff", // byte offset of the chunk within the file
+					"cLen", // byte length of the chunk
+					"data" // actual chunk content
+				}, //
+				new String[] { //
+				pKeyColumnType, //Primary key
+					// Object keys
+					keyColumnType, //
+					pathColumnType, //
+					// Chunk position
+					chunkNumColumnType, //
+					chunkNumColumnType, //
+					chunkNumColumnType, //
+					chunkNumColumnType, //
+					// Value storage
+					chunkDataColumnType() } //
+				);
+			
+			// Unique index
+			//------------------------------------------------
+			sqlObj.createIndex( //
+				chunkTableName, "oID, path, cVer, cIdx", "UNIQUE", "unq" //
+			);
 		} catch (Exception e) {
 			e.printStackTrace();
 			throw new RuntimeException(e);
@@ -129,11 +233,13 @@ public class JSql_FileWorkspaceMap extends Core_FileWorkspaceMap {
 	@Override
 	public void systemDestroy() {
 		sqlObj.delete(fileWorkspaceTableName);
+		sqlObj.delete(chunkTableName);
 	}
 	
 	@Override
 	public void clear() {
 		sqlObj.delete(fileWorkspaceTableName);
+		sqlObj.delete(chunkTableName);
 	}
 	
 	//--------------------------------------------------------------------------
@@ -152,6 +258,7 @@ public class JSql_FileWorkspaceMap extends Core_FileWorkspaceMap {
 	@Override
 	public void backend_workspaceRemove(String oid) {
 		sqlObj.delete(fileWorkspaceTableName, "oID = ?", new Object[] { oid });
+		sqlObj.delete(chunkTableName, "oID = ?", new Object[] { oid });
 	}
 	
 	/**
@@ -200,6 +307,30 @@ public class JSql_FileWorkspaceMap extends Core_FileWorkspaceMap {
 	//
 	//--------------------------------------------------------------------------
 	
+	/**
+	 * Get the file row legacy data, used to check for file existence, and the storage layout
+	 *
+	 * @param  ObjectID of workspace
+	 * @param  filepath to use for the workspace
+	 *
+	 * @return  null if file does not exist, an empty array if its using chunked storage,
+	 *          else the legacy single row file data
+	 **/
+	protected byte[] fileRowData(String oid, String filepath) {
+		JSqlResult jSqlResult = sqlObj.select(fileWorkspaceTableName, "data",
+			"oID = ? AND path = ? AND fTyp = ?", new Object[] { oid, filepath, fTyp_file });
+		if (jSqlResult == null || jSqlResult.get("data") == null || jSqlResult.rowCount() <= 0) {
+			return null;
+		}
+		
+		// NULL data, represents the chunked storage layout
+		Object data = jSqlResult.get("data").get(0);
+		if (data == null) {
+			return new byte[0];
+		}
+		return (byte[]) data;
+	}
+	
 	/**
 	 * [Internal use, to be extended in future implementation]
 	 *
@@ -212,12 +343,110 @@ public class JSql_FileWorkspaceMap extends Core_FileWorkspaceMap {
 	 **/
 	@Override
 	public byte[] backend_fileRead(String oid, String filepath) {
-		JSqlResult jSqlResult = sqlObj.select(fileWorkspaceTableName, "data",
-			"oID = ? AND path = ? AND fTyp = ?", new Object[] { oid, filepath, fTyp_file });
+		// Get the file row, and return legacy data if present
+		byte[] rowData = fileRowData(oid, filepath);
+		if (rowData == null || rowData.length > 0) {
+			return rowData;
+		}
+		
+		// Fetch and join all the chunks, of the active version
+		JSqlResult jSqlResult = sqlObj.select(chunkTableName, "data", activeChunkWhere(),
+			new Object[] { oid, filepath, oid, filepath }, "cIdx ASC", 0, 0);
 		if (jSqlResult == null || jSqlResult.get("data") == null || jSqlResult.rowCount() <= 0) {
+			return new byte[0];
+		}
+		GenericConvertList<Object> dataList = jSqlResult.get("data");
+		ByteArrayOutputStream ret = new ByteArrayOutputStream();
+		for (int i = 0; i < dataList.size(); ++i) {
+			byte[] chunk = (byte[]) dataList.get(i);
+			if (chunk != null) {
+				ret.write(chunk, 0, chunk.length);
+			}
+		}
+		return ret.toByteArray();
+	}
+	
+	/**
+	 * [Internal use, to be extended in future implementation]
+	 *
+	 * Get and return the stored data as a byte stream, which fetches the file
+	 * content chunk by chunk, as it is being read.
+	 *
+	 * @param  ObjectID of workspace
+	 * @param  filepath to use for the workspace
+	 *
+	 * @return  the stored byte stream of the file
+	 **/
+	@Override
+	public InputStream backend_fileReadInputStream(final String oid, final String filepath) {
+		// Get the file row, and return legacy data if present
+		byte[] rowData = fileRowData(oid, filepath);
+		if (rowData == null) {
+			return null;
+		}
+		if (rowData.length > 0) {
+			return new ByteArrayInputStream(rowData);
+		}
+		return new ChunkInputStream(oid, filepath, activeVersion(oid, filepath));
+	}
+	
+	/**
+	 * [Internal use, to be extended in future implementation]
+	 *
+	 * Get and return a byte range of the stored data as a byte[],
+	 * fetching only the chunks which overlaps with the range.
+	 *
+	 * @param  ObjectID of workspace
+	 * @param  filepath to use for the workspace
+	 * @param  offset   in bytes, to start reading from
+	 * @param  length   maximum number of bytes to read
+	 *
+	 * @return  the stored byte array within the range, null if file does not exist
+	 **/
+	@Override
+	public byte[] backend_fileReadByteRange(final String oid, final String filepath,
+		final long offset, final int length) {
+		// Get the file row
+		byte[] rowData = fileRowData(oid, filepath);
+		if (rowData == null) {
 			return null;
 		}
-		return (byte[]) jSqlResult.get("data").get(0);
+		
+		// Legacy data handling
+		if (rowData.length > 0) {
+			if (offset >= rowData.length) {
+				return new byte[0];
+			}
+			int end = (int) Math.min((long) rowData.length, offset + length);
+			return Arrays.copyOfRange(rowData, (int) offset, end);
+		}
+		
+		// Fetch only the overlapping chunks
+		long rangeEnd = offset + length;
+		JSqlResult jSqlResult = sqlObj.select(chunkTableName, "cOff, data", activeChunkWhere()
+			+ " AND cOff < ? AND cOff + cLen > ?", new Object[] { oid, filepath, oid, filepath,
+			rangeEnd, offset }, "cIdx ASC", 0, 0);
+		if (jSqlResult == null || jSqlResult.get("data") == null || jSqlResult.rowCount() <= 0) {
+			return new byte[0];
+		}
+		
+		// Copy out the relevent segments of each chunk
+		GenericConvertList<Object> offList = jSqlResult.get("cOff");
+		GenericConvertList<Object> dataList = jSqlResult.get("data");
+		ByteArrayOutputStream ret = new ByteArrayOutputStream();
+		for (int i = 0; i < dataList.size(); ++i) {
+			byte[] chunk = (byte[]) dataList.get(i);
+			if (chunk == null) {
+				continue;
+			}
+			long chunkOff = offList.getLong(i);
+			int start = (int) Math.max(0, offset - chunkOff);
+			int end = (int) Math.min((long) chunk.length, rangeEnd - chunkOff);
+			if (end > start) {
+				ret.write(chunk, start, end - start);
+			}
+		}
+		return ret.toByteArray();
 	}
 	
 	/**
@@ -241,33 +470,317 @@ public class JSql_FileWorkspaceMap extends Core_FileWorkspaceMap {
 	}
 	
 	/**
-	 * [Internal use, to be extended in future implementation]
-	 *
-	 * Writes the full byte array of a file in the backend
+	 * Setup the file row, in the chunked storage layout (with NULL data)
 	 *
 	 * @param   ObjectID of workspace
 	 * @param   filepath to use for the workspace
-	 * @param   data to write the file with
 	 **/
-	@Override
-	public void backend_fileWrite(String oid, String filepath, byte[] data) {
+	protected void setupChunkedFileRow(String oid, String filepath) {
 		// Setup parent folders
 		backend_ensureFolderPath(oid, FileUtil.getParentPath(filepath));
 		
-		// Write the file
+		// Write the file row
 		long now = JSql_DataObjectMapUtil.getCurrentTimestamp();
 		sqlObj.upsert( //
 			fileWorkspaceTableName, //
 			new String[] { "oID", "path" }, //
 			new Object[] { oid, filepath }, //
 			new String[] { "uTm", "data" }, //
-			new Object[] { now, data }, //
+			new Object[] { now, null }, //
 			new String[] { "cTm", "eTm", "fTyp" }, //
 			new Object[] { now, 0, fTyp_file }, //
 			null // The only misc col, is pKy, which is being handled by DB
 			);
 	}
 	
+	//--------------------------------------------------------------------------
+	//
+	// Chunk versioning
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Where clause, for the chunks of the active version of a file.
+	 * Takes in the (oid, filepath) args twice, for the chunk and the version pointer.
+	 *
+	 * This is resolved within a single statement, so that a concurrent write
+	 * cannot switch the version between the pointer and chunk lookup.
+	 **/
+	protected String activeChunkWhere() {
+		return "oID = ? AND path = ? AND cIdx >= 0 AND cVer = (SELECT cOff FROM " + chunkTableName
+			+ " WHERE oID = ? AND path = ? AND cVer = 0 AND cIdx = -1)";
+	}
+	
+	/**
+	 * Get the active chunk version of a file
+	 *
+	 * @param   ObjectID of workspace
+	 * @param   filepath to use for the workspace
+	 *
+	 * @return  the active chunk version, 0 if there is none
+	 **/
+	protected long activeVersion(String oid, String filepath) {
+		JSqlResult jSqlResult = sqlObj.select(chunkTableName, "cOff",
+			"oID = ? AND path = ? AND cVer = 0 AND cIdx = -1", new Object[] { oid, filepath });
+		if (jSqlResult == null || jSqlResult.get("cOff") == null || jSqlResult.rowCount() <= 0) {
+			return 0;
+		}
+		return jSqlResult.get("cOff").getLong(0);
+	}
+	
+	/**
+	 * Generate a new chunk version, for a full file write
+	 *
+	 * @return  a random positive chunk version
+	 **/
+	protected long newVersion() {
+		return ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+	}
+	
+	/**
+	 * Switch the file to the given chunk version, after all its chunks are written.
+	 *
+	 * The version pointer is updated first, followed by the file row, so that a new file,
+	 * or an older single row file, only switches over when all the chunks are in place.
+	 * The chunks of the previous version are removed after the switch.
+	 *
+	 * Note that a concurrent write may leave behind the chunks of its (unused) version,
+	 * which will be removed together with the file.
+	 *
+	 * @param   ObjectID of workspace
+	 * @param   filepath to use for the workspace
+	 * @param   chunkVer to switch to
+	 **/
+	protected void switchVersion(String oid, String filepath, long chunkVer) {
+		long prevVer = activeVersion(oid, filepath);
+		
+		// Switch the version pointer
+		sqlObj.upsert( //
+			chunkTableName, //
+			new String[] { "oID", "path", "cVer", "cIdx" }, //
+			new Object[] { oid, filepath, 0, -1 }, //
+			new String[] { "cOff", "cLen", "data" }, //
+			new Object[] { chunkVer, 0, null } //
+			);
+		
+		// Write the file row last
+		setupChunkedFileRow(oid, filepath);
+		
+		// Remove the previous version chunks
+		if (prevVer > 0 && prevVer != chunkVer) {
+			removeVersion(oid, filepath, prevVer);
+		}
+	}
+	
+	/**
+	 * Remove all chunks of the given chunk version.
+	 * Used to remove the replaced chunks, or the chunks of a failed write
+	 *
+	 * @param   ObjectID of workspace
+	 * @param   filepath to use for the workspace
+	 * @param   chunkVer to remove
+	 **/
+	protected void removeVersion(String oid, String filepath, long chunkVer) {
+		sqlObj.delete(chunkTableName, "oID = ? AND path = ? AND cVer = ?", new Object[] { oid,
+			filepath, chunkVer });
+	}
+	
+	/**
+	 * Upsert a single file chunk
+	 *
+	 * @param   ObjectID of workspace
+	 * @param   filepath to use for the workspace
+	 * @param   chunkVer of the chunk
+	 * @param   chunkIdx of the chunk
+	 * @param   chunkOff byte offset of the chunk
+	 * @param   data of the chunk
+	 **/
+	protected void writeChunk(String oid, String filepath, long chunkVer, long chunkIdx,
+		long chunkOff, byte[] data) {
+		sqlObj.upsert( //
+			chunkTableName, //
+			new String[] { "oID", "path", "cVer", "cIdx" }, //
+			new Object[] { oid, filepath, chunkVer, chunkIdx }, //
+			new String[] { "cOff", "cLen", "data" }, //
+			new Object[] { chunkOff, data.length, data } //
+			);
+	}
+	
+	/**
+	 * Write the given byte data as chunks, starting from the given chunk position
+	 *
+	 * @param   ObjectID of workspace
+	 * @param   filepath to use for the workspace
+	 * @param   chunkVer of the chunks to write
+	 * @param   data to write
+	 * @param   dataPos to start writing from within data
+	 * @param   chunkIdx of the first chunk to write
+	 * @param   chunkOff byte offset of the first chunk to write
+	 *
+	 * @return  the next chunk index, after all the chunks written
+	 **/
+	protected long writeChunks(String oid, String filepath, long chunkVer, byte[] data,
+		int dataPos, long chunkIdx, long chunkOff) {
+		int size = chunkSize();
+		while (data != null && dataPos < data.length) {
+			int end = Math.min(data.length, dataPos + size);
+			writeChunk(oid, filepath, chunkVer, chunkIdx, chunkOff,
+				Arrays.copyOfRange(data, dataPos, end));
+			chunkOff += (end - dataPos);
+			dataPos = end;
+			++chunkIdx;
+		}
+		return chunkIdx;
+	}
+	
+	/**
+	 * [Internal use, to be extended in future implementation]
+	 *
+	 * Writes the full byte array of a file in the backend
+	 *
+	 * @param   ObjectID of workspace
+	 * @param   filepath to use for the workspace
+	 * @param   data to write the file with
+	 **/
+	@Override
+	public void backend_fileWrite(String oid, String filepath, byte[] data) {
+		long chunkVer = newVersion();
+		writeChunks(oid, filepath, chunkVer, data, 0, 0, 0);
+		switchVersion(oid, filepath, chunkVer);
+	}
+	
+	/**
+	 * [Internal use, to be extended in future implementation]
+	 *
+	 * Writes the file from the given stream, chunk by chunk.
+	 * Without reading the whole stream into memory.
+	 *
+	 * The file is only switched to the new content, after the whole stream is written.
+	 *
+	 * @param   ObjectID of workspace
+	 * @param   filepath to use for the workspace
+	 * @param   data to write the file with
+	 **/
+	@Override
+	public void backend_fileWriteInputStream(final String oid, final String filepath,
+		final InputStream data) {
+		// Null data, is treated as an empty file
+		if (data == null) {
+			backend_fileWrite(oid, filepath, null);
+			return;
+		}
+		
+		long chunkVer = newVersion();
+		try {
+			// Read and write one chunk at a time
+			int size = chunkSize();
+			byte[] buffer = new byte[size];
+			long chunkIdx = 0;
+			long chunkOff = 0;
+			int read;
+			while ((read = IOUtils.read(data, buffer)) > 0) {
+				byte[] chunk = (read == size) ? buffer : Arrays.copyOf(buffer, read);
+				writeChunk(oid, filepath, chunkVer, chunkIdx, chunkOff, chunk);
+				chunkOff += read;
+				++chunkIdx;
+				if (read < size) {
+					break;
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			// Previous file content is left as it is, as the version was not switched
+			removeVersion(oid, filepath, chunkVer);
+			if (e instanceof RuntimeException) {
+				throw (RuntimeException) e;
+			}
+			throw new RuntimeException(e);
+		} finally {
+			try {
+				data.close();
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		switchVersion(oid, filepath, chunkVer);
+	}
+	
+	/**
+	 * [Internal use, to be extended in future implementation]
+	 *
+	 * Appends the byte array to the file, by filling up the last chunk,
+	 * and writing any remaining data as new chunks, within the active chunk version.
+	 *
+	 * @param   ObjectID of workspace
+	 * @param   filepath to use for the workspace
+	 * @param   data to append the file with
+	 **/
+	@Override
+	public void backend_fileAppendByteArray(final String oid, final String filepath,
+		final byte[] data) {
+		// Get the file row
+		byte[] rowData = fileRowData(oid, filepath);
+		
+		// New file, just write it
+		if (rowData == null) {
+			backend_fileWrite(oid, filepath, data);
+			return;
+		}
+		
+		// Legacy file, convert it to the chunked layout
+		if (rowData.length > 0) {
+			backend_fileWrite(oid, filepath, ArrayConv.addAll(rowData, data));
+			return;
+		}
+		
+		// Nothing to append
+		if (data == null || data.length <= 0) {
+			return;
+		}
+		
+		// Missing version pointer, rewrite it as a new file
+		long chunkVer = activeVersion(oid, filepath);
+		if (chunkVer <= 0) {
+			backend_fileWrite(oid, filepath, data);
+			return;
+		}
+		
+		// Get the last chunk
+		JSqlResult jSqlResult = sqlObj.select(chunkTableName, "cIdx, cOff, cLen, data",
+			"oID = ? AND path = ? AND cVer = ? AND cIdx >= 0", new Object[] { oid, filepath,
+				chunkVer }, "cIdx DESC", 1, 0);
+		
+		// No existing chunk, write from the start
+		if (jSqlResult == null || jSqlResult.get("cIdx") == null || jSqlResult.rowCount() <= 0) {
+			writeChunks(oid, filepath, chunkVer, data, 0, 0, 0);
+		} else {
+			long lastIdx = jSqlResult.get("cIdx").getLong(0);
+			long lastOff = jSqlResult.get("cOff").getLong(0);
+			long lastLen = jSqlResult.get("cLen").getLong(0);
+			int dataPos = 0;
+			
+			// Fill up the last chunk, if it is not full
+			int size = chunkSize();
+			if (lastLen < size) {
+				byte[] lastData = (byte[]) jSqlResult.get("data").get(0);
+				if (lastData == null) {
+					lastData = new byte[0];
+				}
+				dataPos = (int) Math.min((long) data.length, size - lastLen);
+				writeChunk(oid, filepath, chunkVer, lastIdx, lastOff,
+					ArrayConv.addAll(lastData, Arrays.copyOfRange(data, 0, dataPos)));
+				lastLen += dataPos;
+			}
+			
+			// Write the remaining data as new chunks
+			writeChunks(oid, filepath, chunkVer, data, dataPos, lastIdx + 1, lastOff + lastLen);
+		}
+		
+		// Update the modified timestamp
+		sqlObj.prepareStatement(
+			"UPDATE " + fileWorkspaceTableName + " SET uTm = ? WHERE oID = ? AND path = ?",
+			JSql_DataObjectMapUtil.getCurrentTimestamp(), oid, filepath).update();
+	}
+	
 	/**
 	 * [Internal use, to be extended in future implementation]
 	 *
@@ -279,6 +792,85 @@ public class JSql_FileWorkspaceMap extends Core_FileWorkspaceMap {
 	@Override
 	public void backend_removeFile(String oid, String filepath) {
 		sqlObj.delete(fileWorkspaceTableName, "oid = ? AND path = ?", new Object[] { oid, filepath });
+		sqlObj.delete(chunkTableName, "oid = ? AND path = ?", new Object[] { oid, filepath });
+	}
+	
+	/**
+	 * Input stream, which fetches the file content one chunk at a time,
+	 * from the chunk version that was active when the stream was opened.
+	 *
+	 * If the file is overwritten while being read, the stream ends early,
+	 * once the replaced chunks are removed.
+	 **/
+	protected class ChunkInputStream extends InputStream {
+		
+		// File to read, and its chunk version
+		protected final String oid;
+		protected final String filepath;
+		protected final long chunkVer;
+		
+		// Current chunk, and read position
+		protected byte[] chunk = null;
+		protected int chunkPos = 0;
+		protected long nextIdx = 0;
+		protected boolean isEnd = false;
+		
+		protected ChunkInputStream(String inOid, String inFilepath, long inChunkVer) {
+			oid = inOid;
+			filepath = inFilepath;
+			chunkVer = inChunkVer;
+		}
+		
+		/**
+		 * Load the next chunk, if the current chunk is fully read
+		 *
+		 * @return false, if there is no more chunks
+		 **/
+		protected boolean loadChunk() {
+			while (!isEnd && (chunk == null || chunkPos >= chunk.length)) {
+				JSqlResult jSqlResult = sqlObj.select(chunkTableName, "data",
+					"oID = ? AND path = ? AND cVer = ? AND cIdx = ?", new Object[] { oid, filepath,
+						chunkVer, nextIdx });
+				if (jSqlResult == null || jSqlResult.get("data") == null
+					|| jSqlResult.rowCount() <= 0) {
+					isEnd = true;
+					chunk = null;
+					return false;
+				}
+				chunk = (byte[]) jSqlResult.get("data").get(0);
+				chunkPos = 0;
+				++nextIdx;
+			}
+			return !isEnd;
+		}
+		
+		@Override
+		public int read() {
+			if (!loadChunk()) {
+				return -1;
+			}
+			return chunk[chunkPos++] & 0xFF;
+		}
+		
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (len == 0) {
+				return 0;
+			}
+			if (!loadChunk()) {
+				return -1;
+			}
+			int copyLen = Math.min(len, chunk.length - chunkPos);
+			System.arraycopy(chunk, chunkPos, b, off, copyLen);
+			chunkPos += copyLen;
+			return copyLen;
+		}
+		
+		@Override
+		public void close() {
+			isEnd = true;
+			chunk = null;
+		}
 	}
 	
 	//--------------------------------------------------------------------------
@@ -302,6 +894,8 @@ public class JSql_FileWorkspaceMap extends Core_FileWorkspaceMap {
 		String formattedPath = folderPath.replaceAll("\\%", "\\%");
 		sqlObj.delete(fileWorkspaceTableName, "oID = ? AND (path = ? OR path LIKE ?)", new Object[] {
 			oid, folderPath, formattedPath + "%" });
+		sqlObj.delete(chunkTableName, "oID = ? AND path LIKE ?", new Object[] { oid,
+			formattedPath + "%" });
 	}
 	
 	/**
@@ -417,6 +1011,9 @@ public class JSql_FileWorkspaceMap extends Core_FileWorkspaceMap {
 		sqlObj.prepareStatement(
 			"UPDATE " + fileWorkspaceTableName + " SET path = ? WHERE oid = ? AND path = ?",
 			destinationFile, oid, sourceFile).update();
+		sqlObj.prepareStatement(
+			"UPDATE " + chunkTableName + " SET path = ? WHERE oid = ? AND path = ?", destinationFile,
+			oid, sourceFile).update();
 	}
 	
 	/**
@@ -452,11 +1049,16 @@ public class JSql_FileWorkspaceMap extends Core_FileWorkspaceMap {
 			// Delete destination path / file (if exists)
 			sqlObj.delete(fileWorkspaceTableName, "oid = ? AND path = ?", new Object[] { oid,
 				destinationFolder + subPath });
+			sqlObj.delete(chunkTableName, "oid = ? AND path = ?", new Object[] { oid,
+				destinationFolder + subPath });
 			
 			// Apply the update statement
 			sqlObj.prepareStatement(
 				"UPDATE " + fileWorkspaceTableName + " SET path = ? WHERE oid = ? AND path = ?",
 				destinationFolder + subPath, oid, sourceFolder + subPath).update();
+			sqlObj.prepareStatement(
+				"UPDATE " + chunkTableName + " SET path = ? WHERE oid = ? AND path = ?",
+				destinationFolder + subPath, oid, sourceFolder + subPath).update();
 		}
 		
 		// Update the destination directory itself
@@ -500,29 +1102,10 @@ public class JSql_FileWorkspaceMap extends Core_FileWorkspaceMap {
 			throw new RuntimeException("sourceFile does not exist (oid=" + oid + ") : " + sourceFile);
 		}
 		
-		// Setup parent folders
-		backend_ensureFolderPath(oid, FileUtil.getParentPath(destinationFile));
-		
-		// Read the file content
-		byte[] data = backend_fileRead(oid, sourceFile);
-		// Get current timestamp
-		long now = JSql_DataObjectMapUtil.getCurrentTimestamp();
-		// Upsert into database
-		sqlObj.upsert( //
-			fileWorkspaceTableName, //
-			// Unique values to "INSERT" or "UPDATE" on
-			new String[] { "oID", "path" }, //
-			new Object[] { oid, destinationFile }, //
-			// Values that require updating 
-			new String[] { "uTm", "data" }, //
-			new Object[] { now, data }, //
-			// Values if exists, do NOT update them (aka ignored in UPDATE)
-			new String[] { "cTm", "eTm", "fTyp" }, //
-			new Object[] { now, 0, fTyp_file }, //
-			// Additional collumns that exist in the database table
-			// to provide special handling.
-			null // The only misc col, is pKy, which is being handled by DB
-			);
+		// Stream the file content across, chunk by chunk
+		// (this also sets up the parent folders)
+		backend_fileWriteInputStream(oid, destinationFile,
+			backend_fileReadInputStream(oid, sourceFile));
 	}
 	
 	/**
@@ -581,26 +1164,10 @@ public class JSql_FileWorkspaceMap extends Core_FileWorkspaceMap {
 		
 		// For each path, lets scan for files (not a folder)
 		for (String subPath : affectedPaths) {
-			// Setup the various sub directories
+			// And stream copy over the file content
 			if (!subPath.endsWith("/")) {
-				// Read the file content
-				byte[] data = backend_fileRead(oid, sourceFolder + subPath);
-				// And copy over the file content
-				sqlObj.upsert( //
-					fileWorkspaceTableName, //
-					// Unique values to "INSERT" or "UPDATE" on
-					new String[] { "oID", "path" }, //
-					new Object[] { oid, destinationFolder + subPath }, //
-					// Values that require updating 
-					new String[] { "uTm", "data" }, //
-					new Object[] { now, data }, //
-					// Values if exists, do NOT update them (aka ignored in UPDATE)
-					new String[] { "cTm", "eTm", "fTyp" }, //
-					new Object[] { now, 0, fTyp_file }, //
-					// Additional collumns that exist in the database table
-					// to provide special handling.
-					null // The only misc col, is pKy, which is being handled by DB
-					);
+				backend_fileWriteInputStream(oid, destinationFolder + subPath,
+					backend_fileReadInputStream(oid, sourceFolder + subPath));
 			}
 		}
 	}
@@ -1,6 +1,11 @@
 package picoded.dstack.jsql;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import picoded.dstack.KeyValue;
@@ -87,7 +92,8 @@ public class JSql_KeyValueMap extends Core_KeyValueMap {
 	 **/
 	public MutablePair<String, Long> getValueExpiryRaw(String key, long now) {
 		// Search for the key
-		JSqlResult r = sqlObj.select(sqlTableName, "*", "kID=?", new Object[] { key });
+		JSqlResult r = sqlObj.primaryOnly(() -> sqlObj.select(sqlTableName, "*", "kID=?",
+			new Object[] { key }));
 		long expiry = fetchExpiryRaw(r);
 		
 		// No valid value found , return null
@@ -332,4 +338,149 @@ public class JSql_KeyValueMap extends Core_KeyValueMap {
 		return null;
 	}
 	
+	//--------------------------------------------------------------------------
+	//
+	// SQL specific bulk operations
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Number of keys used in each bulk "IN (...)" query, or multiUpsert.
+	 * This is to stay within the parameter limits of certain SQL implementations.
+	 **/
+	protected static final int bulkBatchSize = 400;
+	
+	/**
+	 * @param count of parameters
+	 *
+	 * @return the " IN (?,?,...)" clause
+	 **/
+	protected static String inClause(int count) {
+		StringBuilder ret = new StringBuilder(" IN (");
+		for (int i = 0; i < count; ++i) {
+			ret.append((i == 0) ? "?" : ",?");
+		}
+		return ret.append(")").toString();
+	}
+	
+	/**
+	 * Returns the values and expiry of multiple keys, using "kID IN (...)" selects
+	 *
+	 * @param keys to lookup values
+	 * @param now timestamp
+	 *
+	 * @return map of key to its value and expiry pair, excluding missing (or expired) keys
+	 **/
+	@Override
+	public Map<String, MutablePair<String, Long>> getValuesExpiryRaw(Collection<String> keys,
+		long now) {
+		Map<String, MutablePair<String, Long>> ret = new HashMap<>();
+		List<String> keyList = new ArrayList<String>(new HashSet<String>(keys));
+		for (int start = 0; start < keyList.size(); start += bulkBatchSize) {
+			Object[] batch = keyList.subList(start, Math.min(keyList.size(), start + bulkBatchSize))
+				.toArray();
+			String where = "kID" + inClause(batch.length);
+			JSqlResult r = sqlObj.primaryOnly(() -> sqlObj.select(sqlTableName, "kID, eTm, kVl",
+				where, batch));
+			if (r == null || r.rowCount() <= 0) {
+				continue;
+			}
+			for (int i = 0; i < r.rowCount(); ++i) {
+				// Get the expiry, skipping expired values
+				Object rawTime = r.get("eTm").get(i);
+				long expiry = 0;
+				if (rawTime instanceof Number) {
+					expiry = ((Number) rawTime).longValue();
+				} else if (rawTime != null) {
+					expiry = Long.parseLong(rawTime.toString());
+				}
+				if (expiry < 0 || (expiry != 0 && expiry < now)) {
+					continue;
+				}
+				
+				// Skip null (or blank) values
+				Object strObj = r.get("kVl").get(i);
+				if (strObj == null || strObj.toString().isEmpty()) {
+					continue;
+				}
+				ret.put(r.get("kID").get(i).toString(), new MutablePair<String, Long>(strObj
+					.toString(), expiry));
+			}
+		}
+		return ret;
+	}
+	
+	/**
+	 * Sets multiple values, with the same expiry, using batched multiUpsert
+	 *
+	 * @param values map of key values to store, without null values
+	 * @param expire TIMESTAMP, 0 (or less) means no expiry
+	 **/
+	@Override
+	public void setValuesRaw(Map<String, String> values, long expire) {
+		long now = System.currentTimeMillis();
+		List<Object[]> uniqueList = new ArrayList<Object[]>();
+		List<Object[]> insertList = new ArrayList<Object[]>();
+		List<Object[]> defaultList = new ArrayList<Object[]>();
+		for (Map.Entry<String, String> entry : values.entrySet()) {
+			uniqueList.add(new Object[] { entry.getKey() });
+			insertList.add(new Object[] { expire, entry.getValue() });
+			defaultList.add(new Object[] { now });
+			
+			// Upsert the full batch
+			if (uniqueList.size() >= bulkBatchSize) {
+				multiUpsertRows(uniqueList, insertList, defaultList);
+				uniqueList = new ArrayList<Object[]>();
+				insertList = new ArrayList<Object[]>();
+				defaultList = new ArrayList<Object[]>();
+			}
+		}
+		
+		// Upsert the remaining rows
+		if (uniqueList.size() > 0) {
+			multiUpsertRows(uniqueList, insertList, defaultList);
+		}
+	}
+	
+	/**
+	 * Upsert the rows of a single batch
+	 *
+	 * @param uniqueList of kID values
+	 * @param insertList of eTm, kVl values
+	 * @param defaultList of cTm values
+	 **/
+	protected void multiUpsertRows(List<Object[]> uniqueList, List<Object[]> insertList,
+		List<Object[]> defaultList) {
+		boolean res = sqlObj.multiUpsert( //
+			sqlTableName, //
+			new String[] { "kID" }, //unique cols
+			uniqueList, //unique values
+			//
+			new String[] { "eTm", "kVl" }, //insert cols
+			insertList, //insert values
+			//
+			new String[] { "cTm" }, //default cols
+			defaultList, //default values
+			null // misc values
+			);
+		if (!res) {
+			throw new RuntimeException("Failed to perform the required multi upsert operation");
+		}
+	}
+	
+	/**
+	 * Removes the values of multiple keys, using "kID IN (...)" deletes
+	 *
+	 * @param keys where the values are stored
+	 **/
+	@Override
+	public void removeValues(Collection<String> keys) {
+		List<String> keyList = new ArrayList<String>(keys);
+		for (int start = 0; start < keyList.size(); start += bulkBatchSize) {
+			Object[] batch = keyList.subList(start, Math.min(keyList.size(), start + bulkBatchSize))
+				.toArray();
+			sqlObj.delete(sqlTableName, "kID" + inClause(batch.length), batch);
+		}
+	}
+	
 }
@@ -1,6 +1,7 @@
 package picoded.dstack.jsql_json;
 
 import java.util.logging.*;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -19,6 +20,8 @@ import picoded.core.struct.query.condition.Not;
 import picoded.core.struct.query.condition.ConditionBase;
 import picoded.core.struct.query.internal.QueryFilter;
 import picoded.dstack.DataObject;
+import picoded.dstack.core.Core_QueryPlan;
+import picoded.dstack.core.Core_QueryPlanCache;
 import picoded.core.conv.ConvertJSON;
 import picoded.core.conv.GenericConvert;
 import picoded.core.struct.MutablePair;
@@ -543,4 +546,58 @@ public class JsonbUtils {
 		// Return the argument pair
 		return new MutablePair<>(fullQuery.toString(), fullArgs);
 	}
+	
+	/**
+	 * Builde the "giant complex query" to query against the JSON based backend, using the plan
+	 * cache. Where only argument binding is done, for previously built query shapes.
+	 * 
+	 * @param planCache           Plan cache to use
+	 * @param dataStorageTable    Table name to use
+	 * @param selectCol           Column to select
+	 * @param whereClause         where query statement
+	 * @param whereValues         where clause values array
+	 * @param orderByStr          orderBy clause string, to sort result
+	 * @param offset              offset of the result to display, use -1 to ignore
+	 * @param limit               number of objects to return max, use -1 to ignore
+	 * @return
+	 */
+	public static MutablePair<String, Object[]> fullQueryRawBuilder(
+		Core_QueryPlanCache<Core_QueryPlan> planCache, String dataStorageTable, String selectCol,
+		String whereClause, Object[] whereValues, String orderByStr, int offset, int limit) {
+		
+		// Get the cached plan (if any)
+		String planKey = Core_QueryPlanCache.planKey(dataStorageTable + "\n" + selectCol,
+			whereClause, whereValues, orderByStr, offset, limit);
+		Core_QueryPlan plan = planCache.get(planKey);
+		
+		// Build the plan (without limit and offset), using the probe arguments
+		if (plan == null && planKey != null) {
+			Object[] probes = Core_QueryPlanCache.probeValues(whereValues);
+			MutablePair<String, Object[]> probeQuery = JsonbUtils.fullQueryRawBuilder(
+				dataStorageTable, selectCol, whereClause, probes, orderByStr, -1, -1);
+			plan = new Core_QueryPlan(probeQuery.left, Arrays.asList(probeQuery.right), probes);
+			if (plan.isBindable()) {
+				planCache.put(planKey, plan);
+			} else {
+				plan = null;
+			}
+		}
+		
+		// Query cannot be cached, build it directly
+		if (plan == null) {
+			return JsonbUtils.fullQueryRawBuilder(dataStorageTable, selectCol, whereClause,
+				whereValues, orderByStr, offset, limit);
+		}
+		
+		// Only argument binding, and the limit / offset clause is needed
+		StringBuilder fullQuery = new StringBuilder(plan.queryText());
+		if (limit > 0) {
+			fullQuery.append(" LIMIT " + limit);
+			
+			if (offset > 0) {
+				fullQuery.append(" OFFSET " + offset);
+			}
+		}
+		return new MutablePair<>(fullQuery.toString(), plan.bindArgs(whereValues));
+	}
 }
\ No newline at end of file
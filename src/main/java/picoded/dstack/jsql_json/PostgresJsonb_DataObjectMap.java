@@ -1,13 +1,18 @@
 package picoded.dstack.jsql_json;
 
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.Map;
+import java.util.TreeSet;
 
 import picoded.dstack.DataObjectMap;
 import picoded.dstack.DataObject;
+import picoded.dstack.core.Core_DataObject;
 import picoded.dstack.core.Core_DataObjectMap;
+import picoded.dstack.core.Core_QueryPlan;
+import picoded.dstack.core.Core_QueryPlanCache;
 import picoded.dstack.jsql.JSql_DataObjectMapUtil;
 import picoded.core.struct.GenericConvertMap;
 import picoded.core.struct.query.OrderBy;
@@ -57,6 +62,16 @@ public class PostgresJsonb_DataObjectMap extends Core_DataObjectMap {
 	 */
 	protected GenericConvertMap<String, Object> configMap;
 	
+	/**
+	 * Cache of the generated query plans, configured via "planCacheSize"
+	 */
+	protected Core_QueryPlanCache<Core_QueryPlan> planCache = null;
+	
+	/**
+	 * Workload driven index advisor, used by maintenance (see PostgresJsonb_IndexAdvisor)
+	 */
+	protected PostgresJsonb_IndexAdvisor indexAdvisor = null;
+	
 	/**
 	 * JSql setup
 	 *
@@ -84,6 +99,9 @@ public class PostgresJsonb_DataObjectMap extends Core_DataObjectMap {
 		if (configMap == null) {
 			configMap = new GenericConvertHashMap<>();
 		}
+		planCache = new Core_QueryPlanCache<>(configMap.getInt("planCacheSize",
+			Core_QueryPlanCache.DEFAULT_SIZE));
+		indexAdvisor = new PostgresJsonb_IndexAdvisor(sqlObj, dataStorageTable, configMap);
 	}
 	
 	//--------------------------------------------------------------------------
@@ -201,6 +219,28 @@ public class PostgresJsonb_DataObjectMap extends Core_DataObjectMap {
 			(byte[]) (res.get("bData").get(0)));
 	}
 	
+	/**
+	 * Gets the partial remote data map, for DataObject, of only the requested fields.
+	 * Using `data->'k'`, to avoid fetching the unneeded fields (and the binary data, if unneeded)
+	 * Returns null if not exists
+	 **/
+	@Override
+	public Map<String, Object> DataObjectRemoteDataMap_getFields(String _oid, Set<String> fields) {
+		// Fallback for unsupported field names
+		String selectCol = fieldsSelectCol(fields);
+		if (selectCol == null) {
+			return super.DataObjectRemoteDataMap_getFields(_oid, fields);
+		}
+		
+		// Fetch the projected data
+		JSqlResult res = sqlObj.query_raw("SELECT " + selectCol + " FROM " + dataStorageTable
+			+ " WHERE oID = ?", new Object[] { _oid });
+		if (res.columnIndex("data") < 0 || res.rowCount() <= 0) {
+			return null;
+		}
+		return fieldsDataMap(res, 0, fields);
+	}
+	
 	/**
 	 * Updates the actual backend storage of DataObject
 	 * either partially (if supported / used), or completely
@@ -271,6 +311,167 @@ public class PostgresJsonb_DataObjectMap extends Core_DataObjectMap {
 	//
 	//--------------------------------------------------------------------------
 	
+	/**
+	 * Performs a search query, and returns the respective DataObjects.
+	 *
+	 * Unlike the default implementation (which fetches each object individually after query_id),
+	 * the object data is selected together with the oID, in the same query. Returning DataObjects
+	 * which are already populated with their complete remote data.
+	 *
+	 * @param whereClause         where query statement
+	 * @param whereValues         where clause values array
+	 * @param orderByStr          orderBy clause string, to sort result
+	 * @param offset              offset of the result to display, use -1 to ignore
+	 * @param limit               number of objects to return max, use -1 to ignore
+	 *
+	 * @return  The DataObject[] array
+	 **/
+	@Override
+	public DataObject[] query(String whereClause, Object[] whereValues, String orderByStr,
+		int offset, int limit) {
+		
+		// Build the full query
+		MutablePair<String, Object[]> fullRawQuery = JsonbUtils.fullQueryRawBuilder( //
+			planCache, dataStorageTable, "oID, data, bData", //
+			whereClause, whereValues, //
+			orderByStr, offset, limit //
+			);
+		
+		// Execute and get the result
+		JSqlResult res = queryRawAndRecord(fullRawQuery, whereClause, whereValues, orderByStr);
+		
+		// Blank list as fallback (nothing found)
+		int oIDCol = res.columnIndex("oID");
+		if (oIDCol < 0) {
+			return new DataObject[0];
+		}
+		int dataCol = res.columnIndex("data");
+		int bDataCol = res.columnIndex("bData");
+		
+		// Build the prepopulated DataObjects
+		int rows = res.rowCount();
+		DataObject[] ret = new DataObject[rows];
+		for (int i = 0; i < rows; ++i) {
+			Object data = res.getObject(i, dataCol);
+			Map<String, Object> remoteData = JsonbUtils.deserializeDataMap(
+				(data != null) ? data.toString() : "{}", (byte[]) res.getObject(i, bDataCol));
+			ret[i] = new Core_DataObject(this, res.getObject(i, oIDCol).toString(), remoteData, true);
+		}
+		return ret;
+	}
+	
+	/**
+	 * Performs a search query, and returns the respective DataObjects, with only the requested
+	 * fields fetched in the same query (via `data->'k'`), the remaining fields are lazily loaded.
+	 *
+	 * @param   where query statement
+	 * @param   where clause values array
+	 * @param   query string to sort the order by, use null to ignore
+	 * @param   offset of the result to display, use -1 to ignore
+	 * @param   number of objects to return max, use -1 to ignore
+	 * @param   fields to fetch, fetches the full objects if empty
+	 *
+	 * @return  The DataObject[] array
+	 **/
+	@Override
+	public DataObject[] query(String whereClause, Object[] whereValues, String orderByStr,
+		int offset, int limit, String[] fields) {
+		if (fields == null || fields.length == 0) {
+			return query(whereClause, whereValues, orderByStr, offset, limit);
+		}
+		
+		// Fallback for unsupported field names
+		Set<String> fieldSet = new HashSet<String>(Arrays.asList(fields));
+		String selectCol = fieldsSelectCol(fieldSet);
+		if (selectCol == null) {
+			return super.query(whereClause, whereValues, orderByStr, offset, limit, fields);
+		}
+		
+		// Build the full query
+		MutablePair<String, Object[]> fullRawQuery = JsonbUtils.fullQueryRawBuilder( //
+			planCache, dataStorageTable, selectCol, //
+			whereClause, whereValues, //
+			orderByStr, offset, limit //
+			);
+		
+		// Execute and get the result
+		JSqlResult res = queryRawAndRecord(fullRawQuery, whereClause, whereValues, orderByStr);
+		int oIDCol = res.columnIndex("oID");
+		if (oIDCol < 0) {
+			return new DataObject[0];
+		}
+		
+		// Build the partial DataObjects
+		int rows = res.rowCount();
+		DataObject[] ret = new DataObject[rows];
+		for (int i = 0; i < rows; ++i) {
+			ret[i] = partialDataObject(res.getObject(i, oIDCol).toString(), fieldsDataMap(res, i,
+				fieldSet), fieldSet);
+		}
+		return ret;
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Field projection support
+	//
+	//--------------------------------------------------------------------------
+	
+	/// Maximum number of fields per jsonb_build_object call, as functions are limited to 100 args
+	protected static final int BUILD_OBJECT_MAX_FIELDS = 50;
+	
+	/**
+	 * Build the select columns, for the given fields. Consisting of the oID, the projected data
+	 * (via `data->'k'`), and the binary data only if any of the fields are not in the json data.
+	 *
+	 * Field names are inlined (escaped) as SQL literals, so that the query args are unchanged.
+	 *
+	 * @param  fields to select
+	 *
+	 * @return the select columns, null if any of the field names are not supported
+	 **/
+	protected static String fieldsSelectCol(Set<String> fields) {
+		StringBuilder data = new StringBuilder("jsonb_build_object(");
+		StringBuilder missing = new StringBuilder();
+		
+		// Sorted, so that the same fields generate the same query (for the plan cache)
+		int count = 0;
+		for (String field : new TreeSet<String>(fields)) {
+			// Avoid any confusion with the query argument placeholder
+			if (field.indexOf('?') >= 0 || field.indexOf('\\') >= 0) {
+				return null;
+			}
+			String literal = "'" + field.replace("'", "''") + "'";
+			if (count > 0) {
+				data.append((count % BUILD_OBJECT_MAX_FIELDS == 0) ? ") || jsonb_build_object("
+					: ", ");
+				missing.append(" OR ");
+			}
+			data.append(literal).append(", data->").append(literal);
+			missing.append("data->").append(literal).append(" IS NULL");
+			++count;
+		}
+		
+		return "oID, " + data + ") AS data, CASE WHEN " + missing
+			+ " THEN bData ELSE NULL END AS bData";
+	}
+	
+	/**
+	 * Extract the requested fields data map, from the projected query result
+	 *
+	 * @param  res of the query, using fieldsSelectCol
+	 * @param  row of the result
+	 * @param  fields requested
+	 *
+	 * @return the partial data map
+	 **/
+	protected static Map<String, Object> fieldsDataMap(JSqlResult res, int row, Set<String> fields) {
+		Object data = res.getObject(row, res.columnIndex("data"));
+		Map<String, Object> fullMap = JsonbUtils.deserializeDataMap((data != null) ? data.toString()
+			: "{}", (byte[]) res.getObject(row, res.columnIndex("bData")));
+		return filterFields(fullMap, fields);
+	}
+	
 	/**
 	 * Performs a search query, and returns the respective DataObject keys.
 	 *
@@ -289,7 +490,7 @@ public class PostgresJsonb_DataObjectMap extends Core_DataObjectMap {
 		
 		// Build the full query
 		MutablePair<String, Object[]> fullRawQuery = JsonbUtils.fullQueryRawBuilder( //
-			dataStorageTable, "oID", //
+			planCache, dataStorageTable, "oID", //
 			whereClause, whereValues, //
 			orderByStr, offset, limit //
 			);
@@ -297,7 +498,7 @@ public class PostgresJsonb_DataObjectMap extends Core_DataObjectMap {
 		// Execute and get the result
 		// we do a raw query, to avoid any JSQL parsing, which was not designed for 
 		// JSONB postgres use case (manual overwrite being done here)
-		JSqlResult res = sqlObj.query_raw(fullRawQuery.left, fullRawQuery.right);
+		JSqlResult res = queryRawAndRecord(fullRawQuery, whereClause, whereValues, orderByStr);
 		
 		// Get the oID list and return it
 		List<Object> oID_list = res.getObjectList("oID");
@@ -328,6 +529,24 @@ public class PostgresJsonb_DataObjectMap extends Core_DataObjectMap {
 			offset, limit);
 	}
 	
+	/**
+	 * Execute the raw query, and record its field usage and latency for the index advisor
+	 *
+	 * @param fullRawQuery        built query string, and arguments
+	 * @param whereClause         where query statement
+	 * @param whereValues         where clause values array
+	 * @param orderByStr          orderBy clause string
+	 *
+	 * @return  the query result
+	 **/
+	protected JSqlResult queryRawAndRecord(MutablePair<String, Object[]> fullRawQuery,
+		String whereClause, Object[] whereValues, String orderByStr) {
+		long start = System.nanoTime();
+		JSqlResult res = sqlObj.query_raw(fullRawQuery.left, fullRawQuery.right);
+		indexAdvisor.record(whereClause, whereValues, orderByStr, System.nanoTime() - start);
+		return res;
+	}
+	
 	/**
 	 * Performs a search query, and returns the respective count
 	 *
@@ -340,7 +559,7 @@ public class PostgresJsonb_DataObjectMap extends Core_DataObjectMap {
 	public long queryCount(String whereClause, Object[] whereValues) {
 		// Build the full query
 		MutablePair<String, Object[]> fullRawQuery = JsonbUtils.fullQueryRawBuilder( //
-			dataStorageTable, "COUNT(*) AS rcount", //
+			planCache, dataStorageTable, "COUNT(*) AS rcount", //
 			whereClause, whereValues, //
 			null, -1, -1 //
 			);
@@ -348,7 +567,7 @@ public class PostgresJsonb_DataObjectMap extends Core_DataObjectMap {
 		// Execute and get the result
 		// we do a raw query, to avoid any JSQL parsing, which was not designed for 
 		// JSONB postgres use case (manual overwrite being done here)
-		JSqlResult res = sqlObj.query_raw(fullRawQuery.left, fullRawQuery.right);
+		JSqlResult res = queryRawAndRecord(fullRawQuery, whereClause, whereValues, null);
 		
 		// Get rcount result
 		GenericConvertList<Object> rcountArr = res.get("rcount");
@@ -417,15 +636,25 @@ public class PostgresJsonb_DataObjectMap extends Core_DataObjectMap {
 	/**
 	 * Maintenance call, which performs various index setup used to optimize
 	 * the JSONB setup.
+	 * 
+	 * Indexes are created (and dropped) according to the recorded query workload,
+	 * see PostgresJsonb_IndexAdvisor for the policy config options.
 	 **/
 	@Override
 	public void maintenance() {
 		// Check if auto indexing is enabled
 		if (configMap.getBoolean("autoIndex", true)) {
-			performAutoIndexing(keySet());
+			indexAdvisor.applyIndexPolicy();
 		}
 	}
 	
+	/**
+	 * @return the index advisor, for inspecting the recorded workload and index decisions
+	 **/
+	public PostgresJsonb_IndexAdvisor indexAdvisor() {
+		return indexAdvisor;
+	}
+	
 	//--------------------------------------------------------------------------
 	//
 	// Special iteration support
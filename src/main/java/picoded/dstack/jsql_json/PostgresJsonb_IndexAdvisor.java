@@ -0,0 +1,470 @@
+package picoded.dstack.jsql_json;
+
+// Java imports
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Picoded imports
+import picoded.core.struct.GenericConvertMap;
+import picoded.core.struct.query.OrderBy;
+import picoded.core.struct.query.Query;
+import picoded.dstack.DataObject;
+import picoded.dstack.connector.jsql.JSql;
+import picoded.dstack.connector.jsql.JSqlResult;
+import picoded.dstack.core.Core_QueryPlanCache;
+
+/**
+ * Workload driven index advisor, for PostgresJsonb_DataObjectMap.
+ *
+ * Records the JSON fields used in the where and order by clauses of queries, with their
+ * frequency and latency. Where each field usage is classified by the expression used in the
+ * generated query, either the text value `data->>'field'` (STR), or its numeric cast (NUM).
+ *
+ * On each `applyIndexPolicy` call (done via maintenance), BTREE expression indexes are created
+ * (using CREATE INDEX CONCURRENTLY, so writes are not blocked) for the hot field usages, while
+ * auto created indexes which was not used for a period of time are dropped. Usage counts are
+ * halved after each policy run, so that it reflects the recent workload.
+ *
+ * The policy is configured with the following config map options
+ *
+ * + autoIndexMinHits           : minimum (decayed) query count for a field to be indexed, default 50
+ * + autoIndexMinLatency        : minimum average query latency (in ms) for a field to be indexed, default 0
+ * + autoIndexMaxIndexes        : maximum number of auto created indexes, default 16
+ * + autoIndexMaxPerRun         : maximum number of indexes created per policy run, default 2
+ * + autoIndexDropUnusedAfter   : time (in ms) an unused auto index is kept, default 7 days, 0 to never drop
+ * + autoIndexConcurrently      : use CREATE/DROP INDEX CONCURRENTLY, default true
+ *
+ * Index decisions are logged, and can be inspected via `decisionLog` and `fieldStats`.
+ **/
+public class PostgresJsonb_IndexAdvisor {
+	
+	//--------------------------------------------------------------------------
+	//
+	// Constructor vars
+	//
+	//--------------------------------------------------------------------------
+	
+	/// Logger used for index decisions
+	protected static final Logger LOGGER = Logger.getLogger(PostgresJsonb_IndexAdvisor.class
+		.getName());
+	
+	/// Name prefix of auto created indexes
+	public static final String INDEX_PREFIX = "aix_";
+	
+	/// Field usage kind, for the text value expression
+	public static final String KIND_STR = "STR";
+	
+	/// Field usage kind, for the numeric cast expression
+	public static final String KIND_NUM = "NUM";
+	
+	/// Maximum number of decisions kept in the decision log
+	protected static final int DECISION_LOG_SIZE = 100;
+	
+	/// The inner sql object
+	protected final JSql sqlObj;
+	
+	/// The table name to index
+	protected final String dataStorageTable;
+	
+	/// Policy settings
+	protected final long minHits;
+	protected final long minLatencyMs;
+	protected final int maxIndexes;
+	protected final int maxPerRun;
+	protected final long dropUnusedAfter;
+	protected final boolean concurrently;
+	
+	/// Field usage stats, by index name
+	protected final Map<String, FieldUsage> usageMap = new ConcurrentHashMap<String, FieldUsage>();
+	
+	/// Cache of the field usages, for each query shape
+	protected final Core_QueryPlanCache<String[]> usageCache = new Core_QueryPlanCache<String[]>();
+	
+	/// Auto created indexes found in the database, with the timestamp it was first seen
+	protected final Map<String, Long> knownIndexes = new ConcurrentHashMap<String, Long>();
+	
+	/// Recent index decisions
+	protected final LinkedList<String> decisionLog = new LinkedList<String>();
+	
+	/**
+	 * Setup the advisor for the given table
+	 *
+	 * @param  inJSql connection to use
+	 * @param  inDataStorageTable to index
+	 * @param  config map with the policy options
+	 **/
+	public PostgresJsonb_IndexAdvisor(JSql inJSql, String inDataStorageTable,
+		GenericConvertMap<String, Object> config) {
+		sqlObj = inJSql;
+		dataStorageTable = inDataStorageTable;
+		
+		minHits = config.getLong("autoIndexMinHits", 50);
+		minLatencyMs = config.getLong("autoIndexMinLatency", 0);
+		maxIndexes = config.getInt("autoIndexMaxIndexes", 16);
+		maxPerRun = config.getInt("autoIndexMaxPerRun", 2);
+		dropUnusedAfter = config.getLong("autoIndexDropUnusedAfter", 7L * 24 * 60 * 60 * 1000);
+		concurrently = config.getBoolean("autoIndexConcurrently", true);
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Field usage stats
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Usage stats of a single field and expression kind
+	 **/
+	protected static class FieldUsage {
+		/// Field name
+		final String field;
+		
+		/// Expression kind, STR or NUM
+		final String kind;
+		
+		/// Decayed query count, and total latency
+		final AtomicLong hits = new AtomicLong();
+		final AtomicLong latencyNanos = new AtomicLong();
+		
+		/// Total query count (without decay)
+		final AtomicLong totalHits = new AtomicLong();
+		
+		/// Timestamp of the last usage
+		volatile long lastUsed = 0;
+		
+		FieldUsage(String inField, String inKind) {
+			field = inField;
+			kind = inKind;
+		}
+	}
+	
+	/**
+	 * Get the JSON field usages of the query, as "KIND:field" strings
+	 *
+	 * @param  whereClause of the query
+	 * @param  whereValues of the query
+	 * @param  orderByStr of the query
+	 *
+	 * @return  the field usages
+	 **/
+	public static Set<String> fieldUsage(String whereClause, Object[] whereValues,
+		String orderByStr) {
+		Set<String> ret = new LinkedHashSet<String>();
+		
+		// Where clause fields, numeric arguments are compared against the numeric cast
+		if (whereClause != null) {
+			Map<String, List<Query>> fieldQueryMap = Query.build(whereClause, whereValues)
+				.fieldQueryMap();
+			for (Map.Entry<String, List<Query>> entry : fieldQueryMap.entrySet()) {
+				String field = entry.getKey();
+				if (isSystemField(field)) {
+					continue;
+				}
+				for (Query fieldQuery : entry.getValue()) {
+					Object arg = fieldQuery.defaultArgumentValue();
+					if (arg == null) {
+						// NULL checks are handled via the GIN index
+						continue;
+					}
+					ret.add(((arg instanceof Number) ? KIND_NUM : KIND_STR) + ":" + field);
+				}
+			}
+		}
+		
+		// Order by fields, which are sorted by their text value
+		if (orderByStr != null && orderByStr.trim().length() > 0) {
+			for (String field : new OrderBy<DataObject>(orderByStr.trim()).getKeyNames()) {
+				if (!isSystemField(field)) {
+					ret.add(KIND_STR + ":" + field);
+				}
+			}
+		}
+		return ret;
+	}
+	
+	/**
+	 * @param  field name
+	 *
+	 * @return true, if its a system field (which is not part of the JSON data)
+	 **/
+	protected static boolean isSystemField(String field) {
+		return field.equals("oID") || field.equals("_oid");
+	}
+	
+	/**
+	 * Record the query usage, this never throws an exception (so as not to fail the query)
+	 *
+	 * @param  whereClause of the query
+	 * @param  whereValues of the query
+	 * @param  orderByStr of the query
+	 * @param  elapsedNanos of the query
+	 **/
+	public void record(String whereClause, Object[] whereValues, String orderByStr,
+		long elapsedNanos) {
+		try {
+			// Get the field usage, of the query shape
+			String shapeKey = Core_QueryPlanCache.planKey("usage", whereClause, whereValues,
+				orderByStr, -1, -1);
+			String[] usages = usageCache.get(shapeKey);
+			if (usages == null) {
+				usages = fieldUsage(whereClause, whereValues, orderByStr).toArray(new String[0]);
+				usageCache.put(shapeKey, usages);
+			}
+			
+			// Update the respective stats
+			long now = System.currentTimeMillis();
+			for (String usage : usages) {
+				int split = usage.indexOf(':');
+				String kind = usage.substring(0, split);
+				String field = usage.substring(split + 1);
+				FieldUsage stat = usageMap.computeIfAbsent(indexName(field, kind),
+					(k) -> new FieldUsage(field, kind));
+				stat.hits.incrementAndGet();
+				stat.totalHits.incrementAndGet();
+				stat.latencyNanos.addAndGet(elapsedNanos);
+				stat.lastUsed = now;
+			}
+		} catch (Exception e) {
+			LOGGER.log(Level.FINE, "Failed to record query usage : " + e.getMessage(), e);
+		}
+	}
+	
+	/**
+	 * Get the field usage stats, for observability
+	 *
+	 * @return map of index name, to its field, kind, hits, totalHits, avgLatencyMs, lastUsed
+	 *         and indexed status
+	 **/
+	public Map<String, Map<String, Object>> fieldStats() {
+		Map<String, Map<String, Object>> ret = new HashMap<String, Map<String, Object>>();
+		for (Map.Entry<String, FieldUsage> entry : usageMap.entrySet()) {
+			FieldUsage stat = entry.getValue();
+			Map<String, Object> row = new HashMap<String, Object>();
+			row.put("field", stat.field);
+			row.put("kind", stat.kind);
+			row.put("hits", stat.hits.get());
+			row.put("totalHits", stat.totalHits.get());
+			row.put("avgLatencyMs", averageLatencyMs(stat));
+			row.put("lastUsed", stat.lastUsed);
+			row.put("indexed", knownIndexes.containsKey(entry.getKey()));
+			ret.put(entry.getKey(), row);
+		}
+		return ret;
+	}
+	
+	/**
+	 * @return the recent index decisions, oldest first
+	 **/
+	public List<String> decisionLog() {
+		synchronized (decisionLog) {
+			return new ArrayList<String>(decisionLog);
+		}
+	}
+	
+	/**
+	 * @return the names of the auto created indexes
+	 **/
+	public Set<String> indexNames() {
+		return Collections.unmodifiableSet(new HashSet<String>(knownIndexes.keySet()));
+	}
+	
+	/**
+	 * @param  stat to compute
+	 *
+	 * @return average latency in ms, of the decayed query count
+	 **/
+	protected static double averageLatencyMs(FieldUsage stat) {
+		long hits = stat.hits.get();
+		return (hits > 0) ? (stat.latencyNanos.get() / (double) hits) / 1000000.0 : 0.0;
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Index policy
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Get the auto index name, for the given field and kind. The name is kept within the
+	 * postgres identifier limit, with a hash to avoid collisions of similar field names.
+	 *
+	 * @param  field name
+	 * @param  kind of expression
+	 *
+	 * @return index name (in lower case)
+	 **/
+	public String indexName(String field, String kind) {
+		String cleanField = field.replaceAll("[^A-Za-z0-9]", "");
+		if (cleanField.length() > 32) {
+			cleanField = cleanField.substring(0, 32);
+		}
+		String hash = String.format("%08x", (dataStorageTable + "\n" + field).hashCode());
+		return (INDEX_PREFIX + hash + "_" + kind + "_" + cleanField).toLowerCase();
+	}
+	
+	/**
+	 * Get the indexed expression, for the given field and kind. This matches the expression
+	 * generated by JsonbUtils, so that the index can be used by the query planner.
+	 *
+	 * @param  field name
+	 * @param  kind of expression
+	 *
+	 * @return index expression
+	 **/
+	public static String indexExpression(String field, String kind) {
+		String column = JsonbUtils.jsonColumnRemap(field);
+		if (KIND_NUM.equals(kind)) {
+			return "((" + column + ")::numeric)";
+		}
+		return "(" + column + ")";
+	}
+	
+	/**
+	 * Apply the index policy, creating indexes for hot fields, and dropping unused ones.
+	 *
+	 * @return the decisions made in this run
+	 **/
+	public synchronized List<String> applyIndexPolicy() {
+		List<String> decisions = new ArrayList<String>();
+		long now = System.currentTimeMillis();
+		
+		// Sync the auto indexes found in the database
+		refreshKnownIndexes(now);
+		
+		// Drop unused indexes
+		if (dropUnusedAfter > 0) {
+			for (Map.Entry<String, Long> entry : new ArrayList<>(knownIndexes.entrySet())) {
+				FieldUsage stat = usageMap.get(entry.getKey());
+				long lastUsed = Math.max(entry.getValue(), (stat != null) ? stat.lastUsed : 0);
+				if (now - lastUsed > dropUnusedAfter && dropIndex(entry.getKey())) {
+					decide(decisions, "DROP " + entry.getKey() + " (unused since " + lastUsed + ")");
+				}
+			}
+		}
+		
+		// Get the hot field usages, which are not indexed, sorted by its total latency
+		List<Map.Entry<String, FieldUsage>> candidates = new ArrayList<>();
+		for (Map.Entry<String, FieldUsage> entry : usageMap.entrySet()) {
+			FieldUsage stat = entry.getValue();
+			if (!knownIndexes.containsKey(entry.getKey()) && stat.hits.get() >= minHits
+				&& averageLatencyMs(stat) >= minLatencyMs) {
+				candidates.add(entry);
+			}
+		}
+		candidates.sort((a, b) -> Long.compare(b.getValue().latencyNanos.get(), //
+			a.getValue().latencyNanos.get()));
+			
+		// Create the indexes, within the configured limits
+		int created = 0;
+		for (Map.Entry<String, FieldUsage> entry : candidates) {
+			if (created >= maxPerRun || knownIndexes.size() >= maxIndexes) {
+				break;
+			}
+			FieldUsage stat = entry.getValue();
+			if (createIndex(entry.getKey(), stat.field, stat.kind)) {
+				knownIndexes.put(entry.getKey(), now);
+				++created;
+				decide(decisions, "CREATE " + entry.getKey() + " ON " + indexExpression(stat.field,
+					stat.kind) + " (hits " + stat.hits.get() + ", avg " + averageLatencyMs(stat) + "ms)");
+			}
+		}
+		
+		// Decay the usage counts
+		for (FieldUsage stat : usageMap.values()) {
+			stat.hits.set(stat.hits.get() / 2);
+			stat.latencyNanos.set(stat.latencyNanos.get() / 2);
+		}
+		return decisions;
+	}
+	
+	/**
+	 * Sync the auto created indexes, with those found in the database
+	 *
+	 * @param  now timestamp, used for newly found indexes
+	 **/
+	protected void refreshKnownIndexes(long now) {
+		JSqlResult res = sqlObj.query_raw(
+			"SELECT indexname FROM pg_indexes WHERE tablename = ? AND indexname LIKE ?",
+			new Object[] { dataStorageTable.toLowerCase(), INDEX_PREFIX + "%" });
+		Set<String> found = new HashSet<String>();
+		int col = res.columnIndex("indexname");
+		for (int i = 0; col >= 0 && i < res.rowCount(); ++i) {
+			found.add(res.getObject(i, col).toString());
+		}
+		knownIndexes.keySet().retainAll(found);
+		for (String name : found) {
+			knownIndexes.putIfAbsent(name, now);
+		}
+	}
+	
+	/**
+	 * Create the expression index
+	 *
+	 * @param  name of the index
+	 * @param  field name
+	 * @param  kind of expression
+	 *
+	 * @return true if the index was created
+	 **/
+	protected boolean createIndex(String name, String field, String kind) {
+		try {
+			sqlObj.update_raw("CREATE INDEX " + (concurrently ? "CONCURRENTLY " : "")
+				+ "IF NOT EXISTS " + name + " ON " + dataStorageTable + " USING BTREE ("
+				+ indexExpression(field, kind) + ")", new Object[] {});
+			return true;
+		} catch (Exception e) {
+			// A failed concurrent build leaves behind an invalid index, which needs to be removed
+			LOGGER.log(Level.WARNING, "Failed to create index " + name + " : " + e.getMessage(), e);
+			dropIndex(name);
+			return false;
+		}
+	}
+	
+	/**
+	 * Drop the index
+	 *
+	 * @param  name of the index
+	 *
+	 * @return true if the index was dropped
+	 **/
+	protected boolean dropIndex(String name) {
+		try {
+			sqlObj.update_raw("DROP INDEX " + (concurrently ? "CONCURRENTLY " : "") + "IF EXISTS "
+				+ name, new Object[] {});
+			knownIndexes.remove(name);
+			return true;
+		} catch (Exception e) {
+			LOGGER.log(Level.WARNING, "Failed to drop index " + name + " : " + e.getMessage(), e);
+			return false;
+		}
+	}
+	
+	/**
+	 * Record the index decision
+	 *
+	 * @param  decisions list of the current run
+	 * @param  decision to record
+	 **/
+	protected void decide(List<String> decisions, String decision) {
+		String entry = dataStorageTable + " : " + decision;
+		LOGGER.info(entry);
+		decisions.add(entry);
+		synchronized (decisionLog) {
+			decisionLog.add(System.currentTimeMillis() + " " + entry);
+			while (decisionLog.size() > DECISION_LOG_SIZE) {
+				decisionLog.removeFirst();
+			}
+		}
+	}
+}
@@ -2,6 +2,7 @@ package picoded.dstack.mongodb;
 
 // Java imports
 import java.util.regex.Pattern;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -216,6 +217,77 @@ public class MongoDB_DataObjectMap extends Core_DataObjectMap {
 		return ret;
 	}
 	
+	/**
+	 * Gets the partial remote data map, for DataObject, of only the requested fields.
+	 * Using a projection, to avoid fetching the unneeded fields.
+	 * Returns null if not exists
+	 **/
+	@Override
+	public Map<String, Object> DataObjectRemoteDataMap_getFields(String _oid, Set<String> fields) {
+		Document resObj = collection.find(Filters.eq("_oid", _oid)).projection(
+			fieldsProjection(fields)).first();
+		if (resObj == null) {
+			return null;
+		}
+		return documentToFieldsMap(resObj, fields);
+	}
+	
+	/**
+	 * Gets the partial remote data map, of multiple DataObject, of only the requested fields.
+	 * Using a single "_oid $in" search with a projection.
+	 **/
+	@Override
+	public Map<String, Map<String, Object>> DataObjectRemoteDataMap_getFields(
+		Collection<String> oids, Set<String> fields) {
+		Map<String, Map<String, Object>> ret = new HashMap<String, Map<String, Object>>();
+		if (oids.isEmpty()) {
+			return ret;
+		}
+		FindIterable<Document> search = collection.find(Filters.in("_oid", oids)).projection(
+			fieldsProjection(fields));
+		try (MongoCursor<Document> cursor = search.iterator()) {
+			while (cursor.hasNext()) {
+				Document resObj = cursor.next();
+				ret.put(resObj.getString("_oid"), documentToFieldsMap(resObj, fields));
+			}
+		}
+		return ret;
+	}
+	
+	/**
+	 * @return projection of the given fields, and _oid
+	 **/
+	protected Bson fieldsProjection(Set<String> fields) {
+		List<String> include = new ArrayList<String>(fields);
+		include.add("_oid");
+		return Projections.include(include);
+	}
+	
+	/**
+	 * Extract the requested fields from the projected document
+	 *
+	 * @param  resObj projected document
+	 * @param  fields requested
+	 *
+	 * @return the partial data map
+	 **/
+	protected Map<String, Object> documentToFieldsMap(Document resObj, Set<String> fields) {
+		Map<String, Object> ret = new HashMap<>();
+		for (String key : fields) {
+			Object val = resObj.get(key);
+			if (val == null) {
+				continue;
+			}
+			
+			// Unwrap the binary type
+			if (val instanceof Binary) {
+				val = ((Binary) val).getData();
+			}
+			ret.put(key, val);
+		}
+		return ret;
+	}
+	
 	/**
 	 * Updates the actual backend storage of DataObject
 	 * either partially (if supported / used), or completely
@@ -344,6 +416,21 @@ public class MongoDB_DataObjectMap extends Core_DataObjectMap {
 	 * Given the SQL style query, convert it into the BSON query format
 	 */
 	static protected Bson queryObjToBsonFilter(Query inQuery) {
+		return queryObjToBsonFilter(inQuery, null, null);
+	}
+	
+	/**
+	 * Given the SQL style query, convert it into the BSON query format.
+	 * 
+	 * With the probe values provided, the query arguments are rebound to the respective
+	 * where clause values. Allowing a cached (probe) query to be reused without parsing.
+	 * 
+	 * @param  inQuery to convert
+	 * @param  probes used to build the query, null if no rebinding is needed
+	 * @param  whereValues to bind, in place of the probes
+	 */
+	static protected Bson queryObjToBsonFilter(Query inQuery, Object[] probes,
+		Object[] whereValues) {
 		QueryType type = inQuery.type();
 		
 		// Handle the query according to its type
@@ -351,7 +438,7 @@ public class MongoDB_DataObjectMap extends Core_DataObjectMap {
 			// Lets convert each of the subquery
 			List<Bson> remappedQuery = new ArrayList<>();
 			for (Query subQuery : inQuery.childrenQuery()) {
-				remappedQuery.add(queryObjToBsonFilter(subQuery));
+				remappedQuery.add(queryObjToBsonFilter(subQuery, probes, whereValues));
 			}
 			// Combination type (AND, OR, NOT)
 			if (type == QueryType.AND) {
@@ -367,29 +454,32 @@ public class MongoDB_DataObjectMap extends Core_DataObjectMap {
 				return Filters.not(remappedQuery.get(0));
 			}
 		} else {
+			// The argument value, rebound if needed
+			Object argValue = bindProbeValue(inQuery.defaultArgumentValue(), probes, whereValues);
+			
 			// Basic operator
 			if (type == QueryType.EQUALS) {
-				return Filters.eq(inQuery.fieldName(), inQuery.defaultArgumentValue());
+				return Filters.eq(inQuery.fieldName(), argValue);
 			}
 			if (type == QueryType.NOT_EQUALS) {
-				return Filters.ne(inQuery.fieldName(), inQuery.defaultArgumentValue());
+				return Filters.ne(inQuery.fieldName(), argValue);
 			}
 			if (type == QueryType.LESS_THAN) {
-				return Filters.lt(inQuery.fieldName(), inQuery.defaultArgumentValue());
+				return Filters.lt(inQuery.fieldName(), argValue);
 			}
 			if (type == QueryType.LESS_THAN_OR_EQUALS) {
-				return Filters.lte(inQuery.fieldName(), inQuery.defaultArgumentValue());
+				return Filters.lte(inQuery.fieldName(), argValue);
 			}
 			if (type == QueryType.MORE_THAN) {
-				return Filters.gt(inQuery.fieldName(), inQuery.defaultArgumentValue());
+				return Filters.gt(inQuery.fieldName(), argValue);
 			}
 			if (type == QueryType.MORE_THAN_OR_EQUALS) {
-				return Filters.gte(inQuery.fieldName(), inQuery.defaultArgumentValue());
+				return Filters.gte(inQuery.fieldName(), argValue);
 			}
 			if (type == QueryType.LIKE) {
 				// Because the LIKE operator does not natively exists,
 				// we will generates its REGEX equivalent
-				String val = GenericConvert.toString(inQuery.defaultArgumentValue());
+				String val = GenericConvert.toString(argValue);
 				
 				// Escaping special regex characters
 				final String regexSpecialCharacters = ".+*?^$()[]{}|\\";
@@ -409,6 +499,172 @@ public class MongoDB_DataObjectMap extends Core_DataObjectMap {
 		throw new RuntimeException("Unkown query type : " + inQuery.type());
 	}
 	
+	/**
+	 * Rebind the query argument, if its one of the probe values
+	 * 
+	 * @param  argValue of the query
+	 * @param  probes used to build the query, null if no rebinding is needed
+	 * @param  whereValues to bind, in place of the probes
+	 * 
+	 * @return the argument value to use
+	 */
+	static protected Object bindProbeValue(Object argValue, Object[] probes, Object[] whereValues) {
+		if (probes == null || argValue == null) {
+			return argValue;
+		}
+		for (int i = 0; i < probes.length; ++i) {
+			if (argValue.equals(probes[i])) {
+				return whereValues[i];
+			}
+		}
+		return argValue;
+	}
+	
+	/**
+	 * Given the order by string, convert it into the BSON sort format
+	 * 
+	 * @param   orderByStr string to sort the order by
+	 * 
+	 * @return  the sort BSON, null if orderByStr is blank
+	 */
+	static protected Document orderByToSortBson(String orderByStr) {
+		if (orderByStr == null || orderByStr.length() <= 0) {
+			return null;
+		}
+		
+		// The final sorting BSON
+		Document sortBson = new Document();
+		
+		// Split it accordingly
+		String[] orderSeq = orderByStr.split(",");
+		for (int i = 0; i < orderSeq.length; ++i) {
+			String subSeq = orderSeq[i];
+			String subSeq_uc = subSeq.toUpperCase();
+			
+			// Append the order by rule accordingly
+			if (subSeq_uc.endsWith("ASC")) {
+				sortBson.append(subSeq.substring(0, subSeq.length() - 3).trim(), 1);
+			} else if (subSeq.endsWith("DESC")) {
+				sortBson.append(subSeq.substring(0, subSeq.length() - 4).trim(), -1);
+			} else {
+				// DEFAULT is ASC
+				sortBson.append(subSeq.trim(), 1);
+			}
+		}
+		return sortBson;
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Query plan caching
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Parsed query shape, built using probe values, which is rebound on each use
+	 */
+	protected static class QueryPlan {
+		/** Query built using the probe values */
+		Query probeQuery = null;
+		
+		/** Probe values, used to build the query */
+		Object[] probes = null;
+		
+		/** Indicates if the query uses the LIKE operator */
+		boolean isLikeQuery = false;
+		
+		/** The sort BSON, null if not sorted */
+		Document sortBson = null;
+	}
+	
+	/** Query plan cache, configured via "planCacheSize" */
+	protected volatile Core_QueryPlanCache<QueryPlan> planCache = null;
+	
+	/**
+	 * @return the query plan cache
+	 */
+	protected Core_QueryPlanCache<QueryPlan> planCache() {
+		if (planCache == null) {
+			planCache = new Core_QueryPlanCache<>(configMap().getInt("planCacheSize",
+				Core_QueryPlanCache.DEFAULT_SIZE));
+		}
+		return planCache;
+	}
+	
+	/**
+	 * Get the query plan from cache, building it if needed
+	 * 
+	 * @param   where query statement
+	 * @param   where clause values array
+	 * @param   orderByStr string to sort the order by, use null to ignore
+	 * @param   offset of the result to display, use -1 to ignore
+	 * @param   number of objects to return max, use -1 to ignore
+	 * 
+	 * @return  the query plan, null if the query cannot be cached
+	 */
+	protected QueryPlan queryPlan(String whereClause, Object[] whereValues, String orderByStr,
+		int offset, int limit) {
+		String planKey = Core_QueryPlanCache.planKey("query", whereClause, whereValues, orderByStr,
+			offset, limit);
+		if (planKey == null) {
+			return null;
+		}
+		
+		// Return the cached plan if found
+		QueryPlan plan = planCache().get(planKey);
+		if (plan != null) {
+			return plan;
+		}
+		
+		// Build the plan with the probe values
+		plan = new QueryPlan();
+		plan.probes = Core_QueryPlanCache.probeValues(whereValues);
+		plan.probeQuery = Query.build(whereClause, plan.probes);
+		plan.isLikeQuery = plan.probeQuery.toSqlString().toUpperCase().indexOf("LIKE") > 0;
+		plan.sortBson = orderByToSortBson(orderByStr);
+		planCache().put(planKey, plan);
+		return plan;
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Query handling
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Performs a search query, and returns the respective DataObject keys.
+	 *
+	 * This is the GUID key varient of query, this is critical for stack lookup.
+	 * Repeated query shapes make use of the cached query plan, without parsing the query.
+	 *
+	 * @param   where query statement
+	 * @param   where clause values array
+	 * @param   orderByStr string to sort the order by, use null to ignore
+	 * @param   offset of the result to display, use -1 to ignore
+	 * @param   number of objects to return max, use -1 to ignore
+	 *
+	 * @return  The String[] array
+	 **/
+	@Override
+	public String[] query_id(String whereClause, Object[] whereValues, String orderByStr,
+		int offset, int limit) {
+		// Get the query plan (if possible)
+		QueryPlan plan = null;
+		if (whereClause != null) {
+			plan = queryPlan(whereClause, whereValues, orderByStr, offset, limit);
+		}
+		
+		// Fallback to the parsed query
+		if (plan == null) {
+			return super.query_id(whereClause, whereValues, orderByStr, offset, limit);
+		}
+		
+		// Bind the plan and search
+		Bson bsonFilter = queryObjToBsonFilter(plan.probeQuery, plan.probes, whereValues);
+		return query_id(bsonFilter, plan.isLikeQuery, plan.sortBson, offset, limit);
+	}
+	
 	/**
 	 * Performs a search query, and returns the respective DataObject keys.
 	 *
@@ -428,7 +684,33 @@ public class MongoDB_DataObjectMap extends Core_DataObjectMap {
 		if (queryClause != null) {
 			// Lets convert the SQL where clause to bsonFilter
 			bsonFilter = queryObjToBsonFilter(queryClause);
-		} else {
+		}
+		
+		// Check for LIKE query usage
+		boolean isLikeQuery = (queryClause != null && queryClause.toSqlString().toUpperCase()
+			.indexOf("LIKE") > 0);
+		
+		// Perform the search
+		return query_id(bsonFilter, isLikeQuery, orderByToSortBson(orderByStr), offset, limit);
+	}
+	
+	/**
+	 * Performs a search query with the BSON filter, and returns the respective DataObject keys.
+	 *
+	 * @param   bsonFilter to search with, use null to get all
+	 * @param   isLikeQuery, if the query uses the LIKE operator
+	 * @param   sortBson to sort the result, use null to ignore
+	 * @param   offset of the result to display, use -1 to ignore
+	 * @param   number of objects to return max, use -1 to ignore
+	 *
+	 * @return  The String[] array
+	 **/
+	protected String[] query_id(Bson bsonFilter, boolean isLikeQuery, Document sortBson,
+		int offset, int limit) {
+		
+		// Is a filtered query
+		boolean hasFilter = (bsonFilter != null);
+		if (!hasFilter) {
 			// our equivalent of all filter
 			bsonFilter = Filters.exists("_oid", true);
 		}
@@ -442,12 +724,12 @@ public class MongoDB_DataObjectMap extends Core_DataObjectMap {
 			search = collection.find(bsonFilter);
 		} else if (sec_mode.equals("LIKE")) {
 			// Use secondary connection for LIKE query
-			if (queryClause != null && queryClause.toSqlString().toUpperCase().indexOf("LIKE") > 0) {
+			if (hasFilter && isLikeQuery) {
 				search = sec_collection.find(bsonFilter);
 			}
 		} else if (sec_mode.equals("LIKEORALL")) {
 			// Use secondary connection for LIKE query
-			if (queryClause == null || queryClause.toSqlString().toUpperCase().indexOf("LIKE") > 0) {
+			if (!hasFilter || isLikeQuery) {
 				search = sec_collection.find(bsonFilter);
 			}
 		} else if (sec_mode.equals("QUERY")) {
@@ -463,29 +745,8 @@ public class MongoDB_DataObjectMap extends Core_DataObjectMap {
 		// Apply the projection, to only fetch _oid
 		search = search.projection(Projections.include("_oid"));
 		
-		// Build the orderBy clause
-		if (orderByStr != null && orderByStr.length() > 0) {
-			// The final sorting BSON
-			Document sortBson = new Document();
-			
-			// Split it accordingly
-			String[] orderSeq = orderByStr.split(",");
-			for (int i = 0; i < orderSeq.length; ++i) {
-				String subSeq = orderSeq[i];
-				String subSeq_uc = subSeq.toUpperCase();
-				
-				// Append the order by rule accordingly
-				if (subSeq_uc.endsWith("ASC")) {
-					sortBson.append(subSeq.substring(0, subSeq.length() - 3).trim(), 1);
-				} else if (subSeq.endsWith("DESC")) {
-					sortBson.append(subSeq.substring(0, subSeq.length() - 4).trim(), -1);
-				} else {
-					// DEFAULT is ASC
-					sortBson.append(subSeq.trim(), 1);
-				}
-			}
-			
-			// Apply the sorting
+		// Apply the sorting
+		if (sortBson != null) {
 			search.sort(sortBson);
 		}
 		
@@ -528,8 +789,14 @@ public class MongoDB_DataObjectMap extends Core_DataObjectMap {
 			return collection.countDocuments();
 		}
 		
-		// The query filter to use, use "all" if queryClause is null
-		Bson bsonFilter = queryObjToBsonFilter(Query.build(whereClause, whereValues));
+		// The query filter to use, from the query plan if possible
+		Bson bsonFilter = null;
+		QueryPlan plan = queryPlan(whereClause, whereValues, null, -1, -1);
+		if (plan != null) {
+			bsonFilter = queryObjToBsonFilter(plan.probeQuery, plan.probes, whereValues);
+		} else {
+			bsonFilter = queryObjToBsonFilter(Query.build(whereClause, whereValues));
+		}
 		
 		// Perform the query and count
 		return collection.countDocuments(bsonFilter);
@@ -8,6 +8,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
@@ -37,6 +38,10 @@ import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.IndexOptions;
 import com.mongodb.client.model.Indexes;
 import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
 import com.mongodb.client.model.Aggregates;
 
 /**
@@ -195,6 +200,22 @@ public class MongoDB_KeyValueMap extends Core_KeyValueMap {
 		FindOneAndUpdateOptions opt = new FindOneAndUpdateOptions();
 		opt.upsert(true);
 		
+		// Upsert the document
+		collection.findOneAndUpdate(Filters.eq("key", key), upsertDocument(key, value, expireAt),
+			opt);
+		return null;
+	}
+	
+	/**
+	 * Generate the upsert document, used to set the value
+	 *
+	 * @param key
+	 * @param value to set
+	 * @param expire timestamp, 0 means not timestamp
+	 *
+	 * @return the update document
+	 **/
+	protected Document upsertDocument(String key, String value, long expireAt) {
 		// Generate the document of changes
 		// See: https://www.mongodb.com/docs/manual/reference/operator/update/setOnInsert/
 		
@@ -219,10 +240,7 @@ public class MongoDB_KeyValueMap extends Core_KeyValueMap {
 		Document setOnInsert_doc = new Document();
 		setOnInsert_doc.append("key", key);
 		updateDoc.append("$setOnInsert", setOnInsert_doc);
-		
-		// Upsert the document
-		collection.findOneAndUpdate(Filters.eq("key", key), updateDoc, opt);
-		return null;
+		return updateDoc;
 	}
 	
 	/**
@@ -240,8 +258,20 @@ public class MongoDB_KeyValueMap extends Core_KeyValueMap {
 		// Get the find result
 		FindIterable<Document> res = collection.find(Filters.eq("key", key));
 		
-		// Get the Document object
-		Document resObj = res.first();
+		// Get the value and expiry of the Document object
+		return documentValueExpiry(res.first(), now);
+	}
+	
+	/**
+	 * Returns the value and expiry of the stored document, with validation against the
+	 * current timestamp
+	 *
+	 * @param resObj stored document
+	 * @param now timestamp
+	 *
+	 * @return value, and expiry pair
+	 **/
+	protected MutablePair<String, Long> documentValueExpiry(Document resObj, long now) {
 		if (resObj == null) {
 			return null;
 		}
@@ -367,4 +397,66 @@ public class MongoDB_KeyValueMap extends Core_KeyValueMap {
 		// @TODO : something? (not sure what needs to be done)
 	}
 	
-}
\ No newline at end of file
+	//--------------------------------------------------------------------------
+	//
+	// Bulk operations
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Returns the values and expiry of multiple keys, using a single $in query
+	 *
+	 * @param keys to lookup values
+	 * @param now timestamp
+	 *
+	 * @return map of key to its value and expiry pair, excluding missing (or expired) keys
+	 **/
+	@Override
+	public Map<String, MutablePair<String, Long>> getValuesExpiryRaw(Collection<String> keys,
+		long now) {
+		Map<String, MutablePair<String, Long>> ret = new HashMap<>();
+		try (MongoCursor<Document> cursor = collection.find(Filters.in("key", keys)).iterator()) {
+			while (cursor.hasNext()) {
+				Document resObj = cursor.next();
+				MutablePair<String, Long> pair = documentValueExpiry(resObj, now);
+				if (pair != null) {
+					ret.put(resObj.getString("key"), pair);
+				}
+			}
+		}
+		return ret;
+	}
+	
+	/**
+	 * Sets multiple values, with the same expiry, using a single (unordered) bulkWrite
+	 *
+	 * @param values map of key values to store, without null values
+	 * @param expireAt timestamp, 0 (or less) means no expiry
+	 **/
+	@Override
+	public void setValuesRaw(Map<String, String> values, long expireAt) {
+		List<WriteModel<Document>> writeList = new ArrayList<WriteModel<Document>>();
+		UpdateOptions opt = new UpdateOptions().upsert(true);
+		for (Map.Entry<String, String> entry : values.entrySet()) {
+			writeList.add(new UpdateOneModel<Document>(Filters.eq("key", entry.getKey()),
+				upsertDocument(entry.getKey(), entry.getValue(), expireAt), opt));
+		}
+		if (writeList.size() > 0) {
+			collection.bulkWrite(writeList, new BulkWriteOptions().ordered(false));
+		}
+	}
+	
+	/**
+	 * Removes the values of multiple keys, using a single $in delete
+	 *
+	 * @param keys where the values are stored
+	 **/
+	@Override
+	public void removeValues(Collection<String> keys) {
+		if (keys == null || keys.isEmpty()) {
+			return;
+		}
+		collection.deleteMany(Filters.in("key", keys));
+	}
+	
+}
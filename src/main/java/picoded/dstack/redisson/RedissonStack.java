@@ -135,6 +135,9 @@ public class RedissonStack extends CoreStack {
 		if (type.equalsIgnoreCase("KeyValueMap")) {
 			ret = new Redisson_KeyValueMap(this, name);
 		}
+		if (type.equalsIgnoreCase("KeyLongMap")) {
+			ret = new Redisson_KeyLongMap(this, name);
+		}
 		// If datastrucutre initialized, setup name
 		if (ret != null) {
 			ret.configMap().put("name", name);
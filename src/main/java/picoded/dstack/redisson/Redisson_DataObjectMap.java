@@ -8,6 +8,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.Collection;
@@ -235,6 +236,24 @@ public class Redisson_DataObjectMap extends Core_DataObjectMap_struct {
 		return ret;
 	}
 	
+	/**
+	 * Async varient of DataObjectRemoteDataMap_get, using the native RMap.getAsync
+	 *
+	 * @param  oid of the object to get
+	 *
+	 * @return future of the object data map, null if not exists
+	 **/
+	@Override
+	public CompletableFuture<Map<String, Object>> DataObjectRemoteDataMap_getAsync(String _oid) {
+		return redisMap.getAsync(_oid).toCompletableFuture().thenApply((tmpObj) -> {
+			Map<String, Object> resObj = ObjToMap(tmpObj);
+			if (resObj == null) {
+				return null;
+			}
+			return new HashMap<String, Object>(resObj);
+		});
+	}
+	
 	/**
 	 * @return set of keys
 	 **/
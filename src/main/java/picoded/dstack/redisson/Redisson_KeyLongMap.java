@@ -0,0 +1,573 @@
+package picoded.dstack.redisson;
+
+// Java imports
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// Picoded imports
+import picoded.core.conv.GenericConvert;
+import picoded.core.struct.MutablePair;
+import picoded.dstack.*;
+import picoded.dstack.core.*;
+
+// Redis imports
+import org.redisson.api.RAtomicLong;
+import org.redisson.api.RBatch;
+import org.redisson.api.RBucket;
+import org.redisson.api.RFuture;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.LongCodec;
+import org.redisson.client.codec.StringCodec;
+
+/**
+ * Redisson implementation of KeyLongMap data structure.
+ *
+ * Unlike Redisson_KeyValueMap (which uses a single RMapCache), each key is stored as its own
+ * redis numeric string (prefixed with the map name). This allows the use of the redis native
+ * INCRBY for getAndAdd / addAndGet, and native key TTL for the expiry. Compare and set is done
+ * with a lua script, so that each of these are a single round trip.
+ *
+ * Built ontop of the Core_KeyLongMap implementation.
+ **/
+public class Redisson_KeyLongMap extends Core_KeyLongMap {
+	
+	//--------------------------------------------------------------------------
+	//
+	// Constructor
+	//
+	//--------------------------------------------------------------------------
+	
+	/** Redis instance representing the backend connection */
+	RedissonStack redisStack = null;
+	RedissonClient redisson = null;
+	
+	/**
+	 * Constructor, with name constructor
+	 *
+	 * @param  inStack   redisson stack to use
+	 * @param  name      of key long map to use
+	 */
+	public Redisson_KeyLongMap(RedissonStack inStack, String name) {
+		super();
+		redisStack = inStack;
+		redisson = inStack.getConnection();
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Redis keys
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * @return name memoizer
+	 */
+	private String _name = null;
+	
+	/**
+	 * @return Get the internal map name, required to be in configMap
+	 */
+	private String name() {
+		// Return memorized name
+		if (_name != null) {
+			return _name;
+		}
+		
+		// Attempt to load cachename from config
+		_name = configMap().getString("name");
+		if (_name == null || _name.equals("")) {
+			throw new IllegalArgumentException("Missing name configuration");
+		}
+		
+		// Return config cachename
+		return _name;
+	}
+	
+	/**
+	 * @param  key of the map
+	 *
+	 * @return the redis key used to store the value
+	 */
+	protected String redisKey(Object key) {
+		if (key == null) {
+			throw new IllegalArgumentException("key cannot be null");
+		}
+		return name() + ":" + key.toString();
+	}
+	
+	/**
+	 * @param  key of the map
+	 *
+	 * @return the redis bucket of the value
+	 */
+	protected RBucket<Long> bucket(Object key) {
+		return redisson.getBucket(redisKey(key), LongCodec.INSTANCE);
+	}
+	
+	/**
+	 * @param  key of the map
+	 *
+	 * @return the redis atomic long of the value (same redis key as its bucket)
+	 */
+	protected RAtomicLong atomicLong(Object key) {
+		return redisson.getAtomicLong(redisKey(key));
+	}
+	
+	/**
+	 * @return all the keys of the map (via SCAN)
+	 */
+	protected Set<String> allKeys() {
+		int prefixLength = name().length() + 1;
+		Set<String> ret = new HashSet<String>();
+		for (String redisKey : redisson.getKeys().getKeysByPattern(name() + ":*")) {
+			ret.add(redisKey.substring(prefixLength));
+		}
+		return ret;
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Lua scripts
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Returns the value, and its remaining TTL (PTTL) in milliseconds
+	 **/
+	protected static final String GET_WITH_TTL_SCRIPT = "" //
+		+ "return { redis.call('get', KEYS[1]), redis.call('pttl', KEYS[1]) };";
+		
+	/**
+	 * Compare and set, where an expected value of 0 also matches a missing key.
+	 * An empty update value deletes the key, else the existing TTL (if any) is kept.
+	 **/
+	protected static final String COMPARE_AND_SET_SCRIPT = "" //
+		+ "local cur = redis.call('get', KEYS[1]); " //
+		+ "if cur == ARGV[1] or (cur == false and ARGV[1] == '0') then " //
+		+ "  if ARGV[2] == '' then " //
+		+ "    redis.call('del', KEYS[1]); " //
+		+ "    return 1; " //
+		+ "  end; " //
+		+ "  local ttl = redis.call('pttl', KEYS[1]); " //
+		+ "  if ttl > 0 then " //
+		+ "    redis.call('set', KEYS[1], ARGV[2], 'px', ttl); " //
+		+ "  else " //
+		+ "    redis.call('set', KEYS[1], ARGV[2]); " //
+		+ "  end; " //
+		+ "  return 1; " //
+		+ "end; " //
+		+ "return 0;";
+		
+	//--------------------------------------------------------------------------
+	//
+	// Backend system setup / teardown / maintenance (DStackCommon)
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Setsup the backend storage table, etc. If needed
+	 **/
+	@Override
+	public void systemSetup() {
+		// does nothing, redis keys are created on demand
+	}
+	
+	/**
+	 * Teardown and delete the backend storage table, etc. If needed
+	 **/
+	@Override
+	public void systemDestroy() {
+		clear();
+	}
+	
+	/**
+	 * Removes all data, without tearing down setup
+	 **/
+	@Override
+	public void clear() {
+		redisson.getKeys().deleteByPattern(name() + ":*");
+	}
+	
+	/**
+	 * Perform maintenance, mainly removing of expired data if applicable
+	 **/
+	@Override
+	public void maintenance() {
+		// does nothing, expiry is handled natively by redis
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Incremental operations, using redis native atomics
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Returns the value, given the key. Then apply the delta change (via INCRBY)
+	 *
+	 * @param key param find the meta key
+	 * @param delta value to add
+	 *
+	 * @return  value of the given key, note that it returns 0 if there wasnt a previous value set
+	 **/
+	@Override
+	public Long getAndAdd(Object key, Object delta) {
+		return atomicLong(key).getAndAdd(GenericConvert.toLong(delta));
+	}
+	
+	/**
+	 * Returns the value, given the key, after adding the delta change (via INCRBY)
+	 *
+	 * @param key param find the meta key
+	 * @param delta value to add
+	 *
+	 * @return  value of the given key after adding
+	 **/
+	@Override
+	public Long addAndGet(Object key, Object delta) {
+		return atomicLong(key).addAndGet(GenericConvert.toLong(delta));
+	}
+	
+	/**
+	 * Increment the value of the key and return the updated value (via INCR)
+	 *
+	 * @param key to retrieve
+	 * @return Long
+	 */
+	@Override
+	public Long incrementAndGet(Object key) {
+		return atomicLong(key).incrementAndGet();
+	}
+	
+	/**
+	 * Stores (and overwrites if needed) key, value pair, if the existing value is as expected.
+	 * Performed as a single lua script call, which keeps the existing TTL.
+	 *
+	 * Important note: It does not return the previously stored value
+	 *
+	 * @param key as String
+	 * @param expect as Long, where null or 0 also matches a missing value
+	 * @param update as Long, null means removal
+	 *
+	 * @return true if successful
+	 **/
+	@Override
+	public boolean weakCompareAndSet(String key, Long expect, Long update) {
+		String expectStr = (expect == null) ? "0" : expect.toString();
+		String updateStr = (update == null) ? "" : update.toString();
+		Boolean res = redisson.getScript(StringCodec.INSTANCE).eval(redisKey(key),
+			RScript.Mode.READ_WRITE, COMPARE_AND_SET_SCRIPT, RScript.ReturnType.BOOLEAN,
+			Collections.<Object> singletonList(redisKey(key)), expectStr, updateStr);
+		return (res != null && res.booleanValue());
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Async operations, using the native redisson async support
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Async varient of getValue, using RBucket.getAsync
+	 *
+	 * @param key param find the thae meta key
+	 *
+	 * @return  future of the value, null if not found (or expired)
+	 **/
+	@Override
+	public CompletableFuture<Long> getValueAsync(Object key) {
+		if (key == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+		return bucket(key).getAsync().toCompletableFuture();
+	}
+	
+	/**
+	 * Async varient of putValue, using RBucket.setAsync (or deleteAsync for null values)
+	 *
+	 * @param key as String
+	 * @param value as Long, null means removal
+	 *
+	 * @return  future which completes when the value is stored (with a null value)
+	 **/
+	@Override
+	public CompletableFuture<Long> putValueAsync(String key, Long value) {
+		if (value == null) {
+			return bucket(key).deleteAsync().toCompletableFuture().thenApply((v) -> null);
+		}
+		return bucket(key).setAsync(value).toCompletableFuture().thenApply((v) -> null);
+	}
+	
+	/**
+	 * Async varient of incrementAndGet, using RAtomicLong.incrementAndGetAsync
+	 *
+	 * @param key to retrieve
+	 *
+	 * @return  future of the updated value
+	 **/
+	@Override
+	public CompletableFuture<Long> incrementAndGetAsync(Object key) {
+		return atomicLong(key).incrementAndGetAsync().toCompletableFuture();
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Bulk operations, using MGET / MSET / DEL and batches
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Returns the values and expiry of multiple keys, using a single batch
+	 *
+	 * @param keys to lookup values
+	 * @param now timestamp
+	 *
+	 * @return map of key to its value and expiry pair, excluding missing (or expired) keys
+	 **/
+	@Override
+	public Map<String, MutablePair<Long, Long>> getValuesExpiryRaw(Collection<String> keys,
+		long now) {
+		Map<String, MutablePair<Long, Long>> ret = new HashMap<>();
+		if (keys == null || keys.isEmpty()) {
+			return ret;
+		}
+		
+		// Get the value, and TTL of all the keys in a single batch
+		RBatch batch = redisson.createBatch();
+		Map<String, RFuture<Long>> valueFutures = new HashMap<String, RFuture<Long>>();
+		Map<String, RFuture<Long>> ttlFutures = new HashMap<String, RFuture<Long>>();
+		for (String key : keys) {
+			String redisKey = redisKey(key);
+			valueFutures.put(key, batch.<Long> getBucket(redisKey, LongCodec.INSTANCE).getAsync());
+			ttlFutures.put(key, batch.getBucket(redisKey, LongCodec.INSTANCE)
+				.remainTimeToLiveAsync());
+		}
+		batch.execute();
+		
+		// Build the result
+		for (String key : keys) {
+			Long value = valueFutures.get(key).toCompletableFuture().join();
+			if (value == null) {
+				continue;
+			}
+			long ttl = ttlFutures.get(key).toCompletableFuture().join();
+			ret.put(key, new MutablePair<Long, Long>(value, (ttl > 0) ? now + ttl : 0L));
+		}
+		return ret;
+	}
+	
+	/**
+	 * Get multiple values, using a single MGET call
+	 *
+	 * @param keys to lookup values
+	 *
+	 * @return map of key to its value, excluding missing (or expired) keys
+	 **/
+	@Override
+	public Map<String, Long> getValues(Collection<String> keys) {
+		Map<String, Long> ret = new HashMap<>();
+		if (keys == null || keys.isEmpty()) {
+			return ret;
+		}
+		
+		String[] redisKeys = new String[keys.size()];
+		int idx = 0;
+		for (String key : keys) {
+			redisKeys[idx++] = redisKey(key);
+		}
+		
+		int prefixLength = name().length() + 1;
+		Map<String, Long> res = redisson.getBuckets(LongCodec.INSTANCE).get(redisKeys);
+		for (Map.Entry<String, Long> entry : res.entrySet()) {
+			if (entry.getValue() != null) {
+				ret.put(entry.getKey().substring(prefixLength), entry.getValue());
+			}
+		}
+		return ret;
+	}
+	
+	/**
+	 * Sets multiple values, with the same expiry, using a single MSET call when there is
+	 * no expiry, else a single batch of SET calls with the respective TTL
+	 *
+	 * @param values map of key values to store, without null values
+	 * @param expire timestamp, 0 (or less) means no expiry
+	 **/
+	@Override
+	public void setValuesRaw(Map<String, Long> values, long expire) {
+		if (values.isEmpty()) {
+			return;
+		}
+		
+		// No expiry
+		if (expire <= 0) {
+			Map<String, Long> redisValues = new HashMap<String, Long>();
+			for (Map.Entry<String, Long> entry : values.entrySet()) {
+				redisValues.put(redisKey(entry.getKey()), entry.getValue());
+			}
+			redisson.getBuckets(LongCodec.INSTANCE).set(redisValues);
+			return;
+		}
+		
+		// With expiry
+		long ttl = Math.max(expire - System.currentTimeMillis(), 1);
+		RBatch batch = redisson.createBatch();
+		for (Map.Entry<String, Long> entry : values.entrySet()) {
+			batch.<Long> getBucket(redisKey(entry.getKey()), LongCodec.INSTANCE).setAsync(
+				entry.getValue(), ttl, TimeUnit.MILLISECONDS);
+		}
+		batch.execute();
+	}
+	
+	/**
+	 * Removes the values of multiple keys, using a single DEL call
+	 *
+	 * @param keys where the values are stored
+	 **/
+	@Override
+	public void removeValues(Collection<String> keys) {
+		if (keys == null || keys.isEmpty()) {
+			return;
+		}
+		
+		String[] redisKeys = new String[keys.size()];
+		int idx = 0;
+		for (String key : keys) {
+			redisKeys[idx++] = redisKey(key);
+		}
+		redisson.getKeys().delete(redisKeys);
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// KeySet support implementation
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Search using the value, all the relevent key mappings
+	 *
+	 * Handles re-entrant lock where applicable
+	 *
+	 * @param key, note that null matches ALL
+	 *
+	 * @return array of keys
+	 **/
+	@Override
+	public Set<String> keySet(Long value) {
+		// Get all the keys
+		Set<String> ret = allKeys();
+		if (value == null) {
+			return ret;
+		}
+		
+		// Filter by the value
+		Set<String> filtered = new HashSet<String>();
+		for (Map.Entry<String, Long> entry : getValues(ret).entrySet()) {
+			if (value.equals(entry.getValue())) {
+				filtered.add(entry.getKey());
+			}
+		}
+		return filtered;
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Fundemental set/get value (core)
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * [Internal use, to be extended in future implementation]
+	 * Sets the expire time stamp value, raw without validation (as a native redis TTL)
+	 *
+	 * Handles re-entrant lock where applicable
+	 *
+	 * @param key as String
+	 * @param expire TIMESTAMP in milliseconds, 0 means NO expire
+	 *
+	 * @return
+	 **/
+	@Override
+	public void setExpiryRaw(String key, long time) {
+		if (time > 0) {
+			bucket(key).expire(Math.max(time - System.currentTimeMillis(), 1),
+				TimeUnit.MILLISECONDS);
+		} else {
+			bucket(key).clearExpire();
+		}
+	}
+	
+	/**
+	 * [Internal use, to be extended in future implementation]
+	 * Sets the value, with validation
+	 *
+	 * Handles re-entrant lock where applicable
+	 *
+	 * @param key
+	 * @param value, null means removal
+	 * @param expire TIMESTAMP, 0 means not timestamp
+	 *
+	 * @return null
+	 **/
+	@Override
+	public Long setValueRaw(String key, Long value, long expire) {
+		// removal
+		if (value == null) {
+			bucket(key).delete();
+			return null;
+		}
+		
+		// Setup key, value - with expirary?
+		if (expire > 0) {
+			bucket(key).set(value, Math.max(expire - System.currentTimeMillis(), 1),
+				TimeUnit.MILLISECONDS);
+		} else {
+			bucket(key).set(value);
+		}
+		return null;
+	}
+	
+	/**
+	 * [Internal use, to be extended in future implementation]
+	 *
+	 * Returns the value and expiry, with validation against the current timestamp.
+	 * Fetched with a single lua script call (GET and PTTL)
+	 *
+	 * Handles re-entrant lock where applicable
+	 *
+	 * @param key as String
+	 * @param now timestamp, 0 = no timestamp so skip timestamp checks
+	 *
+	 * @return Long value, and expiry pair
+	 **/
+	@Override
+	public MutablePair<Long, Long> getValueExpiryRaw(String key, long now) {
+		List<Object> res = redisson.getScript(StringCodec.INSTANCE).eval(redisKey(key),
+			RScript.Mode.READ_ONLY, GET_WITH_TTL_SCRIPT, RScript.ReturnType.MULTI,
+			Collections.<Object> singletonList(redisKey(key)));
+		if (res == null || res.size() < 2 || res.get(0) == null) {
+			return null;
+		}
+		
+		// Get the value, and its TTL
+		Long value = Long.valueOf(res.get(0).toString());
+		long ttl = ((Number) res.get(1)).longValue();
+		if (ttl == -2) {
+			// value does not exist (or has expired)
+			return null;
+		}
+		
+		// Note: 0 = no timestamp, hence valid value
+		return new MutablePair<Long, Long>(value, (ttl > 0) ? now + ttl : 0L);
+	}
+	
+}
@@ -7,6 +7,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -23,9 +25,12 @@ import picoded.dstack.core.*;
 import org.redisson.Redisson;
 import org.redisson.client.codec.StringCodec;
 import org.redisson.codec.JsonJacksonCodec;
+import org.redisson.api.RBatch;
+import org.redisson.api.RFuture;
 import org.redisson.api.RedissonClient;
 import org.redisson.api.RMap;
 import org.redisson.api.RMapCache;
+import org.redisson.api.RMapCacheAsync;
 
 /**
  * Hazelcast implementation of KeyValueMap data structure.
@@ -145,6 +150,144 @@ public class Redisson_KeyValueMap extends Core_KeyValueMap {
 		// does nothing
 	}
 	
+	//--------------------------------------------------------------------------
+	//
+	// Async operations, using the native RMapCache async support
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Async varient of getValue, using RMapCache.getAsync
+	 *
+	 * @param key param find the thae meta key
+	 *
+	 * @return  future of the value, null if not found (or expired)
+	 **/
+	@Override
+	public CompletableFuture<String> getValueAsync(Object key) {
+		if (key == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+		return backendMap().getAsync(key.toString()).toCompletableFuture();
+	}
+	
+	/**
+	 * Async varient of putValue, using RMapCache.fastPutAsync (or fastRemoveAsync for null values)
+	 *
+	 * @param key as String
+	 * @param value as String, null means removal
+	 *
+	 * @return  future which completes when the value is stored (with a null value)
+	 **/
+	@Override
+	public CompletableFuture<String> putValueAsync(String key, String value) {
+		if (value == null) {
+			return backendMap().fastRemoveAsync(key).toCompletableFuture().thenApply((v) -> null);
+		}
+		return backendMap().fastPutAsync(key, value).toCompletableFuture().thenApply((v) -> null);
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Bulk operations, using the native RMapCache bulk support
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Get multiple values, using a single RMapCache.getAll call
+	 * (expired entries are not returned by redisson)
+	 *
+	 * @param keys to lookup values
+	 *
+	 * @return map of key to its value, excluding missing (or expired) keys
+	 **/
+	@Override
+	public Map<String, String> getValues(Collection<String> keys) {
+		if (keys == null || keys.isEmpty()) {
+			return new HashMap<>();
+		}
+		return new HashMap<>(backendMap().getAll(new HashSet<String>(keys)));
+	}
+	
+	/**
+	 * Returns the values and expiry of multiple keys, using a single batch of
+	 * RMapCache.getAll and remainTimeToLive calls
+	 *
+	 * @param keys to lookup values
+	 * @param now timestamp, 0 = no timestamp so skip timestamp checks
+	 *
+	 * @return map of key to its value and expiry pair, excluding missing (or expired) keys
+	 **/
+	@Override
+	public Map<String, MutablePair<String, Long>> getValuesExpiryRaw(Collection<String> keys,
+		long now) {
+		Map<String, MutablePair<String, Long>> ret = new HashMap<>();
+		if (keys == null || keys.isEmpty()) {
+			return ret;
+		}
+		
+		// Get the values, and TTL of all the keys in a single batch
+		Set<String> keySet = new HashSet<String>(keys);
+		RBatch batch = redisson.createBatch();
+		RMapCacheAsync<String, String> batchMap = batch.getMapCache(name(),
+			JsonJacksonCodec.INSTANCE);
+		RFuture<Map<String, String>> valuesFuture = batchMap.getAllAsync(keySet);
+		Map<String, RFuture<Long>> ttlFutures = new HashMap<String, RFuture<Long>>();
+		for (String key : keySet) {
+			ttlFutures.put(key, batchMap.remainTimeToLiveAsync(key));
+		}
+		batch.execute();
+		
+		// Build the result, with the same TTL handling as getValueExpiryRaw
+		long timestamp = System.currentTimeMillis();
+		Map<String, String> values = valuesFuture.toCompletableFuture().join();
+		for (Map.Entry<String, String> entry : values.entrySet()) {
+			if (entry.getValue() == null) {
+				continue;
+			}
+			long rawTTL = ttlFutures.get(entry.getKey()).toCompletableFuture().join();
+			if (rawTTL <= -2) {
+				// value has expired
+				continue;
+			}
+			ret.put(entry.getKey(), new MutablePair<String, Long>(entry.getValue(),
+				(rawTTL <= -1) ? 0L : rawTTL + timestamp));
+		}
+		return ret;
+	}
+	
+	/**
+	 * Sets multiple values, with the same expiry, using a single RMapCache.putAll call
+	 *
+	 * @param values map of key values to store, without null values
+	 * @param expire timestamp, 0 (or less) means no expiry
+	 **/
+	@Override
+	public void setValuesRaw(Map<String, String> values, long expire) {
+		if (values.isEmpty()) {
+			return;
+		}
+		if (expire > 0) {
+			backendMap().putAll(values, Math.max(expire - System.currentTimeMillis(), 1),
+				TimeUnit.MILLISECONDS);
+		} else {
+			backendMap().putAll(values);
+		}
+	}
+	
+	/**
+	 * Removes the values of multiple keys, using a single RMapCache.fastRemove call
+	 *
+	 * @param keys where the values are stored
+	 **/
+	@Override
+	public void removeValues(Collection<String> keys) {
+		if (keys == null || keys.isEmpty()) {
+			return;
+		}
+		backendMap().fastRemove(keys.toArray(new String[0]));
+	}
+	
 	//--------------------------------------------------------------------------
 	//
 	// KeySet support implementation
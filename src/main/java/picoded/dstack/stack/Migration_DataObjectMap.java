@@ -0,0 +1,585 @@
+package picoded.dstack.stack;
+
+// Java imports
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Picoded imports
+import picoded.core.struct.query.Query;
+import picoded.dstack.*;
+import picoded.dstack.core.*;
+
+/**
+ * Online migration of a DataObjectMap, from a source backend to a target backend.
+ * (For example, from JSql_DataObjectMap to PostgresJsonb_DataObjectMap)
+ *
+ * The migration is done without downtime in the following phases
+ *
+ * - DUAL_WRITE : reads are served from the source, writes are applied to both source and target,
+ *   while `copyAll` bulk copies existing objects to the target in the background.
+ * - CUTOVER : reads are served from the target, writes are still applied to both
+ *   (allowing a rollback to DUAL_WRITE). Entered via `cutover`, after a sampled verification.
+ * - TARGET_ONLY : reads and writes are only applied to the target, the source can be retired.
+ *
+ * The bulk copy iterates the source in _oid order (via `query_id_seek`), in batches which are
+ * copied in parallel. The last fully copied object ID is checkpointed (optionally into a
+ * KeyValueMap), allowing an interrupted copy to be resumed.
+ **/
+public class Migration_DataObjectMap extends Core_DataObjectMap implements Stack_CommonStructure {
+	
+	//--------------------------------------------------------------------------
+	//
+	// Constructor vars
+	//
+	//--------------------------------------------------------------------------
+	
+	/// Migration phases, see class documentation
+	public enum Phase {
+		DUAL_WRITE, CUTOVER, TARGET_ONLY
+	}
+	
+	// Source backend being migrated from
+	protected Core_DataObjectMap source = null;
+	
+	// Target backend being migrated to
+	protected Core_DataObjectMap target = null;
+	
+	// Current migration phase
+	protected volatile Phase phase = Phase.DUAL_WRITE;
+	
+	/**
+	 * Setup the migration with the respective source and target
+	 *
+	 * @param  inSource backend to migrate from
+	 * @param  inTarget backend to migrate to
+	 */
+	public Migration_DataObjectMap(Core_DataObjectMap inSource, Core_DataObjectMap inTarget) {
+		if (inSource == null || inTarget == null) {
+			throw new IllegalArgumentException("Missing valid source / target configuration");
+		}
+		source = inSource;
+		target = inTarget;
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Interface to ovewrite for `Stack_CommonStructure` implmentation
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * @return  array of the internal common structure stack used by the Stack_ implementation
+	 */
+	public CommonStructure[] commonStructureStack() {
+		if (phase == Phase.TARGET_ONLY) {
+			return new CommonStructure[] { target };
+		}
+		return new CommonStructure[] { source, target };
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Phase handling
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * @return the current migration phase
+	 **/
+	public Phase phase() {
+		return phase;
+	}
+	
+	/**
+	 * Set the migration phase directly, without verification.
+	 * This can be used to rollback from CUTOVER to DUAL_WRITE.
+	 *
+	 * @param  inPhase to switch to
+	 **/
+	public void setPhase(Phase inPhase) {
+		if (inPhase == null) {
+			throw new IllegalArgumentException("Missing valid phase");
+		}
+		phase = inPhase;
+	}
+	
+	/**
+	 * Verify a random sample of objects between the source and target,
+	 * and switch reads over to the target (CUTOVER phase) if no mismatch is found.
+	 *
+	 * @param  sampleSize number of random objects to verify
+	 *
+	 * @throws RuntimeException if any mismatched object was found
+	 **/
+	public void cutover(int sampleSize) {
+		List<String> mismatch = verifySample(sampleSize);
+		if (mismatch.size() > 0) {
+			throw new RuntimeException("Unable to cutover, mismatched objects found in target : "
+				+ mismatch);
+		}
+		phase = Phase.CUTOVER;
+	}
+	
+	/**
+	 * @return the backend currently used for reads / queries
+	 **/
+	protected Core_DataObjectMap readLayer() {
+		return (phase == Phase.DUAL_WRITE) ? source : target;
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Object level locking
+	//
+	//--------------------------------------------------------------------------
+	
+	/// Lock stripes, used to prevent a bulk copy from overwriting a concurrent dual write
+	protected final ReentrantLock[] lockStripes = setupLockStripes(64);
+	
+	/**
+	 * @return array of lock stripes, of the given size
+	 **/
+	private static ReentrantLock[] setupLockStripes(int size) {
+		ReentrantLock[] ret = new ReentrantLock[size];
+		for (int i = 0; i < size; ++i) {
+			ret[i] = new ReentrantLock();
+		}
+		return ret;
+	}
+	
+	/**
+	 * @return lock stripe for the given object ID
+	 **/
+	protected ReentrantLock objectLock(String oid) {
+		return lockStripes[(oid.hashCode() & 0x7fffffff) % lockStripes.length];
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Internal functions, used by DataObject to implement
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * [Internal use, to be extended in future implementation]
+	 *
+	 * Removes the complete remote data map, for DataObject.
+	 * This is used to nuke an entire object
+	 *
+	 * @param  Object ID to remove
+	 *
+	 * @return  nothing
+	 **/
+	public void DataObjectRemoteDataMap_remove(String oid) {
+		if (phase == Phase.TARGET_ONLY) {
+			target.DataObjectRemoteDataMap_remove(oid);
+			return;
+		}
+		ReentrantLock lock = objectLock(oid);
+		lock.lock();
+		try {
+			source.DataObjectRemoteDataMap_remove(oid);
+			target.DataObjectRemoteDataMap_remove(oid);
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Gets the complete remote data map, for DataObject.
+	 * Returns null if not exists
+	 **/
+	public Map<String, Object> DataObjectRemoteDataMap_get(String oid) {
+		return readLayer().DataObjectRemoteDataMap_get(oid);
+	}
+	
+	/**
+	 * Updates the actual backend storage of DataObject
+	 * either partially (if supported / used), or completely
+	 **/
+	public void DataObjectRemoteDataMap_update(String oid, Map<String, Object> fullMap,
+		Set<String> keys) {
+		if (phase == Phase.TARGET_ONLY) {
+			target.DataObjectRemoteDataMap_update(oid, fullMap, keys);
+			return;
+		}
+		ReentrantLock lock = objectLock(oid);
+		lock.lock();
+		try {
+			source.DataObjectRemoteDataMap_update(oid, fullMap, keys);
+			target.DataObjectRemoteDataMap_update(oid, fullMap, keys);
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Get and returns all the GUID's, note that due to its
+	 * potential of returning a large data set, production use
+	 * should be avoided.
+	 *
+	 * @return set of keys
+	 **/
+	@Override
+	public Set<String> keySet() {
+		return readLayer().keySet();
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Query based optimization
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Performs a search query, and returns the respective DataObject keys.
+	 *
+	 * This is the GUID key varient of query, this is critical for stack lookup
+	 *
+	 * @param   queryClause, of where query statement and value
+	 * @param   orderByStr string to sort the order by, use null to ignore
+	 * @param   offset of the result to display, use -1 to ignore
+	 * @param   number of objects to return max, use -1 to ignore
+	 *
+	 * @return  The String[] array
+	 **/
+	public String[] query_id(Query queryClause, String orderByStr, int offset, int limit) {
+		return readLayer().query_id(queryClause, orderByStr, offset, limit);
+	}
+	
+	/**
+	 * Performs a search query, and returns the respective DataObjects
+	 *
+	 * @param   where query statement
+	 * @param   where clause values array
+	 *
+	 * @returns  The total count for the query
+	 */
+	@Override
+	public long queryCount(String whereClause, Object[] whereValues) {
+		return readLayer().queryCount(whereClause, whereValues);
+	}
+	
+	/**
+	 * Scans the object and get the various keynames used.
+	 *
+	 * @param  seekDepth, which detirmines the upper limit for iterating
+	 *         objects for the key names, use -1 to search all
+	 *
+	 * @return  The various key names used in the objects
+	 **/
+	@Override
+	public Set<String> getKeyNames(int seekDepth) {
+		return readLayer().getKeyNames(seekDepth);
+	}
+	
+	/**
+	 * Gets and return a random object ID
+	 *
+	 * @return  Random object ID
+	 **/
+	public String randomObjectID() {
+		return readLayer().randomObjectID();
+	}
+	
+	/**
+	 * Gets and return the next object ID key for iteration given the current ID,
+	 * null gets the first object in iteration.
+	 *
+	 * @param   Current object ID, can be NULL
+	 *
+	 * @return  Next object ID, if found
+	 **/
+	public String looselyIterateObjectID(String currentID) {
+		return readLayer().looselyIterateObjectID(currentID);
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Bulk copy support
+	//
+	//--------------------------------------------------------------------------
+	
+	/// Last object ID, where it and all objects before it (in iteration order) was copied
+	protected volatile String checkpoint = null;
+	
+	/// Optional KeyValueMap, used to persist the checkpoint across restarts
+	protected KeyValueMap checkpointStore = null;
+	
+	/// Key used within the checkpointStore
+	protected String checkpointKey = null;
+	
+	/// Total number of objects copied by this instance
+	protected final AtomicLong copiedCount = new AtomicLong();
+	
+	/**
+	 * Persist the copy checkpoint into the given KeyValueMap, and resume from
+	 * any previously stored checkpoint.
+	 *
+	 * @param  store KeyValueMap to use
+	 * @param  key to store the checkpoint under
+	 **/
+	public void setCheckpointStore(KeyValueMap store, String key) {
+		checkpointStore = store;
+		checkpointKey = key;
+		if (store != null) {
+			checkpoint = store.getValue(key);
+		}
+	}
+	
+	/**
+	 * @return the current copy checkpoint, null if the copy has not started
+	 **/
+	public String checkpoint() {
+		return checkpoint;
+	}
+	
+	/**
+	 * @return total number of objects copied by this instance
+	 **/
+	public long copiedCount() {
+		return copiedCount.get();
+	}
+	
+	/**
+	 * Copy a single object from the source to the target,
+	 * removing it from the target if it no longer exist in the source.
+	 *
+	 * The object is fully replaced in the target, so keys which were removed from the source
+	 * are also removed from any existing target object.
+	 *
+	 * @param  oid of object to copy
+	 **/
+	public void copyObject(String oid) {
+		ReentrantLock lock = objectLock(oid);
+		lock.lock();
+		try {
+			Map<String, Object> data = source.DataObjectRemoteDataMap_get(oid);
+			if (data == null) {
+				target.DataObjectRemoteDataMap_remove(oid);
+			} else {
+				Map<String, Map<String, Object>> replaceMap = new HashMap<>();
+				replaceMap.put(oid, data);
+				target.DataObjectRemoteDataMap_replaceAll(replaceMap);
+			}
+		} finally {
+			lock.unlock();
+		}
+		copiedCount.incrementAndGet();
+	}
+	
+	/**
+	 * Bulk copy all objects from the source to target, resuming from the last checkpoint.
+	 * Uses the configured `migrationThreads` (default 4) and `migrationBatchSize` (default 500)
+	 *
+	 * @return number of objects copied
+	 **/
+	public long copyAll() {
+		return copyAll(configMap().getInt("migrationThreads", 4),
+			configMap().getInt("migrationBatchSize", 500));
+	}
+	
+	/**
+	 * Bulk copy all objects from the source to target, resuming from the last checkpoint.
+	 *
+	 * Objects IDs are iterated in stable _oid order in batches, each batch is copied in parallel,
+	 * and the checkpoint is advanced only after the whole batch is copied.
+	 *
+	 * @param  threads to copy with in parallel
+	 * @param  batchSize number of object IDs to iterate per batch
+	 *
+	 * @return number of objects copied
+	 **/
+	public long copyAll(int threads, int batchSize) {
+		threads = Math.max(1, threads);
+		batchSize = Math.max(1, batchSize);
+		
+		long count = 0;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			String cursor = checkpoint;
+			while (true) {
+				// Fetch the next batch of object ID, in _oid order after the cursor
+				// (via keyset pagination, so each batch is a single bounded query)
+				Map<String, Object> after = null;
+				if (cursor != null) {
+					after = new HashMap<String, Object>();
+					after.put("_oid", cursor);
+				}
+				List<String> batch = Arrays.asList(source.query_id_seek(null, null, null, after,
+					batchSize));
+				
+				// End of iteration
+				if (batch.isEmpty()) {
+					break;
+				}
+				cursor = batch.get(batch.size() - 1);
+				
+				// Copy the batch in parallel, and wait for it to complete
+				List<Future<?>> futures = new ArrayList<Future<?>>();
+				for (String oid : batch) {
+					futures.add(executor.submit(() -> copyObject(oid)));
+				}
+				for (Future<?> f : futures) {
+					f.get();
+				}
+				count += batch.size();
+				
+				// Advance the checkpoint
+				updateCheckpoint(cursor);
+				
+				// Partial batch, is the end of iteration
+				if (batch.size() < batchSize) {
+					break;
+				}
+			}
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		} finally {
+			executor.shutdown();
+		}
+		return count;
+	}
+	
+	/**
+	 * Update the checkpoint, and persist it if configured
+	 *
+	 * @param  oid to checkpoint
+	 **/
+	protected void updateCheckpoint(String oid) {
+		checkpoint = oid;
+		if (checkpointStore != null) {
+			checkpointStore.putValue(checkpointKey, oid);
+		}
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Verification support
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Compare a random sample of objects between the source and target.
+	 *
+	 * @param  sampleSize number of random objects to verify
+	 *
+	 * @return list of object ID which mismatched
+	 **/
+	public List<String> verifySample(int sampleSize) {
+		List<String> ret = new ArrayList<String>();
+		Set<String> checked = new HashSet<String>();
+		for (int i = 0; i < sampleSize; ++i) {
+			String oid = source.randomObjectID();
+			if (oid == null) {
+				break;
+			}
+			if (!checked.add(oid)) {
+				continue;
+			}
+			if (!verifyObject(oid)) {
+				ret.add(oid);
+			}
+		}
+		return ret;
+	}
+	
+	/**
+	 * Compare a single object between the source and target
+	 *
+	 * @param  oid of object to compare
+	 *
+	 * @return true if both source and target are equivalent
+	 **/
+	public boolean verifyObject(String oid) {
+		ReentrantLock lock = objectLock(oid);
+		lock.lock();
+		try {
+			return valueEquals(source.DataObjectRemoteDataMap_get(oid),
+				target.DataObjectRemoteDataMap_get(oid));
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Loose value equality, across backends. Numeric values are compared by value,
+	 * as backends may differ in the numeric type returned (ie. Integer vs Long)
+	 *
+	 * @param  a value to compare
+	 * @param  b value to compare
+	 *
+	 * @return true if equivalent
+	 **/
+	protected static boolean valueEquals(Object a, Object b) {
+		if (a == b) {
+			return true;
+		}
+		if (a == null || b == null) {
+			return false;
+		}
+		if (a instanceof Number && b instanceof Number) {
+			return ((Number) a).doubleValue() == ((Number) b).doubleValue();
+		}
+		if (a instanceof byte[] && b instanceof byte[]) {
+			return Arrays.equals((byte[]) a, (byte[]) b);
+		}
+		if (a instanceof Map && b instanceof Map) {
+			Map<?, ?> aMap = (Map<?, ?>) a;
+			Map<?, ?> bMap = (Map<?, ?>) b;
+			if (!aMap.keySet().equals(bMap.keySet())) {
+				return false;
+			}
+			for (Object key : aMap.keySet()) {
+				if (!valueEquals(aMap.get(key), bMap.get(key))) {
+					return false;
+				}
+			}
+			return true;
+		}
+		if (a instanceof List && b instanceof List) {
+			List<?> aList = (List<?>) a;
+			List<?> bList = (List<?>) b;
+			if (aList.size() != bList.size()) {
+				return false;
+			}
+			for (int i = 0; i < aList.size(); ++i) {
+				if (!valueEquals(aList.get(i), bList.get(i))) {
+					return false;
+				}
+			}
+			return true;
+		}
+		return Objects.equals(a, b);
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Copy pasta code, I wished could have worked in an interface
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Removes all data, without tearing down setup
+	 *
+	 * Sadly, due to a how Map interface prevents "default" implementation
+	 * of clear from being valid, this seems to be a needed copy-pasta code
+	 **/
+	public void clear() {
+		for (CommonStructure layer : commonStructureStack()) {
+			layer.clear();
+		}
+	}
+	
+}
@@ -0,0 +1,534 @@
+package picoded.dstack.stack;
+
+// Java imports
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+// Picoded imports
+import picoded.core.struct.query.OrderBy;
+import picoded.core.struct.query.Query;
+import picoded.dstack.*;
+import picoded.dstack.core.*;
+
+/**
+ * Sharded implementation of DataObjectMap, partitioning objects across multiple backends.
+ * (For example, multiple JSql_DataObjectMap across several servers, or table suffixes)
+ *
+ * Each object is stored in exactly one shard, chosen by the hash of its object ID. As such
+ * get / save / remove only touches a single shard, while query_id, queryCount and keySet
+ * are executed on all shards in parallel, with their results merged.
+ *
+ * For ordered queries, each shard returns its first (offset + limit) objects, which are then
+ * merge sorted by the order by clause (with _oid as the tie breaker), before applying
+ * the offset / limit. For unordered queries, shards are paged in sequence using their counts.
+ *
+ * Note that changing the number (or order) of shards, changes the object to shard mapping,
+ * and requires a migration of existing data (see Migration_DataObjectMap).
+ **/
+public class Shard_DataObjectMap extends Core_DataObjectMap implements Stack_CommonStructure {
+	
+	//--------------------------------------------------------------------------
+	//
+	// Constructor vars
+	//
+	//--------------------------------------------------------------------------
+	
+	// Shard backends, the array order is part of the object to shard mapping
+	protected Core_DataObjectMap[] shards = null;
+	
+	// Executor used for the parallel fan out across shards, lazily initialized
+	protected ExecutorService executor = null;
+	
+	/**
+	 * Setup the sharded map with the respective shards
+	 *
+	 * @param  inShards backends to partition the objects across
+	 */
+	public Shard_DataObjectMap(Core_DataObjectMap[] inShards) {
+		if (inShards == null || inShards.length <= 0) {
+			throw new IllegalArgumentException("Missing valid shards configuration");
+		}
+		shards = inShards;
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Interface to ovewrite for `Stack_CommonStructure` implmentation
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * @return  array of the internal common structure stack used by the Stack_ implementation
+	 */
+	public CommonStructure[] commonStructureStack() {
+		return (CommonStructure[]) shards;
+	}
+	
+	/**
+	 * Teardown and delete the backend storage of all shards,
+	 * and shutdown the fan out executor (which is recreated if the map is used again)
+	 **/
+	@Override
+	public void systemDestroy() {
+		try {
+			Stack_CommonStructure.super.systemDestroy();
+		} finally {
+			synchronized (this) {
+				if (executor != null) {
+					executor.shutdown();
+					executor = null;
+				}
+			}
+		}
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Shard handling
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * @return number of shards
+	 **/
+	public int shardCount() {
+		return shards.length;
+	}
+	
+	/**
+	 * @return shard index for the given object ID
+	 **/
+	public int shardIndex(String oid) {
+		return (oid.hashCode() & 0x7fffffff) % shards.length;
+	}
+	
+	/**
+	 * @return shard backend for the given object ID
+	 **/
+	protected Core_DataObjectMap shardOf(String oid) {
+		return shards[shardIndex(oid)];
+	}
+	
+	/**
+	 * @return the fan out executor, initialized if needed
+	 **/
+	protected synchronized ExecutorService executor() {
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(shards.length, (r) -> {
+				Thread t = new Thread(r, "Shard_DataObjectMap");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+		return executor;
+	}
+	
+	/**
+	 * Execute the call on all shards in parallel, and wait for their results
+	 *
+	 * @param  call to execute on each shard
+	 *
+	 * @return list of results, in shard order
+	 **/
+	protected <T> List<T> fanOut(Function<Core_DataObjectMap, T> call) {
+		return fanOutIndexed((idx) -> call.apply(shards[idx]));
+	}
+	
+	/**
+	 * Execute the call for all shard index in parallel, and wait for their results
+	 *
+	 * @param  call to execute with each shard index
+	 *
+	 * @return list of results, in shard order
+	 **/
+	protected <T> List<T> fanOutIndexed(IntFunction<T> call) {
+		// Single shard, skip the executor
+		if (shards.length == 1) {
+			return Collections.singletonList(call.apply(0));
+		}
+		
+		ExecutorService fanOutExecutor = executor();
+		List<Future<T>> futures = new ArrayList<Future<T>>();
+		for (int i = 0; i < shards.length; ++i) {
+			int idx = i;
+			futures.add(fanOutExecutor.submit(() -> call.apply(idx)));
+		}
+		List<T> ret = new ArrayList<T>();
+		try {
+			for (Future<T> f : futures) {
+				ret.add(f.get());
+			}
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+		return ret;
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Internal functions, used by DataObject to implement
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * [Internal use, to be extended in future implementation]
+	 *
+	 * Removes the complete remote data map, for DataObject.
+	 * This is used to nuke an entire object
+	 *
+	 * @param  Object ID to remove
+	 *
+	 * @return  nothing
+	 **/
+	public void DataObjectRemoteDataMap_remove(String oid) {
+		shardOf(oid).DataObjectRemoteDataMap_remove(oid);
+	}
+	
+	/**
+	 * Gets the complete remote data map, for DataObject.
+	 * Returns null if not exists
+	 **/
+	public Map<String, Object> DataObjectRemoteDataMap_get(String oid) {
+		return shardOf(oid).DataObjectRemoteDataMap_get(oid);
+	}
+	
+	/**
+	 * Updates the actual backend storage of DataObject
+	 * either partially (if supported / used), or completely
+	 **/
+	public void DataObjectRemoteDataMap_update(String oid, Map<String, Object> fullMap,
+		Set<String> keys) {
+		shardOf(oid).DataObjectRemoteDataMap_update(oid, fullMap, keys);
+	}
+	
+	/**
+	 * Gets the partial remote data map, for DataObject, of only the requested fields.
+	 * Returns null if not exists
+	 **/
+	@Override
+	public Map<String, Object> DataObjectRemoteDataMap_getFields(String oid, Set<String> fields) {
+		return shardOf(oid).DataObjectRemoteDataMap_getFields(oid, fields);
+	}
+	
+	/**
+	 * Gets the partial remote data map, of multiple DataObject, of only the requested fields.
+	 * The object IDs are grouped by shard, with each shard fetched in parallel.
+	 **/
+	@Override
+	public Map<String, Map<String, Object>> DataObjectRemoteDataMap_getFields(
+		Collection<String> oids, Set<String> fields) {
+		// Group the object IDs by shard
+		List<List<String>> shardOids = new ArrayList<List<String>>();
+		for (int i = 0; i < shards.length; ++i) {
+			shardOids.add(new ArrayList<String>());
+		}
+		for (String oid : oids) {
+			shardOids.get(shardIndex(oid)).add(oid);
+		}
+		
+		// Fetch and merge the results
+		Map<String, Map<String, Object>> ret = new HashMap<String, Map<String, Object>>();
+		for (Map<String, Map<String, Object>> part : fanOutIndexed((idx) -> {
+			List<String> list = shardOids.get(idx);
+			if (list.isEmpty()) {
+				return Collections.<String, Map<String, Object>> emptyMap();
+			}
+			return shards[idx].DataObjectRemoteDataMap_getFields(list, fields);
+		})) {
+			ret.putAll(part);
+		}
+		return ret;
+	}
+	
+	/**
+	 * Get and returns all the GUID's, note that due to its
+	 * potential of returning a large data set, production use
+	 * should be avoided.
+	 *
+	 * @return set of keys
+	 **/
+	@Override
+	public Set<String> keySet() {
+		Set<String> ret = new HashSet<String>();
+		for (Set<String> part : fanOut((shard) -> shard.keySet())) {
+			ret.addAll(part);
+		}
+		return ret;
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Query based optimization
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Performs a search query, and returns the respective DataObject keys.
+	 *
+	 * This is the GUID key varient of query, this is critical for stack lookup
+	 *
+	 * @param   queryClause, of where query statement and value
+	 * @param   orderByStr string to sort the order by, use null to ignore
+	 * @param   offset of the result to display, use -1 to ignore
+	 * @param   number of objects to return max, use -1 to ignore
+	 *
+	 * @return  The String[] array
+	 **/
+	@Override
+	public String[] query_id(Query queryClause, String orderByStr, int offset, int limit) {
+		if (queryClause == null) {
+			return query_id((String) null, null, orderByStr, offset, limit);
+		}
+		return query_id(queryClause.toSqlString(), queryClause.queryArgumentsArray(), orderByStr,
+			offset, limit);
+	}
+	
+	/**
+	 * Performs a search query on all shards in parallel, and returns the merged DataObject keys.
+	 *
+	 * @param   where query statement
+	 * @param   where clause values array
+	 * @param   orderByStr string to sort the order by, use null to ignore
+	 * @param   offset of the result to display, use -1 to ignore
+	 * @param   number of objects to return max, use -1 to ignore
+	 *
+	 * @return  The String[] array
+	 **/
+	@Override
+	public String[] query_id(String whereClause, Object[] whereValues, String orderByStr,
+		int offset, int limit) {
+		if (orderByStr == null || (orderByStr = orderByStr.trim()).length() <= 0) {
+			return unorderedQuery_id(whereClause, whereValues, offset, limit);
+		}
+		
+		// Each shard returns its own first (offset + limit) objects, in order
+		// with the same _oid tie breaker as the merge, so ties at the cutoff are consistent
+		int fetchLimit = (limit >= 1) ? (int) Math.min(Integer.MAX_VALUE, (long) Math.max(offset,
+			0) + limit) : -1;
+		String shardOrderBy = orderByStr + " , _oid";
+		List<DataObject[]> parts = fanOut((shard) -> shard.query(whereClause, whereValues,
+			shardOrderBy, 0, fetchLimit));
+			
+		// Merge sort the shard results, with _oid as the tie breaker
+		List<DataObject> merged = mergeSorted(parts, new OrderBy<DataObject>(shardOrderBy),
+			offset, limit);
+		String[] ret = new String[merged.size()];
+		for (int i = 0; i < ret.length; ++i) {
+			ret[i] = merged.get(i)._oid();
+		}
+		return ret;
+	}
+	
+	/**
+	 * Unordered query across all shards. Where the results are in shard order, allowing the
+	 * offset / limit to be applied using the count of each shard, without over-fetching.
+	 *
+	 * @param   where query statement
+	 * @param   where clause values array
+	 * @param   offset of the result to display, use -1 to ignore
+	 * @param   number of objects to return max, use -1 to ignore
+	 *
+	 * @return  The String[] array
+	 **/
+	protected String[] unorderedQuery_id(String whereClause, Object[] whereValues, int offset,
+		int limit) {
+		List<String> ret = new ArrayList<String>();
+		
+		// No paging, simply concatenate all shard results
+		if (offset <= 0 && limit <= 0) {
+			for (String[] part : fanOut((shard) -> shard.query_id(whereClause, whereValues, null,
+				-1, -1))) {
+				ret.addAll(Arrays.asList(part));
+			}
+			return ret.toArray(new String[0]);
+		}
+		
+		// Page through the shards in sequence, skipping shards within the offset
+		List<Long> counts = fanOut((shard) -> shard.queryCount(whereClause, whereValues));
+		long skip = Math.max(offset, 0);
+		for (int i = 0; i < shards.length; ++i) {
+			long count = counts.get(i);
+			if (skip >= count) {
+				skip -= count;
+				continue;
+			}
+			
+			int remaining = (limit >= 1) ? limit - ret.size() : -1;
+			ret.addAll(Arrays.asList(shards[i].query_id(whereClause, whereValues, null, (int) skip,
+				remaining)));
+			skip = 0;
+			
+			// Page is filled
+			if (limit >= 1 && ret.size() >= limit) {
+				break;
+			}
+		}
+		return ret.toArray(new String[0]);
+	}
+	
+	/**
+	 * Merge the ordered shard results, and apply the offset / limit.
+	 *
+	 * @param   parts of the shard results, each is sorted with the sorter before merging
+	 * @param   sorter to order the objects with
+	 * @param   offset of the result to display, use -1 to ignore
+	 * @param   number of objects to return max, use -1 to ignore
+	 *
+	 * @return  The merged DataObject list
+	 **/
+	protected static List<DataObject> mergeSorted(List<DataObject[]> parts,
+		Comparator<DataObject> sorter, int offset, int limit) {
+		// Shards may order ties differently, ensure each part matches the merge order
+		for (DataObject[] part : parts) {
+			Arrays.sort(part, sorter);
+		}
+		
+		// Heap of [part index, position], ordered by the object at the position
+		PriorityQueue<int[]> heap = new PriorityQueue<int[]>(Math.max(parts.size(), 1), (a,
+			b) -> sorter.compare(parts.get(a[0])[a[1]], parts.get(b[0])[b[1]]));
+		for (int p = 0; p < parts.size(); ++p) {
+			if (parts.get(p).length > 0) {
+				heap.add(new int[] { p, 0 });
+			}
+		}
+		
+		List<DataObject> ret = new ArrayList<DataObject>();
+		int skip = Math.max(offset, 0);
+		while (!heap.isEmpty() && (limit < 1 || ret.size() < limit)) {
+			int[] head = heap.poll();
+			DataObject[] part = parts.get(head[0]);
+			if (skip > 0) {
+				--skip;
+			} else {
+				ret.add(part[head[1]]);
+			}
+			if (++head[1] < part.length) {
+				heap.add(head);
+			}
+		}
+		return ret;
+	}
+	
+	/**
+	 * Performs a search query, and returns the total count across all shards
+	 *
+	 * @param   where query statement
+	 * @param   where clause values array
+	 *
+	 * @returns  The total count for the query
+	 */
+	@Override
+	public long queryCount(String whereClause, Object[] whereValues) {
+		long ret = 0;
+		for (Long count : fanOut((shard) -> shard.queryCount(whereClause, whereValues))) {
+			ret += count;
+		}
+		return ret;
+	}
+	
+	/**
+	 * Scans the object and get the various keynames used.
+	 *
+	 * @param  seekDepth, which detirmines the upper limit for iterating
+	 *         objects for the key names, use -1 to search all
+	 *
+	 * @return  The various key names used in the objects
+	 **/
+	@Override
+	public Set<String> getKeyNames(int seekDepth) {
+		Set<String> ret = new HashSet<String>();
+		for (Set<String> part : fanOut((shard) -> shard.getKeyNames(seekDepth))) {
+			ret.addAll(part);
+		}
+		return ret;
+	}
+	
+	/**
+	 * Gets and return a random object ID, from a random shard
+	 * (falling back to the other shards, if it is empty)
+	 *
+	 * @return  Random object ID
+	 **/
+	public String randomObjectID() {
+		int start = ThreadLocalRandom.current().nextInt(shards.length);
+		for (int i = 0; i < shards.length; ++i) {
+			String ret = shards[(start + i) % shards.length].randomObjectID();
+			if (ret != null) {
+				return ret;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Gets and return the next object ID key for iteration given the current ID,
+	 * null gets the first object in iteration.
+	 *
+	 * Iterates each shard in sequence, moving on to the next shard when one is exhausted.
+	 *
+	 * @param   Current object ID, can be NULL
+	 *
+	 * @return  Next object ID, if found
+	 **/
+	public String looselyIterateObjectID(String currentID) {
+		int next = 0;
+		if (currentID != null) {
+			int idx = shardIndex(currentID);
+			String ret = shards[idx].looselyIterateObjectID(currentID);
+			if (ret != null) {
+				return ret;
+			}
+			next = idx + 1;
+		}
+		
+		// First object of the next non empty shard
+		for (; next < shards.length; ++next) {
+			String ret = shards[next].looselyIterateObjectID(null);
+			if (ret != null) {
+				return ret;
+			}
+		}
+		return null;
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Copy pasta code, I wished could have worked in an interface
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Removes all data, without tearing down setup
+	 *
+	 * Sadly, due to a how Map interface prevents "default" implementation
+	 * of clear from being valid, this seems to be a needed copy-pasta code
+	 **/
+	public void clear() {
+		for (CommonStructure layer : commonStructureStack()) {
+			layer.clear();
+		}
+	}
+	
+}
@@ -5,18 +5,36 @@ import picoded.dstack.core.Core_FileWorkspaceMap;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.commons.io.IOUtils;
 
 /**
- * Stacked implementation of KeyValueMap data structure.
+ * Stacked implementation of FileWorkspaceMap data structure.
  *
- * Built ontop of the Core_KeyLongMap implementation.
+ * Built ontop of the Core_FileWorkspaceMap implementation.
+ *
+ * Reads which miss the upper layers are served from the first lower layer holding the file,
+ * with the upper layers populated ("backfilled") in the background. Relevant configMap options
+ *
+ * - backfillAsync : (default true) backfill upper layers in the background, instead of inline
+ * - backfillMaxSize : (default 8MB) files larger then this are not buffered for backfill
+ * - backfillDeferLarge : (default false) files above backfillMaxSize are backfilled by
+ *   re-streaming them from the source layer in the background, instead of being skipped
  **/
 public class Stack_FileWorkspaceMap extends Core_FileWorkspaceMap implements Stack_CommonStructure {
 	
@@ -62,6 +80,354 @@ public class Stack_FileWorkspaceMap extends Core_FileWorkspaceMap implements Sta
 		this(inDataLayers, null);
 	}
 	
+	//--------------------------------------------------------------------------
+	//
+	// Upper layer backfill support
+	//
+	//--------------------------------------------------------------------------
+	
+	/// Default maximum file size (in bytes) to buffer for upper layer backfill
+	public static final int DEFAULT_BACKFILL_MAX_SIZE = 8 * 1024 * 1024;
+	
+	/// Shared executor used for background backfill, these are best effort operations
+	/// and are discarded silently if the executor falls too far behind
+	protected static final ThreadPoolExecutor backfillExecutor = setupBackfillExecutor();
+	
+	/**
+	 * @return bounded daemon thread pool used for backfill
+	 **/
+	private static ThreadPoolExecutor setupBackfillExecutor() {
+		int threads = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+		ThreadPoolExecutor ret = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+			new ArrayBlockingQueue<Runnable>(1024), (r) -> {
+				Thread t = new Thread(r, "Stack_FileWorkspaceMap-backfill");
+				t.setDaemon(true);
+				return t;
+			}, new ThreadPoolExecutor.DiscardPolicy());
+		ret.allowCoreThreadTimeOut(true);
+		return ret;
+	}
+	
+	/// Number of lock / write generation stripes, which (oid, path) and oid keys are hashed into
+	public static final int WRITE_STRIPES = 256;
+	
+	/// Write generation per stripe, incremented after every mutation made through this stack.
+	/// A backfill is skipped if a write to the same file (or its workspace) completed after
+	/// its source read begun, to avoid resurrecting stale / removed file data in upper layers.
+	protected final AtomicLongArray writeGeneration = new AtomicLongArray(WRITE_STRIPES);
+	
+	/// Lock per stripe, held across each mutation, and across the backfill generation check
+	/// and upper layer write. So a stale backfill cannot overwrite a write which completed
+	/// after the check.
+	protected final ReentrantLock[] writeLocks = setupWriteLocks();
+	
+	/**
+	 * @return the lock array for each stripe
+	 **/
+	private static ReentrantLock[] setupWriteLocks() {
+		ReentrantLock[] ret = new ReentrantLock[WRITE_STRIPES];
+		for (int i = 0; i < WRITE_STRIPES; ++i) {
+			ret[i] = new ReentrantLock();
+		}
+		return ret;
+	}
+	
+	/**
+	 * @param  ObjectID of workspace
+	 *
+	 * @return the stripe used for workspace wide (folder / workspace) mutations
+	 **/
+	protected int workspaceStripe(String oid) {
+		return (String.valueOf(oid).hashCode() & 0x7fffffff) % WRITE_STRIPES;
+	}
+	
+	/**
+	 * @param  ObjectID of workspace
+	 * @param  filepath in the workspace
+	 *
+	 * @return the stripe used for single file mutations
+	 **/
+	protected int fileStripe(String oid, String filepath) {
+		return ((oid + "/" + filepath).hashCode() & 0x7fffffff) % WRITE_STRIPES;
+	}
+	
+	/**
+	 * Lock the given stripes, in ascending order to avoid deadlocks
+	 *
+	 * @param  stripes to lock, duplicates are ignored
+	 *
+	 * @return the sorted and locked stripes, to be passed to `unlockStripes`
+	 **/
+	protected int[] lockStripes(int... stripes) {
+		int[] ret = Arrays.stream(stripes).distinct().sorted().toArray();
+		for (int stripe : ret) {
+			writeLocks[stripe].lock();
+		}
+		return ret;
+	}
+	
+	/**
+	 * Unlock the given stripes, optionally incrementing their write generation before doing so
+	 *
+	 * @param  stripes returned from `lockStripes`
+	 * @param  increment the write generation of each stripe
+	 **/
+	protected void unlockStripes(int[] stripes, boolean increment) {
+		for (int i = stripes.length - 1; i >= 0; --i) {
+			if (increment) {
+				writeGeneration.incrementAndGet(stripes[i]);
+			}
+			writeLocks[stripes[i]].unlock();
+		}
+	}
+	
+	/**
+	 * @return all the stripes, for mutations across the whole structure
+	 **/
+	protected int[] allStripes() {
+		int[] ret = new int[WRITE_STRIPES];
+		for (int i = 0; i < WRITE_STRIPES; ++i) {
+			ret[i] = i;
+		}
+		return ret;
+	}
+	
+	/**
+	 * @param  ObjectID of workspace
+	 * @param  filepath in the workspace
+	 *
+	 * @return the write generation of the file (combined with its workspace)
+	 **/
+	protected long writeGeneration(String oid, String filepath) {
+		return writeGeneration.get(workspaceStripe(oid))
+			+ writeGeneration.get(fileStripe(oid, filepath));
+	}
+	
+	/**
+	 * Run the given upper layer backfill write, only if the file write generation is unchanged.
+	 * The check and write is done while holding the file, and workspace locks.
+	 *
+	 * @param  ObjectID of workspace
+	 * @param  filepath in the workspace
+	 * @param  generation of the file, taken before the source read
+	 * @param  write to run
+	 *
+	 * @return true, if the write was applied
+	 **/
+	protected boolean conditionalBackfill(String oid, String filepath, long generation,
+		Runnable write) {
+		int[] stripes = lockStripes(workspaceStripe(oid), fileStripe(oid, filepath));
+		try {
+			if (writeGeneration(oid, filepath) != generation) {
+				return false;
+			}
+			write.run();
+			return true;
+		} finally {
+			unlockStripes(stripes, false);
+		}
+	}
+	
+	/**
+	 * @return the configured maximum file size to buffer for backfill
+	 **/
+	protected int backfillMaxSize() {
+		return configMap().getInt("backfillMaxSize", DEFAULT_BACKFILL_MAX_SIZE);
+	}
+	
+	/**
+	 * Write the given file data into the layers above the source layer
+	 *
+	 * @param  ObjectID of workspace
+	 * @param  filepath to use for the workspace
+	 * @param  sourceLayer index of the layer the data was read from
+	 * @param  data to write into the upper layers
+	 * @param  generation of the file, taken before the source read
+	 **/
+	protected void backfillUpperLayers(final String oid, final String filepath,
+		final int sourceLayer, final byte[] data, final long generation) {
+		// Nothing to backfill
+		if (sourceLayer <= 0) {
+			return;
+		}
+		
+		// Write the upper layers, while no newer write has occurred
+		Runnable backfill = () -> {
+			conditionalBackfill(oid, filepath, generation, () -> {
+				for (int i = sourceLayer - 1; i >= 0; --i) {
+					dataLayers[i].backend_fileWrite(oid, filepath, data);
+				}
+			});
+		};
+		
+		// Legacy synchronous behaviour
+		if (!configMap().getBoolean("backfillAsync", true)) {
+			backfill.run();
+			return;
+		}
+		
+		// Background backfill
+		backfillExecutor.execute(backfill);
+	}
+	
+	/**
+	 * Backfill the layers above the source layer, by re-streaming the file from the source layer.
+	 * Used for files which are too large to be buffered in memory.
+	 *
+	 * The source stream is copied into a temporary file first, so that the write locks are only
+	 * held for the generation check, and the upper layer writes.
+	 *
+	 * @param  ObjectID of workspace
+	 * @param  filepath to use for the workspace
+	 * @param  sourceLayer index of the layer the data was read from
+	 * @param  generation of the file, taken before the source read
+	 **/
+	protected void deferredStreamBackfill(final String oid, final String filepath,
+		final int sourceLayer, final long generation) {
+		backfillExecutor.execute(() -> {
+			// Skip the copy, if the file was already changed
+			if (writeGeneration(oid, filepath) != generation) {
+				return;
+			}
+			
+			File tempFile = null;
+			try {
+				// Copy the source stream, outside of the write locks
+				tempFile = File.createTempFile("stack-backfill-", ".tmp");
+				try (InputStream in = dataLayers[sourceLayer].backend_fileReadInputStream(oid,
+					filepath)) {
+					if (in == null) {
+						return;
+					}
+					Files.copy(in, tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				}
+				
+				// Write the upper layers, while no newer write has occurred
+				final File sourceFile = tempFile;
+				conditionalBackfill(oid, filepath, generation, () -> {
+					for (int i = sourceLayer - 1; i >= 0; --i) {
+						try (InputStream in = Files.newInputStream(sourceFile.toPath())) {
+							dataLayers[i].backend_fileWriteInputStream(oid, filepath, in);
+						} catch (IOException e) {
+							throw new RuntimeException(e);
+						}
+					}
+				});
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			} finally {
+				if (tempFile != null) {
+					tempFile.delete();
+				}
+			}
+		});
+	}
+	
+	/**
+	 * InputStream wrapper, which passes the source layer stream through to the caller,
+	 * while buffering a copy of the data (up to backfillMaxSize) for the upper layers.
+	 *
+	 * The backfill is only triggered once the stream has been fully read,
+	 * partially consumed streams are not backfilled.
+	 **/
+	protected class BackfillInputStream extends FilterInputStream {
+		
+		protected final String oid;
+		protected final String filepath;
+		protected final int sourceLayer;
+		protected final long generation;
+		protected final int maxSize;
+		
+		/// Buffered copy of the data read so far, null once maxSize is exceeded
+		protected ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		
+		/// Indicates the backfill was already triggered (or skipped)
+		protected boolean completed = false;
+		
+		protected BackfillInputStream(InputStream in, String oid, String filepath, int sourceLayer,
+			long generation) {
+			super(in);
+			this.oid = oid;
+			this.filepath = filepath;
+			this.sourceLayer = sourceLayer;
+			this.generation = generation;
+			this.maxSize = backfillMaxSize();
+		}
+		
+		/// Checks the buffer has space for the given length, dropping it once maxSize is exceeded
+		protected boolean hasCapacity(int len) {
+			if (buffer != null && buffer.size() + len > maxSize) {
+				buffer = null;
+			}
+			return buffer != null;
+		}
+		
+		/// Copy the read bytes into the buffer
+		protected void track(byte[] b, int off, int len) {
+			if (len > 0 && hasCapacity(len)) {
+				buffer.write(b, off, len);
+			}
+		}
+		
+		/// Triggers the respective backfill, once EOF is reached
+		protected void complete() {
+			if (completed) {
+				return;
+			}
+			completed = true;
+			if (buffer != null) {
+				backfillUpperLayers(oid, filepath, sourceLayer, buffer.toByteArray(), generation);
+				buffer = null;
+			} else if (configMap().getBoolean("backfillDeferLarge", false)) {
+				deferredStreamBackfill(oid, filepath, sourceLayer, generation);
+			}
+		}
+		
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b < 0) {
+				complete();
+			} else if (hasCapacity(1)) {
+				buffer.write(b);
+			}
+			return b;
+		}
+		
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int count = super.read(b, off, len);
+			if (count < 0) {
+				complete();
+			} else {
+				track(b, off, count);
+			}
+			return count;
+		}
+		
+		@Override
+		public long skip(long n) throws IOException {
+			// Skipped bytes cannot be buffered, the backfill is abandoned
+			buffer = null;
+			completed = true;
+			return super.skip(n);
+		}
+		
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+		
+		@Override
+		public void close() throws IOException {
+			// Abandon the backfill of partially read streams
+			completed = true;
+			buffer = null;
+			super.close();
+		}
+	}
+	
+	
 	//--------------------------------------------------------------------------
 	//
 	// Interface to ovewrite for `Stack_CommonStructure` implmentation
@@ -94,9 +460,14 @@ public class Stack_FileWorkspaceMap extends Core_FileWorkspaceMap implements Sta
 	 **/
 	@Override
 	public void backend_workspaceRemove(String oid) {
-		// Remove layer by layer starting from the lowest layer
-		for (int i = dataLayers.length - 1; i >= 0; --i) {
-			dataLayers[i].backend_workspaceRemove(oid);
+		int[] stripes = lockStripes(workspaceStripe(oid));
+		try {
+			// Remove layer by layer starting from the lowest layer
+			for (int i = dataLayers.length - 1; i >= 0; --i) {
+				dataLayers[i].backend_workspaceRemove(oid);
+			}
+		} finally {
+			unlockStripes(stripes, true);
 		}
 	}
 	
@@ -149,6 +520,9 @@ public class Stack_FileWorkspaceMap extends Core_FileWorkspaceMap implements Sta
 	 **/
 	@Override
 	public byte[] backend_fileRead(String oid, String filepath) {
+		// Generation snapshot, taken before any layer is read
+		long generation = writeGeneration(oid, filepath);
+		
 		// Retrieve from higher level to the source of truth
 		for (int i = 0; i < dataLayers.length; ++i) {
 			// Retrieve the data of the file
@@ -156,10 +530,9 @@ public class Stack_FileWorkspaceMap extends Core_FileWorkspaceMap implements Sta
 			
 			// Write back to the upper levels if data is found
 			// return the data
+			// (with a copy for the backfill, as the caller may modify the returned array)
 			if (data != null) {
-				for (i = i - 1; i >= 0; --i) {
-					dataLayers[i].backend_fileWrite(oid, filepath, data);
-				}
+				backfillUpperLayers(oid, filepath, i, (i > 0) ? data.clone() : data, generation);
 				return data;
 			}
 		}
@@ -177,9 +550,14 @@ public class Stack_FileWorkspaceMap extends Core_FileWorkspaceMap implements Sta
 	 **/
 	@Override
 	public void backend_fileWrite(String oid, String filepath, byte[] data) {
-		// Write the data starting from the lowest layer
-		for (int i = dataLayers.length - 1; i >= 0; --i) {
-			dataLayers[i].backend_fileWrite(oid, filepath, data);
+		int[] stripes = lockStripes(fileStripe(oid, filepath));
+		try {
+			// Write the data starting from the lowest layer
+			for (int i = dataLayers.length - 1; i >= 0; --i) {
+				dataLayers[i].backend_fileWrite(oid, filepath, data);
+			}
+		} finally {
+			unlockStripes(stripes, true);
 		}
 	}
 	
@@ -203,13 +581,56 @@ public class Stack_FileWorkspaceMap extends Core_FileWorkspaceMap implements Sta
 			return dataLayers[0].backend_fileReadInputStream(oid, filepath);
 		}
 		
-		// Fallback behaviour, polyfill the byte[] implementation
+		// Legacy synchronous backfill, polyfill the byte[] implementation
+		//------------------------------------------------------------
+		if (!configMap().getBoolean("backfillAsync", true)) {
+			byte[] rawBytes = backend_fileRead(oid, filepath);
+			if (rawBytes == null) {
+				return null;
+			}
+			return new ByteArrayInputStream(rawBytes);
+		}
+		
+		// Streaming pass-through, from the first layer holding the file
 		//------------------------------------------------------------
-		byte[] rawBytes = backend_fileRead(oid, filepath);
-		if (rawBytes == null) {
-			return null;
+		long generation = writeGeneration(oid, filepath);
+		for (int i = 0; i < dataLayers.length; ++i) {
+			InputStream stream = dataLayers[i].backend_fileReadInputStream(oid, filepath);
+			if (stream == null) {
+				continue;
+			}
+			// Top layer hit, nothing to backfill
+			if (i == 0) {
+				return stream;
+			}
+			// Tee the stream to the caller, and backfill the upper layers on completion
+			return new BackfillInputStream(stream, oid, filepath, i, generation);
 		}
-		return new ByteArrayInputStream(rawBytes);
+		
+		// No data exist
+		return null;
+	}
+	
+	/**
+	 * Read a byte range of the file, from the first layer holding the file.
+	 * Partial reads are not backfilled into the upper layers.
+	 *
+	 * @param  ObjectID of workspace
+	 * @param  filepath to use for the workspace
+	 * @param  offset to start reading from
+	 * @param  length of bytes to read
+	 *
+	 * @return  the requested byte range, null if the file does not exist
+	 **/
+	@Override
+	public byte[] backend_fileReadByteRange(final String oid, final String filepath,
+		final long offset, final int length) {
+		for (int i = 0; i < dataLayers.length; ++i) {
+			if (dataLayers[i].backend_fileExist(oid, filepath)) {
+				return dataLayers[i].backend_fileReadByteRange(oid, filepath, offset, length);
+			}
+		}
+		return null;
 	}
 	
 	/**
@@ -230,7 +651,12 @@ public class Stack_FileWorkspaceMap extends Core_FileWorkspaceMap implements Sta
 		// Else we will revert to byte[] that can be applied multiple times across the stack
 		//
 		if (dataLayers.length == 1) {
-			dataLayers[0].backend_fileWriteInputStream(oid, filepath, data);
+			int[] stripes = lockStripes(fileStripe(oid, filepath));
+			try {
+				dataLayers[0].backend_fileWriteInputStream(oid, filepath, data);
+			} finally {
+				unlockStripes(stripes, true);
+			}
 			return;
 		}
 		
@@ -293,9 +719,14 @@ public class Stack_FileWorkspaceMap extends Core_FileWorkspaceMap implements Sta
 	 */
 	@Override
 	public void backend_removeFile(String oid, String filepath) {
-		// Remove the file starting from the lowest layer
-		for (int i = dataLayers.length - 1; i >= 0; --i) {
-			dataLayers[i].backend_removeFile(oid, filepath);
+		int[] stripes = lockStripes(fileStripe(oid, filepath));
+		try {
+			// Remove the file starting from the lowest layer
+			for (int i = dataLayers.length - 1; i >= 0; --i) {
+				dataLayers[i].backend_removeFile(oid, filepath);
+			}
+		} finally {
+			unlockStripes(stripes, true);
 		}
 	}
 	
@@ -317,8 +748,13 @@ public class Stack_FileWorkspaceMap extends Core_FileWorkspaceMap implements Sta
 	 * @return  the stored byte array of the file
 	 **/
 	public void backend_removeFolderPath(final String oid, final String folderPath) {
-		for (int i = dataLayers.length - 1; i >= 0; --i) {
-			dataLayers[i].backend_removeFolderPath(oid, folderPath);
+		int[] stripes = lockStripes(workspaceStripe(oid));
+		try {
+			for (int i = dataLayers.length - 1; i >= 0; --i) {
+				dataLayers[i].backend_removeFolderPath(oid, folderPath);
+			}
+		} finally {
+			unlockStripes(stripes, true);
 		}
 	}
 	
@@ -435,8 +871,13 @@ public class Stack_FileWorkspaceMap extends Core_FileWorkspaceMap implements Sta
 	 */
 	public void backend_moveFile(final String oid, final String sourceFile,
 		final String destinationFile) {
-		for (int i = dataLayers.length - 1; i >= 0; --i) {
-			dataLayers[i].backend_moveFile(oid, sourceFile, destinationFile);
+		int[] stripes = lockStripes(fileStripe(oid, sourceFile), fileStripe(oid, destinationFile));
+		try {
+			for (int i = dataLayers.length - 1; i >= 0; --i) {
+				dataLayers[i].backend_moveFile(oid, sourceFile, destinationFile);
+			}
+		} finally {
+			unlockStripes(stripes, true);
 		}
 	}
 	
@@ -462,8 +903,13 @@ public class Stack_FileWorkspaceMap extends Core_FileWorkspaceMap implements Sta
 	 */
 	public void backend_moveFolderPath(final String oid, final String sourceFolder,
 		final String destinationFolder) {
-		for (int i = dataLayers.length - 1; i >= 0; --i) {
-			dataLayers[i].backend_moveFolderPath(oid, sourceFolder, destinationFolder);
+		int[] stripes = lockStripes(workspaceStripe(oid));
+		try {
+			for (int i = dataLayers.length - 1; i >= 0; --i) {
+				dataLayers[i].backend_moveFolderPath(oid, sourceFolder, destinationFolder);
+			}
+		} finally {
+			unlockStripes(stripes, true);
 		}
 	}
 	
@@ -493,8 +939,13 @@ public class Stack_FileWorkspaceMap extends Core_FileWorkspaceMap implements Sta
 	 */
 	public void backend_copyFile(final String oid, final String sourceFile,
 		final String destinationFile) {
-		for (int i = dataLayers.length - 1; i >= 0; --i) {
-			dataLayers[i].backend_copyFile(oid, sourceFile, destinationFile);
+		int[] stripes = lockStripes(fileStripe(oid, destinationFile));
+		try {
+			for (int i = dataLayers.length - 1; i >= 0; --i) {
+				dataLayers[i].backend_copyFile(oid, sourceFile, destinationFile);
+			}
+		} finally {
+			unlockStripes(stripes, true);
 		}
 	}
 	
@@ -520,8 +971,13 @@ public class Stack_FileWorkspaceMap extends Core_FileWorkspaceMap implements Sta
 	 */
 	public void backend_copyFolderPath(final String oid, final String sourceFolder,
 		final String destinationFolder) {
-		for (int i = dataLayers.length - 1; i >= 0; --i) {
-			dataLayers[i].backend_copyFolderPath(oid, sourceFolder, destinationFolder);
+		int[] stripes = lockStripes(workspaceStripe(oid));
+		try {
+			for (int i = dataLayers.length - 1; i >= 0; --i) {
+				dataLayers[i].backend_copyFolderPath(oid, sourceFolder, destinationFolder);
+			}
+		} finally {
+			unlockStripes(stripes, true);
 		}
 	}
 	
@@ -647,8 +1103,13 @@ public class Stack_FileWorkspaceMap extends Core_FileWorkspaceMap implements Sta
 	 * of clear from being valid, this seems to be a needed copy-pasta code
 	 **/
 	public void clear() {
-		for (CommonStructure layer : commonStructureStack()) {
-			layer.clear();
+		int[] stripes = lockStripes(allStripes());
+		try {
+			for (CommonStructure layer : commonStructureStack()) {
+				layer.clear();
+			}
+		} finally {
+			unlockStripes(stripes, true);
 		}
 	}
 }
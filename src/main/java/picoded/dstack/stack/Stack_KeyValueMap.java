@@ -1,6 +1,11 @@
 package picoded.dstack.stack;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -143,6 +148,83 @@ public class Stack_KeyValueMap extends Core_KeyValueMap implements Stack_CommonS
 		}
 	}
 	
+	//--------------------------------------------------------------------------
+	//
+	// Bulk operations (stack aware)
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Returns the values and expiry of multiple keys, from the highest data layer
+	 * where they are found, with only the missing keys looked up in the lower layers.
+	 *
+	 * Values found in a lower layer are written back to the higher layers,
+	 * grouped by their expiry.
+	 *
+	 * @param keys to lookup values
+	 * @param now timestamp, 0 = no timestamp so skip timestamp checks
+	 *
+	 * @return map of key to its value and expiry pair, excluding missing (or expired) keys
+	 **/
+	@Override
+	public Map<String, MutablePair<String, Long>> getValuesExpiryRaw(Collection<String> keys,
+		long now) {
+		Map<String, MutablePair<String, Long>> ret = new HashMap<>();
+		List<String> missingKeys = new ArrayList<String>(new HashSet<String>(keys));
+		for (int i = 0; i < dataLayers.length && !missingKeys.isEmpty(); ++i) {
+			Map<String, MutablePair<String, Long>> found = dataLayers[i].getValuesExpiryRaw(
+				missingKeys, now);
+			if (found.isEmpty()) {
+				continue;
+			}
+			
+			// Write back to the higher layers, grouped by the expiry
+			if (i > 0) {
+				Map<Long, Map<String, String>> expiryGroups = new HashMap<>();
+				for (Map.Entry<String, MutablePair<String, Long>> entry : found.entrySet()) {
+					expiryGroups.computeIfAbsent(entry.getValue().getRight(), (k) -> new HashMap<>())
+						.put(entry.getKey(), entry.getValue().getLeft());
+				}
+				for (int u = i - 1; u >= 0; --u) {
+					for (Map.Entry<Long, Map<String, String>> group : expiryGroups.entrySet()) {
+						dataLayers[u].setValuesRaw(group.getValue(), group.getKey());
+					}
+				}
+			}
+			
+			ret.putAll(found);
+			missingKeys.removeAll(found.keySet());
+		}
+		return ret;
+	}
+	
+	/**
+	 * Sets multiple values, with the same expiry, from the lowest layer upwards
+	 *
+	 * @param values map of key values to store, without null values
+	 * @param expire TIMESTAMP, 0 (or less) means no expiry
+	 **/
+	@Override
+	public void setValuesRaw(Map<String, String> values, long expire) {
+		// Write data from the lowest layer upwards
+		for (int i = dataLayers.length - 1; i >= 0; --i) {
+			dataLayers[i].setValuesRaw(values, expire);
+		}
+	}
+	
+	/**
+	 * Removes the values of multiple keys, from the lowest layer upwards
+	 *
+	 * @param keys where the values are stored
+	 **/
+	@Override
+	public void removeValues(Collection<String> keys) {
+		// Write data from the lowest layer upwards
+		for (int i = dataLayers.length - 1; i >= 0; --i) {
+			dataLayers[i].removeValues(keys);
+		}
+	}
+	
 	//--------------------------------------------------------------------------
 	//
 	// KeySet support implementation
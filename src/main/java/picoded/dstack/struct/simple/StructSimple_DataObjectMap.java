@@ -1,7 +1,10 @@
 package picoded.dstack.struct.simple;
 
 // Java imports
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -10,6 +13,8 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 // Picoded imports
 import picoded.core.conv.ConvertJSON;
 import picoded.core.common.ObjectToken;
+import picoded.core.struct.query.Query;
+import picoded.core.struct.query.QueryType;
 import picoded.dstack.*;
 import picoded.dstack.core.*;
 
@@ -18,6 +23,9 @@ import picoded.dstack.core.*;
  * This is done via a minimal implementation via internal data structures.
  *
  * Built ontop of the Core_DataObjectMap_struct implementation.
+ *
+ * Supports in-memory secondary indexes, configured via the configMap "index" (sorted)
+ * and "hashIndex" (hash) field name arrays, which are used by the query planner.
  **/
 public class StructSimple_DataObjectMap extends Core_DataObjectMap_struct {
 	
@@ -74,6 +82,11 @@ public class StructSimple_DataObjectMap extends Core_DataObjectMap_struct {
 		try {
 			accessLock.writeLock().lock();
 			super.clear();
+			if (indexMap != null) {
+				for (StructSimple_DataObjectMapIndex idx : indexMap.values()) {
+					idx.clear();
+				}
+			}
 		} finally {
 			accessLock.writeLock().unlock();
 		}
@@ -96,9 +109,12 @@ public class StructSimple_DataObjectMap extends Core_DataObjectMap_struct {
 	 * @return  nothing
 	 **/
 	public void DataObjectRemoteDataMap_remove(String oid) {
+		Map<String, StructSimple_DataObjectMapIndex> indexes = indexMap();
 		try {
 			accessLock.writeLock().lock();
+			Object[] oldValues = indexedValues(oid, indexes);
 			super.DataObjectRemoteDataMap_remove(oid);
+			updateIndexes(oid, indexes, oldValues);
 		} finally {
 			accessLock.writeLock().unlock();
 		}
@@ -126,14 +142,354 @@ public class StructSimple_DataObjectMap extends Core_DataObjectMap_struct {
 	 **/
 	public void DataObjectRemoteDataMap_update(String oid, Map<String, Object> fullMap,
 		Set<String> keys) {
+		Map<String, StructSimple_DataObjectMapIndex> indexes = indexMap();
 		try {
 			accessLock.writeLock().lock();
+			Object[] oldValues = indexedValues(oid, indexes);
 			super.DataObjectRemoteDataMap_update(oid, fullMap, keys);
+			updateIndexes(oid, indexes, oldValues);
 		} finally {
 			accessLock.writeLock().unlock();
 		}
 	}
 	
+	//--------------------------------------------------------------------------
+	//
+	// Secondary index support
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Secondary indexes, by field name. Lazily built from the configMap on first use
+	 *
+	 * - index : array of field names, to setup sorted (skip list) indexes
+	 * - hashIndex : array of field names, to setup hash indexes
+	 **/
+	protected volatile Map<String, StructSimple_DataObjectMapIndex> indexMap = null;
+	
+	/**
+	 * @return the secondary indexes, setting them up if needed
+	 **/
+	protected Map<String, StructSimple_DataObjectMapIndex> indexMap() {
+		if (indexMap != null) {
+			return indexMap;
+		}
+		try {
+			accessLock.writeLock().lock();
+			if (indexMap == null) {
+				Map<String, StructSimple_DataObjectMapIndex> newMap = new HashMap<>();
+				for (String name : configMap().getStringArray("hashIndex", "[]")) {
+					if (isIndexableField(name)) {
+						newMap.put(name, new StructSimple_DataObjectMapIndex(name, false));
+					}
+				}
+				for (String name : configMap().getStringArray("index", "[]")) {
+					if (isIndexableField(name)) {
+						newMap.put(name, new StructSimple_DataObjectMapIndex(name, true));
+					}
+				}
+				// Index any existing data
+				for (Map.Entry<String, Map<String, Object>> entry : valueMap.entrySet()) {
+					for (StructSimple_DataObjectMapIndex idx : newMap.values()) {
+						idx.add(entry.getKey(), entry.getValue().get(idx.fieldName()));
+					}
+				}
+				indexMap = newMap;
+			}
+			return indexMap;
+		} finally {
+			accessLock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Only top level fields are indexed, as nested field names are resolved at query time.
+	 *
+	 * @param  name of field
+	 *
+	 * @return true if the field can be indexed
+	 **/
+	protected static boolean isIndexableField(String name) {
+		return name != null && name.length() > 0 && !name.equals("_oid") && name.indexOf('.') < 0
+			&& name.indexOf('[') < 0;
+	}
+	
+	/**
+	 * Get the current values of the indexed fields, of a stored object
+	 *
+	 * @param  oid of object
+	 * @param  indexes in use
+	 *
+	 * @return array of values, in the indexes iteration order (null if object does not exist)
+	 **/
+	protected Object[] indexedValues(String oid,
+		Map<String, StructSimple_DataObjectMapIndex> indexes) {
+		if (indexes.isEmpty()) {
+			return null;
+		}
+		Map<String, Object> storedValue = valueMap.get(oid);
+		if (storedValue == null) {
+			return null;
+		}
+		Object[] ret = new Object[indexes.size()];
+		int i = 0;
+		for (StructSimple_DataObjectMapIndex idx : indexes.values()) {
+			ret[i++] = storedValue.get(idx.fieldName());
+		}
+		return ret;
+	}
+	
+	/**
+	 * Update the indexes, from the previous values to the current stored values of an object
+	 *
+	 * @param  oid of object
+	 * @param  indexes in use
+	 * @param  oldValues from indexedValues, before the update
+	 **/
+	protected void updateIndexes(String oid, Map<String, StructSimple_DataObjectMapIndex> indexes,
+		Object[] oldValues) {
+		if (indexes.isEmpty()) {
+			return;
+		}
+		Object[] newValues = indexedValues(oid, indexes);
+		int i = 0;
+		for (StructSimple_DataObjectMapIndex idx : indexes.values()) {
+			Object oldVal = (oldValues != null) ? oldValues[i] : null;
+			Object newVal = (newValues != null) ? newValues[i] : null;
+			++i;
+			if (oldVal == newVal || (oldVal != null && oldVal.equals(newVal))) {
+				continue;
+			}
+			idx.remove(oid, oldVal);
+			idx.add(oid, newVal);
+		}
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Query planner
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Resolve the candidate object ID set for a query, using the secondary indexes.
+	 * The candidates are a superset of the matching objects, to be validated with the query.
+	 *
+	 * @param  queryClause to resolve
+	 * @param  indexes in use
+	 *
+	 * @return candidate object ID set, null if the query cannot be resolved via indexes
+	 **/
+	protected Set<String> queryCandidates(Query queryClause,
+		Map<String, StructSimple_DataObjectMapIndex> indexes) {
+		if (queryClause == null) {
+			return null;
+		}
+		QueryType type = queryClause.type();
+		
+		// AND : intersect the indexed children
+		if (type == QueryType.AND) {
+			Set<String> ret = null;
+			for (Query child : queryClause.childrenQuery()) {
+				Set<String> childSet = queryCandidates(child, indexes);
+				if (childSet == null) {
+					continue;
+				}
+				if (ret == null) {
+					ret = childSet;
+				} else {
+					ret.retainAll(childSet);
+				}
+			}
+			return ret;
+		}
+		
+		// OR : union, only if all children are indexed
+		if (type == QueryType.OR) {
+			Set<String> ret = new HashSet<String>();
+			for (Query child : queryClause.childrenQuery()) {
+				Set<String> childSet = queryCandidates(child, indexes);
+				if (childSet == null) {
+					return null;
+				}
+				ret.addAll(childSet);
+			}
+			return ret;
+		}
+		
+		// Other combinations (ie. NOT) are not supported
+		if (queryClause.isCombinationOperator()) {
+			return null;
+		}
+		
+		String fieldName = queryClause.fieldName();
+		Object arg = queryClause.defaultArgumentValue();
+		if (fieldName == null || arg == null) {
+			return null;
+		}
+		
+		// Direct _oid lookup
+		if (type == QueryType.EQUALS && fieldName.equals("_oid")) {
+			Set<String> ret = new HashSet<String>();
+			ret.add(arg.toString());
+			return ret;
+		}
+		
+		StructSimple_DataObjectMapIndex idx = indexes.get(fieldName);
+		if (idx == null) {
+			return null;
+		}
+		
+		// Equality lookup
+		if (type == QueryType.EQUALS) {
+			return idx.lookupEquals(arg);
+		}
+		
+		// Numeric range lookup
+		if (arg instanceof Number) {
+			if (type == QueryType.LESS_THAN || type == QueryType.LESS_THAN_OR_EQUALS) {
+				return idx.lookupRange(null, (Number) arg);
+			}
+			if (type == QueryType.MORE_THAN || type == QueryType.MORE_THAN_OR_EQUALS) {
+				return idx.lookupRange((Number) arg, null);
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Performs a search query, and returns the respective DataObject keys.
+	 *
+	 * Uses the configured secondary indexes for equality, numeric range, and single field
+	 * ORDER BY clauses. Falls back to a full scan when the query cannot be resolved by the indexes.
+	 *
+	 * @param   queryClause, of where query statement and value
+	 * @param   orderByStr string to sort the order by, use null to ignore
+	 * @param   offset of the result to display, use -1 to ignore
+	 * @param   number of objects to return max, use -1 to ignore
+	 *
+	 * @return  The String[] array
+	 **/
+	@Override
+	public String[] query_id(Query queryClause, String orderByStr, int offset, int limit) {
+		Map<String, StructSimple_DataObjectMapIndex> indexes = indexMap();
+		
+		// No index configured, use the default implementation
+		if (indexes.isEmpty() && (queryClause == null || !hasOidEquals(queryClause))) {
+			return super.query_id(queryClause, orderByStr, offset, limit);
+		}
+		
+		// Resolve the candidates via index
+		Set<String> candidates = queryCandidates(queryClause, indexes);
+		
+		// Ordered lookup via sorted index, for small pages
+		if (limit >= 1) {
+			String[] ordered = orderedIndexQuery(queryClause, candidates, orderByStr, offset, limit,
+				indexes);
+			if (ordered != null) {
+				return ordered;
+			}
+		}
+		
+		// No usable index, use the default implementation
+		if (candidates == null) {
+			return super.query_id(queryClause, orderByStr, offset, limit);
+		}
+		
+		// Validate the candidates
+		List<DataObject> retList = new ArrayList<DataObject>();
+		for (String oid : candidates) {
+			DataObject obj = get(oid);
+			if (obj != null && queryClause.test(obj)) {
+				retList.add(obj);
+			}
+		}
+		
+		// Sort, offset, and return
+		retList = sortAndOffsetList(retList, orderByStr, offset, limit);
+		String[] ret = new String[retList.size()];
+		for (int i = 0; i < ret.length; ++i) {
+			ret[i] = retList.get(i)._oid();
+		}
+		return ret;
+	}
+	
+	/**
+	 * @return true if the query contains an `_oid = ?` clause, at any level
+	 **/
+	protected static boolean hasOidEquals(Query queryClause) {
+		if (queryClause.isCombinationOperator()) {
+			for (Query child : queryClause.childrenQuery()) {
+				if (hasOidEquals(child)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		return queryClause.type() == QueryType.EQUALS && "_oid".equals(queryClause.fieldName());
+	}
+	
+	/**
+	 * Resolve a single field ORDER BY query, by iterating the sorted index in order.
+	 * This is only used when all objects has a numeric value in the index.
+	 *
+	 * @return  The String[] array, null if the sorted index cannot be used
+	 **/
+	protected String[] orderedIndexQuery(Query queryClause, Set<String> candidates,
+		String orderByStr, int offset, int limit,
+		Map<String, StructSimple_DataObjectMapIndex> indexes) {
+		if (orderByStr == null || orderByStr.indexOf(',') >= 0) {
+			return null;
+		}
+		String[] orderSplit = orderByStr.trim().split("\\s+");
+		if (orderSplit.length < 1 || orderSplit.length > 2 || orderSplit[0].isEmpty()) {
+			return null;
+		}
+		boolean descending = false;
+		if (orderSplit.length == 2) {
+			if (orderSplit[1].equalsIgnoreCase("DESC")) {
+				descending = true;
+			} else if (!orderSplit[1].equalsIgnoreCase("ASC")) {
+				return null;
+			}
+		}
+		
+		// Sorted index, with numeric values for all objects
+		StructSimple_DataObjectMapIndex idx = indexes.get(orderSplit[0]);
+		if (idx == null || !idx.isSorted() || !idx.isNumericOnly()
+			|| idx.objectCount() != valueMap.size()) {
+			return null;
+		}
+		
+		// Collect the objects in order, completing the last group of equal values
+		// (computed as long, and clamped to the candidate count, to avoid overflow)
+		long needed = Math.min((long) Math.max(offset, 0) + limit,
+			(candidates != null) ? candidates.size() : valueMap.size());
+		List<DataObject> retList = new ArrayList<DataObject>();
+		for (Set<String> group : idx.orderedGroups(descending)) {
+			for (String oid : group) {
+				if (candidates != null && !candidates.contains(oid)) {
+					continue;
+				}
+				DataObject obj = get(oid);
+				if (obj != null && (queryClause == null || queryClause.test(obj))) {
+					retList.add(obj);
+				}
+			}
+			if (retList.size() >= needed) {
+				break;
+			}
+		}
+		
+		// Sort (for _oid tie breaking), offset, and return
+		retList = sortAndOffsetList(retList, orderByStr, offset, limit);
+		String[] ret = new String[retList.size()];
+		for (int i = 0; i < ret.length; ++i) {
+			ret[i] = retList.get(i)._oid();
+		}
+		return ret;
+	}
+	
 	//--------------------------------------------------------------------------
 	//
 	// KeySet support
@@ -0,0 +1,309 @@
+package picoded.dstack.struct.simple;
+
+// Java imports
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory secondary index, of a single field within StructSimple_DataObjectMap.
+ *
+ * Values are normalized into index keys, where numbers (and numeric strings) are stored as Double,
+ * other strings are stored in lower case, and boolean as its string value. Objects with values
+ * which cannot be indexed (ie. maps / lists) are tracked separately, and always returned as
+ * candidates. As such lookups return a superset of the matching objects, which the caller
+ * is expected to validate against the actual query.
+ *
+ * Sorted indexes are backed by a skip list (supporting numeric range and ordered lookups),
+ * while hash indexes only support equality lookups.
+ **/
+public class StructSimple_DataObjectMapIndex {
+	
+	//--------------------------------------------------------------------------
+	//
+	// Constructor vars
+	//
+	//--------------------------------------------------------------------------
+	
+	/// Comparator used for sorted index keys, numbers are ordered before strings
+	protected static final Comparator<Object> KEY_COMPARATOR = (a, b) -> {
+		if (a instanceof Double) {
+			return (b instanceof Double) ? ((Double) a).compareTo((Double) b) : -1;
+		}
+		if (b instanceof Double) {
+			return 1;
+		}
+		return ((String) a).compareTo((String) b);
+	};
+	
+	/// Field name which is indexed
+	protected final String fieldName;
+	
+	/// Indicates if this is a sorted index
+	protected final boolean sorted;
+	
+	/// Index key to object ID set
+	protected final ConcurrentMap<Object, Set<String>> keyMap;
+	
+	/// Object ID with values which cannot be indexed
+	protected final Set<String> unindexed = ConcurrentHashMap.newKeySet();
+	
+	/// Number of string (non numeric) keys in the index
+	protected int stringKeyCount = 0;
+	
+	/// Number of indexed object ID (including unindexed values)
+	protected int objectCount = 0;
+	
+	/**
+	 * Setup the index for the given field
+	 *
+	 * @param  inFieldName to index
+	 * @param  inSorted true for a sorted (skip list) index, false for a hash index
+	 **/
+	public StructSimple_DataObjectMapIndex(String inFieldName, boolean inSorted) {
+		fieldName = inFieldName;
+		sorted = inSorted;
+		if (sorted) {
+			keyMap = new ConcurrentSkipListMap<Object, Set<String>>(KEY_COMPARATOR);
+		} else {
+			keyMap = new ConcurrentHashMap<Object, Set<String>>();
+		}
+	}
+	
+	/**
+	 * @return the indexed field name
+	 **/
+	public String fieldName() {
+		return fieldName;
+	}
+	
+	/**
+	 * @return true if this is a sorted index
+	 **/
+	public boolean isSorted() {
+		return sorted;
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Key normalization
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Normalize a value into its index key
+	 *
+	 * @param  value to normalize
+	 *
+	 * @return index key, null if the value cannot be indexed
+	 **/
+	public static Object indexKey(Object value) {
+		if (value instanceof Number) {
+			return ((Number) value).doubleValue();
+		}
+		if (value instanceof Boolean) {
+			return value.toString();
+		}
+		if (value instanceof String) {
+			String str = (String) value;
+			Double num = parseNumeric(str);
+			if (num != null) {
+				return num;
+			}
+			return str.toLowerCase();
+		}
+		return null;
+	}
+	
+	/**
+	 * Parse a numeric string, without throwing exceptions on non numeric values
+	 *
+	 * @param  str to parse
+	 *
+	 * @return the double value, null if its not numeric
+	 **/
+	protected static Double parseNumeric(String str) {
+		int len = str.length();
+		if (len == 0) {
+			return null;
+		}
+		// Quick check that the string is made of numeric characters
+		for (int i = 0; i < len; ++i) {
+			char c = str.charAt(i);
+			if (!((c >= '0' && c <= '9') || c == '.' || c == '-' || c == '+' || c == 'e'
+				|| c == 'E')) {
+				return null;
+			}
+		}
+		try {
+			return Double.valueOf(str);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Index maintenance
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * Add an object value into the index
+	 *
+	 * @param  oid of the object
+	 * @param  value of the field, null values are not indexed
+	 **/
+	public synchronized void add(String oid, Object value) {
+		if (value == null) {
+			return;
+		}
+		++objectCount;
+		Object key = indexKey(value);
+		if (key == null) {
+			unindexed.add(oid);
+			return;
+		}
+		Set<String> oidSet = keyMap.get(key);
+		if (oidSet == null) {
+			oidSet = ConcurrentHashMap.newKeySet();
+			keyMap.put(key, oidSet);
+			if (key instanceof String) {
+				++stringKeyCount;
+			}
+		}
+		oidSet.add(oid);
+	}
+	
+	/**
+	 * Remove an object value from the index
+	 *
+	 * @param  oid of the object
+	 * @param  value of the field, as previously indexed
+	 **/
+	public synchronized void remove(String oid, Object value) {
+		if (value == null) {
+			return;
+		}
+		--objectCount;
+		Object key = indexKey(value);
+		if (key == null) {
+			unindexed.remove(oid);
+			return;
+		}
+		Set<String> oidSet = keyMap.get(key);
+		if (oidSet == null) {
+			return;
+		}
+		oidSet.remove(oid);
+		if (oidSet.isEmpty()) {
+			keyMap.remove(key);
+			if (key instanceof String) {
+				--stringKeyCount;
+			}
+		}
+	}
+	
+	/**
+	 * Clear the index
+	 **/
+	public synchronized void clear() {
+		keyMap.clear();
+		unindexed.clear();
+		stringKeyCount = 0;
+		objectCount = 0;
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Index lookup
+	//
+	//--------------------------------------------------------------------------
+	
+	/**
+	 * @return number of objects with a non null value in the index
+	 **/
+	public synchronized int objectCount() {
+		return objectCount;
+	}
+	
+	/**
+	 * @return true if all indexed values are numeric
+	 **/
+	public synchronized boolean isNumericOnly() {
+		return stringKeyCount == 0 && unindexed.isEmpty();
+	}
+	
+	/**
+	 * Get the candidate object ID, for an equality lookup
+	 *
+	 * @param  value to lookup
+	 *
+	 * @return candidate object ID set, null if the value cannot be looked up
+	 **/
+	public synchronized Set<String> lookupEquals(Object value) {
+		Object key = indexKey(value);
+		if (key == null) {
+			return null;
+		}
+		Set<String> ret = new HashSet<String>(unindexed);
+		Set<String> oidSet = keyMap.get(key);
+		if (oidSet != null) {
+			ret.addAll(oidSet);
+		}
+		return ret;
+	}
+	
+	/**
+	 * Get the candidate object ID, for a numeric range lookup (bounds are inclusive)
+	 *
+	 * @param  lower bound, null for unbounded
+	 * @param  upper bound, null for unbounded
+	 *
+	 * @return candidate object ID set, null if range lookup is not supported
+	 **/
+	public synchronized Set<String> lookupRange(Number lower, Number upper) {
+		if (!sorted) {
+			return null;
+		}
+		NavigableMap<Object, Set<String>> nav = (NavigableMap<Object, Set<String>>) keyMap;
+		
+		// Numeric keys only, which are ordered before strings
+		Object from = (lower != null) ? (Object) lower.doubleValue()
+			: (Object) Double.NEGATIVE_INFINITY;
+		Object to = (upper != null) ? (Object) upper.doubleValue() : (Object) Double.POSITIVE_INFINITY;
+		
+		Set<String> ret = new HashSet<String>(unindexed);
+		for (Set<String> oidSet : nav.subMap(from, true, to, true).values()) {
+			ret.addAll(oidSet);
+		}
+		return ret;
+	}
+	
+	/**
+	 * Get the object ID groups, in the index key order
+	 *
+	 * @param  descending order if true
+	 *
+	 * @return iterable of object ID sets, in order. null if ordered lookup is not supported
+	 **/
+	public Iterable<Set<String>> orderedGroups(boolean descending) {
+		if (!sorted) {
+			return null;
+		}
+		NavigableMap<Object, Set<String>> nav = (NavigableMap<Object, Set<String>>) keyMap;
+		return descending ? nav.descendingMap().values() : nav.values();
+	}
+	
+	/**
+	 * @return an unmodifiable view of the object ID with values which cannot be indexed
+	 **/
+	public Set<String> unindexedSet() {
+		return Collections.unmodifiableSet(unindexed);
+	}
+}
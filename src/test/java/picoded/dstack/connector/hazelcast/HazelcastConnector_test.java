@@ -4,6 +4,8 @@ import java.util.*;
 
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.cluster.Member;
+import com.hazelcast.map.IMap;
+import com.hazelcast.nearcache.NearCacheStats;
 
 // junit include
 import org.junit.*;
@@ -72,6 +74,56 @@ public class HazelcastConnector_test {
 		HazelcastConnector.closeConnection(server);
 	}
 	
+	@Test
+	public void serverClientNearCacheTest() throws Exception {
+		// Config map
+		GenericConvertMap<String, Object> config = new GenericConvertHashMap<>();
+		config.put("groupName", "HazelcastNearCacheConnectorTest");
+		
+		// Server instance
+		HazelcastInstance server = HazelcastConnector.getConnection(config);
+		assertNotNull(server);
+		
+		// Lets store some data
+		Map<String, String> store = server.getMap("hello");
+		store.put("world", "one");
+		
+		// Lets get server port
+		int port = server.getCluster().getLocalMember().getAddress().getPort();
+		
+		// Lets setup client, with near cache
+		GenericConvertMap<String, Object> clientConfig = new GenericConvertHashMap<>();
+		clientConfig.put("groupName", "HazelcastNearCacheConnectorTest");
+		clientConfig.put("mode", "client");
+		clientConfig.put("memberTcpList", "[\"localhost:" + port + "\"]");
+		clientConfig.put("nearCache", "{ \"hello\" : { \"inMemoryFormat\" : \"OBJECT\" } }");
+		
+		// Lets load up the client
+		HazelcastInstance client = HazelcastConnector.getConnection(clientConfig);
+		assertNotNull(client);
+		
+		// Repeated reads, are served from the near cache
+		IMap<String, String> read = client.getMap("hello");
+		assertEquals("one", read.get("world"));
+		assertEquals("one", read.get("world"));
+		
+		NearCacheStats stats = read.getLocalMapStats().getNearCacheStats();
+		assertNotNull(stats);
+		assertEquals(1, stats.getMisses());
+		assertEquals(1, stats.getHits());
+		
+		// Changes on the cluster, invalidates the near cache
+		store.put("world", "two");
+		for (int i = 0; i < 50 && !"two".equals(read.get("world")); ++i) {
+			Thread.sleep(100);
+		}
+		assertEquals("two", read.get("world"));
+		
+		// Close it up
+		HazelcastConnector.closeConnection(client);
+		HazelcastConnector.closeConnection(server);
+	}
+	
 	@Test
 	public void serverTCPTest_noMulticast() throws Exception {
 		
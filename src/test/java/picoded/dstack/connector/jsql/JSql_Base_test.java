@@ -5,11 +5,21 @@ import org.junit.*;
 
 import java.util.Map;
 import java.util.List;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
 
 import picoded.core.conv.ConvertJSON;
 import picoded.dstack.jsql.*;
 
 import picoded.core.struct.GenericConvertMap;
+import picoded.core.struct.GenericConvertHashMap;
 import picoded.core.struct.GenericConvertList;
 
 ///
@@ -790,4 +800,293 @@ public abstract class JSql_Base_test {
 		dropTableIfExist(testTableName);
 	}
 	
-}
\ No newline at end of file
+	/**
+	 * Columnar index based accessors, and the lazily built map view
+	 */
+	@Test
+	public void columnarResultAccessors() {
+		dropTableIfExist(testTableName);
+		assertTrue(jsqlObj.createTable(testTableName, new String[] { "pKy", "iVl", "tVl" },
+			new String[] { "int PRIMARY KEY", "int", "VARCHAR(64)" }));
+		for (int i = 0; i < 40; ++i) {
+			assertTrue(jsqlObj.insert(testTableName, new String[] { "pKy", "iVl", "tVl" },
+				new Object[] { i, (i % 2 == 0) ? i * 10 : null, "row" + i }));
+		}
+		
+		JSqlResult res = null;
+		assertNotNull(res = jsqlObj.select(testTableName, "*", null, null, "pKy ASC", 0, 0));
+		assertEquals(40, res.rowCount());
+		
+		// Index based accessors
+		int pKyCol = res.columnIndex("PKY");
+		int iVlCol = res.columnIndex("iVl");
+		int tVlCol = res.columnIndex("tvl");
+		assertTrue(pKyCol >= 0 && iVlCol >= 0 && tVlCol >= 0);
+		assertEquals(-1, res.columnIndex("missing"));
+		for (int i = 0; i < 40; ++i) {
+			assertEquals(i, res.getLong(i, pKyCol));
+			assertEquals("row" + i, res.getString(i, tVlCol));
+			if (i % 2 == 0) {
+				assertEquals(i * 10, res.getInt(i, iVlCol));
+			} else {
+				assertTrue(res.isNull(i, iVlCol));
+			}
+		}
+		
+		// Map view compatibility
+		assertEquals(3, res.size());
+		assertEquals("row5", res.get("TVL").getString(5));
+		assertEquals(20, res.get("ivl").getInt(2));
+		assertEquals(res.getObject(3, tVlCol), res.readRow(3).get("tVl"));
+		
+		dropTableIfExist(testTableName);
+	}
+	
+	/**
+	 * Columnar storage, returns the same boxed types as the driver values
+	 */
+	@Test
+	public void columnarResultBoxing() {
+		JSqlResult res = new JSqlResult();
+		res.setupColumns(new String[] { "lVl", "dVl" }, new byte[] { JSqlResult.COL_LONG,
+			JSqlResult.COL_DOUBLE });
+		res.allocateColumns(8);
+		
+		Object[] longValues = new Object[] { 1, 2L, (short) 3, (byte) 4, null };
+		Object[] doubleValues = new Object[] { 1.5, 2.5f, new java.math.BigDecimal("3.5"), null };
+		for (int i = 0; i < longValues.length; ++i) {
+			res.storeCell(i, 0, longValues[i]);
+		}
+		for (int i = 0; i < doubleValues.length; ++i) {
+			res.storeCell(i, 1, doubleValues[i]);
+		}
+		
+		// Integer, Long, Short and Byte values keep their boxed type
+		for (int i = 0; i < longValues.length; ++i) {
+			assertEquals(longValues[i], res.getObject(i, 0));
+		}
+		assertTrue(res.isNull(4, 0));
+		
+		// Floating values, with BigDecimal normalized as Double
+		assertEquals(Double.valueOf(1.5), res.getObject(0, 1));
+		assertEquals(Float.valueOf(2.5f), res.getObject(1, 1));
+		assertEquals(Double.valueOf(3.5), res.getObject(2, 1));
+		assertNull(res.getObject(3, 1));
+	}
+	
+	@Test
+	public void readReplicaRoutingScopes() {
+		dropTableIfExist(testTableName);
+		assertTrue(jsqlObj.createTable(testTableName, new String[] { "pKy", "tVl" }, new String[] {
+			"int PRIMARY KEY", "VARCHAR(64)" }));
+		assertTrue(jsqlObj.insert(testTableName, new String[] { "pKy", "tVl" }, new Object[] { 1,
+			"hello" }));
+		
+		// Without replicas configured, both scopes falls through to the primary
+		assertEquals(0, jsqlObj.replicaCount());
+		JSqlResult res = jsqlObj.readReplica(() -> jsqlObj.select(testTableName, "*"));
+		assertEquals(1, res.rowCount());
+		res = jsqlObj.primaryOnly(() -> jsqlObj.readReplica(() -> jsqlObj.select(testTableName,
+			"*")));
+		assertEquals("hello", res.get("tVl").getString(0));
+		
+		dropTableIfExist(testTableName);
+	}
+	
+	/// Replica datasource, which delegates to the primary (or fails if none), counting its usage
+	protected static class TestReplicaSource implements DataSource {
+		protected final DataSource delegate;
+		protected final AtomicInteger connectionCount = new AtomicInteger();
+		
+		protected TestReplicaSource(DataSource inDelegate) {
+			delegate = inDelegate;
+		}
+		
+		@Override
+		public Connection getConnection() throws SQLException {
+			connectionCount.incrementAndGet();
+			if (delegate == null) {
+				throw new SQLTransientConnectionException("replica is down");
+			}
+			return delegate.getConnection();
+		}
+		
+		@Override
+		public Connection getConnection(String user, String pass) throws SQLException {
+			return getConnection();
+		}
+		
+		@Override
+		public PrintWriter getLogWriter() {
+			return null;
+		}
+		
+		@Override
+		public void setLogWriter(PrintWriter out) {
+		}
+		
+		@Override
+		public void setLoginTimeout(int seconds) {
+		}
+		
+		@Override
+		public int getLoginTimeout() {
+			return 0;
+		}
+		
+		@Override
+		public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+			throw new SQLFeatureNotSupportedException();
+		}
+		
+		@Override
+		public <T> T unwrap(Class<T> iface) throws SQLException {
+			throw new SQLException("Not a wrapper");
+		}
+		
+		@Override
+		public boolean isWrapperFor(Class<?> iface) {
+			return false;
+		}
+	}
+	
+	/// Setup the given replica sources on the test connection, returning the replica configs used
+	protected List<GenericConvertMap<String, Object>> setupTestReplicas(
+		GenericConvertMap<String, Object> config, DataSource... replicas) {
+		List<Object> replicaConfigs = new ArrayList<Object>();
+		for (int i = 0; i < replicas.length; ++i) {
+			GenericConvertMap<String, Object> replicaConfig = new GenericConvertHashMap<>();
+			replicaConfig.put("replicaIndex", i);
+			replicaConfigs.add(replicaConfig);
+		}
+		config.put("replicas", replicaConfigs);
+		
+		List<GenericConvertMap<String, Object>> ret = new ArrayList<>();
+		((JSql_Base) jsqlObj).replicaSetup(config, (merged) -> {
+			ret.add(merged);
+			return replicas[merged.getInt("replicaIndex")];
+		});
+		return ret;
+	}
+	
+	@Test
+	public void readOnlyStatementCheck() {
+		assertTrue(JSql_Base.isReadOnlyStatement("SELECT * FROM T"));
+		assertTrue(JSql_Base.isReadOnlyStatement("  with X AS (SELECT 1) SELECT * FROM X"));
+		assertTrue(JSql_Base.isReadOnlyStatement("EXPLAIN SELECT * FROM T"));
+		assertFalse(JSql_Base.isReadOnlyStatement("INSERT INTO T VALUES (1)"));
+		assertFalse(JSql_Base
+			.isReadOnlyStatement("WITH X AS (DELETE FROM T RETURNING *) SELECT * FROM X"));
+		assertFalse(JSql_Base.isReadOnlyStatement("WITH X AS (SELECT 1) "
+			+ "UPDATE T SET A = 1 WHERE B IN (SELECT * FROM X)"));
+		assertFalse(JSql_Base.isReadOnlyStatement("SELECT * FROM T WHERE A = 1 FOR UPDATE"));
+	}
+	
+	@Test
+	public void readReplicaFailoverAndRetry() {
+		dropTableIfExist(testTableName);
+		assertTrue(jsqlObj.createTable(testTableName, new String[] { "pKy", "tVl" }, new String[] {
+			"int PRIMARY KEY", "VARCHAR(64)" }));
+		assertTrue(jsqlObj.insert(testTableName, new String[] { "pKy", "tVl" }, new Object[] { 1,
+			"hello" }));
+		
+		// One working, and one failing replica
+		JSql_Base base = (JSql_Base) jsqlObj;
+		TestReplicaSource working = new TestReplicaSource(base.datasource);
+		TestReplicaSource failing = new TestReplicaSource(null);
+		GenericConvertMap<String, Object> config = new GenericConvertHashMap<>();
+		config.put("replicaRetryInterval", 60000);
+		List<GenericConvertMap<String, Object>> replicaConfigs = setupTestReplicas(config,
+			working, failing);
+		assertEquals(2, jsqlObj.replicaCount());
+		
+		// Replica pools are setup as read only
+		for (GenericConvertMap<String, Object> replicaConfig : replicaConfigs) {
+			assertTrue(replicaConfig.getBoolean("readOnly", false));
+		}
+		
+		// Reads outside of the readReplica scope, stays on the primary
+		assertEquals(1, jsqlObj.select(testTableName, "*").rowCount());
+		assertEquals(0, working.connectionCount.get() + failing.connectionCount.get());
+		
+		// Round robin across both replicas, with the failing replica falling back to the primary
+		for (int i = 0; i < 2; ++i) {
+			JSqlResult res = jsqlObj.readReplica(() -> jsqlObj.select(testTableName, "*"));
+			assertEquals("hello", res.get("tVl").getString(0));
+		}
+		assertEquals(1, working.connectionCount.get());
+		assertEquals(1, failing.connectionCount.get());
+		
+		// The failing replica is marked down, and skipped
+		assertTrue(base.replicaDownUntil.get(1) > System.currentTimeMillis());
+		for (int i = 0; i < 4; ++i) {
+			JSqlResult res = jsqlObj.readReplica(() -> jsqlObj.select(testTableName, "*"));
+			assertEquals("hello", res.get("tVl").getString(0));
+		}
+		assertEquals(5, working.connectionCount.get());
+		assertEquals(1, failing.connectionCount.get());
+		
+		// Once the retry interval is over, the failing replica is retried
+		base.replicaDownUntil.set(1, 0);
+		for (int i = 0; i < 2; ++i) {
+			JSqlResult res = jsqlObj.readReplica(() -> jsqlObj.select(testTableName, "*"));
+			assertEquals("hello", res.get("tVl").getString(0));
+		}
+		assertEquals(6, working.connectionCount.get());
+		assertEquals(2, failing.connectionCount.get());
+		
+		// Writes, and primaryOnly scopes are never routed to replicas
+		jsqlObj.readReplica(() -> jsqlObj.insert(testTableName, new String[] { "pKy", "tVl" },
+			new Object[] { 2, "world" }));
+		JSqlResult res = jsqlObj.readReplica(() -> jsqlObj.primaryOnly(() -> jsqlObj.select(
+			testTableName, "*")));
+		assertEquals(2, res.rowCount());
+		assertEquals(6, working.connectionCount.get());
+		assertEquals(2, failing.connectionCount.get());
+		
+		dropTableIfExist(testTableName);
+	}
+	
+	@Test
+	public void readReplicaLeastLoaded() {
+		dropTableIfExist(testTableName);
+		assertTrue(jsqlObj.createTable(testTableName, new String[] { "pKy", "tVl" }, new String[] {
+			"int PRIMARY KEY", "VARCHAR(64)" }));
+		assertTrue(jsqlObj.insert(testTableName, new String[] { "pKy", "tVl" }, new Object[] { 1,
+			"hello" }));
+		
+		// Two working replicas, with least loaded selection, and all reads routed
+		JSql_Base base = (JSql_Base) jsqlObj;
+		TestReplicaSource first = new TestReplicaSource(base.datasource);
+		TestReplicaSource second = new TestReplicaSource(base.datasource);
+		GenericConvertMap<String, Object> config = new GenericConvertHashMap<>();
+		config.put("replicaSelection", "LEAST_LOADED");
+		config.put("replicaRouting", "ALL");
+		setupTestReplicas(config, first, second);
+		
+		// The busier first replica is skipped
+		base.replicaInflight[0].set(5);
+		for (int i = 0; i < 3; ++i) {
+			assertEquals(1, jsqlObj.select(testTableName, "*").rowCount());
+		}
+		assertEquals(0, first.connectionCount.get());
+		assertEquals(3, second.connectionCount.get());
+		
+		// And the other way round
+		base.replicaInflight[0].set(0);
+		base.replicaInflight[1].set(5);
+		for (int i = 0; i < 3; ++i) {
+			assertEquals(1, jsqlObj.select(testTableName, "*").rowCount());
+		}
+		assertEquals(3, first.connectionCount.get());
+		assertEquals(3, second.connectionCount.get());
+		
+		// Inflight counters are released after each query
+		base.replicaInflight[1].set(0);
+		jsqlObj.select(testTableName, "*");
+		assertEquals(0, base.replicaInflight[0].get() + base.replicaInflight[1].get());
+		
+		dropTableIfExist(testTableName);
+	}
+	
+}
@@ -0,0 +1,84 @@
+package picoded.dstack.connector.jsql;
+
+import static org.junit.Assert.*;
+import org.junit.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import picoded.core.struct.GenericConvertHashMap;
+import picoded.core.struct.GenericConvertMap;
+
+///
+/// JSql Test case which is specific for SQLite, in the embedded optimized WAL mode
+///
+public class JSql_SqliteWal_test extends JSql_Base_test {
+	
+	/**
+	 * SQL implmentation to actually overwrite
+	 * @return the JSql connection to test, this is called on every test
+	 */
+	public JSql sqlImplementation() {
+		try {
+			File sqliteFile = File.createTempFile("JSql_SqliteWal_test", ".sqlite");
+			sqliteFile.deleteOnExit();
+			
+			GenericConvertMap<String, Object> config = new GenericConvertHashMap<String, Object>();
+			config.put("path", sqliteFile.getAbsolutePath());
+			config.put("walMode", true);
+			return new JSql_Sqlite(config);
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+	
+	@Test
+	public void walJournalMode() {
+		assertEquals("wal", jsqlObj.query("PRAGMA journal_mode").get("journal_mode").getString(0)
+			.toLowerCase());
+	}
+	
+	@Test
+	public void concurrentBatchedWrites() throws Exception {
+		jsqlObj.update("DROP TABLE IF EXISTS " + testTableName);
+		jsqlObj.update("CREATE TABLE " + testTableName + " ( col1 INT PRIMARY KEY, col2 TEXT )");
+		jsqlObj.update("INSERT INTO " + testTableName + " ( col1, col2 ) VALUES (?,?)", -1, "first");
+		
+		// Concurrent writers, which are grouped by the writer queue
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+		for (int i = 0; i < 200; ++i) {
+			final int idx = i;
+			results.add(pool.submit(() -> jsqlObj.update("INSERT INTO " + testTableName
+				+ " ( col1, col2 ) VALUES (?,?)", idx, "val-" + idx)));
+		}
+		
+		// Including a failing write, which should not affect the others
+		Future<Integer> failing = pool.submit(() -> jsqlObj.update("INSERT INTO " + testTableName
+			+ " ( col1, col2 ) VALUES (?,?)", -1, "duplicate"));
+		
+		for (Future<Integer> res : results) {
+			assertEquals(1, (int) res.get());
+		}
+		try {
+			failing.get();
+			fail("Expected duplicate key failure");
+		} catch (Exception e) {
+			// Expected
+		}
+		pool.shutdown();
+		pool.awaitTermination(10, TimeUnit.SECONDS);
+		
+		// And readable via the reader pool
+		assertEquals(201, jsqlObj.query("SELECT COUNT(*) AS rcount FROM " + testTableName)
+			.get("rcount").getInt(0));
+		assertEquals("val-0", jsqlObj.query("SELECT col2 FROM " + testTableName
+			+ " WHERE col1 = ?", 0).get("col2").getString(0));
+	}
+	
+}
@@ -0,0 +1,130 @@
+package picoded.dstack.core;
+
+// Test system include
+import org.junit.*;
+import com.carrotsearch.junitbenchmarks.AbstractBenchmark;
+import com.carrotsearch.junitbenchmarks.BenchmarkOptions;
+
+// Java includes
+import java.util.*;
+
+// Test depends
+import picoded.dstack.*;
+import picoded.dstack.struct.simple.*;
+
+// Numeric conversion benchmark, used on every DataObject put
+public class Core_DataObject_perf extends AbstractBenchmark {
+	
+	/// Test object
+	public DataObjectMap mtObj = null;
+	
+	/// DataObject used for the conversion
+	public Core_DataObject dataObj = null;
+	
+	// Setup and teardown
+	//-----------------------------------------------------
+	@Before
+	public void setUp() {
+		mtObj = new StructSimple_DataObjectMap();
+		mtObj.systemSetup();
+		dataObj = (Core_DataObject) mtObj.newEntry();
+	}
+	
+	@After
+	public void tearDown() {
+		if (mtObj != null) {
+			mtObj.systemDestroy();
+		}
+		mtObj = null;
+	}
+	
+	// Setup of test values
+	//-----------------------------------------------------
+	
+	/// Number of values per set
+	public int valueCount = 10000;
+	
+	/// Configurable iteration count
+	public int baseIterationCount = 100;
+	
+	/**
+	 * @return text values, which are never converted
+	 **/
+	public String[] stringHeavyValues() {
+		Random rand = new Random(1);
+		String[] ret = new String[valueCount];
+		for (int i = 0; i < valueCount; ++i) {
+			switch (i % 4) {
+				case 0:
+					ret[i] = "hello world " + i;
+					break;
+				case 1:
+					ret[i] = "user" + rand.nextInt(100000) + "@example.com";
+					break;
+				case 2:
+					ret[i] = "0" + rand.nextInt(100000);
+					break;
+				default:
+					ret[i] = Long.toHexString(rand.nextLong());
+			}
+		}
+		return ret;
+	}
+	
+	/**
+	 * @return numeric values, which are converted
+	 **/
+	public String[] numberHeavyValues() {
+		Random rand = new Random(1);
+		String[] ret = new String[valueCount];
+		for (int i = 0; i < valueCount; ++i) {
+			switch (i % 3) {
+				case 0:
+					ret[i] = Integer.toString(rand.nextInt());
+					break;
+				case 1:
+					ret[i] = Long.toString(rand.nextLong());
+					break;
+				default:
+					ret[i] = Double.toString(rand.nextDouble() * 1000);
+			}
+		}
+		return ret;
+	}
+	
+	// Conversion perf benchmark
+	//-----------------------------------------------------
+	
+	@BenchmarkOptions(benchmarkRounds = 5, warmupRounds = 2)
+	@Test
+	public void stringHeavyConversionPerf() throws Exception {
+		String[] values = stringHeavyValues();
+		for (int i = 0; i < baseIterationCount; ++i) {
+			for (String value : values) {
+				dataObj.agressiveNumericConversion(value);
+			}
+		}
+	}
+	
+	@BenchmarkOptions(benchmarkRounds = 5, warmupRounds = 2)
+	@Test
+	public void numberHeavyConversionPerf() throws Exception {
+		String[] values = numberHeavyValues();
+		for (int i = 0; i < baseIterationCount; ++i) {
+			for (String value : values) {
+				dataObj.agressiveNumericConversion(value);
+			}
+		}
+	}
+	
+	@BenchmarkOptions(benchmarkRounds = 3, warmupRounds = 1)
+	@Test
+	public void stringHeavyPutPerf() throws Exception {
+		String[] values = stringHeavyValues();
+		for (int i = 0; i < baseIterationCount; ++i) {
+			for (int v = 0; v < values.length; ++v) {
+				dataObj.put("S" + (v % 200), values[v]);
+			}
+		}
+	}
+}
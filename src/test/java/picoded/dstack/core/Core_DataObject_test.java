@@ -0,0 +1,81 @@
+package picoded.dstack.core;
+
+// Test system include
+import static org.junit.Assert.*;
+import org.junit.*;
+
+// Test depends
+import picoded.dstack.*;
+import picoded.dstack.struct.simple.*;
+
+// Numeric conversion, used on every DataObject put
+public class Core_DataObject_test {
+	
+	/// Test object
+	public DataObjectMap mtObj = null;
+	
+	/// DataObject used for the conversion
+	public Core_DataObject dataObj = null;
+	
+	// Setup and teardown
+	//-----------------------------------------------------
+	@Before
+	public void setUp() {
+		mtObj = new StructSimple_DataObjectMap();
+		mtObj.systemSetup();
+		dataObj = (Core_DataObject) mtObj.newEntry();
+	}
+	
+	@After
+	public void tearDown() {
+		if (mtObj != null) {
+			mtObj.systemDestroy();
+		}
+		mtObj = null;
+	}
+	
+	// Conversion tests
+	//-----------------------------------------------------
+	
+	@Test
+	public void conversionSanity() {
+		assertEquals(Integer.valueOf(5), dataObj.agressiveNumericConversion("5"));
+		assertEquals(Long.valueOf(9876543210L), dataObj.agressiveNumericConversion("9876543210"));
+		assertEquals(Double.valueOf(1.5), dataObj.agressiveNumericConversion("1.5"));
+		assertEquals(Integer.valueOf(7), dataObj.agressiveNumericConversion(7L));
+		assertEquals("007", dataObj.agressiveNumericConversion("007"));
+		assertEquals("-0", dataObj.agressiveNumericConversion("-0"));
+		assertEquals("1.50", dataObj.agressiveNumericConversion("1.50"));
+		assertEquals("1E5", dataObj.agressiveNumericConversion("1E5"));
+		assertEquals("9223372036854775808",
+			dataObj.agressiveNumericConversion("9223372036854775808"));
+		assertEquals("hello", dataObj.agressiveNumericConversion("hello"));
+	}
+	
+	@Test
+	public void conversionBoundaries() {
+		// Integer and Long boundaries
+		assertEquals(Integer.valueOf(Integer.MAX_VALUE),
+			dataObj.agressiveNumericConversion("2147483647"));
+		assertEquals(Integer.valueOf(Integer.MIN_VALUE),
+			dataObj.agressiveNumericConversion("-2147483648"));
+		assertEquals(Long.valueOf(2147483648L), dataObj.agressiveNumericConversion("2147483648"));
+		assertEquals(Long.valueOf(Long.MIN_VALUE),
+			dataObj.agressiveNumericConversion("-9223372036854775808"));
+		
+		// Doubles, only in their canonical toString form
+		assertEquals(Double.valueOf(-0.1), dataObj.agressiveNumericConversion("-0.1"));
+		assertEquals(Double.valueOf(1.0), dataObj.agressiveNumericConversion("1.0"));
+		assertEquals(Double.valueOf(1.0E10), dataObj.agressiveNumericConversion("1.0E10"));
+		assertEquals(Double.valueOf(Double.NaN), dataObj.agressiveNumericConversion("NaN"));
+		assertEquals(Double.valueOf(Double.NEGATIVE_INFINITY),
+			dataObj.agressiveNumericConversion("-Infinity"));
+		
+		// Non canonical numeric strings are left as it is
+		assertEquals("", dataObj.agressiveNumericConversion(""));
+		assertEquals("-", dataObj.agressiveNumericConversion("-"));
+		assertEquals("+5", dataObj.agressiveNumericConversion("+5"));
+		assertEquals(" 5", dataObj.agressiveNumericConversion(" 5"));
+		assertEquals("1e5", dataObj.agressiveNumericConversion("1e5"));
+	}
+}
@@ -0,0 +1,128 @@
+package picoded.dstack.core;
+
+// Test system include
+import static org.junit.Assert.*;
+import org.junit.*;
+
+// Java includes
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Test depends
+import picoded.core.struct.GenericConvertHashMap;
+import picoded.dstack.*;
+import picoded.dstack.struct.simple.*;
+
+// Background maintenance scheduler, with its lease coordination
+public class Core_MaintenanceScheduler_test {
+	
+	/// Shared lease map, across the "nodes"
+	public KeyLongMap leaseMap = null;
+	
+	/// Scheduler for each "node"
+	public Core_MaintenanceScheduler nodeA = null;
+	public Core_MaintenanceScheduler nodeB = null;
+	
+	/// Maintenance call count
+	public AtomicInteger maintenanceCount = new AtomicInteger();
+	
+	/// Structure to maintain, which counts its maintenance calls
+	public StructSimple_KeyValueMap structure = null;
+	
+	// Setup and teardown
+	//-----------------------------------------------------
+	@Before
+	public void setUp() {
+		leaseMap = new StructSimple_KeyLongMap();
+		leaseMap.systemSetup();
+		
+		structure = new StructSimple_KeyValueMap() {
+			@Override
+			public void maintenance() {
+				maintenanceCount.incrementAndGet();
+				super.maintenance();
+			}
+		};
+		structure.systemSetup();
+		
+		nodeA = new Core_MaintenanceScheduler(leaseMap);
+		nodeB = new Core_MaintenanceScheduler(leaseMap);
+	}
+	
+	@After
+	public void tearDown() {
+		nodeA.shutdown();
+		nodeB.shutdown();
+		structure.systemDestroy();
+		leaseMap.systemDestroy();
+	}
+	
+	// Test cases
+	//-----------------------------------------------------
+	
+	@Test
+	public void singleNodePerInterval() {
+		// Long interval, so the background checks do not interfere
+		nodeA.register("TEST", structure, 3600 * 1000L, 1000L);
+		nodeB.register("TEST", structure, 3600 * 1000L, 1000L);
+		
+		// Only the first node performs the maintenance
+		assertTrue(nodeA.runMaintenance("TEST"));
+		assertFalse(nodeB.runMaintenance("TEST"));
+		assertFalse(nodeA.runMaintenance("TEST"));
+		assertEquals(1, maintenanceCount.get());
+		
+		// Stats of each node
+		assertEquals(1L, nodeA.stats().get("TEST").get("runs"));
+		assertEquals(1L, nodeA.stats().get("TEST").get("skips"));
+		assertEquals(0L, nodeB.stats().get("TEST").get("runs"));
+		assertEquals(1L, nodeB.stats().get("TEST").get("skips"));
+		
+		// Lease is due after the interval
+		assertTrue(leaseMap.getValue(Core_MaintenanceScheduler.LEASE_PREFIX + "TEST") > System
+			.currentTimeMillis() + 3500 * 1000L);
+			
+		// Once the lease is due again, the other node can perform the maintenance
+		leaseMap.putValue(Core_MaintenanceScheduler.LEASE_PREFIX + "TEST", 1L);
+		assertTrue(nodeB.runMaintenance("TEST"));
+		assertEquals(2, maintenanceCount.get());
+	}
+	
+	@Test
+	public void incrementalMaintenanceDisabled() {
+		assertFalse(structure.scheduledMaintenance);
+		nodeA.register("TEST", structure, 3600 * 1000L, 1000L);
+		assertTrue(structure.scheduledMaintenance);
+		
+		// Incremental maintenance is skipped
+		for (int i = 0; i < 5000; ++i) {
+			structure.incrementalMaintenance();
+		}
+		assertEquals(0, maintenanceCount.get());
+		
+		// Unregistering re-enables it
+		nodeA.unregister("TEST");
+		assertFalse(structure.scheduledMaintenance);
+		assertFalse(nodeA.runMaintenance("TEST"));
+	}
+	
+	@Test
+	public void stackRegistration() {
+		GenericConvertHashMap<String, Object> config = new GenericConvertHashMap<>();
+		config.put("name", "maintenance");
+		StructSimpleStack stack = new StructSimpleStack(config);
+		stack.keyValueMap("hello");
+		stack.dataObjectMap("world");
+		
+		try {
+			Core_MaintenanceScheduler scheduler = stack.startScheduledMaintenance();
+			assertEquals(new HashSet<String>(Arrays.asList("HELLO", "WORLD")), scheduler.stats()
+				.keySet());
+			assertTrue(scheduler.runMaintenance("HELLO"));
+			assertFalse(scheduler.runMaintenance("HELLO"));
+		} finally {
+			stack.stopScheduledMaintenance();
+		}
+		assertNull(stack.maintenanceScheduler());
+	}
+}
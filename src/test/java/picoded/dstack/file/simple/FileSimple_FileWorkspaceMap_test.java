@@ -1,9 +1,19 @@
 package picoded.dstack.file.simple;
 
+// Target test class
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Set;
+
+import org.apache.commons.io.IOUtils;
 
 // Test Case include
 import org.junit.After;
@@ -59,4 +69,41 @@ public class FileSimple_FileWorkspaceMap_test extends StructSimple_FileWorkspace
 		testWorkspaceDir = null;
 	}
 	
+	// NIO streaming and ranged reads
+	//-----------------------------------------------------
+	
+	@Test
+	public void largeStreamWriteAndRangeRead() throws Exception {
+		// Generate a large (300KB) data set
+		byte[] data = new byte[300 * 1024];
+		for (int i = 0; i < data.length; ++i) {
+			data[i] = (byte) (i % 251);
+		}
+		
+		FileWorkspace fileWorkspace = testObj.newEntry();
+		fileWorkspace.writeInputStream("large/data.bin", new ByteArrayInputStream(data));
+		
+		// Stream read
+		try (InputStream in = fileWorkspace.readInputStream("large/data.bin")) {
+			assertArrayEquals(data, IOUtils.toByteArray(in));
+		}
+		
+		// Small and large range reads
+		assertArrayEquals(Arrays.copyOfRange(data, 10, 110),
+			fileWorkspace.readByteRange("large/data.bin", 10, 100));
+		assertArrayEquals(Arrays.copyOfRange(data, 1000, 201000),
+			fileWorkspace.readByteRange("large/data.bin", 1000, 200000));
+		
+		// Copy and move, overwriting existing files
+		fileWorkspace.writeByteArray("large/copy.bin", "old".getBytes());
+		fileWorkspace.copyFile("large/data.bin", "large/copy.bin");
+		assertArrayEquals(data, fileWorkspace.readByteArray("large/copy.bin"));
+		fileWorkspace.moveFile("large/copy.bin", "large/moved.bin");
+		assertArrayEquals(data, fileWorkspace.readByteArray("large/moved.bin"));
+		
+		// No temporary files should be left over in the listing
+		Set<String> paths = fileWorkspace.getFileAndFolderPathSet("large/", -1, -1);
+		assertEquals(2, paths.size());
+	}
+	
 }
@@ -0,0 +1,58 @@
+package picoded.dstack.file.simple;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+// Test Case include
+import org.junit.After;
+import org.junit.Before;
+
+// Test depends
+import picoded.core.file.FileUtil;
+import picoded.core.struct.GenericConvertHashMap;
+import picoded.dstack.*;
+import picoded.dstack.struct.simple.*;
+
+public class FileSimple_KeyValueMap_test extends StructSimple_KeyValueMap_test {
+	
+	// To override for implementation
+	//-----------------------------------------------------
+	
+	// Test directory to use
+	File testStoreDir = null;
+	
+	/// Note that this implementation constructor
+	/// is to be overriden for the various backend
+	/// specific test cases
+	public KeyValueMap implementationConstructor() {
+		return new FileSimple_KeyValueMap(new File(testStoreDir, "store"),
+			new GenericConvertHashMap<String, Object>());
+	}
+	
+	@Before
+	public void systemSetup() {
+		try {
+			testStoreDir = Files.createTempDirectory("TEST-FileSimple-KeyValueMap").toFile();
+			testStoreDir.deleteOnExit();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		
+		// Does the rest of test setup
+		super.systemSetup();
+	}
+	
+	@After
+	public void systemDestroy() {
+		// Does the typical test destroy steps
+		super.systemDestroy();
+		
+		// Delete the directory if failed to cleanup
+		if (testStoreDir.isDirectory()) {
+			FileUtil.forceDelete(testStoreDir);
+		}
+		testStoreDir = null;
+	}
+	
+}
@@ -0,0 +1,159 @@
+package picoded.dstack.file.simple;
+
+// Target test class
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+// Test Case include
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+// Test depends
+import picoded.core.file.FileUtil;
+import picoded.core.struct.GenericConvertHashMap;
+
+public class FileSimple_LogStore_test {
+	
+	// Test directory to use
+	File testStoreDir = null;
+	
+	// Store config, with small segments
+	GenericConvertHashMap<String, Object> config = null;
+	
+	@Before
+	public void systemSetup() throws IOException {
+		testStoreDir = Files.createTempDirectory("TEST-FileSimple-LogStore").toFile();
+		config = new GenericConvertHashMap<String, Object>();
+		config.put("segmentSize", 4096);
+		config.put("compactionInterval", 0);
+	}
+	
+	@After
+	public void systemDestroy() {
+		if (testStoreDir.isDirectory()) {
+			FileUtil.forceDelete(testStoreDir);
+		}
+		testStoreDir = null;
+	}
+	
+	@Test
+	public void putGetAndReopen() {
+		FileSimple_LogStore store = new FileSimple_LogStore(testStoreDir, config);
+		for (int i = 0; i < 500; ++i) {
+			store.put("key-" + i, ("value-" + i).getBytes());
+		}
+		store.remove("key-7");
+		store.put("key-8", new byte[] { 1, 2, 3 });
+		
+		// Multiple segments, read via both memory mapping and the active channel
+		assertTrue(store.stats().get("segmentCount") > 1);
+		assertEquals("value-0", new String(store.get("key-0")));
+		assertEquals("value-499", new String(store.get("key-499")));
+		assertNull(store.get("key-7"));
+		store.close();
+		
+		// Index is recovered from the segments
+		store = new FileSimple_LogStore(testStoreDir, config);
+		assertEquals(499, store.keySet().size());
+		assertEquals("value-250", new String(store.get("key-250")));
+		assertNull(store.get("key-7"));
+		assertArrayEquals(new byte[] { 1, 2, 3 }, store.get("key-8"));
+		store.close();
+	}
+	
+	@Test
+	public void compactionKeepsLatestValues() {
+		FileSimple_LogStore store = new FileSimple_LogStore(testStoreDir, config);
+		for (int round = 0; round < 10; ++round) {
+			for (int i = 0; i < 50; ++i) {
+				store.put("key-" + i, ("value-" + round + "-" + i).getBytes());
+			}
+		}
+		for (int i = 0; i < 10; ++i) {
+			store.remove("key-" + i);
+		}
+		
+		long totalBytes = store.stats().get("totalBytes");
+		assertTrue(store.compact() > 0);
+		assertTrue(store.stats().get("totalBytes") < totalBytes);
+		assertEquals(40, store.keySet().size());
+		assertEquals("value-9-20", new String(store.get("key-20")));
+		store.close();
+		
+		// Removed keys are not resurrected on recovery
+		store = new FileSimple_LogStore(testStoreDir, config);
+		assertEquals(40, store.keySet().size());
+		assertNull(store.get("key-5"));
+		assertEquals("value-9-49", new String(store.get("key-49")));
+		store.close();
+	}
+	
+	@Test
+	public void recoverFromPartialWrite() throws IOException {
+		FileSimple_LogStore store = new FileSimple_LogStore(testStoreDir, new GenericConvertHashMap<String, Object>());
+		store.put("hello", "world".getBytes());
+		store.put("partial", "value".getBytes());
+		store.close();
+		
+		// Simulate a crash midway through the last record
+		List<File> segments = new ArrayList<File>();
+		for (File file : testStoreDir.listFiles()) {
+			segments.add(file);
+		}
+		assertEquals(1, segments.size());
+		try (RandomAccessFile raf = new RandomAccessFile(segments.get(0), "rw")) {
+			raf.setLength(raf.length() - 3);
+		}
+		
+		store = new FileSimple_LogStore(testStoreDir, new GenericConvertHashMap<String, Object>());
+		assertEquals("world", new String(store.get("hello")));
+		assertNull(store.get("partial"));
+		
+		// Writes continue after the truncated record
+		store.put("after", "crash".getBytes());
+		store.close();
+		store = new FileSimple_LogStore(testStoreDir, new GenericConvertHashMap<String, Object>());
+		assertEquals("crash", new String(store.get("after")));
+		store.close();
+	}
+	
+	@Test
+	public void interruptedReaderDoesNotBreakStore() throws InterruptedException {
+		final FileSimple_LogStore store = new FileSimple_LogStore(testStoreDir, config);
+		store.put("hello", "world".getBytes());
+		
+		// Interrupted reader, closes the active segment channel
+		final Throwable[] failure = new Throwable[1];
+		Thread reader = new Thread(() -> {
+			Thread.currentThread().interrupt();
+			try {
+				store.get("hello");
+			} catch (RuntimeException e) {
+				failure[0] = e.getCause();
+			}
+		});
+		reader.start();
+		reader.join();
+		assertTrue(failure[0] instanceof ClosedByInterruptException);
+		
+		// Other threads can still read and write
+		assertEquals("world", new String(store.get("hello")));
+		store.put("after", "interrupt".getBytes());
+		store.sync();
+		assertEquals("interrupt", new String(store.get("after")));
+		store.close();
+		
+		FileSimple_LogStore reopened = new FileSimple_LogStore(testStoreDir, config);
+		assertEquals("interrupt", new String(reopened.get("after")));
+		reopened.close();
+	}
+	
+}
@@ -0,0 +1,47 @@
+package picoded.dstack.hazelcast.core;
+
+import static org.junit.Assert.*;
+import org.junit.*;
+
+import java.util.*;
+
+import picoded.core.struct.query.Query;
+
+/**
+ * Fallback predicate evaluation, and its stats
+ */
+public class Hazelcast_SqlPredicate_test {
+	
+	/// Build a storage map entry, to test against
+	protected Map.Entry<String, Map<String, Object>> storageEntry(String oid, int num) {
+		HazelcastStorageMap value = new HazelcastStorageMap();
+		value.put("_oid", oid);
+		value.put("num", num);
+		return new AbstractMap.SimpleEntry<String, Map<String, Object>>(oid, value);
+	}
+	
+	@Test
+	public void compiledFallbackPredicate() {
+		// Unique query string, to isolate the stats
+		String field = "num_" + System.nanoTime();
+		Query query = Query.build("num > ? OR " + field + " = ?", new Object[] { 5, "x" });
+		long compiledCount = Hazelcast_SqlPredicate.compiledQueryCount();
+		
+		// Multiple deserialized predicates, of the same query
+		Hazelcast_SqlPredicate predA = new Hazelcast_SqlPredicate(query);
+		Hazelcast_SqlPredicate predB = new Hazelcast_SqlPredicate(query);
+		assertFalse(predA.apply(storageEntry("a", 1)));
+		assertTrue(predA.apply(storageEntry("b", 10)));
+		assertTrue(predB.apply(storageEntry("c", 20)));
+		
+		// Query is parsed only once
+		assertEquals(compiledCount + 1, Hazelcast_SqlPredicate.compiledQueryCount());
+		
+		// Evaluation stats
+		Map<String, Long> stats = Hazelcast_SqlPredicate.fallbackStats().get(predA._queryString);
+		assertNotNull(stats);
+		assertEquals(3L, stats.get("evaluated").longValue());
+		assertEquals(2L, stats.get("matched").longValue());
+		assertEquals(0L, stats.get("fallbacks").longValue());
+	}
+}
@@ -0,0 +1,172 @@
+package picoded.dstack.hazelcast.store;
+
+import static org.junit.Assert.*;
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import picoded.core.struct.*;
+import picoded.dstack.*;
+import picoded.dstack.jsql.JSqlTestConfig;
+import picoded.dstack.struct.simple.*;
+import picoded.dstack.hazelcast.core.*;
+
+public class HazelcastStoreMapStore_DataObjectMap_test extends StructSimple_DataObjectMap_test {
+	
+	// Hazelcast stack instance
+	protected static volatile HazelcastStack instance = null;
+	
+	// Map store stack, used to persist the hazelcast maps
+	protected static volatile StructSimpleStack mapStoreStack = null;
+	
+	// To override for implementation
+	//-----------------------------------------------------
+	
+	/// Impomentation constructor
+	public DataObjectMap implementationConstructor() {
+		
+		// Initialize hazelcast server
+		synchronized (HazelcastStoreMapStore_DataObjectMap_test.class) {
+			if (instance == null) {
+				GenericConvertMap<String, Object> hazelcastConfigMap = new GenericConvertHashMap<>();
+				hazelcastConfigMap.put("groupName", "HazelcastStoreMapStore_DataObjectMap_test");
+				hazelcastConfigMap.put("instanceCache", true);
+				
+				// Write-through map store, for consistent test results
+				GenericConvertMap<String, Object> mapStoreConfig = new GenericConvertHashMap<>();
+				mapStoreConfig.put("writeDelaySeconds", 0);
+				
+				GenericConvertMap<String, Object> stackConfig = new GenericConvertHashMap<>();
+				stackConfig.put("name", "HazelcastStoreMapStore_DataObjectMap_test");
+				stackConfig.put("hazelcast", hazelcastConfigMap);
+				stackConfig.put("mapStore", mapStoreConfig);
+				
+				mapStoreStack = new StructSimpleStack(new GenericConvertHashMap<>());
+				instance = new HazelcastStoreStack(stackConfig, mapStoreStack);
+			}
+		}
+		
+		// Load the DataObjectMap
+		return instance.dataObjectMap(JSqlTestConfig.randomTablePrefix());
+	}
+	
+	// Map store testing
+	//-----------------------------------------------------
+	
+	@Test
+	public void mapStorePersistence() {
+		DataObject entry = mtObj.newEntry();
+		entry.put("hello", "world");
+		entry.saveAll();
+		
+		// Persisted into the map store stack
+		DataObjectMap persisted = mapStoreStack.dataObjectMap(((Hazelcast_DataObjectMap) mtObj)
+			.configMap().getString("name"));
+		assertEquals("world", persisted.get(entry._oid()).get("hello"));
+		
+		// Loaded from the map store stack, on cache miss
+		DataObject direct = persisted.newEntry();
+		direct.put("direct", "value");
+		direct.saveAll();
+		assertEquals("value", mtObj.get(direct._oid()).get("direct"));
+		
+		// Removed from the map store stack
+		mtObj.remove(entry._oid());
+		assertNull(persisted.get(entry._oid()));
+	}
+	
+	@Test
+	public void mapStorePartialFailure() {
+		// DataObjectMap, which fails to persist the "bad" object
+		StructSimple_DataObjectMap failingMap = new StructSimple_DataObjectMap() {
+			@Override
+			public void DataObjectRemoteDataMap_update(String oid, Map<String, Object> fullMap,
+				Set<String> keys) {
+				if (oid.equals("bad")) {
+					throw new RuntimeException("Failed to store " + oid);
+				}
+				super.DataObjectRemoteDataMap_update(oid, fullMap, keys);
+			}
+			
+			@Override
+			public void DataObjectRemoteDataMap_remove(String oid) {
+				if (oid.equals("bad")) {
+					throw new RuntimeException("Failed to remove " + oid);
+				}
+				super.DataObjectRemoteDataMap_remove(oid);
+			}
+		};
+		failingMap.systemSetup();
+		
+		HazelcastStore_DataObjectMapStore store = new HazelcastStore_DataObjectMapStore();
+		store.dataObjectMap = failingMap;
+		
+		// Only the failed object is left, for hazelcast to retry
+		Map<String, Map<String, Object>> dataMaps = new HashMap<String, Map<String, Object>>();
+		for (String oid : Arrays.asList("good1", "bad", "good2")) {
+			Map<String, Object> data = new HashMap<String, Object>();
+			data.put("_oid", oid);
+			data.put("hello", "world");
+			dataMaps.put(oid, data);
+		}
+		try {
+			store.storeAll(dataMaps);
+			fail("Expected storeAll to fail");
+		} catch (RuntimeException e) {
+			// expected
+		}
+		assertEquals(Arrays.asList("bad"), new ArrayList<String>(dataMaps.keySet()));
+		assertEquals("world", failingMap.DataObjectRemoteDataMap_get("good1").get("hello"));
+		assertEquals("world", failingMap.DataObjectRemoteDataMap_get("good2").get("hello"));
+		
+		// Same for the deletion of objects
+		List<String> oids = new ArrayList<String>(Arrays.asList("good1", "bad", "good2"));
+		try {
+			store.deleteAll(oids);
+			fail("Expected deleteAll to fail");
+		} catch (RuntimeException e) {
+			// expected
+		}
+		assertEquals(Arrays.asList("bad"), oids);
+		assertNull(failingMap.DataObjectRemoteDataMap_get("good1"));
+		assertNull(failingMap.DataObjectRemoteDataMap_get("good2"));
+	}
+	
+	@Test
+	public void mapStoreStackRegistry() {
+		GenericConvertMap<String, Object> hazelcastConfigMap = new GenericConvertHashMap<>();
+		hazelcastConfigMap.put("groupName", "HazelcastStoreMapStore_DataObjectMap_test");
+		hazelcastConfigMap.put("instanceCache", true);
+		
+		GenericConvertMap<String, Object> stackConfig = new GenericConvertHashMap<>();
+		stackConfig.put("name", "HazelcastStoreMapStore_DataObjectMap_test_registry");
+		stackConfig.put("hazelcast", hazelcastConfigMap);
+		
+		// Registered on construction, and unregistered on close
+		StructSimpleStack registryStack = new StructSimpleStack(new GenericConvertHashMap<>());
+		HazelcastStoreStack stack = new HazelcastStoreStack(stackConfig, registryStack);
+		assertSame(registryStack,
+			HazelcastStoreStack.mapStoreStack("HazelcastStoreMapStore_DataObjectMap_test_registry"));
+		stack.close();
+		try {
+			HazelcastStoreStack.mapStoreStack("HazelcastStoreMapStore_DataObjectMap_test_registry");
+			fail("Expected the map store stack to be unregistered");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		
+		// Map store stack requires a name to be registered under
+		stackConfig.put("name", "");
+		try {
+			new HazelcastStoreStack(stackConfig, registryStack);
+			fail("Expected a missing name to be rejected");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
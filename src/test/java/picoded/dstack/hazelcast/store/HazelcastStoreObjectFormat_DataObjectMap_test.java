@@ -0,0 +1,40 @@
+package picoded.dstack.hazelcast.store;
+
+import picoded.core.struct.*;
+import picoded.dstack.*;
+import picoded.dstack.jsql.JSqlTestConfig;
+import picoded.dstack.struct.simple.*;
+import picoded.dstack.hazelcast.core.*;
+
+public class HazelcastStoreObjectFormat_DataObjectMap_test extends StructSimple_DataObjectMap_test {
+	
+	// Hazelcast stack instance
+	protected static volatile HazelcastStack instance = null;
+	
+	// To override for implementation
+	//-----------------------------------------------------
+	
+	/// Impomentation constructor, with OBJECT in-memory format
+	public DataObjectMap implementationConstructor() {
+		
+		// Initialize hazelcast server
+		synchronized (HazelcastStoreObjectFormat_DataObjectMap_test.class) {
+			if (instance == null) {
+				GenericConvertMap<String, Object> hazelcastConfigMap = new GenericConvertHashMap<>();
+				hazelcastConfigMap.put("groupName", "HazelcastStoreObjectFormat_DataObjectMap_test");
+				hazelcastConfigMap.put("instanceCache", true);
+				
+				GenericConvertMap<String, Object> stackConfig = new GenericConvertHashMap<>();
+				stackConfig.put("name", "HazelcastStoreObjectFormat_DataObjectMap_test");
+				stackConfig.put("hazelcast", hazelcastConfigMap);
+				stackConfig.put("dataObjectMapInMemoryFormat", "OBJECT");
+				
+				instance = new HazelcastStoreStack(stackConfig);
+			}
+		}
+		
+		// Load the DataObjectMap
+		return instance.dataObjectMap(JSqlTestConfig.randomTablePrefix());
+	}
+	
+}
@@ -38,4 +38,58 @@ public class JSql_DataObjectMap_test extends StructSimple_DataObjectMap_test {
 		return new JSql_DataObjectMap(jsqlConnection(), JSqlTestConfig.randomTablePrefix());
 	}
 	
+	// Query plan cache
+	//-----------------------------------------------------
+	
+	@Test
+	public void queryPlanCacheRebinding() {
+		// Setup the test objects
+		for (int i = 0; i < 10; ++i) {
+			DataObject obj = mtObj.newEntry();
+			obj.put("num", i);
+			obj.put("str_val", "val-" + i);
+			obj.saveDelta();
+		}
+		
+		// Same query shape, with different arguments
+		assertEquals(3, mtObj.query("num >= ? AND num < ?", new Object[] { 2, 5 }).length);
+		assertEquals(1, mtObj.query("num >= ? AND num < ?", new Object[] { 7, 8 }).length);
+		assertEquals(0, mtObj.query("num >= ? AND num < ?", new Object[] { 20, 30 }).length);
+		assertEquals(1, mtObj.query("str_val = ?", new Object[] { "val-3" }).length);
+		assertEquals(1, mtObj.query("str_val = ?", new Object[] { "val-4" }).length);
+		
+		// Limit and offset are applied on the cached plan
+		String[] ordered = mtObj.query_id("num >= ?", new Object[] { 1 }, "num ASC", 2, 3);
+		assertEquals(3, ordered.length);
+		assertEquals(3, mtObj.get(ordered[0]).getInt("num"));
+		ordered = mtObj.query_id("num >= ?", new Object[] { 4 }, "num ASC", 1, 2);
+		assertEquals(2, ordered.length);
+		assertEquals(5, mtObj.get(ordered[0]).getInt("num"));
+		
+		// Plan cache hits (for the default JSql implementation)
+		if (mtObj instanceof JSql_DataObjectMap) {
+			assertTrue(((JSql_DataObjectMap) mtObj).queryBuilder.planCache.hitCount() >= 4);
+		}
+	}
+	
+	// Value decoding
+	//-----------------------------------------------------
+	
+	@Test
+	public void booleanWithNullStoredValues() {
+		DataObject obj = mtObj.newEntry();
+		obj.put("flag", true);
+		obj.saveDelta();
+		assertEquals(Boolean.TRUE, mtObj.get(obj._oid()).get("flag"));
+		
+		// Boolean rows with a NULL nVl (and no string value) are read as false
+		if (mtObj instanceof JSql_DataObjectMap) {
+			JSql_DataObjectMap map = (JSql_DataObjectMap) mtObj;
+			map.sqlObj.update("UPDATE " + map.dataStorageTable
+				+ " SET nVl = NULL, sVl = NULL, tVl = NULL WHERE oID = ? AND kID = ?", obj._oid(),
+				"flag");
+			assertEquals(Boolean.FALSE, mtObj.get(obj._oid()).get("flag"));
+		}
+	}
+	
 }
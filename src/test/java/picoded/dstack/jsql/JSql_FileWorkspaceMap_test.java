@@ -1,6 +1,18 @@
 package picoded.dstack.jsql;
 
+// Target test class
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
 import picoded.dstack.DataObjectMap;
+import picoded.dstack.FileWorkspace;
 import picoded.dstack.FileWorkspaceMap;
 import picoded.dstack.connector.jsql.JSql;
 import picoded.dstack.struct.simple.StructSimple_FileWorkspaceMap_test;
@@ -21,4 +33,127 @@ public class JSql_FileWorkspaceMap_test extends StructSimple_FileWorkspaceMap_te
 	public FileWorkspaceMap implementationConstructor() {
 		return new JSql_FileWorkspaceMap(jsqlConnection(), JSqlTestConfig.randomTablePrefix());
 	}
+	
+	// Chunked storage test (with a small chunk size)
+	//-----------------------------------------------------
+	
+	@Test
+	public void chunkedWriteAppendAndRangeRead() throws Exception {
+		// Use a tiny chunk size, to force multiple chunks
+		testObj.configMap().put("chunkSize", 7);
+		FileWorkspace fileWorkspace = testObj.newEntry();
+		
+		// Stream write, across multiple chunks
+		String content = "the quick brown fox jumps over the lazy dog";
+		fileWorkspace.writeInputStream("chunk/file.txt",
+			new ByteArrayInputStream(content.getBytes()));
+		assertEquals(content, new String(fileWorkspace.readByteArray("chunk/file.txt")));
+		
+		// Append, filling up the partial last chunk
+		fileWorkspace.appendByteArray("chunk/file.txt", " again".getBytes());
+		content = content + " again";
+		assertEquals(content, new String(fileWorkspace.readByteArray("chunk/file.txt")));
+		assertEquals(content,
+			new String(IOUtils.toByteArray(fileWorkspace.readInputStream("chunk/file.txt"))));
+		
+		// Range reads, across chunk boundaries
+		assertEquals(content.substring(5, 20),
+			new String(fileWorkspace.readByteRange("chunk/file.txt", 5, 15)));
+		assertEquals(content.substring(40), new String(fileWorkspace.readByteRange("chunk/file.txt",
+			40, 100)));
+		
+		// Overwrite with smaller content, removes the older chunks
+		fileWorkspace.writeByteArray("chunk/file.txt", "short".getBytes());
+		assertEquals("short", new String(fileWorkspace.readByteArray("chunk/file.txt")));
+		
+		// Copy, and move
+		fileWorkspace.copyFile("chunk/file.txt", "chunk/copy.txt");
+		assertEquals("short", new String(fileWorkspace.readByteArray("chunk/copy.txt")));
+		fileWorkspace.moveFile("chunk/copy.txt", "chunk/moved.txt");
+		assertEquals("short", new String(fileWorkspace.readByteArray("chunk/moved.txt")));
+	}
+	
+	/// Count the stored chunk rows (including the version pointer) of a file
+	protected int chunkRowCount(FileWorkspace fileWorkspace, String filepath) {
+		JSql_FileWorkspaceMap map = (JSql_FileWorkspaceMap) testObj;
+		return map.sqlObj.select(map.chunkTableName, "pKy", "oID = ? AND path = ?",
+			new Object[] { fileWorkspace._oid(), filepath }).rowCount();
+	}
+	
+	@Test
+	public void failedWriteKeepsPreviousContent() throws Exception {
+		testObj.configMap().put("chunkSize", 4);
+		FileWorkspace fileWorkspace = testObj.newEntry();
+		fileWorkspace.writeByteArray("chunk/file.txt", "original content".getBytes());
+		
+		// 4 chunks, and the version pointer
+		assertEquals(5, chunkRowCount(fileWorkspace, "chunk/file.txt"));
+		
+		// Stream which fails after writing a few chunks
+		InputStream failingStream = new InputStream() {
+			int pos = 0;
+			
+			@Override
+			public int read() throws IOException {
+				if (pos >= 8) {
+					throw new IOException("stream failure");
+				}
+				return 'a' + (pos++);
+			}
+		};
+		try {
+			fileWorkspace.writeInputStream("chunk/file.txt", failingStream);
+			fail("Expected the failing stream write to throw");
+		} catch (RuntimeException e) {
+			// Expected
+		}
+		
+		// Previous content is intact, without left over chunks
+		assertEquals("original content", new String(fileWorkspace.readByteArray("chunk/file.txt")));
+		assertEquals(5, chunkRowCount(fileWorkspace, "chunk/file.txt"));
+		
+		// Overwrite, removes the previous version chunks
+		fileWorkspace.writeByteArray("chunk/file.txt", "short".getBytes());
+		assertEquals("short", new String(fileWorkspace.readByteArray("chunk/file.txt")));
+		assertEquals(3, chunkRowCount(fileWorkspace, "chunk/file.txt"));
+		assertEquals("hor", new String(fileWorkspace.readByteRange("chunk/file.txt", 1, 3)));
+	}
+	
+	@Test
+	public void legacySingleRowFile() throws Exception {
+		testObj.configMap().put("chunkSize", 4);
+		JSql_FileWorkspaceMap map = (JSql_FileWorkspaceMap) testObj;
+		FileWorkspace fileWorkspace = testObj.newEntry();
+		
+		// File row with its data inline, as written before the chunked layout (fTyp 1 is a file)
+		long now = System.currentTimeMillis();
+		map.backend_ensureFolderPath(fileWorkspace._oid(), "legacy/");
+		map.sqlObj.upsert( //
+			map.fileWorkspaceTableName, //
+			new String[] { "oID", "path" }, //
+			new Object[] { fileWorkspace._oid(), "legacy/file.txt" }, //
+			new String[] { "uTm", "data" }, //
+			new Object[] { now, "legacy content".getBytes() }, //
+			new String[] { "cTm", "eTm", "fTyp" }, //
+			new Object[] { now, 0, 1 }, //
+			null //
+			);
+		
+		// Read via the legacy data, without any chunks
+		assertEquals(0, chunkRowCount(fileWorkspace, "legacy/file.txt"));
+		assertEquals("legacy content", new String(fileWorkspace.readByteArray("legacy/file.txt")));
+		assertEquals("legacy content",
+			new String(IOUtils.toByteArray(fileWorkspace.readInputStream("legacy/file.txt"))));
+		assertEquals("acy", new String(fileWorkspace.readByteRange("legacy/file.txt", 3, 3)));
+		assertEquals("content", new String(fileWorkspace.readByteRange("legacy/file.txt", 7,
+			Integer.MAX_VALUE)));
+		
+		// Append, converts it to the chunked layout
+		fileWorkspace.appendByteArray("legacy/file.txt", " appended".getBytes());
+		assertEquals("legacy content appended",
+			new String(fileWorkspace.readByteArray("legacy/file.txt")));
+		assertEquals(7, chunkRowCount(fileWorkspace, "legacy/file.txt"));
+		assertEquals("content app", new String(fileWorkspace.readByteRange("legacy/file.txt", 7,
+			11)));
+	}
 }
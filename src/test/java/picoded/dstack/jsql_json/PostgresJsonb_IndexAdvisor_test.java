@@ -0,0 +1,51 @@
+package picoded.dstack.jsql_json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+
+// Test dependency
+import org.junit.Test;
+
+import picoded.core.struct.GenericConvertHashMap;
+
+/**
+ * Test the workload parsing of the index advisor, which does not require a database
+ */
+public class PostgresJsonb_IndexAdvisor_test {
+	
+	@Test
+	public void fieldUsage_test() {
+		Set<String> usage = PostgresJsonb_IndexAdvisor.fieldUsage(
+			"num >= ? AND str_val = ? AND _oid = ? AND opt = ?", new Object[] { 1, "a", "oid", null },
+			"name DESC");
+		assertTrue(usage.contains("NUM:num"));
+		assertTrue(usage.contains("STR:str_val"));
+		assertTrue(usage.contains("STR:name"));
+		assertEquals(3, usage.size());
+		
+		// No where clause
+		usage = PostgresJsonb_IndexAdvisor.fieldUsage(null, null, null);
+		assertTrue(usage.isEmpty());
+	}
+	
+	@Test
+	public void indexNaming_test() {
+		PostgresJsonb_IndexAdvisor advisor = new PostgresJsonb_IndexAdvisor(null, "DJ_test",
+			new GenericConvertHashMap<String, Object>());
+		
+		String name = advisor.indexName("some.field", PostgresJsonb_IndexAdvisor.KIND_NUM);
+		assertTrue(name.startsWith(PostgresJsonb_IndexAdvisor.INDEX_PREFIX));
+		assertTrue(name.endsWith("_num_somefield"));
+		assertTrue(name.length() <= 63);
+		assertFalse(name.equals(advisor.indexName("somefield", PostgresJsonb_IndexAdvisor.KIND_NUM)));
+		
+		// Matches the expression generated by JsonbUtils
+		assertEquals("((data->>'num')::numeric)", PostgresJsonb_IndexAdvisor.indexExpression("num",
+			PostgresJsonb_IndexAdvisor.KIND_NUM));
+		assertEquals("(data->>'num')", PostgresJsonb_IndexAdvisor.indexExpression("num",
+			PostgresJsonb_IndexAdvisor.KIND_STR));
+	}
+}
@@ -1,6 +1,11 @@
 package picoded.dstack.jsql_json.postgres;
 
+// Test system include
+import static org.junit.Assert.*;
+import org.junit.*;
+
 // Test depends
+import picoded.core.struct.GenericConvertHashMap;
 import picoded.dstack.*;
 import picoded.dstack.jsql.*;
 import picoded.dstack.jsql_json.*;
@@ -24,4 +29,57 @@ public class JSql_Json_DataObjectMap_Postgres_test extends JSql_DataObjectMap_te
 		return new PostgresJsonb_DataObjectMap(jsqlConnection(), JSqlTestConfig.randomTablePrefix());
 	}
 	
+	// Query with prepopulated objects
+	//-----------------------------------------------------
+	
+	@Test
+	public void queryPrepopulatedObjects() {
+		for (int i = 0; i < 5; ++i) {
+			DataObject obj = mtObj.newEntry();
+			obj.put("num", i);
+			obj.put("str_val", "val-" + i);
+			obj.put("bin", new byte[] { (byte) i });
+			obj.saveDelta();
+		}
+		
+		DataObject[] res = mtObj.query("num >= ?", new Object[] { 2 }, "num DESC", -1, -1);
+		assertEquals(3, res.length);
+		
+		// Data was fetched within the query itself, and is available without the backend rows
+		mtObj.clear();
+		assertEquals(4, res[0].getInt("num"));
+		assertEquals("val-3", res[1].getString("str_val"));
+		assertArrayEquals(new byte[] { 2 }, (byte[]) res[2].get("bin"));
+	}
+	
+	// Workload driven auto indexing
+	//-----------------------------------------------------
+	
+	@Test
+	public void workloadAutoIndexing() {
+		GenericConvertHashMap<String, Object> config = new GenericConvertHashMap<String, Object>();
+		config.put("autoIndexMinHits", 3);
+		config.put("autoIndexConcurrently", false);
+		PostgresJsonb_DataObjectMap map = new PostgresJsonb_DataObjectMap(jsqlConnection(),
+			JSqlTestConfig.randomTablePrefix(), config);
+		map.systemSetup();
+		try {
+			for (int i = 0; i < 5; ++i) {
+				map.query("num >= ?", new Object[] { i }, null, -1, -1);
+			}
+			map.query("str_val = ?", new Object[] { "val" }, null, -1, -1);
+			map.maintenance();
+			
+			// Only the hot numeric usage is indexed
+			PostgresJsonb_IndexAdvisor advisor = map.indexAdvisor();
+			String numIndex = advisor.indexName("num", PostgresJsonb_IndexAdvisor.KIND_NUM);
+			assertTrue(advisor.indexNames().contains(numIndex));
+			assertEquals(1, advisor.indexNames().size());
+			assertEquals(true, advisor.fieldStats().get(numIndex).get("indexed"));
+			assertEquals(1, advisor.decisionLog().size());
+		} finally {
+			map.systemDestroy();
+		}
+	}
+	
 }
@@ -0,0 +1,142 @@
+package picoded.dstack.stack;
+
+// Target test class
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+// Java includes
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+// Test Case include
+import org.junit.Test;
+
+// Test depends
+import picoded.dstack.*;
+import picoded.dstack.core.*;
+import picoded.dstack.struct.simple.*;
+
+public class Migration_DataObjectMap_test extends StructSimple_DataObjectMap_test {
+	
+	// To override for implementation
+	//-----------------------------------------------------
+	
+	/// Source DataObjectMap implmentation used
+	public Core_DataObjectMap source;
+	
+	/// Target DataObjectMap implmentation used
+	public Core_DataObjectMap target;
+	
+	/// Impomentation constructor for migration setup
+	public DataObjectMap implementationConstructor() {
+		source = new StructSimple_DataObjectMap();
+		target = new StructSimple_DataObjectMap();
+		return new Migration_DataObjectMap(source, target);
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Migration testing
+	//
+	//--------------------------------------------------------------------------
+	
+	/// Bulk copy, resume, dual write and cutover
+	@Test
+	public void copyAndCutover() {
+		Migration_DataObjectMap migration = (Migration_DataObjectMap) mtObj;
+		
+		// Setup existing data in the source
+		for (int i = 0; i < 25; ++i) {
+			DataObject data = source.newEntry();
+			data.put("num", i);
+			data.saveAll();
+		}
+		assertEquals(0, target.size());
+		
+		// Bulk copy in small batches
+		assertEquals(25, migration.copyAll(3, 4));
+		assertNotNull(migration.checkpoint());
+		assertEquals(25, target.size());
+		
+		// Resuming after completion, copies nothing new
+		assertEquals(0, migration.copyAll(3, 4));
+		
+		// Dual write during migration
+		DataObject dual = mtObj.newEntry();
+		dual.put("hello", "world");
+		dual.saveAll();
+		assertEquals("world", target.get(dual._oid()).get("hello"));
+		
+		// Verify and cutover
+		assertEquals(0, migration.verifySample(10).size());
+		migration.cutover(10);
+		assertEquals(Migration_DataObjectMap.Phase.CUTOVER, migration.phase());
+		
+		// Removal is applied to both
+		mtObj.remove(dual._oid());
+		assertNull(source.get(dual._oid()));
+		assertNull(target.get(dual._oid()));
+	}
+	
+	/// Resuming from a checkpoint, whose object was removed, continues in _oid order
+	@Test
+	public void resumeFromRemovedCheckpoint() {
+		Migration_DataObjectMap migration = (Migration_DataObjectMap) mtObj;
+		
+		// Setup existing data in the source
+		List<String> oidList = new ArrayList<String>();
+		for (int i = 0; i < 10; ++i) {
+			DataObject data = source.newEntry();
+			data.put("num", i);
+			data.saveAll();
+			oidList.add(data._oid());
+		}
+		Collections.sort(oidList);
+		
+		// Checkpoint at an object, which is then removed
+		migration.updateCheckpoint(oidList.get(4));
+		source.remove(oidList.get(4));
+		
+		// Only the objects after the checkpoint are copied, once each
+		assertEquals(5, migration.copyAll(2, 2));
+		assertEquals(new HashSet<String>(oidList.subList(5, 10)), target.keySet());
+		assertEquals(oidList.get(9), migration.checkpoint());
+	}
+	
+	/// Copy replaces the existing target object, including its removed keys
+	@Test
+	public void copyReplacesTargetObject() {
+		Migration_DataObjectMap migration = (Migration_DataObjectMap) mtObj;
+		DataObject data = source.newEntry();
+		data.put("hello", "world");
+		data.saveAll();
+		
+		// Existing target object, with a key no longer in the source
+		Map<String, Object> stale = new HashMap<String, Object>();
+		stale.put("_oid", data._oid());
+		stale.put("hello", "old");
+		stale.put("removed", "value");
+		target.DataObjectRemoteDataMap_update(data._oid(), stale, stale.keySet());
+		
+		migration.copyObject(data._oid());
+		assertEquals("world", target.get(data._oid()).get("hello"));
+		assertNull(target.get(data._oid()).get("removed"));
+		assertEquals(0, migration.verifySample(5).size());
+	}
+	
+	/// Verification detects mismatched objects
+	@Test
+	public void verifyMismatch() {
+		Migration_DataObjectMap migration = (Migration_DataObjectMap) mtObj;
+		DataObject data = source.newEntry();
+		data.put("hello", "world");
+		data.saveAll();
+		assertTrue(migration.verifySample(5).contains(data._oid()));
+	}
+}
@@ -0,0 +1,160 @@
+package picoded.dstack.stack;
+
+// Target test class
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+// Java imports
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Test Case include
+import org.junit.Test;
+
+// Test depends
+import picoded.dstack.*;
+import picoded.dstack.core.*;
+import picoded.dstack.struct.simple.*;
+
+public class Shard_DataObjectMap_test extends StructSimple_DataObjectMap_test {
+	
+	// To override for implementation
+	//-----------------------------------------------------
+	
+	/// Shard DataObjectMap implmentation used
+	public Core_DataObjectMap[] shards;
+	
+	/// Impomentation constructor for sharded setup
+	public DataObjectMap implementationConstructor() {
+		shards = new Core_DataObjectMap[] { new StructSimple_DataObjectMap(),
+			new StructSimple_DataObjectMap(), new StructSimple_DataObjectMap() };
+		return new Shard_DataObjectMap(shards);
+	}
+	
+	//--------------------------------------------------------------------------
+	//
+	// Sharding testing
+	//
+	//--------------------------------------------------------------------------
+	
+	/// Objects are routed to a single shard, by their object ID
+	@Test
+	public void shardRouting() {
+		Shard_DataObjectMap shardMap = (Shard_DataObjectMap) mtObj;
+		for (int i = 0; i < 30; ++i) {
+			DataObject data = mtObj.newEntry();
+			data.put("num", i);
+			data.saveAll();
+			
+			String oid = data._oid();
+			int idx = shardMap.shardIndex(oid);
+			for (int s = 0; s < shards.length; ++s) {
+				assertEquals(s == idx, shards[s].containsKey(oid));
+			}
+		}
+		assertEquals(30, mtObj.size());
+		assertEquals(30, mtObj.keySet().size());
+	}
+	
+	/// Ordered and unordered paging, across all shards
+	@Test
+	public void mergedQueryPaging() {
+		for (int i = 0; i < 40; ++i) {
+			DataObject data = mtObj.newEntry();
+			data.put("num", i % 20);
+			data.saveAll();
+		}
+		assertEquals(20, mtObj.queryCount("num < ?", new Object[] { 10 }));
+		
+		// Ordered paging, matches the full ordered result
+		String[] all = mtObj.query_id(null, null, "num DESC", -1, -1);
+		assertEquals(40, all.length);
+		List<String> paged = new ArrayList<String>();
+		for (int offset = 0; offset < 40; offset += 7) {
+			for (String oid : mtObj.query_id(null, null, "num DESC", offset, 7)) {
+				paged.add(oid);
+			}
+		}
+		assertArrayEquals(all, paged.toArray(new String[0]));
+		assertEquals(19, mtObj.get(all[0]).getInt("num"));
+		assertEquals(0, mtObj.get(all[39]).getInt("num"));
+		
+		// Unordered paging, covers every object once
+		Set<String> unordered = new HashSet<String>();
+		for (int offset = 0; offset < 40; offset += 9) {
+			for (String oid : mtObj.query_id(null, null, null, offset, 9)) {
+				assertTrue(unordered.add(oid));
+			}
+		}
+		assertEquals(40, unordered.size());
+	}
+	
+	/// Ordered paging, where all objects tie on the sort key
+	@Test
+	public void tiedQueryPaging() {
+		for (int i = 0; i < 30; ++i) {
+			DataObject data = mtObj.newEntry();
+			data.put("tie", 1);
+			data.saveAll();
+		}
+		
+		// Pages neither overlap nor skip objects
+		String[] all = mtObj.query_id(null, null, "tie ASC", -1, -1);
+		Set<String> paged = new HashSet<String>();
+		for (int offset = 0; offset < 30; offset += 4) {
+			for (String oid : mtObj.query_id(null, null, "tie ASC", offset, 4)) {
+				assertTrue(paged.add(oid));
+			}
+		}
+		assertEquals(new HashSet<String>(Arrays.asList(all)), paged);
+		
+		// Large limits does not overflow the per shard fetch limit
+		assertEquals(25, mtObj.query_id(null, null, "tie ASC", 5, Integer.MAX_VALUE).length);
+	}
+	
+	/// The fan out executor is shutdown on destroy, and recreated on reuse
+	@Test
+	public void executorShutdownOnDestroy() {
+		Shard_DataObjectMap shardMap = (Shard_DataObjectMap) mtObj;
+		mtObj.newEntry().saveAll();
+		assertEquals(1, mtObj.queryCount(null, null));
+		assertNotNull(shardMap.executor);
+		
+		mtObj.systemDestroy();
+		assertNull(shardMap.executor);
+		
+		mtObj.systemSetup();
+		mtObj.queryCount(null, null);
+		assertNotNull(shardMap.executor);
+	}
+	
+	/// Random and loose iteration, across all shards
+	@Test
+	public void crossShardIteration() {
+		assertNull(mtObj.randomObjectID());
+		assertNull(mtObj.looselyIterateObjectID(null));
+		
+		Set<String> expected = new HashSet<String>();
+		for (int i = 0; i < 20; ++i) {
+			DataObject data = mtObj.newEntry();
+			data.put("num", i);
+			data.saveAll();
+			expected.add(data._oid());
+		}
+		assertNotNull(mtObj.randomObjectID());
+		
+		Set<String> iterated = new HashSet<String>();
+		String oid = mtObj.looselyIterateObjectID(null);
+		while (oid != null) {
+			assertTrue(iterated.add(oid));
+			oid = mtObj.looselyIterateObjectID(oid);
+		}
+		assertEquals(expected, iterated);
+	}
+}
@@ -59,4 +59,61 @@ public class Stack_FileWorkspaceMap_test extends StructSimple_FileWorkspaceMap_t
 		assertNotNull(data);
 		assertArrayEquals("world".getBytes(), data.readByteArray("hello"));
 	}
+	
+	/// Lower layered stream read, with background backfill of the upper layer
+	@Test
+	public void lowerLayerStreamReadBackfill() throws Exception {
+		// Setup the lower layer
+		FileWorkspace data = layer2.newEntry();
+		data.writeByteArray("hello", "world".getBytes());
+		String oid = data._oid();
+		
+		// Stream from the stack
+		data = testObj.get(oid);
+		assertNotNull(data);
+		try (java.io.InputStream in = data.readInputStream("hello")) {
+			assertArrayEquals("world".getBytes(), org.apache.commons.io.IOUtils.toByteArray(in));
+		}
+		
+		// Upper layer should be populated in the background
+		for (int i = 0; i < 100 && !layer1.backend_fileExist(oid, "hello"); ++i) {
+			Thread.sleep(20);
+		}
+		assertArrayEquals("world".getBytes(), layer1.backend_fileRead(oid, "hello"));
+		
+		// Range reads are served from the stack
+		assertArrayEquals("orl".getBytes(), data.readByteRange("hello", 1, 3));
+	}
+	
+	/// Stale backfill is skipped, only for writes to the same file
+	@Test
+	public void staleBackfillSkipped() {
+		Stack_FileWorkspaceMap stack = (Stack_FileWorkspaceMap) testObj;
+		String oid = "stackTestOid";
+		layer2.backend_fileWrite(oid, "hello", "world".getBytes());
+		
+		// Write to an unrelated file, does not invalidate the backfill
+		long generation = stack.writeGeneration(oid, "hello");
+		stack.backend_fileWrite(oid, "other", "data".getBytes());
+		assertTrue(stack.conditionalBackfill(oid, "hello", generation, () -> {
+			layer1.backend_fileWrite(oid, "hello", "world".getBytes());
+		}));
+		assertArrayEquals("world".getBytes(), layer1.backend_fileRead(oid, "hello"));
+		
+		// Write to the same file after the read, skips the stale backfill
+		generation = stack.writeGeneration(oid, "hello");
+		stack.backend_fileWrite(oid, "hello", "newer".getBytes());
+		assertFalse(stack.conditionalBackfill(oid, "hello", generation, () -> {
+			layer1.backend_fileWrite(oid, "hello", "world".getBytes());
+		}));
+		assertArrayEquals("newer".getBytes(), layer1.backend_fileRead(oid, "hello"));
+		
+		// Workspace wide removal, also skips the stale backfill
+		generation = stack.writeGeneration(oid, "hello");
+		stack.backend_workspaceRemove(oid);
+		assertFalse(stack.conditionalBackfill(oid, "hello", generation, () -> {
+			layer1.backend_fileWrite(oid, "hello", "world".getBytes());
+		}));
+		assertNull(layer1.backend_fileRead(oid, "hello"));
+	}
 }
@@ -8,7 +8,9 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 
 // Test Case include
 import org.junit.After;
@@ -56,4 +58,38 @@ public class Stack_KeyValueMap_test extends StructSimple_KeyValueMap_test {
 		layer1.put("hello", "meow");
 		assertEquals("meow", testObj.getString("hello"));
 	}
+	
+	/// Lower layered bulk read, with grouped write back to the upper layer
+	@Test
+	public void lowerLayerBulkRead() {
+		// Setup the lower layer, with two different expiry groups
+		Map<String, String> values = new HashMap<String, String>();
+		values.put("bulk1", "one");
+		values.put("bulk2", "two");
+		layer2.putValues(values, 0);
+		values = new HashMap<String, String>();
+		values.put("bulk3", "three");
+		layer2.putValues(values, 60000);
+		
+		// Setup the upper layer, which takes precedence
+		layer1.put("bulk4", "four");
+		layer2.put("bulk4", "lower");
+		
+		// Bulk read from the stack
+		Map<String, String> res = testObj.getValues(Arrays.asList("bulk1", "bulk2", "bulk3", "bulk4",
+			"missing"));
+		assertEquals(4, res.size());
+		assertEquals("one", res.get("bulk1"));
+		assertEquals("three", res.get("bulk3"));
+		assertEquals("four", res.get("bulk4"));
+		
+		// Lower layer values are written back, with their respective expiry
+		assertEquals("one", layer1.getValue("bulk1"));
+		assertEquals("two", layer1.getValue("bulk2"));
+		assertEquals("three", layer1.getValue("bulk3"));
+		assertEquals(0, layer1.getExpiry("bulk1"));
+		assertEquals(layer2.getExpiry("bulk3"), layer1.getExpiry("bulk3"));
+		assertTrue(layer1.getExpiry("bulk3") > 0);
+		assertNull(layer1.getValue("missing"));
+	}
 }
@@ -289,4 +289,51 @@ public class StructSimpleStack_test {
 		}
 		assertTrue(keys.size() == 0);
 	}
+	
+	// Concurrent initialization, and parallel setup
+	//-----------------------------------------------------
+	
+	@Test
+	public void test_concurrentStructureInitialization() throws Exception {
+		// Resolve the same structure from multiple threads
+		final int threadCount = 8;
+		final DataObjectMap[] resultArray = new DataObjectMap[threadCount];
+		Thread[] threadArray = new Thread[threadCount];
+		for (int i = 0; i < threadCount; ++i) {
+			final int idx = i;
+			threadArray[i] = new Thread(() -> {
+				resultArray[idx] = testObj.dataObjectMap(tablePrefix);
+			});
+			threadArray[i].start();
+		}
+		for (Thread thread : threadArray) {
+			thread.join();
+		}
+		
+		// All threads should get the exact same instance
+		assertNotNull(resultArray[0]);
+		for (int i = 1; i < threadCount; ++i) {
+			assertTrue(resultArray[0] == resultArray[i]);
+		}
+	}
+	
+	@Test
+	public void test_parallelSystemSetup() {
+		// Initialize several structures, and set them up together
+		DataObjectMap dataObjectMap = testObj.dataObjectMap(tablePrefix + "_pdo");
+		KeyValueMap keyValueMap = testObj.keyValueMap(tablePrefix + "_pkv");
+		KeyLongMap keyLongMap = testObj.keyLongMap(tablePrefix + "_pkl");
+		testObj.parallelSystemSetup();
+		
+		// And validate they are usable
+		keyValueMap.put("testing", "value");
+		assertEquals("value", keyValueMap.getString("testing"));
+		keyLongMap.putLong("testing", 5L);
+		assertEquals(5L, keyLongMap.getLong("testing"));
+		
+		DataObject newEntry = dataObjectMap.newEntry();
+		newEntry.put("Testing", "value");
+		newEntry.saveAll();
+		assertEquals("value", dataObjectMap.get(newEntry._oid()).getString("Testing"));
+	}
 }
@@ -0,0 +1,86 @@
+package picoded.dstack.struct.simple;
+
+// Test system include
+import static org.junit.Assert.*;
+import org.junit.*;
+
+// Java includes
+import java.util.*;
+
+// Test depends
+import picoded.core.struct.query.Query;
+import picoded.dstack.*;
+
+// StructSimple_DataObjectMap, with secondary indexes configured
+public class StructSimple_DataObjectMapIndex_test extends StructSimple_DataObjectMap_test {
+	
+	// To override for implementation
+	//-----------------------------------------------------
+	public DataObjectMap implementationConstructor() {
+		StructSimple_DataObjectMap map = new StructSimple_DataObjectMap();
+		map.configMap().put("index", new String[] { "num", "order", "page_num" });
+		map.configMap().put("hashIndex", new String[] { "str_val" });
+		return map;
+	}
+	
+	// Index specific testing
+	//-----------------------------------------------------
+	
+	@Test
+	public void indexMaintenanceAndCandidates() {
+		StructSimple_DataObjectMap map = (StructSimple_DataObjectMap) mtObj;
+		
+		DataObject a = mtObj.newEntry();
+		a.put("num", 1);
+		a.put("str_val", "Hello");
+		a.saveDelta();
+		
+		DataObject b = mtObj.newEntry();
+		b.put("num", 5);
+		b.put("str_val", "world");
+		b.saveDelta();
+		
+		// Equality and range candidates
+		Set<String> res = map.queryCandidates(Query.build("str_val = ?", new Object[] { "hello" }),
+			map.indexMap());
+		assertEquals(new HashSet<String>(Arrays.asList(a._oid())), res);
+		res = map.queryCandidates(Query.build("num > ?", new Object[] { 2 }), map.indexMap());
+		assertEquals(new HashSet<String>(Arrays.asList(b._oid())), res);
+		
+		// Index is updated on changes
+		b.put("num", 0);
+		b.saveDelta();
+		assertEquals(0, mtObj.query("num > ?", new Object[] { 2 }).length);
+		assertEquals(2, mtObj.query("num < ?", new Object[] { 2 }).length);
+		
+		// And on removal
+		mtObj.remove(a._oid());
+		assertEquals(0, mtObj.query("str_val = ?", new Object[] { "Hello" }).length);
+		res = map.queryCandidates(Query.build("num < ?", new Object[] { 2 }), map.indexMap());
+		assertEquals(new HashSet<String>(Arrays.asList(b._oid())), res);
+	}
+	
+	@Test
+	public void orderedIndexQuery() {
+		for (int i = 0; i < 20; ++i) {
+			DataObject entry = mtObj.newEntry();
+			entry.put("order", 19 - i);
+			entry.saveDelta();
+		}
+		DataObject[] qRes = mtObj.query(null, null, "order DESC", 2, 3);
+		assertEquals(3, qRes.length);
+		assertEquals(17, qRes[0].get("order"));
+		assertEquals(16, qRes[1].get("order"));
+		assertEquals(15, qRes[2].get("order"));
+		
+		// Large limits, with an offset, does not overflow into an early stop
+		qRes = mtObj.query(null, null, "order DESC", 2, Integer.MAX_VALUE);
+		assertEquals(18, qRes.length);
+		assertEquals(17, qRes[0].get("order"));
+		assertEquals(0, qRes[17].get("order"));
+		qRes = mtObj.query("order < ?", new Object[] { 10 }, "order ASC", 3, Integer.MAX_VALUE);
+		assertEquals(7, qRes.length);
+		assertEquals(3, qRes[0].get("order"));
+		assertEquals(9, qRes[6].get("order"));
+	}
+}
@@ -14,6 +14,7 @@ import org.apache.commons.lang3.RandomUtils;
 import picoded.core.conv.GUID;
 import picoded.core.struct.*;
 import picoded.dstack.*;
+import picoded.dstack.core.Core_DataObjectMap;
 import picoded.dstack.struct.simple.*;
 
 // DataObjectMap base test class
@@ -455,6 +456,191 @@ public class StructSimple_DataObjectMap_test {
 		assertArrayEquals((byte[]) (data.get("bin")), (byte[]) (to.get("bin")));
 	}
 	
+	@Test
+	@SuppressWarnings("unchecked")
+	public void nestedValueCopyOnWrite() {
+		Map<String, Object> inner = new HashMap<String, Object>();
+		inner.put("count", 1);
+		Map<String, Object> data = new HashMap<String, Object>();
+		data.put("inner", inner);
+		data.put("arrs", new ArrayList<Object>(Arrays.asList("a", "b")));
+		
+		DataObject mo = null;
+		assertNotNull(mo = mtObj.newEntry(data));
+		mo.saveDelta();
+		
+		// Reads do not allow the stored value to be modified, without it being saved
+		DataObject to = mtObj.get(mo._oid());
+		Map<String, Object> view = (Map<String, Object>) to.get("inner");
+		assertEquals(1, ((Number) view.get("count")).intValue());
+		view.put("count", 2);
+		((List<Object>) to.get("arrs")).add("c");
+		assertEquals(1, ((Number) inner.get("count")).intValue());
+		
+		// Changes via the view are part of the delta changes
+		assertEquals(2, ((Number) ((Map<String, Object>) to.get("inner")).get("count")).intValue());
+		assertEquals(3, ((List<Object>) to.get("arrs")).size());
+		to.saveDelta();
+		
+		// And is saved
+		DataObject saved = mtObj.get(mo._oid());
+		assertEquals(2, ((Number) ((Map<String, Object>) saved.get("inner")).get("count")).intValue());
+		assertEquals(Arrays.asList("a", "b", "c"), saved.get("arrs"));
+		
+		// Putting back a modified view, does not share it with the object
+		Map<String, Object> copy = (Map<String, Object>) saved.get("inner");
+		copy.put("count", 3);
+		saved.put("other", copy);
+		copy.put("count", 4);
+		assertEquals(3, ((Number) ((Map<String, Object>) saved.get("other")).get("count")).intValue());
+		assertTrue(saved.keySet().contains("other"));
+	}
+	
+	@Test
+	@SuppressWarnings("unchecked")
+	public void nestedValueViewsRebase() {
+		Map<String, Object> deep = new HashMap<String, Object>();
+		deep.put("level", 1);
+		Map<String, Object> inner = new HashMap<String, Object>();
+		inner.put("count", 1);
+		inner.put("deep", deep);
+		Map<String, Object> data = new HashMap<String, Object>();
+		data.put("inner", inner);
+		
+		DataObject mo = null;
+		assertNotNull(mo = mtObj.newEntry(data));
+		mo.saveDelta();
+		DataObject to = mtObj.get(mo._oid());
+		
+		// Two views taken before either writes, keeps both changes
+		Map<String, Object> viewA = (Map<String, Object>) to.get("inner");
+		Map<String, Object> viewB = (Map<String, Object>) to.get("inner");
+		viewA.put("a", 1);
+		viewB.put("b", 2);
+		Map<String, Object> res = (Map<String, Object>) to.get("inner");
+		assertEquals(1, ((Number) res.get("a")).intValue());
+		assertEquals(2, ((Number) res.get("b")).intValue());
+		
+		// Same for nested views
+		Map<String, Object> deepA = (Map<String, Object>) ((Map<String, Object>) to.get("inner"))
+			.get("deep");
+		Map<String, Object> deepB = (Map<String, Object>) ((Map<String, Object>) to.get("inner"))
+			.get("deep");
+		deepA.put("a", 1);
+		deepB.put("b", 2);
+		res = (Map<String, Object>) ((Map<String, Object>) to.get("inner")).get("deep");
+		assertEquals(1, ((Number) res.get("level")).intValue());
+		assertEquals(1, ((Number) res.get("a")).intValue());
+		assertEquals(2, ((Number) res.get("b")).intValue());
+		
+		// A view taken before a put, writes onto the new value
+		Map<String, Object> stale = (Map<String, Object>) to.get("inner");
+		Map<String, Object> replaced = new HashMap<String, Object>();
+		replaced.put("count", 5);
+		to.put("inner", replaced);
+		stale.put("c", 3);
+		res = (Map<String, Object>) to.get("inner");
+		assertEquals(5, ((Number) res.get("count")).intValue());
+		assertEquals(3, ((Number) res.get("c")).intValue());
+		assertFalse(res.containsKey("a"));
+		assertFalse(replaced.containsKey("c"));
+		
+		// And is saved
+		to.saveDelta();
+		res = (Map<String, Object>) mtObj.get(mo._oid()).get("inner");
+		assertEquals(5, ((Number) res.get("count")).intValue());
+		assertEquals(3, ((Number) res.get("c")).intValue());
+	}
+	
+	// Field projected get / query
+	//-----------------------------------------------
+	@Test
+	public void fieldProjectedGetAndQuery() {
+		for (int i = 0; i < 5; ++i) {
+			Map<String, Object> data = new HashMap<String, Object>();
+			data.put("name", "proj" + i);
+			data.put("num", i);
+			data.put("desc", "some long description " + i);
+			data.put("bin", new byte[] { 1, 2, 3, (byte) i });
+			mtObj.newEntry(data).saveDelta();
+		}
+		String oid = mtObj.query_id("num = ?", new Object[] { 2 }, null)[0];
+		
+		// Partial get, with requested (and missing) fields
+		DataObject partial = mtObj.get(oid, "name", "missing");
+		assertNotNull(partial);
+		assertEquals("proj2", partial.get("name"));
+		assertNull(partial.get("missing"));
+		
+		// Remaining fields are lazily loaded
+		assertEquals(2, partial.getInt("num"));
+		assertArrayEquals(new byte[] { 1, 2, 3, 2 }, (byte[]) partial.get("bin"));
+		
+		// Binary fields can be projected, and missing objects return null
+		assertArrayEquals(new byte[] { 1, 2, 3, 2 }, (byte[]) mtObj.get(oid, "bin").get("bin"));
+		assertNull(mtObj.get("does-not-exist", "name"));
+		
+		// Partial query, in the requested order
+		DataObject[] res = mtObj.query("num >= ?", new Object[] { 1 }, "num DESC", 0, 3,
+			new String[] { "name" });
+		assertEquals(3, res.length);
+		assertEquals("proj4", res[0].get("name"));
+		assertEquals("proj2", res[2].get("name"));
+		assertEquals("some long description 3", res[1].get("desc"));
+		
+		// Partial objects can be modified and saved
+		res[0].put("name", "renamed");
+		res[0].saveDelta();
+		DataObject saved = mtObj.get(res[0]._oid());
+		assertEquals("renamed", saved.get("name"));
+		assertEquals("some long description 4", saved.get("desc"));
+	}
+	
+	// Bulk replace / remove of the remote data
+	//-----------------------------------------------
+	@Test
+	public void bulkRemoteDataReplaceAndRemove() {
+		Core_DataObjectMap coreMap = (Core_DataObjectMap) mtObj;
+		
+		// Setup existing objects, with a key to be removed
+		List<String> oids = new ArrayList<String>();
+		for (int i = 0; i < 3; ++i) {
+			DataObject entry = mtObj.newEntry();
+			entry.put("num", i);
+			entry.put("stale", "old" + i);
+			entry.saveAll();
+			oids.add(entry._oid());
+		}
+		
+		// Replace existing and new objects, in a single call
+		String newOid = GUID.base58();
+		Map<String, Map<String, Object>> dataMaps = new HashMap<String, Map<String, Object>>();
+		for (int i = 0; i < 3; ++i) {
+			Map<String, Object> data = new HashMap<String, Object>();
+			data.put("_oid", oids.get(i));
+			data.put("num", i + 10);
+			dataMaps.put(oids.get(i), data);
+		}
+		Map<String, Object> newData = new HashMap<String, Object>();
+		newData.put("_oid", newOid);
+		newData.put("num", 99);
+		dataMaps.put(newOid, newData);
+		coreMap.DataObjectRemoteDataMap_replaceAll(dataMaps);
+		
+		for (int i = 0; i < 3; ++i) {
+			DataObject entry = mtObj.get(oids.get(i));
+			assertEquals(i + 10, entry.getInt("num"));
+			assertNull(entry.get("stale"));
+		}
+		assertEquals(99, mtObj.get(newOid).getInt("num"));
+		
+		// Remove multiple objects, in a single call
+		coreMap.DataObjectRemoteDataMap_removeAll(Arrays.asList(oids.get(0), newOid));
+		assertNull(mtObj.get(oids.get(0)));
+		assertNull(mtObj.get(newOid));
+		assertNotNull(mtObj.get(oids.get(1)));
+	}
+	
 	// Orderby sorting
 	//-----------------------------------------------
 	
@@ -1434,4 +1620,99 @@ public class StructSimple_DataObjectMap_test {
 		Object[] fallbackArr = new Object[]{"fb"};
 		assertArrayEquals(fallbackArr, retrieved.getObjectArray("nonExistent", fallbackArr));
 	}
+
+	@Test
+	public void topKAndKeysetPagination() {
+		// Setup data with duplicated sort keys
+		for (int i = 0; i < 30; ++i) {
+			DataObject entry = mtObj.newEntry();
+			entry.put("page_num", i % 7);
+			entry.saveDelta();
+		}
+
+		// Full ordering to compare against
+		String[] full = mtObj.query_id(null, null, "page_num ASC", -1, -1);
+		assertEquals(30, full.length);
+
+		// Small pages (top-K) matches the full ordering
+		assertArrayEquals(Arrays.copyOfRange(full, 0, 5),
+			mtObj.query_id(null, null, "page_num ASC", 0, 5));
+		assertArrayEquals(Arrays.copyOfRange(full, 3, 7),
+			mtObj.query_id(null, null, "page_num ASC", 3, 4));
+
+		// Large limits does not overflow into the top-K selection
+		assertArrayEquals(full, mtObj.query_id(null, null, "page_num ASC", 0, Integer.MAX_VALUE));
+		assertArrayEquals(Arrays.copyOfRange(full, 3, 30),
+			mtObj.query_id(null, null, "page_num ASC", 3, Integer.MAX_VALUE));
+
+		// Keyset pagination, iterates all objects in order
+		List<String> seekList = new ArrayList<String>();
+		DataObject after = null;
+		while (true) {
+			DataObject[] page = mtObj.query_seek(null, null, "page_num ASC", after, 4);
+			if (page.length == 0) {
+				break;
+			}
+			for (DataObject obj : page) {
+				seekList.add(obj._oid());
+			}
+			after = page[page.length - 1];
+		}
+		assertArrayEquals(full, seekList.toArray(new String[0]));
+
+		// Keyset pagination, with a where clause and descending order
+		String[] filtered = mtObj.query_id("page_num > ?", new Object[] { 2 }, "page_num DESC", -1,
+			-1);
+		seekList = new ArrayList<String>();
+		after = null;
+		while (true) {
+			DataObject[] page = mtObj.query_seek("page_num > ?", new Object[] { 2 },
+				"page_num DESC", after, 3);
+			if (page.length == 0) {
+				break;
+			}
+			for (DataObject obj : page) {
+				seekList.add(obj._oid());
+			}
+			after = page[page.length - 1];
+		}
+		assertArrayEquals(filtered, seekList.toArray(new String[0]));
+
+		// Seeking after a removed object, continues from its sort position
+		DataObject removed = mtObj.get(full[10]);
+		Map<String, Object> removedKeys = new HashMap<String, Object>();
+		removedKeys.put("_oid", removed._oid());
+		removedKeys.put("page_num", removed.get("page_num"));
+		mtObj.remove(removed._oid());
+		assertArrayEquals(Arrays.copyOfRange(full, 11, 15),
+			mtObj.query_id_seek(null, null, "page_num ASC", removedKeys, 4));
+	}
+
+	@Test
+	public void asyncGetQueryAndSave() {
+		// Setup data, with an async save
+		List<String> oidList = new ArrayList<String>();
+		for (int i = 0; i < 5; ++i) {
+			DataObject entry = mtObj.newEntry();
+			entry.put("async_num", i);
+			entry.saveDeltaAsync().join();
+			oidList.add(entry._oid());
+		}
+
+		// Single get, including a missing object
+		assertEquals(3, mtObj.getAsync(oidList.get(3)).join().getInt("async_num"));
+		assertNull(mtObj.getAsync(GUID.base58()).join());
+
+		// Multiple get, excluding the missing object
+		List<String> getList = new ArrayList<String>(oidList);
+		getList.add(GUID.base58());
+		Map<String, DataObject> getMap = mtObj.getAllAsync(getList).join();
+		assertEquals(new HashSet<String>(oidList), getMap.keySet());
+		assertEquals(2, getMap.get(oidList.get(2)).getInt("async_num"));
+
+		// Query
+		DataObject[] queryRes = mtObj.queryAsync("async_num > ?", new Object[] { 2 },
+			"async_num ASC", -1, -1).join();
+		assertEquals(2, queryRes.length);
+	}
 }
@@ -640,4 +640,39 @@ public class StructSimple_FileWorkspaceMap_test {
 		assertNotNull(keyset);
 		assertTrue(keyset.contains(fileWorkspace._oid()));
 	}
+	
+	@Test
+	public void readByteRange() {
+		FileWorkspace fileWorkspace = testObj.newEntry();
+		fileWorkspace.writeByteArray("rangeFile", "0123456789".getBytes());
+		
+		// Range within, and across the file end
+		assertEquals("234", new String(fileWorkspace.readByteRange("rangeFile", 2, 3)));
+		assertEquals("789", new String(fileWorkspace.readByteRange("rangeFile", 7, 10)));
+		assertEquals(0, fileWorkspace.readByteRange("rangeFile", 20, 5).length);
+		
+		// Missing file
+		assertNull(fileWorkspace.readByteRange("missingRangeFile", 0, 5));
+	}
+	
+	@Test
+	public void appendAndReadByteRange() throws Exception {
+		FileWorkspace fileWorkspace = testObj.newEntry();
+		
+		// Append multiple segments
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 50; ++i) {
+			String segment = "segment-" + i + ";";
+			fileWorkspace.appendByteArray("appendFile", segment.getBytes());
+			expected.append(segment);
+		}
+		String expectedStr = expected.toString();
+		
+		// Validate full read, stream read, and a range read
+		assertEquals(expectedStr, new String(fileWorkspace.readByteArray("appendFile")));
+		assertEquals(expectedStr,
+			new String(IOUtils.toByteArray(fileWorkspace.readInputStream("appendFile"))));
+		assertEquals(expectedStr.substring(100, 150),
+			new String(fileWorkspace.readByteRange("appendFile", 100, 50)));
+	}
 }
@@ -10,7 +10,9 @@ import static org.junit.Assert.assertTrue;
 
 import java.security.SecureRandom;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 
 // Test Case include
 import org.junit.After;
@@ -321,4 +323,41 @@ public class StructSimple_KeyLongMap_test {
 		assertEquals(null, testObj.get("yes"));
 	}
 	
+	@Test
+	public void asyncGetPutAndIncrement() throws Exception {
+		assertNull(testObj.getValueAsync("async").join());
+		testObj.putValueAsync("async", 5L).join();
+		assertEquals(5L, testObj.getValueAsync("async").join().longValue());
+		assertEquals(6L, testObj.incrementAndGetAsync("async").join().longValue());
+		assertEquals(6L, testObj.getValue("async").longValue());
+	}
+	
+	@Test
+	public void bulkGetPutAndRemove() throws Exception {
+		Map<String, Long> values = new HashMap<String, Long>();
+		values.put("bulk1", 1L);
+		values.put("bulk2", 2L);
+		values.put("bulk3", 3L);
+		testObj.putValues(values, 0);
+		
+		Map<String, Long> res = testObj.getValues(Arrays.asList("bulk1", "bulk2", "missing"));
+		assertEquals(2, res.size());
+		assertEquals(1L, res.get("bulk1").longValue());
+		assertEquals(2L, res.get("bulk2").longValue());
+		assertEquals(3L, testObj.getValue("bulk3").longValue());
+		
+		// null values are removed
+		values = new HashMap<String, Long>();
+		values.put("bulk1", null);
+		values.put("bulk2", 20L);
+		testObj.putValues(values, 10000);
+		assertNull(testObj.getValue("bulk1"));
+		assertEquals(20L, testObj.getValue("bulk2").longValue());
+		long lifespan = testObj.getLifespan("bulk2");
+		assertTrue(lifespan > 0 && lifespan <= 10000);
+		
+		testObj.removeValues(Arrays.asList("bulk2", "bulk3"));
+		assertEquals(0, testObj.getValues(Arrays.asList("bulk1", "bulk2", "bulk3")).size());
+	}
+	
 }
@@ -4,7 +4,9 @@ package picoded.dstack.struct.simple;
 import static org.junit.Assert.*;
 
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 
 // Test Case include
 import org.junit.After;
@@ -159,4 +161,43 @@ public class StructSimple_KeyValueMap_test {
 		assertNull(testObj.getValue("pleaseRemove"));
 	}
 	
+	@Test
+	public void asyncGetAndPut() throws Exception {
+		assertNull(testObj.getValueAsync("async").join());
+		testObj.putValueAsync("async", "value").join();
+		assertEquals("value", testObj.getValueAsync("async").join());
+		assertEquals("value", testObj.getValue("async"));
+		
+		testObj.putValueAsync("async", null).join();
+		assertNull(testObj.getValueAsync("async").join());
+	}
+	
+	@Test
+	public void bulkGetPutAndRemove() throws Exception {
+		Map<String, String> values = new HashMap<String, String>();
+		values.put("bulk1", "one");
+		values.put("bulk2", "two");
+		values.put("bulk3", "three");
+		testObj.putValues(values, 0);
+		
+		Map<String, String> res = testObj.getValues(Arrays.asList("bulk1", "bulk2", "missing"));
+		assertEquals(2, res.size());
+		assertEquals("one", res.get("bulk1"));
+		assertEquals("two", res.get("bulk2"));
+		assertEquals("three", testObj.getValue("bulk3"));
+		
+		// null values are removed
+		values = new HashMap<String, String>();
+		values.put("bulk1", null);
+		values.put("bulk2", "second");
+		testObj.putValues(values, 10000);
+		assertNull(testObj.getValue("bulk1"));
+		assertEquals("second", testObj.getValue("bulk2"));
+		long lifespan = testObj.getLifespan("bulk2");
+		assertTrue(lifespan > 0 && lifespan <= 10000);
+		
+		testObj.removeValues(Arrays.asList("bulk2", "bulk3"));
+		assertEquals(0, testObj.getValues(Arrays.asList("bulk1", "bulk2", "bulk3")).size());
+	}
+	
 }